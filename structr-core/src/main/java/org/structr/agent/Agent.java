@@ -21,13 +21,11 @@ package org.structr.agent;
 
 //~--- JDK imports ------------------------------------------------------------
 
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.NodeInterface;
@@ -38,6 +36,10 @@ import org.structr.core.graph.Tx;
 /**
  * Abstract base class for all agents.
  *
+ * An agent is a worker thread in the pool of its task type, it takes the
+ * next task from the queue of the {@link AgentService} and stops when no
+ * task arrived for some time.
+ *
  *
  */
 public abstract class Agent<T extends NodeInterface> extends Thread implements StatusInfo {
@@ -50,14 +52,10 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 	//~--- fields ---------------------------------------------------------
 
 	private final AtomicBoolean acceptingTasks = new AtomicBoolean(true);
+	private final AtomicBoolean suspended      = new AtomicBoolean(false);
 	private AgentService agentService          = null;
 	private long averageExecutionTime          = 0;
-	private Task currentTask                   = null;
-	private long lastStartTime                 = 0;
-	private int maxAgents                      = 4;
-	private int maxQueueSize                   = 10;
-	private final AtomicBoolean suspended      = new AtomicBoolean(false);
-	private final Queue<Task<T>> taskQueue     = new ConcurrentLinkedQueue<>();
+	private volatile Task<T> currentTask       = null;
 
 	//~--- methods --------------------------------------------------------
 
@@ -66,123 +64,81 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 
 		agentService.notifyAgentStart(this);
 
-		do {
+		while (acceptingTasks.get()) {
 
 			while (suspended.get()) {
 
-				Thread.yield();
-
+				try { Thread.sleep(100); } catch (InterruptedException iex) { }
 			}
 
-			synchronized (taskQueue) {
-
-				currentTask = taskQueue.poll();
+			final ScheduledTask next = agentService.nextTask(this);
+			if (next == null) {
 
+				// no more tasks, quit.
+				break;
 			}
 
-			if (currentTask != null) {
-
-				lastStartTime = System.nanoTime();
-
-				ReturnValue ret = null;
-
-				// only execute process if Service layer is ready
-				// (and not shutting down right now)
-				if (Services.getInstance().isInitialized()) {
-
-					if (createEnclosingTransaction()) {
+			currentTask = next.getTask();
 
-						try (final Tx tx = StructrApp.getInstance().tx()) {
+			final long startTime = System.nanoTime();
+			ReturnValue ret      = null;
+			boolean failed       = false;
 
-							ret = processTask(currentTask);
-							tx.success();
+			// only execute process if Service layer is ready
+			// (and not shutting down right now)
+			if (Services.getInstance().isInitialized()) {
 
-						} catch (Throwable t) {
+				if (createEnclosingTransaction()) {
 
-							// someone killed us or the task processing failed..
-							// Logger this!!
-							logger.error("Processing task {} failed. Maybe someone killed us?", currentTask.getType(), t);
-						}
+					try (final Tx tx = StructrApp.getInstance().tx()) {
 
-					} else {
+						ret = processTask(currentTask);
+						tx.success();
 
-						try {
+					} catch (Throwable t) {
 
-							ret = processTask(currentTask);
-
-						} catch (Throwable t) {
-
-							// someone killed us or the task processing failed..
-							// Logger this!!
-							logger.error("Processing task {} failed. Maybe someone killed us?", currentTask.getType(), t);
-						}
+						// someone killed us or the task processing failed..
+						// Logger this!!
+						logger.error("Processing task {} failed. Maybe someone killed us?", currentTask.getType(), t);
+						failed = true;
 					}
-				}
-
-				if (ret != null) {
 
-					// handle return value
-					switch (ret) {
+				} else {
 
-						case Success :
-						case Abort :
+					try {
 
-							// task finished, nothing to do in these cases
-							break;
+						ret = processTask(currentTask);
 
-						case Retry :
-
-							// TODO: schedule task for re-execution
-							break;
+					} catch (Throwable t) {
 
+						// someone killed us or the task processing failed..
+						// Logger this!!
+						logger.error("Processing task {} failed. Maybe someone killed us?", currentTask.getType(), t);
+						failed = true;
 					}
 				}
+			}
 
-				long endTime = System.nanoTime();
-
-				// calc. average execution time
-				averageExecutionTime += endTime;
-				averageExecutionTime /= 2;
+			final long executionTime = System.nanoTime() - startTime;
 
-			} else {
+			// calc. average execution time
+			averageExecutionTime = averageExecutionTime > 0 ? (averageExecutionTime + executionTime) / 2 : executionTime;
 
-				// queue is empty, quit.
-				acceptingTasks.set(false);
-			}
+			agentService.notifyTaskFinished(this, next, ret, failed, executionTime);
 
-		} while (acceptingTasks.get());
+			currentTask = null;
+		}
 
 		// call beforeShutdown to allow agents to clean up
 		beforeShutdown();
 		agentService.notifyAgentStop(this);
 	}
 
-	public final boolean assignTask(final Task<T> task) {
-
-		// TODO: do type check here
-		if (canHandleMore() && acceptingTasks.get()) {
-
-			synchronized (taskQueue) {
-
-				taskQueue.add(task);
-
-			}
-
-			return (true);
-
-		}
-
-		return (false);
-	}
-
 	public final void killAgent() {
 
 		// stop accepting tasks
 		acceptingTasks.set(false);
 
-		// clear queue
-		taskQueue.clear();
-
 		// interrupt running process..
 		// not sure if this works... see Thread.interrupt()'s description!
 		// may not work if the processTask method itself catches the interrupt..
@@ -190,14 +146,10 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 	}
 
 	public final void suspendAgent() {
-
-		acceptingTasks.set(false);
 		suspended.set(true);
 	}
 
 	public final void resumeAgent() {
-
-		acceptingTasks.set(true);
 		suspended.set(false);
 	}
 
@@ -206,54 +158,6 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 		// override me
 	}
 
-	// </editor-fold>
-
-	// <editor-fold defaultstate="collapsed" desc="private methods">
-	private boolean canHandleMore() {
-
-//              return (taskQueue.isEmpty());
-		int size = 0;
-
-		synchronized (taskQueue) {
-
-			// FIXME: size may not be a constant time operation! slow?
-			size = taskQueue.size();
-		}
-
-		// queue is empty, assume new agent
-		if (size == 0) {
-
-			return (true);
-
-		}
-
-		long actualExecutionTime = System.nanoTime() - lastStartTime;
-
-		// calculate thresholds for queue size adaption
-		long upperThreshold = averageExecutionTime + (averageExecutionTime / 2);
-		long lowerThreshold = averageExecutionTime - (averageExecutionTime / 2);
-
-		if ((actualExecutionTime > upperThreshold) && (maxQueueSize > 2)) {
-
-			// FIXME
-			maxQueueSize -= 2;
-
-			// do not take the next task
-			return (false);
-		} else if ((actualExecutionTime < lowerThreshold) && (maxQueueSize < 200)) {
-
-			// FIXME
-			maxQueueSize += 2;
-
-			// can take the next task
-			return (true);
-		}
-
-		return (size < maxQueueSize);
-	}
-
-	// </editor-fold>
-
 	/**
 	 * This method will be called by the AgentService
 	 * @param task
@@ -268,25 +172,27 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 		return (currentTask);
 	}
 
+	/**
+	 * Returns the tasks that wait in the queue of this agent's task type.
+	 *
+	 * @return the queued tasks
+	 */
 	public final List<Task<T>> getTaskQueue() {
-
-		List<Task<T>> ret = new LinkedList<Task<T>>();
-
-		ret.addAll(taskQueue);
-
-		return (ret);
-	}
-
-	public final int getMaxQueueSize() {
-		return (maxQueueSize);
+		return (List)agentService.getQueuedTasks(getSupportedTaskType());
 	}
 
 	public final long getAverageExecutionTime() {
 		return (averageExecutionTime);
 	}
 
+	/**
+	 * Returns the default size of the agent pool for the supported task
+	 * type. Can be overridden by the setting application.agents.&lt;TaskType&gt;.workers.
+	 *
+	 * @return the maximum number of agents
+	 */
 	public int getMaxAgents() {
-		return (maxAgents);
+		return Settings.AgentWorkers.getValue();
 	}
 
 	// ----- interface StatusInfo -----
@@ -299,7 +205,7 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 
 		} else if (key.equals(MAX_QUEUE_SIZE)) {
 
-			return (getMaxQueueSize());
+			return (getTaskQueue().size());
 
 		} else if (key.equals(EXECUTION_STATUS)) {
 
@@ -324,7 +230,7 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 	}
 
 	public final boolean isAcceptingTasks() {
-		return (acceptingTasks.get());
+		return (acceptingTasks.get() && !suspended.get());
 	}
 
 	//~--- set methods ----------------------------------------------------
@@ -337,9 +243,6 @@ public abstract class Agent<T extends NodeInterface> extends Thread implements S
 		this.setDaemon(false);
 
 		this.agentService = service;
-
-		// initialize lastStartTime
-		lastStartTime = System.nanoTime();
 	}
 
 	// </editor-fold>
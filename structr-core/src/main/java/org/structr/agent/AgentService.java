@@ -18,23 +18,36 @@
  */
 package org.structr.agent;
 
+import java.lang.reflect.Constructor;
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.agent.TaskJournal.TaskRecord;
+import org.structr.api.config.Setting;
+import org.structr.api.config.Settings;
 import org.structr.api.service.Command;
 import org.structr.api.service.RunnableService;
 import org.structr.api.service.StructrServices;
+import org.structr.core.GraphObject;
 import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.Tx;
 import org.structr.schema.ConfigurationProvider;
 
 //~--- classes ----------------------------------------------------------------
@@ -42,18 +55,24 @@ import org.structr.schema.ConfigurationProvider;
 /**
  * The agent service main class.
  *
+ * Tasks are put into a priority queue per task type and handed over to a
+ * pool of agents that block on that queue, the pool size can be configured
+ * per task type. Submitted tasks are written to a {@link TaskJournal} and
+ * replayed on the next start if they were not processed.
+ *
  *
  */
 public class AgentService extends Thread implements RunnableService {
 
-	private static final Logger logger = LoggerFactory.getLogger(AgentService.class.getName());
+	private static final Logger logger                  = LoggerFactory.getLogger(AgentService.class.getName());
+	private static final long IDLE_TIME                 = TimeUnit.SECONDS.toMillis(5);
+	private static final int JOURNAL_COMPACTION         = 10000;
 
-	private final int maxAgents                          = 4;    // TODO: make configurable
-	private final Map<String, List<Agent>> runningAgents = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Map<String, Class> agentClassCache     = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Queue<Task> taskQueue                  = new ConcurrentLinkedQueue<>();
-	private Set<Class> supportedCommands                 = null;
-	private boolean run                                  = false;
+	private final Map<String, TaskQueue> queues         = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, Class> agentClassCache    = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private Set<Class> supportedCommands                = null;
+	private TaskJournal journal                         = null;
+	private volatile boolean run                        = false;
 
 	public AgentService() {
 
@@ -64,24 +83,22 @@ public class AgentService extends Thread implements RunnableService {
 		super.setDaemon(true);
 	}
 
-	public void processTask(Task task) {
+	public void processTask(final Task task) {
 
-		synchronized (taskQueue) {
+		submit(new ScheduledTask(task, journal(task), 0));
 
-			taskQueue.add(task);
-			logger.debug("Task {} added to task queue", task);
-		}
+		logger.debug("Task {} added to task queue", task);
 	}
 
-	public Agent findAgentForTask(Task task) {
+	public Agent findAgentForTask(final Task task) {
 
-		List<Agent> agents = getRunningAgentsForTask(task.getClass());
+		final TaskQueue queue = getQueue(task.getClass());
 
-		synchronized (agents) {
+		synchronized (queue) {
 
-			for (Agent agent : agents) {
+			for (final Agent agent : queue.agents) {
 
-				if (agent.getTaskQueue().contains(task)) {
+				if (agent.getCurrentTask() == task) {
 					return (agent);
 				}
 			}
@@ -95,34 +112,36 @@ public class AgentService extends Thread implements RunnableService {
 
 		logger.info("AgentService started");
 
-		while (run) {
+		final Services servicesInstance = Services.getInstance();
 
-			Task nextTask = taskQueue.poll();
-			if (nextTask != null) {
-
-				assignNextAgentForTask(nextTask);
-			}
+		// wait for service layer to be initialized, nodes can not be restored before
+		while (run && !servicesInstance.isInitialized()) {
+			try { Thread.sleep(100); } catch(InterruptedException iex) { }
+		}
 
-			// let others act
-			try { Thread.sleep(10); } catch(Throwable ignore) {}
+		if (run && journal != null) {
+			replay();
 		}
 	}
 
-	public void notifyAgentStart(Agent agent) {
+	public void notifyAgentStart(final Agent agent) {
+
+		final TaskQueue queue = getQueue(agent.getSupportedTaskType());
 
-		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
+		synchronized (queue) {
 
-		synchronized (agents) {
-			agents.add(agent);
+			if (!queue.agents.contains(agent)) {
+				queue.agents.add(agent);
+			}
 		}
 	}
 
-	public void notifyAgentStop(Agent agent) {
+	public void notifyAgentStop(final Agent agent) {
 
-		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
+		final TaskQueue queue = getQueue(agent.getSupportedTaskType());
 
-		synchronized (agents) {
-			agents.remove(agent);
+		synchronized (queue) {
+			queue.agents.remove(agent);
 		}
 	}
 
@@ -137,6 +156,23 @@ public class AgentService extends Thread implements RunnableService {
 		return Collections.emptyMap();
 	}
 
+	/**
+	 * Returns queue depth, latency and throughput statistics for each
+	 * task type.
+	 *
+	 * @return the statistics, keyed by task type
+	 */
+	public Map<String, Map<String, Long>> getStatistics() {
+
+		final Map<String, Map<String, Long>> statistics = new LinkedHashMap<>();
+
+		for (final Entry<String, TaskQueue> entry : queues.entrySet()) {
+			statistics.put(entry.getKey(), entry.getValue().getStatistics());
+		}
+
+		return statistics;
+	}
+
 	// <editor-fold defaultstate="collapsed" desc="interface RunnableService">
 	@Override
 	public void injectArguments(Command command) {
@@ -145,13 +181,29 @@ public class AgentService extends Thread implements RunnableService {
 
 	@Override
 	public void initialize(final StructrServices services) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+
+		try {
+
+			journal = new TaskJournal(Paths.get(Settings.getFullSettingPath(Settings.TaskJournalPath)), JOURNAL_COMPACTION);
+
+		} catch (Throwable t) {
+
+			logger.warn("Unable to open task journal, tasks will not be persisted: {}", t.getMessage());
+		}
 	}
 
 	@Override
 	public void initialized() {}
 
 	@Override
-	public void shutdown() {}
+	public void shutdown() {
+
+		run = false;
+
+		if (journal != null) {
+			journal.close();
+		}
+	}
 
 	@Override
 	public void startService() throws Exception {
@@ -172,54 +224,328 @@ public class AgentService extends Thread implements RunnableService {
 
 	// </editor-fold>
 
+	// ----- package-private methods -----
+	/**
+	 * Blocks until the next task for the given agent is available. Returns
+	 * null if no task arrives within the idle time, in which case the agent
+	 * has been removed from the pool and must stop.
+	 */
+	ScheduledTask nextTask(final Agent agent) {
+
+		final TaskQueue queue = getQueue(agent.getSupportedTaskType());
+
+		while (true) {
+
+			ScheduledTask next = null;
+
+			synchronized (queue) {
+				queue.idle++;
+			}
+
+			try {
+
+				next = queue.tasks.poll(IDLE_TIME, TimeUnit.MILLISECONDS);
+
+			} catch (InterruptedException iex) {
+
+				// agent was killed
+				synchronized (queue) {
+
+					queue.idle--;
+					queue.agents.remove(agent);
+				}
+
+				return null;
+			}
+
+			synchronized (queue) {
+
+				queue.idle--;
+
+				if (next == null && (queue.tasks.isEmpty() || !run)) {
+
+					// remove agent in the same critical section in which
+					// submit() decides whether a new agent is needed
+					queue.agents.remove(agent);
+
+					return null;
+				}
+			}
+
+			if (next != null) {
+
+				queue.latency.addAndGet(System.nanoTime() - next.getEnqueueTime());
+				queue.started.incrementAndGet();
+
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * Called by an agent after it processed a task. A return value of null
+	 * indicates that the task was not processed, it stays in the journal
+	 * and is replayed on the next start.
+	 */
+	void notifyTaskFinished(final Agent agent, final ScheduledTask task, final ReturnValue returnValue, final boolean failed, final long duration) {
+
+		final TaskQueue queue = getQueue(agent.getSupportedTaskType());
+
+		if (returnValue == null && !failed) {
+			return;
+		}
+
+		queue.execution.addAndGet(duration);
+
+		if (failed) {
+
+			queue.failed.incrementAndGet();
+
+		} else if (ReturnValue.Retry.equals(returnValue)) {
+
+			if (task.getAttempts() < Settings.AgentRetries.getValue()) {
+
+				queue.retried.incrementAndGet();
+
+				submit(new ScheduledTask(task.getTask(), task.getJournalId(), task.getAttempts() + 1));
+
+				return;
+			}
+
+			logger.warn("Task {} could not be processed after {} attempts, giving up", task.getTask().getType(), task.getAttempts() + 1);
+
+			queue.failed.incrementAndGet();
+
+		} else {
+
+			queue.completeTask();
+		}
+
+		if (journal != null && task.getJournalId() >= 0) {
+			journal.complete(task.getJournalId());
+		}
+	}
+
+	List<Task> getQueuedTasks(final Class taskClass) {
+
+		final List<Task> tasks = new LinkedList<>();
+
+		for (final ScheduledTask task : getQueue(taskClass).tasks) {
+			tasks.add(task.getTask());
+		}
+
+		return tasks;
+	}
+
 	// <editor-fold defaultstate="collapsed" desc="private methods">
-	private void assignNextAgentForTask(Task nextTask) {
+	private void submit(final ScheduledTask task) {
+
+		final Class taskClass = task.getTask().getClass();
+		final TaskQueue queue = getQueue(taskClass);
+
+		queue.submitted.incrementAndGet();
+		queue.tasks.add(task);
 
-		Class taskClass    = nextTask.getClass();
-		List<Agent> agents = getRunningAgentsForTask(taskClass);
+		synchronized (queue) {
 
-		// need to synchronize on agents
-		synchronized (agents) {
+			// start a new agent only if no idle agent can take the task
+			if (queue.tasks.size() > queue.idle && (queue.agents.isEmpty() || queue.agents.size() < queue.maxAgents)) {
 
-			// find next free agent (agents should be sorted by load, so one
-			// of the first should do..
-			for (Agent agent : agents) {
+				final Agent agent = createAgent(task.getTask());
+				if (agent != null) {
 
-				if (agent.assignTask(nextTask)) {
+					queue.maxAgents = getMaxAgents(taskClass, agent);
+					queue.agents.add(agent);
 
-					// ok, task is assigned
-					logger.debug("Task assigned to agent {}", agent.getName());
+					agent.start();
 
-					return;
+				} else if (queue.agents.isEmpty()) {
+
+					logger.warn("No agent found for task {}, discarding task", task.getTask().getType());
+
+					queue.tasks.remove(task);
+
+					if (journal != null && task.getJournalId() >= 0) {
+						journal.complete(task.getJournalId());
+					}
 				}
 			}
 		}
+	}
+
+	private int getMaxAgents(final Class taskClass, final Agent agent) {
+
+		// a pool size configured for the task type overrides the default of the agent
+		final Setting<Integer> setting = Settings.getIntegerSetting("application.agents", taskClass.getSimpleName(), "workers");
+		if (setting != null && setting.getValue() != null && setting.getValue() > 0) {
+
+			return setting.getValue();
+		}
 
-		// FIXME: find better solution for hard limit here!
-		if (agents.size() < maxAgents) {
+		return Math.max(1, agent.getMaxAgents());
+	}
 
-			// if we get here, task was not assigned to any agent, need to
-			// create a new one.
-			Agent agent = createAgent(nextTask);
+	/**
+	 * Writes the given task to the journal if it can be restored later,
+	 * i.e. if it has a public default constructor or a public constructor
+	 * that takes the node it operates on.
+	 *
+	 * @return the journal id, or -1 if the task was not journaled
+	 */
+	private long journal(final Task task) {
+
+		if (journal == null) {
+			return -1L;
+		}
+
+		final Class taskClass = task.getClass();
+
+		try (final Tx tx = StructrApp.getInstance().tx()) {
+
+			final Principal user      = task.getUser();
+			final String userId       = user != null ? user.getUuid() : null;
+			final List<String> nodeIds = new LinkedList<>();
+			TaskRecord record          = null;
+
+			if (getNodeConstructor(taskClass, NodeInterface.class) != null) {
+
+				for (final Object node : task.getNodes()) {
+					nodeIds.add(((GraphObject)node).getUuid());
+				}
+
+				record = new TaskRecord(taskClass.getName(), task.getType(), task.priority(), userId, nodeIds);
+
+			} else if (getDefaultConstructor(taskClass) != null) {
+
+				record = new TaskRecord(taskClass.getName(), task.getType(), task.priority(), userId, null);
+			}
+
+			tx.success();
+
+			if (record != null) {
+				return journal.append(record);
+			}
+
+		} catch (Throwable t) {
+
+			logger.warn("Unable to write task {} to journal: {}", task.getType(), t.getMessage());
+		}
+
+		return -1L;
+	}
+
+	private void replay() {
+
+		final Map<Long, TaskRecord> pending = journal.getPending();
+		if (!pending.isEmpty()) {
+
+			logger.info("Replaying {} unprocessed tasks from task journal", pending.size());
+		}
+
+		for (final Entry<Long, TaskRecord> entry : pending.entrySet()) {
+
+			final TaskRecord record = entry.getValue();
+			Task task               = null;
+
+			try (final Tx tx = StructrApp.getInstance().tx()) {
+
+				task = restoreTask(record);
+				tx.success();
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to restore task {} from journal: {}", record.getClassName(), t.getMessage());
+			}
+
+			if (task != null) {
+
+				getQueue(task.getClass()).replayed.incrementAndGet();
+				submit(new ScheduledTask(task, entry.getKey(), 0));
 
-			if ((agent != null) && agent.assignTask(nextTask)) {
-				agent.start();
 			} else {
 
-				// re-add task..
-				synchronized (taskQueue) {
-					taskQueue.add(nextTask);
+				journal.complete(entry.getKey());
+			}
+		}
+	}
+
+	private Task restoreTask(final TaskRecord record) throws Exception {
+
+		final Class taskClass           = Class.forName(record.getClassName());
+		final App app                   = StructrApp.getInstance();
+		final List<NodeInterface> nodes = new LinkedList<>();
+		Task task                       = null;
+
+		for (final String uuid : record.getNodeIds()) {
+
+			final NodeInterface node = app.getNodeById(uuid);
+			if (node != null) {
+
+				nodes.add(node);
+			}
+		}
+
+		if (record.getNodeIds().isEmpty()) {
+
+			task = (Task)taskClass.newInstance();
+
+		} else if (!nodes.isEmpty()) {
+
+			final Constructor constructor = getNodeConstructor(taskClass, nodes.get(0).getClass());
+			if (constructor != null) {
+
+				task = (Task)constructor.newInstance(nodes.get(0));
+
+				if (task instanceof AbstractTask) {
+
+					for (final NodeInterface node : nodes.subList(1, nodes.size())) {
+						((AbstractTask)task).addNode(node);
+					}
 				}
 			}
-		} else {
+		}
+
+		// nodes were deleted in the meantime
+		if (task == null) {
+			return null;
+		}
 
-			logger.debug("Overall agents limit reached, re-queueing task");
+		if (task instanceof AbstractTask) {
 
-			// re-add task..
-			synchronized (taskQueue) {
-				taskQueue.add(nextTask);
+			((AbstractTask)task).setPriority(record.getPriority());
+
+			if (record.getUserId() != null) {
+				((AbstractTask)task).setUser(app.get(Principal.class, record.getUserId()));
 			}
 		}
+
+		return task;
+	}
+
+	private Constructor getDefaultConstructor(final Class taskClass) {
+
+		for (final Constructor constructor : taskClass.getConstructors()) {
+
+			if (constructor.getParameterCount() == 0) {
+				return constructor;
+			}
+		}
+
+		return null;
+	}
+
+	private Constructor getNodeConstructor(final Class taskClass, final Class nodeClass) {
+
+		for (final Constructor constructor : taskClass.getConstructors()) {
+
+			final Class[] parameterTypes = constructor.getParameterTypes();
+
+			if (parameterTypes.length == 1 && NodeInterface.class.isAssignableFrom(parameterTypes[0]) && (parameterTypes[0].isAssignableFrom(nodeClass) || nodeClass.isAssignableFrom(parameterTypes[0]))) {
+				return constructor;
+			}
+		}
+
+		return null;
 	}
 
 	/**
@@ -296,6 +622,10 @@ public class AgentService extends Thread implements RunnableService {
 		return (agent);
 	}
 
+	private TaskQueue getQueue(final Class taskClass) {
+		return queues.computeIfAbsent(taskClass.getName(), k -> new TaskQueue());
+	}
+
 	// </editor-fold>
 
 	/**
@@ -303,7 +633,17 @@ public class AgentService extends Thread implements RunnableService {
 	 * @return tasks
 	 */
 	public Collection<Task> getTaskQueue() {
-		return (taskQueue);
+
+		final List<Task> tasks = new LinkedList<>();
+
+		for (final TaskQueue queue : queues.values()) {
+
+			for (final ScheduledTask task : queue.tasks) {
+				tasks.add(task.getTask());
+			}
+		}
+
+		return (tasks);
 	}
 
 	/**
@@ -311,22 +651,19 @@ public class AgentService extends Thread implements RunnableService {
 	 * @return agents
 	 */
 	public Map<String, List<Agent>> getRunningAgents() {
-		return (runningAgents);
-	}
-
-	private List<Agent> getRunningAgentsForTask(Class taskClass) {
 
-		List<Agent> agents = runningAgents.get(taskClass.getName());
+		final Map<String, List<Agent>> runningAgents = new LinkedHashMap<>();
 
-		if (agents == null) {
+		for (final Entry<String, TaskQueue> entry : queues.entrySet()) {
 
-			agents = Collections.synchronizedList(new LinkedList<Agent>());
+			final TaskQueue queue = entry.getValue();
 
-			// Hashtable is synchronized
-			runningAgents.put(taskClass.getName(), agents);
+			synchronized (queue) {
+				runningAgents.put(entry.getKey(), new LinkedList<>(queue.agents));
+			}
 		}
 
-		return (agents);
+		return (runningAgents);
 	}
 
 	@Override
@@ -344,4 +681,70 @@ public class AgentService extends Thread implements RunnableService {
 	public String getModuleName() {
 		return "agents";
 	}
+
+	// ----- nested classes -----
+	/**
+	 * The queue and the agent pool of a single task type. The agent list
+	 * and the idle counter are guarded by the monitor of this object.
+	 */
+	private static class TaskQueue {
+
+		private final PriorityBlockingQueue<ScheduledTask> tasks = new PriorityBlockingQueue<>();
+		private final List<Agent> agents                          = new LinkedList<>();
+		private final AtomicLong submitted                        = new AtomicLong();
+		private final AtomicLong started                          = new AtomicLong();
+		private final AtomicLong completed                        = new AtomicLong();
+		private final AtomicLong failed                           = new AtomicLong();
+		private final AtomicLong retried                          = new AtomicLong();
+		private final AtomicLong replayed                         = new AtomicLong();
+		private final AtomicLong latency                          = new AtomicLong();
+		private final AtomicLong execution                        = new AtomicLong();
+		private long currentMinute                                = 0L;
+		private long completedInCurrentMinute                     = 0L;
+		private long completedInLastMinute                        = 0L;
+		private int maxAgents                                     = 1;
+		private int idle                                          = 0;
+
+		private synchronized void completeTask() {
+
+			updateMinute();
+
+			completed.incrementAndGet();
+			completedInCurrentMinute++;
+		}
+
+		private synchronized Map<String, Long> getStatistics() {
+
+			final Map<String, Long> statistics = new LinkedHashMap<>();
+			final long startedCount            = started.get();
+			final long finishedCount           = completed.get() + failed.get() + retried.get();
+
+			updateMinute();
+
+			statistics.put("queued",               Long.valueOf(tasks.size()));
+			statistics.put("agents",               Long.valueOf(agents.size()));
+			statistics.put("maxAgents",            Long.valueOf(maxAgents));
+			statistics.put("submitted",            submitted.get());
+			statistics.put("completed",            completed.get());
+			statistics.put("failed",               failed.get());
+			statistics.put("retried",              retried.get());
+			statistics.put("replayed",             replayed.get());
+			statistics.put("averageLatency",       startedCount  > 0 ? TimeUnit.NANOSECONDS.toMillis(latency.get()   / startedCount)  : 0L);
+			statistics.put("averageExecutionTime", finishedCount > 0 ? TimeUnit.NANOSECONDS.toMillis(execution.get() / finishedCount) : 0L);
+			statistics.put("throughputPerMinute",  completedInLastMinute);
+
+			return statistics;
+		}
+
+		private void updateMinute() {
+
+			final long minute = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+			if (minute != currentMinute) {
+
+				completedInLastMinute    = minute == currentMinute + 1 ? completedInCurrentMinute : 0L;
+				completedInCurrentMinute = 0L;
+				currentMinute            = minute;
+			}
+		}
+	}
 }
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.agent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A task in the queue of the {@link AgentService}. Tasks with a higher
+ * priority are processed first, tasks with the same priority in the order
+ * in which they were submitted.
+ */
+class ScheduledTask implements Comparable<ScheduledTask> {
+
+	private static final AtomicLong sequenceCounter = new AtomicLong();
+
+	private final long sequence = sequenceCounter.incrementAndGet();
+	private final long enqueued = System.nanoTime();
+	private Task task           = null;
+	private long journalId      = -1L;
+	private int attempts        = 0;
+
+	ScheduledTask(final Task task, final long journalId, final int attempts) {
+
+		this.task      = task;
+		this.journalId = journalId;
+		this.attempts  = attempts;
+	}
+
+	public Task getTask() {
+		return task;
+	}
+
+	public long getJournalId() {
+		return journalId;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public long getEnqueueTime() {
+		return enqueued;
+	}
+
+	@Override
+	public int compareTo(final ScheduledTask other) {
+
+		final int priority = Integer.compare(other.task.priority(), task.priority());
+		if (priority != 0) {
+
+			return priority;
+		}
+
+		return Long.compare(sequence, other.sequence);
+	}
+}
@@ -0,0 +1,363 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An append-only journal of the tasks that were handed over to the
+ * {@link AgentService}, but not yet processed.
+ *
+ * Every submitted task is written as an ADD record, every processed task as
+ * a DONE record. The records of all tasks that were not completed when the
+ * journal was closed (or the process died) are replayed on the next start,
+ * so a task is processed at least once. ADD records are forced to disk
+ * before a task is accepted, DONE records are not: a task that completed
+ * shortly before a crash of the operating system may be replayed, and so
+ * may a task that completes after the journal was closed.
+ */
+public class TaskJournal {
+
+	private static final Logger logger            = LoggerFactory.getLogger(TaskJournal.class.getName());
+	private static final String JOURNAL_FILE_NAME = "tasks.journal";
+	private static final byte ADD                 = 1;
+	private static final byte DONE                = 2;
+
+	private final Map<Long, byte[]> pending = new LinkedHashMap<>();
+	private FileChannel channel             = null;
+	private Path file                       = null;
+	private int compactionThreshold         = 0;
+	private int completedSinceCompaction    = 0;
+	private long nextId                     = 1L;
+
+	public TaskJournal(final Path directory, final int compactionThreshold) throws IOException {
+
+		this.compactionThreshold = compactionThreshold;
+		this.file                = directory.resolve(JOURNAL_FILE_NAME);
+
+		Files.createDirectories(directory);
+
+		if (Files.exists(file)) {
+			read();
+		}
+
+		// start with a journal that contains only the pending records
+		compact();
+	}
+
+	/**
+	 * Appends the given task record to the journal.
+	 *
+	 * @param record
+	 * @return the journal id of the record
+	 *
+	 * @throws IOException
+	 */
+	public synchronized long append(final TaskRecord record) throws IOException {
+
+		final long id      = nextId++;
+		final byte[] data  = record.toByteArray();
+
+		write(ADD, id, data);
+		channel.force(false);
+
+		pending.put(id, data);
+
+		return id;
+	}
+
+	/**
+	 * Marks the task with the given journal id as processed.
+	 *
+	 * @param id
+	 */
+	public synchronized void complete(final long id) {
+
+		if (pending.remove(id) == null) {
+			return;
+		}
+
+		// the journal was closed while the task was running, it will be replayed
+		if (channel == null) {
+			return;
+		}
+
+		try {
+
+			if (pending.isEmpty()) {
+
+				// nothing left to replay, start over
+				channel.truncate(0L);
+				completedSinceCompaction = 0;
+
+			} else {
+
+				write(DONE, id, null);
+
+				if (++completedSinceCompaction >= compactionThreshold) {
+					compact();
+				}
+			}
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to write task journal: {}", ioex.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the records of all tasks that were not yet processed, in
+	 * the order in which they were submitted.
+	 *
+	 * @return the pending records, keyed by journal id
+	 */
+	public synchronized Map<Long, TaskRecord> getPending() {
+
+		final Map<Long, TaskRecord> records = new LinkedHashMap<>();
+
+		for (final Entry<Long, byte[]> entry : pending.entrySet()) {
+
+			try {
+				records.put(entry.getKey(), TaskRecord.fromByteArray(entry.getValue()));
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to read task journal record {}: {}", entry.getKey(), ioex.getMessage());
+			}
+		}
+
+		return records;
+	}
+
+	public synchronized int size() {
+		return pending.size();
+	}
+
+	public synchronized void close() {
+
+		if (channel != null) {
+
+			try {
+				channel.close();
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to close task journal: {}", ioex.getMessage());
+			}
+
+			channel = null;
+		}
+	}
+
+	// ----- private methods -----
+	private void write(final byte op, final long id, final byte[] data) throws IOException {
+
+		if (channel == null) {
+			throw new IOException("Task journal is closed");
+		}
+
+		final int length        = data != null ? data.length : 0;
+		final ByteBuffer buffer = ByteBuffer.allocate(13 + length);
+
+		buffer.put(op);
+		buffer.putLong(id);
+		buffer.putInt(length);
+
+		if (data != null) {
+			buffer.put(data);
+		}
+
+		buffer.flip();
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private void read() throws IOException {
+
+		try (final DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+
+			while (true) {
+
+				final byte op     = in.readByte();
+				final long id     = in.readLong();
+				final byte[] data = new byte[in.readInt()];
+
+				in.readFully(data);
+
+				switch (op) {
+
+					case ADD:
+						pending.put(id, data);
+						break;
+
+					case DONE:
+						pending.remove(id);
+						break;
+				}
+
+				nextId = Math.max(nextId, id + 1);
+			}
+
+		} catch (EOFException eof) {
+
+			// end of journal, an incomplete record at the end is ignored
+		}
+	}
+
+	private void compact() throws IOException {
+
+		final Path tmp = file.resolveSibling(JOURNAL_FILE_NAME + ".tmp");
+
+		close();
+
+		channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+		for (final Entry<Long, byte[]> entry : pending.entrySet()) {
+			write(ADD, entry.getKey(), entry.getValue());
+		}
+
+		channel.force(true);
+		channel.close();
+
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+		completedSinceCompaction = 0;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * The persistent representation of a task: its class, type, priority,
+	 * the UUID of the user and the UUIDs of the nodes it operates on.
+	 */
+	public static class TaskRecord {
+
+		private List<String> nodeIds = null;
+		private String className     = null;
+		private String type          = null;
+		private String userId        = null;
+		private int priority         = 0;
+
+		public TaskRecord(final String className, final String type, final int priority, final String userId, final List<String> nodeIds) {
+
+			this.className = className;
+			this.type      = type;
+			this.priority  = priority;
+			this.userId    = userId;
+			this.nodeIds   = nodeIds != null ? nodeIds : Collections.emptyList();
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		public int getPriority() {
+			return priority;
+		}
+
+		public String getUserId() {
+			return userId;
+		}
+
+		public List<String> getNodeIds() {
+			return nodeIds;
+		}
+
+		// ----- private methods -----
+		private byte[] toByteArray() throws IOException {
+
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			try (final DataOutputStream out = new DataOutputStream(bytes)) {
+
+				out.writeUTF(className);
+				writeNullable(out, type);
+				out.writeInt(priority);
+				writeNullable(out, userId);
+				out.writeInt(nodeIds.size());
+
+				for (final String nodeId : nodeIds) {
+					out.writeUTF(nodeId);
+				}
+			}
+
+			return bytes.toByteArray();
+		}
+
+		private static TaskRecord fromByteArray(final byte[] data) throws IOException {
+
+			try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+
+				final String className     = in.readUTF();
+				final String type          = readNullable(in);
+				final int priority         = in.readInt();
+				final String userId        = readNullable(in);
+				final int count            = in.readInt();
+				final List<String> nodeIds = new ArrayList<>(count);
+
+				for (int i=0; i<count; i++) {
+					nodeIds.add(in.readUTF());
+				}
+
+				return new TaskRecord(className, type, priority, userId, nodeIds);
+			}
+		}
+
+		private static void writeNullable(final DataOutputStream out, final String value) throws IOException {
+
+			out.writeBoolean(value != null);
+
+			if (value != null) {
+				out.writeUTF(value);
+			}
+		}
+
+		private static String readNullable(final DataInputStream in) throws IOException {
+
+			if (in.readBoolean()) {
+				return in.readUTF();
+			}
+
+			return null;
+		}
+	}
+}
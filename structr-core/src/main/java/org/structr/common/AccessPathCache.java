@@ -18,13 +18,15 @@
  */
 package org.structr.common;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.graph.Relationship;
+import org.structr.api.util.Cachable;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.core.graph.NodeInterface;
 
 /**
@@ -32,9 +34,9 @@ import org.structr.core.graph.NodeInterface;
  */
 public class AccessPathCache {
 
-	private static final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-	private static final Set<String> allRelTypes       = new HashSet<>();
-	private static final Set<String> allUuids          = new HashSet<>();
+	private static final ConcurrentFixedSizeCache<String, CacheEntry> cache = new ConcurrentFixedSizeCache<>(Settings.AccessPathCacheSize.getValue());
+	private static final Map<String, Set<String>> relTypeIndex               = new ConcurrentHashMap<>();
+	private static final Map<String, Set<String>> uuidIndex                  = new ConcurrentHashMap<>();
 
 	public static PermissionResolutionMask get(final NodeInterface startNode, final NodeInterface endNode) {
 
@@ -53,8 +55,8 @@ public class AccessPathCache {
 		final CacheEntry entry = getOrCreateCacheEntry(startNode, endNode);
 
 		// remember UUIDs
-		allUuids.add(startNode.getUuid());
-		allUuids.add(endNode.getUuid());
+		addToIndex(uuidIndex, entry.uuids, startNode.getUuid(), entry.key);
+		addToIndex(uuidIndex, entry.uuids, endNode.getUuid(), entry.key);
 
 		entry.mask = mask;
 	}
@@ -66,8 +68,7 @@ public class AccessPathCache {
 
 		if (uuid != null) {
 
-			entry.uuids.add(uuid);
-			allUuids.add(uuid);
+			addToIndex(uuidIndex, entry.uuids, uuid, entry.key);
 		}
 	}
 
@@ -78,69 +79,37 @@ public class AccessPathCache {
 
 		if (uuid != null) {
 
-			final String relType   = rel.getType().name();
-
-			entry.uuids.add(uuid);
-			allUuids.add(uuid);
-
-			entry.relTypes.add(relType);
-			allRelTypes.add(relType);
-
+			addToIndex(uuidIndex, entry.uuids, uuid, entry.key);
+			addToIndex(relTypeIndex, entry.relTypes, rel.getType().name(), entry.key);
 		}
 	}
 
 	public static void invalidateForId(final String uuid) {
-
-		if (allUuids.contains(uuid)) {
-
-			for (final CacheEntry entry : cache.values()) {
-
-				if (entry.uuids.contains(uuid)) {
-					cache.remove(entry.key);
-				}
-			}
-
-			allUuids.remove(uuid);
-		}
+		invalidate(uuidIndex.remove(uuid));
 	}
 
 	public static void invalidateForRelType(final String relType) {
-
-		if (allRelTypes.contains(relType)) {
-
-			for (final CacheEntry entry : cache.values()) {
-
-				if (entry.relTypes.contains(relType)) {
-					cache.remove(entry.key);
-				}
-			}
-
-			allRelTypes.remove(relType);
-		}
+		invalidate(relTypeIndex.remove(relType));
 	}
 
 	public static void invalidate() {
 
-		allRelTypes.clear();
-		allUuids.clear();
 		cache.clear();
+		relTypeIndex.clear();
+		uuidIndex.clear();
 	}
 
 	// ----- private methods -----
 	private static CacheEntry getOrCreateCacheEntry(final NodeInterface startNode, final NodeInterface endNode) {
 
-		final String cacheKey = cacheKey(startNode, endNode);
-		CacheEntry entry      = cache.get(cacheKey);
-
-		if (entry == null) {
-
-			entry = new CacheEntry();
-			entry.key = cacheKey;
+		final String cacheKey  = cacheKey(startNode, endNode);
+		final CacheEntry entry = cache.get(cacheKey);
 
-			cache.put(cacheKey, entry);
+		if (entry != null) {
+			return entry;
 		}
 
-		return entry;
+		return cache.putIfAbsent(cacheKey, new CacheEntry(cacheKey));
 	}
 
 	private static String cacheKey(final NodeInterface startNode, final NodeInterface endNode) {
@@ -156,12 +125,70 @@ public class AccessPathCache {
 		return null;
 	}
 
+	private static void addToIndex(final Map<String, Set<String>> index, final Set<String> values, final String value, final String cacheKey) {
+
+		if (value != null && values.add(value)) {
+
+			index.compute(value, (k, keys) -> {
+
+				final Set<String> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+				result.add(cacheKey);
+
+				return result;
+			});
+		}
+	}
+
+	private static void removeFromIndex(final Map<String, Set<String>> index, final Set<String> values, final String cacheKey) {
+
+		for (final String value : values) {
+
+			index.computeIfPresent(value, (k, keys) -> {
+
+				keys.remove(cacheKey);
+
+				return keys.isEmpty() ? null : keys;
+			});
+		}
+	}
+
+	private static void invalidate(final Set<String> cacheKeys) {
+
+		if (cacheKeys != null) {
+
+			for (final String cacheKey : cacheKeys) {
+
+				final CacheEntry entry = cache.get(cacheKey);
+				if (entry != null) {
+
+					cache.remove(cacheKey);
+					entry.unregister();
+				}
+			}
+		}
+	}
+
 	// ----- nested classes -----
-	private static class CacheEntry {
+	private static class CacheEntry implements Cachable {
 
-		protected Set<String> uuids             = new HashSet<>();
-		protected Set<String> relTypes          = new HashSet<>();
+		protected final Set<String> uuids       = ConcurrentHashMap.newKeySet();
+		protected final Set<String> relTypes    = ConcurrentHashMap.newKeySet();
 		protected PermissionResolutionMask mask = null;
 		protected String key                    = null;
+
+		public CacheEntry(final String key) {
+			this.key = key;
+		}
+
+		@Override
+		public void onRemoveFromCache() {
+			unregister();
+		}
+
+		public void unregister() {
+
+			removeFromIndex(uuidIndex, uuids, key);
+			removeFromIndex(relTypeIndex, relTypes, key);
+		}
 	}
 }
@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.api.util.Cachable;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+
+/**
+ * A bounded cache for the results of the permission resolution along
+ * permission-propagating relationships.
+ *
+ * Each cached result records the ids of the nodes and principals that were
+ * examined while it was computed. A modification of one of those nodes
+ * only invalidates the results that depend on it (and, transitively, the
+ * results that were computed from those), instead of the whole cache.
+ */
+public class PermissionResolutionCache {
+
+	private final Map<Long, Set<Long>> dependents = new ConcurrentHashMap<>();
+	private final AtomicLong generation           = new AtomicLong();
+	private final AtomicLong invalidations        = new AtomicLong();
+	private final AtomicLong evictions            = new AtomicLong();
+	private final AtomicLong misses               = new AtomicLong();
+	private final AtomicLong hits                 = new AtomicLong();
+	private ConcurrentFixedSizeCache<Long, Entry> cache = null;
+
+	public PermissionResolutionCache(final int maxSize) {
+		this.cache = new ConcurrentFixedSizeCache<>(maxSize);
+	}
+
+	/**
+	 * Returns the current invalidation generation. Callers must obtain the
+	 * generation <b>before</b> they start the permission resolution whose
+	 * results they want to store.
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	public Boolean get(final long nodeId, final long principalId, final Permission permission) {
+
+		final Entry entry = cache.get(nodeId);
+		if (entry != null) {
+
+			final Boolean value = entry.get(principalId, permission);
+			if (value != null) {
+
+				hits.incrementAndGet();
+				return value;
+			}
+		}
+
+		misses.incrementAndGet();
+
+		return null;
+	}
+
+	/**
+	 * Stores the given resolution result if no invalidation took place
+	 * since the given generation.
+	 *
+	 * @param nodeId
+	 * @param principalId
+	 * @param permission
+	 * @param value
+	 * @param dependencies the ids of all nodes the result depends on
+	 * @param expectedGeneration
+	 */
+	public void put(final long nodeId, final long principalId, final Permission permission, final boolean value, final Collection<Long> dependencies, final long expectedGeneration) {
+
+		if (generation.get() != expectedGeneration) {
+			return;
+		}
+
+		final Entry entry = cache.putIfAbsent(nodeId, new Entry(nodeId));
+
+		// register dependencies before the value becomes visible
+		for (final Long dependency : dependencies) {
+
+			if (dependency != nodeId && entry.dependencies.add(dependency)) {
+
+				dependents.compute(dependency, (k, set) -> {
+
+					final Set<Long> result = set != null ? set : ConcurrentHashMap.newKeySet();
+					result.add(nodeId);
+
+					return result;
+				});
+			}
+		}
+
+		entry.put(principalId, permission, value);
+
+		// an invalidation that happened in the meantime could have missed
+		// the new value, so we need to check the generation again.
+		if (generation.get() != expectedGeneration) {
+			remove(entry);
+		}
+	}
+
+	/**
+	 * Removes the cached results of the given node and of all nodes whose
+	 * results depend on it.
+	 *
+	 * @param id the id of the modified node
+	 */
+	public void invalidate(final long id) {
+
+		generation.incrementAndGet();
+
+		final Queue<Long> queue = new ArrayDeque<>();
+		final Set<Long> seen    = new HashSet<>();
+
+		queue.add(id);
+
+		while (!queue.isEmpty()) {
+
+			final Long current = queue.poll();
+			if (seen.add(current)) {
+
+				final Entry entry = cache.get(current);
+				if (entry != null) {
+
+					remove(entry);
+					invalidations.incrementAndGet();
+				}
+
+				// results that depend on the current node are invalid as well
+				final Set<Long> dependent = dependents.remove(current);
+				if (dependent != null) {
+
+					queue.addAll(dependent);
+				}
+			}
+		}
+	}
+
+	public void clear() {
+
+		generation.incrementAndGet();
+
+		cache.clear();
+		dependents.clear();
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",          Long.valueOf(cache.size()));
+		statistics.put("hits",          hits.get());
+		statistics.put("misses",        misses.get());
+		statistics.put("evictions",     evictions.get());
+		statistics.put("invalidations", invalidations.get());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private void remove(final Entry entry) {
+
+		cache.remove(entry.nodeId);
+		unregister(entry);
+	}
+
+	private void unregister(final Entry entry) {
+
+		for (final Long dependency : entry.dependencies) {
+
+			dependents.computeIfPresent(dependency, (k, set) -> {
+
+				set.remove(entry.nodeId);
+
+				return set.isEmpty() ? null : set;
+			});
+		}
+	}
+
+	// ----- nested classes -----
+	private class Entry implements Cachable {
+
+		private final Map<Long, Result> results = new ConcurrentHashMap<>();
+		private final Set<Long> dependencies    = ConcurrentHashMap.newKeySet();
+		private long nodeId                     = 0L;
+
+		public Entry(final long nodeId) {
+			this.nodeId = nodeId;
+		}
+
+		public Boolean get(final long principalId, final Permission permission) {
+
+			final Result result = results.get(principalId);
+			if (result != null) {
+
+				return result.get(permission);
+			}
+
+			return null;
+		}
+
+		public void put(final long principalId, final Permission permission, final boolean value) {
+			results.computeIfAbsent(principalId, k -> new Result()).put(permission, value);
+		}
+
+		@Override
+		public void onRemoveFromCache() {
+
+			evictions.incrementAndGet();
+			unregister(this);
+		}
+	}
+
+	private static class Result {
+
+		// null means "not resolved yet"
+		private Boolean read          = null;
+		private Boolean write         = null;
+		private Boolean delete        = null;
+		private Boolean accessControl = null;
+
+		public synchronized Boolean get(final Permission permission) {
+
+			if (permission.equals(Permission.read)) {
+				return read;
+			}
+
+			if (permission.equals(Permission.write)) {
+				return write;
+			}
+
+			if (permission.equals(Permission.delete)) {
+				return delete;
+			}
+
+			if (permission.equals(Permission.accessControl)) {
+				return accessControl;
+			}
+
+			return null;
+		}
+
+		public synchronized void put(final Permission permission, final boolean value) {
+
+			if (permission.equals(Permission.read) && (read == null || read == false)) {
+				read = value;
+			}
+
+			if (permission.equals(Permission.write) && (write == null || write == false)) {
+				write = value;
+			}
+
+			if (permission.equals(Permission.delete) && (delete == null || delete == false)) {
+				delete = value;
+			}
+
+			if (permission.equals(Permission.accessControl) && (accessControl == null || accessControl == false)) {
+				accessControl = value;
+			}
+		}
+	}
+}
@@ -61,6 +61,7 @@ public class SecurityContext {
 	private boolean doTransactionNotifications           = true;
 	private boolean dontModifyAccessTime                 = false;
 	private boolean ignoreResultCount                    = false;
+	private boolean streamResults                        = false;
 	private int serializationDepth                       = -1;
 
 	//~--- fields ---------------------------------------------------------
@@ -793,6 +794,21 @@ public class SecurityContext {
 		return ignoreResultCount;
 	}
 
+	/**
+	 * Allows resources to return streaming results, i.e. results whose
+	 * elements are read while they are serialized. Only callers that
+	 * consume the result in the same transaction may enable this.
+	 *
+	 * @param doStream
+	 */
+	public void streamResults(final boolean doStream) {
+		this.streamResults = doStream;
+	}
+
+	public boolean streamResults() {
+		return streamResults;
+	}
+
 	public String getSessionId() {
 
 		// return session id for HttpSession if present
@@ -38,6 +38,7 @@ public class Result<T extends GraphObject> {
 	private boolean hasPartialContent = false;
 	private String propertyView       = null;
 	private List<T> results           = null;
+	private Iterable<T> stream        = null;
 
 	private String searchString       = null;
 	private String queryTime          = null;
@@ -60,6 +61,23 @@ public class Result<T extends GraphObject> {
 		this.resultCount      = (rawResultCount != null ? rawResultCount : (results != null ? results.size() : 0));
 	}
 
+	/**
+	 * Creates a result whose elements are produced lazily by the given
+	 * iterable. A streaming result can only be consumed once, and only in
+	 * the transaction it was created in. The result count is unknown
+	 * until the elements have been consumed.
+	 *
+	 * @param stream
+	 * @param isCollection
+	 * @param isPrimitiveArray
+	 */
+	public Result(final Iterable<T> stream, final boolean isCollection, final boolean isPrimitiveArray) {
+
+		this.isCollection     = isCollection;
+		this.isPrimitiveArray = isPrimitiveArray;
+		this.stream           = stream;
+	}
+
 	public Result(T singleResult, final boolean isPrimitiveArray) {
 
 		this.isCollection     = false;
@@ -89,17 +107,62 @@ public class Result<T extends GraphObject> {
 	}
 
 	public T get(final int i) {
-		return results.get(i);
+		return getResults().get(i);
 	}
 
 	public boolean isEmpty() {
-		return results == null || results.isEmpty();
+
+		final List<T> list = getResults();
+
+		return list == null || list.isEmpty();
 	}
 
 	public List<T> getResults() {
+
+		if (stream != null) {
+
+			// callers that need random access get a materialized list
+			final List<T> list = new ArrayList<>();
+
+			for (final T obj : stream) {
+				list.add(obj);
+			}
+
+			if (resultCount == null) {
+				resultCount = list.size();
+			}
+
+			results = list;
+			stream  = null;
+		}
+
 		return results;
 	}
 
+	/**
+	 * Indicates whether the elements of this result have not been read
+	 * yet and must be consumed using {@link #getStream()}.
+	 *
+	 * @return whether this is an unconsumed streaming result
+	 */
+	public boolean isStreaming() {
+		return stream != null;
+	}
+
+	/**
+	 * Returns the elements of this result without materializing them.
+	 *
+	 * @return the elements of this result
+	 */
+	public Iterable<T> getStream() {
+
+		if (stream != null) {
+			return stream;
+		}
+
+		return results != null ? results : Collections.emptyList();
+	}
+
 	public void setQueryTime(final String queryTime) {
 		this.queryTime = queryTime;
 	}
@@ -126,7 +189,7 @@ public class Result<T extends GraphObject> {
 
 	public Integer getRawResultCount() {
 
-		if (resultCount != null) {
+		if (resultCount != null || stream != null) {
 			return resultCount;
 		}
 
@@ -36,6 +36,18 @@ import org.structr.core.property.PropertyMap;
 public interface Query<T extends GraphObject> extends Iterable<T> {
 
 	public Result<T> getResult() throws FrameworkException;
+
+	/**
+	 * Returns the result of this query without reading all of its elements
+	 * into memory, if possible. The elements of a streaming result are read
+	 * from the database and permission-filtered while the caller iterates
+	 * over them, so the returned result must be consumed in the current
+	 * transaction. See {@link Result#isStreaming()}.
+	 *
+	 * @return a streaming or materialized result
+	 * @throws FrameworkException
+	 */
+	public Result<T> getResultStream() throws FrameworkException;
 	public List<T> getAsList() throws FrameworkException;
 	public T getFirst() throws FrameworkException;
 
@@ -46,6 +58,18 @@ public interface Query<T extends GraphObject> extends Iterable<T> {
 	public Query<T> order(final boolean descending);
 	public Query<T> pageSize(final int pageSize);
 	public Query<T> page(final int page);
+
+	/**
+	 * Restricts the result to the elements that follow the given object in
+	 * the sort order of this query (keyset pagination). Elements with equal
+	 * sort values are ordered by their UUID. In contrast to page(), the cost
+	 * of this method does not grow with the position of the requested page,
+	 * so it should be used to iterate over large results.
+	 *
+	 * @param object the last object of the previous page
+	 * @return this query
+	 */
+	public Query<T> after(final GraphObject object);
 	public Query<T> publicOnly();
 	public Query<T> includeDeletedAndHidden();
 	public Query<T> publicOnly(final boolean publicOnly);
@@ -31,6 +31,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.cypher.CypherQueryHandler;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.GraphDatabaseCommand;
+import org.structr.core.graph.ReadTracker;
 
 /**
  * Executes the given {@link CypherQueryConverter} on the current node and
@@ -83,6 +84,9 @@ public class CypherQueryConverter extends PropertyConverter {
 			// initialize query handler with security context
 			handler.setSecurityContext(securityContext);
 
+			// the reads of native queries can not be tracked
+			ReadTracker.recordUncacheable();
+
 			try {
 
 				List<AbstractNode> nodes = (List<AbstractNode>)handler.handleQueryResults(graphDb.execute(query, parameters));
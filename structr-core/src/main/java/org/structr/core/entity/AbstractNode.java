@@ -25,7 +25,6 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -66,6 +65,7 @@ import org.structr.common.GraphObjectComparator;
 import org.structr.common.IdSorter;
 import org.structr.common.Permission;
 import org.structr.common.PermissionPropagation;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.PermissionResolutionMask;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
@@ -88,6 +88,7 @@ import org.structr.core.graph.ModificationQueue;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeRelationshipStatisticsCommand;
 import org.structr.core.graph.NodeService;
+import org.structr.core.graph.ReadTracker;
 import org.structr.core.graph.RelationshipFactory;
 import org.structr.core.graph.RelationshipInterface;
 import org.structr.core.property.FunctionProperty;
@@ -109,7 +110,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 	private static final int permissionResolutionMaxLevel                                                 = Settings.ResolutionDepth.getValue();
 	private static final Logger logger                                                                    = LoggerFactory.getLogger(AbstractNode.class.getName());
 	private static final FixedSizeCache<String, Object> relationshipTemplateInstanceCache                 = new FixedSizeCache<>(1000);
-	private static final Map<Long, Map<Long, PermissionResolutionResult>> globalPermissionResolutionCache = new HashMap<>();
+	private static final PermissionResolutionCache globalPermissionResolutionCache                        = new PermissionResolutionCache(Settings.ResolutionCacheSize.getValue());
 
 	public static final View defaultView = new View(AbstractNode.class, PropertyView.Public, id, type);
 
@@ -486,6 +487,8 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			return null;
 		}
 
+		ReadTracker.recordRead(this);
+
 		return key.getProperty(securityContext, this, applyConverter, predicate);
 	}
 
@@ -790,7 +793,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 		final boolean doLog = securityContext.hasParameter("logPermissionResolution");
 
-		return isGranted(permission, accessingUser, new PermissionResolutionMask(), 0, new AlreadyTraversed(), true, doLog);
+		return isGranted(permission, accessingUser, new PermissionResolutionMask(), 0, new AlreadyTraversed(globalPermissionResolutionCache.getGeneration()), true, doLog);
 	}
 
 	private boolean isGranted(final Permission permission, final Principal accessingUser, final PermissionResolutionMask mask, final int level, final AlreadyTraversed alreadyTraversed, final boolean resolvePermissions, final boolean doLog) {
@@ -800,6 +803,9 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			return false;
 		}
 
+		// the result of the permission resolution depends on this node and the accessing user
+		alreadyTraversed.dependsOn(this, accessingUser);
+
 		// use quick checks for maximum performance
 		if (isCreation && (accessingUser == null || accessingUser.equals(this) || accessingUser.equals(getOwnerNode()) ) ) {
 			return true;
@@ -866,11 +872,14 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 						final Boolean value = info.node.getPermissionResolutionResult(accessingUser.getId(), permission);
 						if (value != null) {
 
+							// the result depends on the cached result of the other node
+							alreadyTraversed.dependsOn(info.node, null);
+
 							// returning immediately
 							if (Boolean.TRUE.equals(value)) {
 
 								// do backtracking
-								backtrack(info, accessingUser.getId(), permission, true, 0, doLog);
+								backtrack(info, accessingUser.getId(), permission, true, 0, alreadyTraversed, doLog);
 
 								return true;
 							}
@@ -880,7 +889,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 							if (info.node.hasEffectivePermissions(info, accessingUser, permission, mask, level, alreadyTraversed, bfsNodes, doLog)) {
 
 								// do backtracking
-								backtrack(info, accessingUser.getId(), permission, true, 0, doLog);
+								backtrack(info, accessingUser.getId(), permission, true, 0, alreadyTraversed, doLog);
 
 								return true;
 							}
@@ -890,7 +899,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 				} while (!bfsNodes.isEmpty());
 
 				// do backtracking
-				backtrack(root, accessingUser.getId(), permission, false, 0, doLog);
+				backtrack(root, accessingUser.getId(), permission, false, 0, alreadyTraversed, doLog);
 			}
 
 			// Last: recursively check possible parent principals
@@ -905,7 +914,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		return false;
 	}
 
-	private void backtrack(final BFSInfo info, final long principalId, final Permission permission, final boolean value, final int level, final boolean doLog) {
+	private void backtrack(final BFSInfo info, final long principalId, final Permission permission, final boolean value, final int level, final AlreadyTraversed alreadyTraversed, final boolean doLog) {
 
 		if (doLog) {
 
@@ -924,12 +933,12 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			System.out.print(info.node.getType() + " (" + info.node.getUuid() + ") --> ");
 		}
 
-		info.node.storePermissionResolutionResult(principalId, permission, value);
+		info.node.storePermissionResolutionResult(principalId, permission, value, alreadyTraversed);
 
 		// go to parent(s)
 		if (info.parent != null) {
 
-			backtrack(info.parent, principalId, permission, value, level+1, doLog);
+			backtrack(info.parent, principalId, permission, value, level+1, alreadyTraversed, doLog);
 		}
 
 		if (doLog && level == 0) {
@@ -975,7 +984,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 							if (otherNode.isGranted(permission, principal, mask, level+1, alreadyTraversed, false, doLog)) {
 
-								otherNode.storePermissionResolutionResult(principal.getId(), permission, true);
+								otherNode.storePermissionResolutionResult(principal.getId(), permission, true, alreadyTraversed);
 
 								// break early
 								return true;
@@ -1117,68 +1126,11 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 	}
 
 	private Boolean getPermissionResolutionResult(final long principalId, final Permission permission) {
-
-		Map<Long, PermissionResolutionResult> permissionResolutionCache = globalPermissionResolutionCache.get(getId());
-		if (permissionResolutionCache == null) {
-
-			permissionResolutionCache = new HashMap<>();
-			globalPermissionResolutionCache.put(getId(), permissionResolutionCache);
-		}
-
-		PermissionResolutionResult result = permissionResolutionCache.get(principalId);
-		if (result != null) {
-
-			if (permission.equals(Permission.read)) {
-				return result.read;
-			}
-
-			if (permission.equals(Permission.write)) {
-				return result.write;
-			}
-
-			if (permission.equals(Permission.delete)) {
-				return result.delete;
-			}
-
-			if (permission.equals(Permission.accessControl)) {
-				return result.accessControl;
-			}
-		}
-
-		return null;
+		return globalPermissionResolutionCache.get(getId(), principalId, permission);
 	}
 
-	private void storePermissionResolutionResult(final long principalId, final Permission permission, final boolean value) {
-
-		Map<Long, PermissionResolutionResult> permissionResolutionCache = globalPermissionResolutionCache.get(getId());
-		if (permissionResolutionCache == null) {
-
-			permissionResolutionCache = new HashMap<>();
-			globalPermissionResolutionCache.put(getId(), permissionResolutionCache);
-		}
-
-		PermissionResolutionResult result = permissionResolutionCache.get(principalId);
-		if (result == null) {
-
-			result = new PermissionResolutionResult();
-			permissionResolutionCache.put(principalId, result);
-		}
-
-		if (permission.equals(Permission.read) && (result.read == null || result.read == false)) {
-			result.read = value;
-		}
-
-		if (permission.equals(Permission.write) && (result.write == null || result.write == false)) {
-			result.write = value;
-		}
-
-		if (permission.equals(Permission.delete) && (result.delete == null || result.delete == false)) {
-			result.delete = value;
-		}
-
-		if (permission.equals(Permission.accessControl) && (result.accessControl == null || result.accessControl == false)) {
-			result.accessControl = value;
-		}
+	private void storePermissionResolutionResult(final long principalId, final Permission permission, final boolean value, final AlreadyTraversed alreadyTraversed) {
+		globalPermissionResolutionCache.put(getId(), principalId, permission, value, alreadyTraversed.getDependencies(), alreadyTraversed.getGeneration());
 	}
 
 	/**
@@ -1219,13 +1171,13 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	@Override
 	public boolean onModification(SecurityContext securityContext, ErrorBuffer errorBuffer, final ModificationQueue modificationQueue) throws FrameworkException {
-		clearPermissionResolutionCache();
+		invalidatePermissionResolutionCache(getId());
 		return true;
 	}
 
 	@Override
 	public boolean onDeletion(SecurityContext securityContext, ErrorBuffer errorBuffer, PropertyMap properties) throws FrameworkException {
-		clearPermissionResolutionCache();
+		invalidatePermissionResolutionCache(getId());
 		return true;
 	}
 
@@ -1235,6 +1187,9 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	@Override
 	public void afterModification(SecurityContext securityContext) {
+
+		// invalidate again after commit, concurrent transactions could have cached old results
+		invalidatePermissionResolutionCache(getId());
 	}
 
 	@Override
@@ -1243,22 +1198,22 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	@Override
 	public void ownerModified(SecurityContext securityContext) {
-		clearPermissionResolutionCache();
+		invalidatePermissionResolutionCache(getId());
 	}
 
 	@Override
 	public void securityModified(SecurityContext securityContext) {
-		clearPermissionResolutionCache();
+		invalidatePermissionResolutionCache(getId());
 	}
 
 	@Override
 	public void locationModified(SecurityContext securityContext) {
-		clearPermissionResolutionCache();
+		invalidatePermissionResolutionCache(getId());
 	}
 
 	@Override
 	public void propagatedModification(SecurityContext securityContext) {
-		clearPermissionResolutionCache();
+		invalidatePermissionResolutionCache(getId());
 	}
 
 	@Override
@@ -1512,6 +1467,20 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 		globalPermissionResolutionCache.clear();
 	}
 
+	/**
+	 * Removes the cached permission resolution results that depend on the
+	 * node with the given id.
+	 *
+	 * @param nodeId
+	 */
+	public static void invalidatePermissionResolutionCache(final long nodeId) {
+		globalPermissionResolutionCache.invalidate(nodeId);
+	}
+
+	public static Map<String, Long> getPermissionResolutionCacheStatistics() {
+		return globalPermissionResolutionCache.getStatistics();
+	}
+
 	public static <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> R getRelationshipForType(final Class<R> type) {
 
 		R instance = (R) relationshipTemplateInstanceCache.get(type.getName());
@@ -2029,7 +1998,30 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 
 	private static class AlreadyTraversed {
 
-		private Map<String, Set<Long>> sets = new LinkedHashMap<>();
+		private final Set<Long> dependencies = new HashSet<>();
+		private Map<String, Set<Long>> sets  = new LinkedHashMap<>();
+		private long generation              = 0L;
+
+		public AlreadyTraversed(final long generation) {
+			this.generation = generation;
+		}
+
+		public void dependsOn(final NodeInterface node, final Principal principal) {
+
+			dependencies.add(node.getId());
+
+			if (principal != null) {
+				dependencies.add(principal.getId());
+			}
+		}
+
+		public Set<Long> getDependencies() {
+			return dependencies;
+		}
+
+		public long getGeneration() {
+			return generation;
+		}
 
 		public boolean contains(final String key, final Long id) {
 
@@ -2071,12 +2063,4 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable,
 			}
 		}
 	}
-
-	private static class PermissionResolutionResult {
-
-		Boolean read          = false;
-		Boolean write         = false;
-		Boolean delete        = false;
-		Boolean accessControl = false;
-	}
 }
@@ -38,6 +38,7 @@ import org.structr.api.graph.RelationshipType;
 import org.structr.api.index.Index;
 import org.structr.cmis.CMISInfo;
 import org.structr.common.GraphObjectComparator;
+import org.structr.common.PermissionPropagation;
 import org.structr.common.PropertyView;
 import org.structr.common.SecurityContext;
 import org.structr.common.ValidationHelper;
@@ -57,6 +58,7 @@ import org.structr.core.graph.ModificationQueue;
 import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeService;
+import org.structr.core.graph.ReadTracker;
 import org.structr.core.graph.RelationshipInterface;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.Property;
@@ -322,6 +324,16 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 		return getProperty(key, true, predicate);
 	}
 
+	private void invalidatePermissionResolutionCache() {
+
+		// modified propagation settings affect the permissions resolved over this relationship
+		if (this instanceof PermissionPropagation && dbRelationship != null) {
+
+			AbstractNode.invalidatePermissionResolutionCache(dbRelationship.getStartNode().getId());
+			AbstractNode.invalidatePermissionResolutionCache(dbRelationship.getEndNode().getId());
+		}
+	}
+
 	private <T> T getProperty(final PropertyKey<T> key, boolean applyConverter, final Predicate<GraphObject> predicate) {
 
 		// early null check, this should not happen...
@@ -329,6 +341,8 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 			return null;
 		}
 
+		ReadTracker.recordRead(this);
+
 		return key.getProperty(securityContext, this, applyConverter, predicate);
 	}
 
@@ -484,6 +498,9 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 
 	@Override
 	public boolean onModification(SecurityContext securityContext, ErrorBuffer errorBuffer, final ModificationQueue modificationQueue) throws FrameworkException {
+
+		invalidatePermissionResolutionCache();
+
 		return isValid(errorBuffer);
 	}
 
@@ -498,6 +515,9 @@ public abstract class AbstractRelationship<S extends NodeInterface, T extends No
 
 	@Override
 	public void afterModification(SecurityContext securityContext) {
+
+		// invalidate again after commit, concurrent transactions could have cached old results
+		invalidatePermissionResolutionCache();
 	}
 
 	@Override
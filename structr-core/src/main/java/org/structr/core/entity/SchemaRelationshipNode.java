@@ -20,6 +20,7 @@ package org.structr.core.entity;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -141,6 +142,16 @@ public class SchemaRelationshipNode extends AbstractSchemaNode {
 		propagatingRelTypes.clear();
 	}
 
+	/**
+	 * Removes all types except the given ones, i.e. the types of a previous
+	 * schema generation that were replaced or removed.
+	 *
+	 * @param types the current relationship types
+	 */
+	public static void retainPropagatingRelationshipTypes(final Collection<Class> types) {
+		propagatingRelTypes.retainAll(types);
+	}
+
 	public static Set<Class> getPropagatingRelationshipTypes() {
 		return propagatingRelTypes;
 	}
@@ -27,6 +27,7 @@ import org.structr.api.config.Setting;
 import org.structr.api.config.Settings;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.ReadTracker;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
 import org.structr.util.AbstractBinaryProcess;
@@ -47,6 +48,9 @@ public class ExecBinaryFunction extends Function<Object, Object> {
 	@Override
 	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) throws FrameworkException {
 
+		// the output depends on an external process
+		ReadTracker.recordUncacheable();
+
 		if (arrayHasMinLengthAndAllElementsNotNull(sources, 2)) {
 
 			final String scriptKey              = sources[1].toString();
@@ -26,6 +26,7 @@ import org.structr.api.config.Setting;
 import org.structr.api.config.Settings;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.ReadTracker;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
 import org.structr.util.AbstractProcess;
@@ -46,6 +47,9 @@ public class ExecFunction extends Function<Object, Object> {
 	@Override
 	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) throws FrameworkException {
 
+		// the output depends on an external process
+		ReadTracker.recordUncacheable();
+
 		if (arrayHasMinLengthAndAllElementsNotNull(sources, 1)) {
 
 			final String scriptKey              = sources[0].toString();
@@ -29,6 +29,7 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedException;
 import org.structr.core.GraphObject;
@@ -60,8 +61,9 @@ import org.structr.schema.action.Function;
  */
 public class Functions {
 
-	private static final Map<String, Function<Object, Object>> functions = new LinkedHashMap<>();
-	public static final String NULL_STRING                               = "___NULL___";
+	private static final ConcurrentFixedSizeCache<String, Expression> parsedExpressions = new ConcurrentFixedSizeCache<>(10000);
+	private static final Map<String, Function<Object, Object>> functions               = new LinkedHashMap<>();
+	public static final String NULL_STRING                                             = "___NULL___";
 
 	public static void put(final boolean licensed, final int edition, final String name, final Function<Object, Object> function) {
 
@@ -73,6 +75,9 @@ public class Functions {
 
 			functions.put(name, new UnlicensedFunction(name, edition));
 		}
+
+		// functions are resolved at parse time
+		parsedExpressions.clear();
 	}
 
 	public static Set<String> getNames() {
@@ -89,6 +94,19 @@ public class Functions {
 
 	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final String expression) throws FrameworkException, UnlicensedException {
 
+		// the expression tree is not modified by evaluation, so it can be shared
+		Expression root = parsedExpressions.get(expression);
+		if (root == null) {
+
+			root = parse(expression);
+			parsedExpressions.put(expression, root);
+		}
+
+		return root.evaluate(actionContext, entity);
+	}
+
+	public static Expression parse(final String expression) throws FrameworkException {
+
 		final String expressionWithoutNewlines = expression.replace('\n', ' ').replace('\r', ' ');
 		final StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(expressionWithoutNewlines));
 		tokenizer.eolIsSignificant(true);
@@ -214,7 +232,7 @@ public class Functions {
 			throw new FrameworkException(422, "Invalid expression: mismatched closing bracket after " + lastToken);
 		}
 
-		return root.evaluate(actionContext, entity);
+		return root;
 	}
 
 	public static String cleanString(final Object input) {
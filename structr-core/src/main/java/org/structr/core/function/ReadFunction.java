@@ -25,6 +25,7 @@ import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.ReadTracker;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
 
@@ -45,6 +46,9 @@ public class ReadFunction extends Function<Object, Object> {
 	@Override
 	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) throws FrameworkException {
 
+		// reads from the file system can not be tracked
+		ReadTracker.recordUncacheable();
+
 		try {
 		
 			if (!arrayHasLengthAndAllElementsNotNull(sources, 1)) {
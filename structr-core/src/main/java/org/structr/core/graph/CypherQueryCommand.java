@@ -65,6 +65,9 @@ public class CypherQueryCommand extends NodeServiceCommand {
 
 	public List<GraphObject> execute(String query, Map<String, Object> parameters, boolean includeHiddenAndDeleted, boolean publicOnly) throws FrameworkException {
 
+		// the reads of native queries can not be tracked
+		ReadTracker.recordUncacheable();
+
 		DatabaseService graphDb         = (DatabaseService) arguments.get("graphDb");
 		RelationshipFactory relFactory  = new RelationshipFactory(securityContext);
 		NodeFactory nodeFactory         = new NodeFactory(securityContext);
@@ -18,10 +18,13 @@
  */
 package org.structr.core.graph;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.function.Function;
@@ -51,9 +54,16 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	 */
 	public static final int RESULT_COUNT_ACCURATE_LIMIT	= 5000;
 
+	/**
+	 * The number of entities for which related data is prefetched at once
+	 * in {@link #bulkInstantiate(java.lang.Iterable)}.
+	 */
+	public static final int PREFETCH_BATCH_SIZE = 1000;
+
 	// encapsulates all criteria for node creation
 	protected FactoryDefinition factoryDefinition = StructrApp.getConfiguration().getFactoryDefinition();
 	protected FactoryProfile factoryProfile       = null;
+	protected boolean prefetching                 = true;
 
 	public Factory(final SecurityContext securityContext) {
 
@@ -118,15 +128,32 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 			if (page < 0) {
 
-				final List<S> rawNodes = read(input);
-				final int size         = rawNodes.size();
+				// only the last -page * pageSize elements are needed
+				final ArrayDeque<S> rawNodes = new ArrayDeque<>();
+				final long window            = -(long)page * pageSize;
+				int size                     = 0;
+
+				try (final QueryResult<S> tmp = input) {
+
+					for (final S item : tmp) {
 
-				fromIndex = Math.max(0, size + (page * pageSize));
+						rawNodes.add(item);
+						size++;
+
+						if (rawNodes.size() > window) {
+							rawNodes.removeFirst();
+						}
+					}
+				}
 
 				final List<T> nodes = new LinkedList<>();
-				int toIndex         = Math.min(size, fromIndex + pageSize);
+				int count           = 0;
 
-				for (final S n : rawNodes.subList(fromIndex, toIndex)) {
+				for (final S n : rawNodes) {
+
+					if (count++ >= pageSize) {
+						break;
+					}
 
 					nodes.add(instantiate(n));
 				}
@@ -148,6 +175,86 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 	}
 
+	/**
+	 * Create structr nodes from a query result whose paging window has
+	 * already been applied by the database. The input is expected to
+	 * contain at most pageSize + 1 elements, the additional element only
+	 * indicates that there is a next page. The result count is estimated
+	 * from the offset and the number of elements.
+	 *
+	 * @param input
+	 * @param offset the number of elements the database has skipped
+	 * @param pageSize
+	 * @return result
+	 * @throws org.structr.common.error.FrameworkException
+	 */
+	public Result instantiateWindow(final QueryResult<S> input, final int offset, final int pageSize) throws FrameworkException {
+
+		if (input != null) {
+
+			final List<S> rawNodes = new ArrayList<>();
+			boolean hasMore        = false;
+
+			try (final QueryResult<S> tmp = input) {
+
+				for (final S item : tmp) {
+
+					if (rawNodes.size() == pageSize) {
+
+						hasMore = true;
+						break;
+					}
+
+					rawNodes.add(item);
+				}
+			}
+
+			final List<T> nodes = bulkInstantiate(rawNodes);
+
+			return new Result(nodes, offset + nodes.size() + (hasMore ? 1 : 0), true, false);
+		}
+
+		return Result.EMPTY_RESULT;
+	}
+
+	/**
+	 * Create a streaming result that instantiates the structr nodes from
+	 * the underlying database nodes while the caller iterates over it, in
+	 * batches of {@link #PREFETCH_BATCH_SIZE}. The same paging and security
+	 * rules as in {@link #instantiate(org.structr.api.QueryResult)} apply,
+	 * but the memory consumption does not depend on the size of the input.
+	 *
+	 * The result count is available after the result has been consumed.
+	 *
+	 * @param input
+	 * @return result
+	 * @throws org.structr.common.error.FrameworkException
+	 */
+	public Result stream(final QueryResult<S> input) throws FrameworkException {
+
+		if (input != null) {
+
+			final int pageSize = factoryProfile.getPageSize();
+			final int page     = factoryProfile.getPage();
+
+			if (page < 0) {
+
+				// the last page can only be determined after reading all elements
+				return instantiate(input);
+			}
+
+			final int offset             = pageSize == Integer.MAX_VALUE ? 0 : (page - 1) * pageSize;
+			final StreamingSource source = new StreamingSource(input, offset, pageSize);
+			final Result result          = new Result(source, true, false);
+
+			source.result = result;
+
+			return result;
+		}
+
+		return Result.EMPTY_RESULT;
+	}
+
 	/**
 	 * Create structr nodes from all given underlying database nodes
 	 * No paging, but security check
@@ -158,18 +265,24 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	 */
 	public List<T> bulkInstantiate(final Iterable<S> input) throws FrameworkException {
 
-		List<T> nodes = new LinkedList<>();
+		final List<T> nodes = new LinkedList<>();
 
-		if ((input != null) && input.iterator().hasNext()) {
+		if (input != null) {
 
-			for (S node : input) {
+			final List<S> batch = new ArrayList<>();
 
-				T n = instantiate(node);
-				if (n != null) {
+			for (final S node : input) {
 
-					nodes.add(n);
+				batch.add(node);
+
+				if (batch.size() >= PREFETCH_BATCH_SIZE) {
+
+					instantiateBatch(batch, nodes);
+					batch.clear();
 				}
 			}
+
+			instantiateBatch(batch, nodes);
 		}
 
 		return nodes;
@@ -189,7 +302,44 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 		return SchemaHelper.getEntityClassForRawType(rawType);
 	}
 
+	/**
+	 * Hook that is called with each batch of database entities before they
+	 * are instantiated, so that data which is needed for all of them can be
+	 * loaded at once.
+	 *
+	 * @param batch
+	 */
+	protected void prefetch(final List<S> batch) {
+	}
+
+	/**
+	 * Disables the prefetching of related data in bulk instantiation, for
+	 * commands that instantiate all entities of the database.
+	 */
+	public void disablePrefetching() {
+		this.prefetching = false;
+	}
+
 	// <editor-fold defaultstate="collapsed" desc="private methods">
+	private void instantiateBatch(final List<S> batch, final List<T> nodes) {
+
+		if (!batch.isEmpty()) {
+
+			if (prefetching) {
+				prefetch(batch);
+			}
+
+			for (final S node : batch) {
+
+				final T n = instantiate(node);
+				if (n != null) {
+
+					nodes.add(n);
+				}
+			}
+		}
+	}
+
 	protected List<S> read(final Iterable<S> iterable) {
 
 		final List<S> nodes  = new ArrayList();
@@ -240,6 +390,125 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 	}
 
 
+	// ----- nested classes -----
+	private class StreamingSource implements Iterable<T> {
+
+		private QueryResult<S> input = null;
+		private Result result        = null;
+		private boolean consumed     = false;
+		private int pageSize         = 0;
+		private int offset           = 0;
+
+		public StreamingSource(final QueryResult<S> input, final int offset, final int pageSize) {
+
+			this.pageSize = pageSize;
+			this.offset   = offset;
+			this.input    = input;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+
+			if (consumed) {
+				throw new IllegalStateException("Streaming result can only be consumed once.");
+			}
+
+			consumed = true;
+
+			return new StreamingIterator(this);
+		}
+	}
+
+	private class StreamingIterator implements Iterator<T> {
+
+		private final Queue<T> buffer  = new ArrayDeque<>();
+		private final List<S> batch    = new ArrayList<>();
+		private StreamingSource source = null;
+		private Iterator<S> iterator   = null;
+		private boolean dontCheckCount = false;
+		private boolean done           = false;
+		private int position           = 0;
+		private int count              = 0;
+
+		public StreamingIterator(final StreamingSource source) {
+
+			this.dontCheckCount = factoryProfile.getSecurityContext().ignoreResultCount();
+			this.iterator       = source.input.iterator();
+			this.source         = source;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			while (buffer.isEmpty() && !done) {
+				fill();
+			}
+
+			return !buffer.isEmpty();
+		}
+
+		@Override
+		public T next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			return buffer.poll();
+		}
+
+		private void fill() {
+
+			batch.clear();
+
+			while (batch.size() < PREFETCH_BATCH_SIZE && iterator.hasNext()) {
+				batch.add(iterator.next());
+			}
+
+			if (batch.isEmpty()) {
+
+				finish();
+				return;
+			}
+
+			// no need to prefetch data for elements that are only counted
+			if (prefetching && count < source.pageSize && position + batch.size() > source.offset) {
+				prefetch(batch);
+			}
+
+			for (final S item : batch) {
+
+				final T n = instantiate(item);
+				if (n != null) {
+
+					position++;
+
+					if (position > source.offset && position <= source.offset + source.pageSize) {
+
+						buffer.add(n);
+
+						// stop if we got enough nodes
+						if (++count == source.pageSize && dontCheckCount) {
+
+							finish();
+							return;
+						}
+					}
+				}
+			}
+		}
+
+		private void finish() {
+
+			done = true;
+
+			source.input.close();
+
+			// The overall count may be inaccurate
+			source.result.setRawResultCount(position);
+		}
+	}
+
 	// ----- nested classes -----
 	protected class FactoryProfile {
 
@@ -34,6 +34,9 @@ public class GetAllNodes extends NodeServiceCommand {
 		DatabaseService graphDb = (DatabaseService)arguments.get("graphDb");
 		NodeFactory nodeFactory = new NodeFactory(securityContext);
 
+		// no need to prefetch relationships of the whole database
+		nodeFactory.disablePrefetching();
+
 		if(graphDb != null) {
 			return nodeFactory.bulkInstantiate(graphDb.getAllNodes());
 		}
@@ -19,17 +19,22 @@
 package org.structr.core.graph;
 
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.common.AccessControllable;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Principal;
 import org.structr.core.entity.relationship.NodeHasLocation;
 
 //~--- classes ----------------------------------------------------------------
@@ -44,7 +49,8 @@ import org.structr.core.entity.relationship.NodeHasLocation;
  */
 public class NodeFactory<T extends NodeInterface & AccessControllable> extends Factory<Node, T> {
 
-	private static final Logger logger = LoggerFactory.getLogger(NodeFactory.class.getName());
+	private static final Logger logger                    = LoggerFactory.getLogger(NodeFactory.class.getName());
+	private static final Set<String> ACCESS_CONTROL_TYPES = new LinkedHashSet<>(Arrays.asList("OWNS", "SECURITY"));
 
 	public NodeFactory(final SecurityContext securityContext) {
 		super(securityContext);
@@ -125,6 +131,19 @@ public class NodeFactory<T extends NodeInterface & AccessControllable> extends F
 		return instantiate(node);
 	}
 
+	@Override
+	protected void prefetch(final List<Node> batch) {
+
+		final SecurityContext securityContext = factoryProfile.getSecurityContext();
+		final Principal user                  = securityContext.getUser(false);
+
+		// load the ownership and security relationships needed for the access checks of all nodes at once
+		if (batch.size() > 1 && !securityContext.isSuperUser() && (user == null || !user.isAdmin())) {
+
+			StructrApp.getInstance().getDatabaseService().prefetchRelationships(batch, Direction.INCOMING, ACCESS_CONTROL_TYPES);
+		}
+	}
+
 	@Override
 	public T instantiateDummy(final Node entity, final String entityType) throws FrameworkException {
 
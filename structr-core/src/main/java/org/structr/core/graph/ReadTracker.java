@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.structr.core.GraphObject;
+
+/**
+ * Records the nodes and relationships that are read in the current thread,
+ * and the types that are queried, so that results which were computed from
+ * them can be invalidated when one of them changes.
+ *
+ * Trackers can be nested, reads are recorded in all trackers that are
+ * attached to the current thread. As long as no tracker is attached to any
+ * thread, recording costs a single volatile read.
+ *
+ * Computations whose result depends on something that can not be tracked,
+ * e.g. native queries, the request headers, the session or the current
+ * time, mark their trackers as uncacheable.
+ */
+public class ReadTracker {
+
+	private static final ThreadLocal<ReadTracker> current = new ThreadLocal<>();
+	private static final AtomicInteger attached           = new AtomicInteger();
+
+	private final Set<Long> nodeIds     = new HashSet<>();
+	private final Set<Long> relIds      = new HashSet<>();
+	private final Set<Class> queryTypes = new HashSet<>();
+	private ReadTracker previous        = null;
+	private boolean isAttached          = false;
+	private boolean isUncacheable       = false;
+	private long expires                = Long.MAX_VALUE;
+
+	/**
+	 * Creates a new tracker and attaches it to the current thread.
+	 *
+	 * @return the new tracker
+	 */
+	public static ReadTracker start() {
+
+		final ReadTracker tracker = new ReadTracker();
+
+		tracker.attach();
+
+		return tracker;
+	}
+
+	/**
+	 * Attaches this tracker to the current thread, can be used to continue
+	 * tracking in a different thread after {@link #detach()} was called.
+	 */
+	public void attach() {
+
+		if (!isAttached) {
+
+			isAttached = true;
+			previous   = current.get();
+
+			current.set(this);
+			attached.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Detaches this tracker from the current thread and re-attaches the
+	 * tracker that was attached before.
+	 */
+	public void detach() {
+
+		if (isAttached) {
+
+			isAttached = false;
+
+			if (previous != null) {
+
+				current.set(previous);
+
+			} else {
+
+				current.remove();
+			}
+
+			previous = null;
+			attached.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Stops recording in the current thread until {@link #resume} is
+	 * called, can be used to read objects that the tracked result does
+	 * not depend on.
+	 *
+	 * @return the tracker that was attached to the current thread, or null
+	 */
+	public static ReadTracker suspend() {
+
+		final ReadTracker tracker = current.get();
+		if (tracker != null) {
+
+			current.remove();
+		}
+
+		return tracker;
+	}
+
+	/**
+	 * Continues recording after {@link #suspend}.
+	 *
+	 * @param tracker the tracker that was returned by suspend
+	 */
+	public static void resume(final ReadTracker tracker) {
+
+		if (tracker != null) {
+
+			current.set(tracker);
+		}
+	}
+
+	public Set<Long> getNodeIds() {
+		return Collections.unmodifiableSet(nodeIds);
+	}
+
+	public Set<Long> getRelationshipIds() {
+		return Collections.unmodifiableSet(relIds);
+	}
+
+	/**
+	 * Returns the types that were queried, {@link GraphObject} stands for
+	 * queries that were not restricted to a type.
+	 *
+	 * @return the queried types
+	 */
+	public Set<Class> getQueryTypes() {
+		return Collections.unmodifiableSet(queryTypes);
+	}
+
+	/**
+	 * Returns the point in time at which the tracked result expires, see
+	 * {@link #recordExpiry}.
+	 *
+	 * @return the expiry time in milliseconds, or Long.MAX_VALUE
+	 */
+	public long getExpires() {
+		return expires;
+	}
+
+	/**
+	 * Indicates whether the tracked result depends on something that can
+	 * not be tracked, see {@link #recordUncacheable}.
+	 *
+	 * @return whether the tracked result must not be cached
+	 */
+	public boolean isUncacheable() {
+		return isUncacheable;
+	}
+
+	public static void recordRead(final GraphObject obj) {
+
+		if (attached.get() > 0) {
+
+			final boolean isNode = obj.isNode();
+			final long id        = obj.getId();
+
+			for (ReadTracker tracker = current.get(); tracker != null; tracker = tracker.previous) {
+
+				if (isNode) {
+
+					tracker.nodeIds.add(id);
+
+				} else {
+
+					tracker.relIds.add(id);
+				}
+			}
+		}
+	}
+
+	public static void recordQuery(final Collection<Class> types) {
+
+		if (attached.get() > 0) {
+
+			for (ReadTracker tracker = current.get(); tracker != null; tracker = tracker.previous) {
+
+				if (types.isEmpty()) {
+					tracker.queryTypes.add(GraphObject.class);
+
+				} else {
+
+					tracker.queryTypes.addAll(types);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the dependencies of a result that was computed earlier, e.g.
+	 * a cached value that is used in the result of the current computation.
+	 *
+	 * @param nodeIds
+	 * @param relIds
+	 * @param types
+	 */
+	public static void recordDependencies(final Set<Long> nodeIds, final Set<Long> relIds, final Set<Class> types) {
+
+		if (attached.get() > 0) {
+
+			for (ReadTracker tracker = current.get(); tracker != null; tracker = tracker.previous) {
+
+				tracker.nodeIds.addAll(nodeIds);
+				tracker.relIds.addAll(relIds);
+				tracker.queryTypes.addAll(types);
+			}
+		}
+	}
+
+	/**
+	 * Records that the current computation uses a value which expires at
+	 * the given point in time.
+	 *
+	 * @param expires the expiry time in milliseconds
+	 */
+	public static void recordExpiry(final long expires) {
+
+		if (attached.get() > 0) {
+
+			for (ReadTracker tracker = current.get(); tracker != null; tracker = tracker.previous) {
+
+				tracker.expires = Math.min(tracker.expires, expires);
+			}
+		}
+	}
+
+	/**
+	 * Records that the current computation depends on something that can
+	 * not be tracked, so that its result must not be cached.
+	 */
+	public static void recordUncacheable() {
+
+		if (attached.get() > 0) {
+
+			for (ReadTracker tracker = current.get(); tracker != null; tracker = tracker.previous) {
+
+				tracker.isUncacheable = true;
+			}
+		}
+	}
+}
@@ -190,6 +190,8 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 			final Set<AbstractRelationship> rels  = new HashSet<>();
 			boolean conditionalIncludeFiles = includeFiles;
 
+			nodeFactory.disablePrefetching();
+
 			if (query != null) {
 
 				logger.info("Using Cypher query {} to determine export set, disabling export of files", query);
@@ -101,6 +101,11 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 			// 2. fetch all types of entities modified in this tx
 			Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
 
+			// buffered writes must acquire their database locks before we enter
+			// the semaphores, otherwise we could wait for a lock that is held
+			// by a transaction that waits for one of our semaphores
+			tx.flush();
+
 			// we need to protect the validation and indexing part of every transaction
 			// from being entered multiple times in the presence of validators
 			// 3. acquire semaphores for each modified type
@@ -44,9 +44,11 @@ import org.structr.core.Result;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.AbstractRelationship;
+import org.structr.core.entity.SuperUser;
 import org.structr.core.graph.Factory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeServiceCommand;
+import org.structr.core.graph.ReadTracker;
 import org.structr.core.graph.RelationshipInterface;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -86,11 +88,15 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 	private final SearchAttributeGroup rootGroup = new SearchAttributeGroup(Occurrence.REQUIRED);
 	private SearchAttributeGroup currentGroup    = rootGroup;
+	private final Set<Class> queryTypes          = new LinkedHashSet<>();
+	private boolean uuidQuery                    = false;
 	private PropertyKey sortKey                  = null;
+	private GraphObject after                    = null;
 	private boolean publicOnly                   = false;
 	private boolean includeDeletedAndHidden      = true;
 	private boolean sortDescending               = false;
 	private boolean doNotSort                    = false;
+	private boolean streaming                    = false;
 	private int pageSize                         = Integer.MAX_VALUE;
 	private int page                             = 1;
 
@@ -105,11 +111,24 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			return Result.EMPTY_RESULT;
 		}
 
-		final Factory<S, T> factory  = getFactory(securityContext, includeDeletedAndHidden, publicOnly, pageSize, page);
+		// lookups by UUID are recorded in getResult, see below
+		if (!uuidQuery || streaming) {
+			ReadTracker.recordQuery(queryTypes);
+		}
+
+		// keyset pagination starts at the first element after the cursor
+		final int effectivePage      = after != null ? 1 : page;
+		final Factory<S, T> factory  = getFactory(securityContext, includeDeletedAndHidden, publicOnly, pageSize, effectivePage);
 		boolean hasGraphSources      = false;
 		boolean hasSpatialSource     = false;
 
-		if (securityContext.getUser(false) == null) {
+		boolean deletedAndHiddenInQuery = includeDeletedAndHidden;
+
+		// the factory drops non-public nodes in public-only searches (unless the
+		// superuser context is used), so the query can exclude them as well
+		final boolean publicOnlyInQuery = publicOnly && !isRelationshipSearch() && !(securityContext.getUser(false) instanceof SuperUser);
+
+		if (securityContext.getUser(false) == null || publicOnlyInQuery) {
 
 			rootGroup.add(new PropertySearchAttribute(GraphObject.visibleToPublicUsers, true, Occurrence.REQUIRED, true));
 
@@ -120,6 +139,8 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 			rootGroup.add(new PropertySearchAttribute(NodeInterface.hidden,  true, Occurrence.FORBIDDEN, true));
 			rootGroup.add(new PropertySearchAttribute(NodeInterface.deleted, true, Occurrence.FORBIDDEN, true));
+
+			deletedAndHiddenInQuery = true;
 		}
 
 		// At this point, all search attributes are ready
@@ -206,9 +227,56 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			final Index<S> index = getIndex();
 			if (index != null) {
 
-				// do query
-				final QueryResult hits = getIndex().query(rootGroup);
-				intermediateResult     = factory.instantiate(hits);
+				final boolean needsFiltering = hasEmptySearchFields || hasGraphSources || hasSpatialSource;
+				final boolean windowInQuery  = !needsFiltering && canApplyWindowInQuery(effectivePage, deletedAndHiddenInQuery);
+
+				// the exact result count must be supplied by the database if the window is applied there
+				final boolean needsCount     = windowInQuery && !securityContext.ignoreResultCount();
+				final long resultCount       = needsCount && after == null ? index.count(rootGroup) : -1;
+				final boolean pageInQuery    = windowInQuery && (!needsCount || resultCount >= 0);
+
+				if (after != null && !needsFiltering) {
+
+					// keyset pagination: let the database skip everything up to the cursor
+					final Object sortValue = getSortValue(after);
+					final String uuid      = after.getUuid();
+
+					if (pageInQuery) {
+
+						final QueryResult hits = index.queryAfter(rootGroup, sortValue, uuid, pageSize + 1);
+						intermediateResult     = factory.instantiateWindow(hits, 0, pageSize);
+
+					} else {
+
+						final QueryResult hits = index.queryAfter(rootGroup, sortValue, uuid, Integer.MAX_VALUE);
+						intermediateResult     = factory.instantiate(hits);
+					}
+
+				} else if (pageInQuery) {
+
+					// fetch one more element to find out whether there is a next page
+					final int offset       = (effectivePage - 1) * pageSize;
+					final QueryResult hits = index.query(rootGroup, offset, pageSize + 1);
+					intermediateResult     = factory.instantiateWindow(hits, offset, pageSize);
+
+					if (needsCount) {
+						intermediateResult.setRawResultCount((int)resultCount);
+					}
+
+				} else {
+
+					// do query
+					final QueryResult hits = getIndex().query(rootGroup);
+
+					if (streaming && !needsFiltering && effectivePage > 0) {
+
+						intermediateResult = factory.stream(hits);
+
+					} else {
+
+						intermediateResult = factory.instantiate(hits);
+					}
+				}
 			}
 		}
 
@@ -261,8 +329,18 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			// sort list
 			Collections.sort(finalResult, new GraphObjectComparator(sortKey, sortDescending));
 
+			// keyset pagination: remove everything up to the cursor
+			if (after != null) {
+
+				final int index = finalResult.indexOf(after);
+				if (index >= 0) {
+
+					finalResult.subList(0, index + 1).clear();
+				}
+			}
+
 			// return paged final result
-			return new Result(PagingHelper.subList(finalResult, pageSize, page), resultCount, true, false);
+			return new Result(PagingHelper.subList(finalResult, pageSize, effectivePage), resultCount, true, false);
 
 		} else {
 
@@ -271,6 +349,42 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		}
 	}
 
+	/**
+	 * Indicates whether the requested page can be cut out of the result by
+	 * the database. This is only possible if the factory will not drop any
+	 * of the entities returned by the query, i.e. for relationships (which
+	 * are not filtered), and for nodes if deleted and hidden nodes are
+	 * excluded by the query (or requested) and visibility is decided by
+	 * the query as well: for users that can read every node, for anonymous
+	 * users and for public-only searches.
+	 */
+	private boolean canApplyWindowInQuery(final int effectivePage, final boolean deletedAndHiddenInQuery) {
+
+		if (effectivePage <= 0 || pageSize == Integer.MAX_VALUE) {
+			return false;
+		}
+
+		if (isRelationshipSearch()) {
+			return true;
+		}
+
+		if (!deletedAndHiddenInQuery) {
+			return false;
+		}
+
+		return securityContext.isSuperUser() || securityContext.getUser(false) == null || publicOnly;
+	}
+
+	private Object getSortValue(final GraphObject obj) {
+
+		if (sortKey != null && !doNotSort) {
+
+			return obj.getPropertyContainer().getProperty(sortKey.dbName());
+		}
+
+		return null;
+	}
+
 	private Set<GraphObject> mergeSources(List<SourceSearchAttribute> sources) {
 
 		final Set<GraphObject> mergedResult = new LinkedHashSet<>();
@@ -312,6 +426,22 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 	@Override
 	public Result<T> getResult() throws FrameworkException {
+
+		final Result<T> result = doSearch();
+
+		// a lookup by UUID can only be affected by new objects if it found nothing
+		if (uuidQuery && result.isEmpty()) {
+			ReadTracker.recordQuery(queryTypes);
+		}
+
+		return result;
+	}
+
+	@Override
+	public Result<T> getResultStream() throws FrameworkException {
+
+		streaming = true;
+
 		return doSearch();
 	}
 
@@ -387,6 +517,12 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		return this;
 	}
 
+	@Override
+	public org.structr.core.app.Query<T> after(final GraphObject object) {
+		this.after = object;
+		return this;
+	}
+
 	@Override
 	public org.structr.core.app.Query<T> publicOnly() {
 		this.publicOnly = true;
@@ -415,6 +551,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	public org.structr.core.app.Query<T> uuid(final String uuid) {
 
 		doNotSort = true;
+		uuidQuery = true;
 
 		return and(GraphObject.id, uuid);
 	}
@@ -423,6 +560,11 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	public org.structr.core.app.Query<T> andType(final Class type) {
 
 		currentGroup.getSearchAttributes().add(new TypeSearchAttribute(type, Occurrence.REQUIRED, true));
+
+		if (type != null) {
+			queryTypes.add(type);
+		}
+
 		return this;
 	}
 
@@ -430,6 +572,11 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	public org.structr.core.app.Query<T> orType(final Class type) {
 
 		currentGroup.getSearchAttributes().add(new TypeSearchAttribute(type, Occurrence.OPTIONAL, true));
+
+		if (type != null) {
+			queryTypes.add(type);
+		}
+
 		return this;
 	}
 
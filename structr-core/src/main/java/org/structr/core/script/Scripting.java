@@ -19,11 +19,15 @@
 package org.structr.core.script;
 
 import java.io.StringWriter;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.script.Bindings;
@@ -31,16 +35,17 @@ import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
-import org.apache.commons.collections4.map.LRUMap;
 import org.apache.commons.lang3.StringUtils;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
 import org.renjin.script.RenjinScriptEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedException;
 import org.structr.core.GraphObject;
@@ -56,9 +61,14 @@ import org.structr.schema.parser.DatePropertyParser;
  */
 public class Scripting {
 
-	private static final Logger logger                       = LoggerFactory.getLogger(Scripting.class.getName());
-	private static final Pattern ScriptEngineExpression      = Pattern.compile("^\\$\\{(\\w+)\\{(.*)\\}\\}$", Pattern.DOTALL);
-	private static final Map<String, Script> compiledScripts = Collections.synchronizedMap(new LRUMap<>(10000));
+	private static final Logger logger                                            = LoggerFactory.getLogger(Scripting.class.getName());
+	private static final Pattern ScriptEngineExpression                           = Pattern.compile("^\\$\\{(\\w+)\\{(.*)\\}\\}$", Pattern.DOTALL);
+	private static final ConcurrentFixedSizeCache<String, Script> compiledScripts = new ConcurrentFixedSizeCache<>(10000);
+	private static final ConcurrentFixedSizeCache<String, int[]> scriptPositions  = new ConcurrentFixedSizeCache<>(10000);
+	private static final Map<String, MethodStatistics> methodStatistics           = new ConcurrentHashMap<>();
+	private static final ContextFactory contextFactory                            = new ContextFactory();
+	private static final int[] NO_SCRIPTS                                         = new int[0];
+	private static volatile ScriptableObject sharedScope                          = null;
 
 	public static String replaceVariables(final ActionContext actionContext, final GraphObject entity, final Object rawValue) throws FrameworkException {
 
@@ -75,40 +85,50 @@ public class Scripting {
 
 			if (!actionContext.returnRawValue()) {
 
-				final List<Tuple> replacements = new LinkedList<>();
+				final int[] positions = getScriptPositions(value);
+				if (positions.length > 0) {
 
-				for (final String expression : extractScripts(value)) {
+					final StringBuilder buf = new StringBuilder(value.length());
+					int last                = 0;
 
-					try {
+					for (int i=0; i<positions.length; i+=2) {
 
-						final Object extractedValue = evaluate(actionContext, entity, expression, "script source");
-						String partValue            = extractedValue != null ? formatToDefaultDateOrString(extractedValue) : "";
+						final int start         = positions[i];
+						final int end           = positions[i+1];
+						final String expression = value.substring(start, end);
 
-						if (partValue != null) {
+						buf.append(value, last, start);
 
-							replacements.add(new Tuple(expression, partValue));
+						try {
 
-						} else {
+							final Object extractedValue = evaluate(actionContext, entity, expression, "script source");
+							String partValue            = extractedValue != null ? formatToDefaultDateOrString(extractedValue) : "";
 
-							// If the whole expression should be replaced, and partValue is null
-							// replace it by null to make it possible for HTML attributes to not be rendered
-							// and avoid something like ... selected="" ... which is interpreted as selected==true by
-							// all browsers
-							if (!value.equals(expression)) {
-								replacements.add(new Tuple(expression, ""));
+							if (partValue != null) {
+
+								buf.append(partValue);
+
+							} else if (value.equals(expression)) {
+
+								// If the whole expression should be replaced, and partValue is null
+								// replace it by null to make it possible for HTML attributes to not be rendered
+								// and avoid something like ... selected="" ... which is interpreted as selected==true by
+								// all browsers
+								buf.append(expression);
 							}
+
+						} catch (UnlicensedException ex) {
+
+							ex.log(logger);
+							buf.append(expression);
 						}
 
-					} catch (UnlicensedException ex) {
-						ex.log(logger);
+						last = end;
 					}
-				}
 
-				// apply replacements
-				for (final Tuple tuple : replacements) {
+					buf.append(value, last, value.length());
 
-					// only replace a single occurrence at a time!
-					value = StringUtils.replaceOnce(value, tuple.key, tuple.value);
+					value = buf.toString();
 				}
 			}
 
@@ -248,8 +268,9 @@ public class Scripting {
 			scriptingContext.setGenerateObserverCount(false);
 			scriptingContext.setGeneratingDebug(true);
 
-			final Scriptable scope = scriptingContext.initStandardObjects();
+			final Scriptable scope             = createScope(scriptingContext);
 			final StructrScriptable scriptable = new StructrScriptable(actionContext, entity, scriptingContext);
+			final MethodStatistics statistics  = methodStatistics.computeIfAbsent(methodName != null ? methodName : "unknown", k -> new MethodStatistics());
 
 			scriptable.setParentScope(scope);
 
@@ -261,9 +282,19 @@ public class Scripting {
 
 			final String sourceLocation     = methodName + " [" + entityDescription + "], line ";
 			final String embeddedSourceCode = embedInFunction(actionContext, script);
-			final Script compiledScript     = compileOrGetCached(scriptingContext, embeddedSourceCode, sourceLocation, 1);
+			final Script compiledScript     = compileOrGetCached(scriptingContext, embeddedSourceCode, sourceLocation, 1, statistics);
+			final long t0                   = System.nanoTime();
+
+			Object extractedValue = null;
+
+			try {
+
+				extractedValue = compiledScript.exec(scriptingContext, scope);
 
-			Object extractedValue = compiledScript.exec(scriptingContext, scope);
+			} finally {
+
+				statistics.executed(System.nanoTime() - t0);
+			}
 
 			if (scriptable.hasException()) {
 				throw scriptable.getException();
@@ -304,7 +335,7 @@ public class Scripting {
 
 	public static Context setupJavascriptContext() {
 
-		final Context scriptingContext = new ContextFactory().enterContext();
+		final Context scriptingContext = contextFactory.enterContext();
 
 		// enable some optimizations..
 		scriptingContext.setLanguageVersion(Context.VERSION_1_2);
@@ -331,25 +362,123 @@ public class Scripting {
 		return buf.toString();
 	}
 
-	private static Script compileOrGetCached(final Context context, final String source, final String sourceName, final int lineNo) {
+	/**
+	 * Returns statistics about the compilation and execution of Javascript
+	 * code, grouped by method name.
+	 *
+	 * @return a map of method names to execution statistics
+	 */
+	public static Map<String, Map<String, Long>> getStatistics() {
+
+		final Map<String, Map<String, Long>> statistics = new TreeMap<>();
+
+		for (final Map.Entry<String, MethodStatistics> entry : methodStatistics.entrySet()) {
+			statistics.put(entry.getKey(), entry.getValue().toMap());
+		}
+
+		return statistics;
+	}
+
+	private static Scriptable createScope(final Context context) {
+
+		final ScriptableObject shared = getSharedScope(context);
+		final Scriptable scope        = context.newObject(shared);
+
+		// the shared standard objects are only visible through the prototype chain,
+		// so that all top-level declarations of the script end up in the new scope
+		scope.setPrototype(shared);
+		scope.setParentScope(null);
+
+		return scope;
+	}
+
+	private static ScriptableObject getSharedScope(final Context context) {
+
+		ScriptableObject scope = sharedScope;
+		if (scope == null) {
+
+			synchronized (Scripting.class) {
 
-		synchronized (compiledScripts) {
+				scope = sharedScope;
+				if (scope == null) {
 
-			Script script = compiledScripts.get(source);
-			if (script == null) {
+					scope = context.initStandardObjects(null, true);
 
-				script = context.compileString(source, sourceName, lineNo, null);
-				compiledScripts.put(source, script);
+					// force initialization of the lazily loaded standard objects so
+					// that the sealed scope is never modified after publication
+					for (final Object id : scope.getAllIds()) {
+
+						if (id instanceof String) {
+							ScriptableObject.getProperty(scope, (String)id);
+						}
+					}
+
+					sharedScope = scope;
+				}
 			}
+		}
+
+		return scope;
+	}
+
+	private static Script compileOrGetCached(final Context context, final String source, final String sourceName, final int lineNo, final MethodStatistics statistics) {
 
-			return script;
+		final Script cached = compiledScripts.get(source);
+		if (cached != null) {
+
+			return cached;
 		}
+
+		// compile without holding a lock, concurrent compilations of the same
+		// source are harmless, only the first result is stored
+		final long t0       = System.nanoTime();
+		final Script script = context.compileString(source, sourceName, lineNo, null);
+
+		statistics.compiled(System.nanoTime() - t0);
+
+		return compiledScripts.putIfAbsent(source, script);
 	}
 
 	// this is only public to be testable :(
 	public static List<String> extractScripts(final String source) {
 
 		final List<String> expressions = new LinkedList<>();
+		final int[] positions          = getScriptPositions(source);
+
+		for (int i=0; i<positions.length; i+=2) {
+			expressions.add(source.substring(positions[i], positions[i+1]));
+		}
+
+		return expressions;
+	}
+
+	/**
+	 * Returns the start and end positions of all scripts in the given
+	 * template as consecutive pairs. The positions are cached per template
+	 * because the same templates are rendered over and over again.
+	 *
+	 * @param source
+	 * @return the script positions
+	 */
+	private static int[] getScriptPositions(final String source) {
+
+		if (source.indexOf("${") < 0) {
+			return NO_SCRIPTS;
+		}
+
+		int[] positions = scriptPositions.get(source);
+		if (positions == null) {
+
+			positions = findScriptPositions(source);
+			scriptPositions.put(source, positions);
+		}
+
+		return positions;
+	}
+
+	private static int[] findScriptPositions(final String source) {
+
+		final List<Integer> positions  = new ArrayList<>();
 		final int length               = source.length();
 		boolean inSingleQuotes         = false;
 		boolean inDoubleQuotes         = false;
@@ -412,7 +541,8 @@ public class Scripting {
 						inTemplate = false;
 						end = i+1;
 
-						expressions.add(source.substring(start, end));
+						positions.add(start);
+						positions.add(end);
 
 						level = 0;
 					}
@@ -427,7 +557,14 @@ public class Scripting {
 			}
 		}
 
-		return expressions;
+		final int[] result = new int[positions.size()];
+		int i              = 0;
+
+		for (final Integer position : positions) {
+			result[i++] = position;
+		}
+
+		return result;
 	}
 
 	public static String formatToDefaultDateOrString(final Object value) {
@@ -444,14 +581,38 @@ public class Scripting {
 	}
 
 	// ----- nested classes -----
-	private static class Tuple {
+	private static class MethodStatistics {
+
+		private final AtomicLong compilations = new AtomicLong();
+		private final AtomicLong compileNanos = new AtomicLong();
+		private final AtomicLong executions   = new AtomicLong();
+		private final AtomicLong executeNanos = new AtomicLong();
+
+		public void compiled(final long nanos) {
+
+			compilations.incrementAndGet();
+			compileNanos.addAndGet(nanos);
+		}
+
+		public void executed(final long nanos) {
+
+			executions.incrementAndGet();
+			executeNanos.addAndGet(nanos);
+		}
+
+		public Map<String, Long> toMap() {
+
+			final Map<String, Long> map = new LinkedHashMap<>();
+			final long count            = executions.get();
+			final long total            = executeNanos.get();
 
-		public String key = null;
-		public String value = null;
+			map.put("compilations",         compilations.get());
+			map.put("compileTimeMillis",    compileNanos.get() / 1000000L);
+			map.put("executions",           count);
+			map.put("executeTimeMillis",    total / 1000000L);
+			map.put("averageExecuteMicros", count > 0 ? (total / count) / 1000L : 0L);
 
-		public Tuple(final String key, final String value) {
-			this.key = key;
-			this.value = value;
+			return map;
 		}
 	}
 }
@@ -36,13 +36,14 @@ public class CronEntry implements Delayed {
 
 	private static final Logger logger = LoggerFactory.getLogger(CronService.class.getName());
 
-	private CronField days    = null;
-	private CronField dow     = null;
-	private CronField hours   = null;
-	private CronField minutes = null;
-	private CronField months  = null;
-	private CronField seconds = null;
-	private String name       = null;
+	private CronField days     = null;
+	private CronField dow      = null;
+	private CronField hours    = null;
+	private CronField minutes  = null;
+	private CronField months   = null;
+	private CronField seconds  = null;
+	private String name        = null;
+	private long nextExecution = 0L;
 
 	private CronEntry(String name) {
 		this.name = name;
@@ -264,7 +265,33 @@ public class CronEntry implements Delayed {
 
 	public long getDelayToNextExecutionInMillis() {
 
+		final long now = System.currentTimeMillis();
+
+		return getNextExecution(now) - now;
+	}
+
+	/**
+	 * Schedules the next execution of this entry, which is the first
+	 * matching second after the current one.
+	 */
+	public void scheduleNext() {
+
+		final long now = System.currentTimeMillis();
+
+		nextExecution = getNextExecution(now - (now % 1000L) + 1000L);
+	}
+
+	public long getNextExecution() {
+		return nextExecution;
+	}
+
+	// ----- private methods -----
+	private long getNextExecution(final long start) {
+
 		Calendar now       = GregorianCalendar.getInstance();
+
+		now.setTimeInMillis(start);
+
 		int nowSeconds     = now.get(Calendar.SECOND);
 		int nowMinutes     = now.get(Calendar.MINUTE);
 		int nowHours       = now.get(Calendar.HOUR_OF_DAY);
@@ -334,7 +361,7 @@ public class CronEntry implements Delayed {
 			throw new IllegalArgumentException("Unable to determine next cron date for task " + name + ", aborting.");
 		}
 
-		return now.getTimeInMillis() - System.currentTimeMillis();
+		return now.getTimeInMillis();
 	}
 
 	public CronField getSeconds() {
@@ -368,12 +395,7 @@ public class CronEntry implements Delayed {
 	// ----- interface Delayed -----
 	@Override
 	public long getDelay(TimeUnit unit) {
-
-		long next = TimeUnit.MILLISECONDS.convert(getDelayToNextExecutionInMillis(), unit);
-
-		logger.info("{} ms until start of task {}", new Object[] { next, name });
-
-		return next;
+		return unit.convert(nextExecution - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
 	}
 
 	public void setSeconds(CronField seconds) {
@@ -19,7 +19,7 @@
 package org.structr.cron;
 
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.concurrent.DelayQueue;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -36,7 +36,9 @@ import org.structr.schema.action.Actions;
 
 /**
  * A service that keeps track of registered tasks and runs
- * them at their scheduled time.
+ * them at their scheduled time. The entries are kept in a
+ * delay queue, so the service sleeps until the next entry
+ * is due.
  *
  *
  */
@@ -49,8 +51,8 @@ public class CronService extends Thread implements RunnableService {
 	public static final long     GRANULARITY       = 1;
 	public static final int      NUM_FIELDS        = 6;
 
-	private LinkedList<CronEntry> cronEntries = new LinkedList<>();
-	private boolean doRun = false;
+	private final DelayQueue<CronEntry> cronEntries = new DelayQueue<>();
+	private volatile boolean doRun                  = false;
 
 	public CronService() {
 		super("CronService");
@@ -72,41 +74,44 @@ public class CronService extends Thread implements RunnableService {
 
 		while (doRun) {
 
-			// sleep for some time
-			try { Thread.sleep(GRANULARITY_UNIT.toMillis(GRANULARITY)); } catch(InterruptedException iex) { }
+			final CronEntry entry;
 
-			for (CronEntry entry : cronEntries) {
+			try {
 
-				if (entry.getDelayToNextExecutionInMillis() < GRANULARITY_UNIT.toMillis(GRANULARITY)) {
+				entry = cronEntries.take();
 
-					final String taskClassName = entry.getName();
-					final Class taskClass      = instantiate(taskClassName);
+			} catch (InterruptedException iex) {
+				continue;
+			}
 
-					try {
+			final String taskClassName = entry.getName();
+			final Class taskClass      = instantiate(taskClassName);
 
-						if (taskClass != null) {
+			try {
 
-							Task task = (Task)taskClass.newInstance();
+				if (taskClass != null) {
 
-							logger.debug("Starting task {}", taskClassName);
-							StructrApp.getInstance().processTasks(task);
+					Task task = (Task)taskClass.newInstance();
 
-						} else {
+					logger.debug("Starting task {}", taskClassName);
+					StructrApp.getInstance().processTasks(task);
 
-							try (final Tx tx = StructrApp.getInstance().tx()) {
+				} else {
 
-								// check for schema method with the given name
-								Actions.callAsSuperUser(taskClassName, Collections.EMPTY_MAP);
+					try (final Tx tx = StructrApp.getInstance().tx()) {
 
-								tx.success();
-							}
-						}
+						// check for schema method with the given name
+						Actions.callAsSuperUser(taskClassName, Collections.EMPTY_MAP);
 
-					} catch (Throwable t) {
-						logger.warn("Exception while executing cron task {}: {}", taskClassName, t.getMessage());
+						tx.success();
 					}
 				}
+
+			} catch (Throwable t) {
+				logger.warn("Exception while executing cron task {}: {}", taskClassName, t.getMessage());
 			}
+
+			schedule(entry);
 		}
 	}
 
@@ -119,7 +124,9 @@ public class CronService extends Thread implements RunnableService {
 
 	@Override
 	public void stopService() {
+
 		this.doRun = false;
+		this.interrupt();
 	}
 
 	@Override
@@ -154,7 +161,7 @@ public class CronService extends Thread implements RunnableService {
 
 							logger.info("Adding cron entry {} for {}", new Object[]{ entry, task });
 
-							cronEntries.add(entry);
+							schedule(entry);
 
 						} else {
 
@@ -184,6 +191,18 @@ public class CronService extends Thread implements RunnableService {
 	}
 
 	// ----- private methods -----
+	private void schedule(final CronEntry entry) {
+
+		try {
+
+			entry.scheduleNext();
+			cronEntries.add(entry);
+
+		} catch (Throwable t) {
+			logger.warn("Unable to schedule cron task {}: {}", entry.getName(), t.getMessage());
+		}
+	}
+
 	private Class instantiate(final String taskClass) {
 
 		try {
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -64,6 +65,7 @@ public class SchemaService implements Service {
 	private static final Logger logger                            = LoggerFactory.getLogger(SchemaService.class.getName());
 	private static final AtomicBoolean compiling                  = new AtomicBoolean(false);
 	private static final AtomicBoolean updating                   = new AtomicBoolean(false);
+	private static final AtomicLong generation                    = new AtomicLong(0L);
 	private static final Map<String, String> builtinTypeMap       = new LinkedHashMap<>();
 
 	@Override
@@ -86,6 +88,16 @@ public class SchemaService implements Service {
 		builtinTypeMap.put(type, fqcn);
 	}
 
+	/**
+	 * Returns a counter that is incremented after each schema reload, so
+	 * that components can rebuild schema-dependent structures lazily.
+	 *
+	 * @return the current schema generation
+	 */
+	public static long getGeneration() {
+		return generation.get();
+	}
+
 	public static boolean reloadSchema(final ErrorBuffer errorBuffer, final String initiatedBySessionId) {
 
 		final ConfigurationProvider config = StructrApp.getConfiguration();
@@ -137,12 +149,13 @@ public class SchemaService implements Service {
 					// this is a very critical section :)
 					synchronized (SchemaService.class) {
 
-						// clear propagating relationship cache
-						SchemaRelationshipNode.clearPropagatingRelationshipTypes();
-
-						// compile all classes at once and register
+						// compile changed classes and their dependents and register all
 						final Map<String, Class> newTypes = nodeExtender.compile(errorBuffer);
 
+						// remove propagating relationship types that were replaced,
+						// new types register themselves in their static initializer
+						SchemaRelationshipNode.retainPropagatingRelationshipTypes(newTypes.values());
+
 						for (final Class newType : newTypes.values()) {
 
 							// instantiate classes to execute static initializer of helpers
@@ -200,6 +213,9 @@ public class SchemaService implements Service {
 
 			} finally {
 
+				// notify schema-dependent components
+				generation.incrementAndGet();
+
 				// compiling done
 				compiling.set(false);
 
@@ -39,6 +39,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ReadTracker;
 import org.structr.core.graph.Tx;
 import org.structr.core.script.Scripting;
 import org.structr.schema.parser.DatePropertyParser;
@@ -275,6 +276,7 @@ public class ActionContext {
 
 						case "remoteAddress":
 						case "remote_address":
+							ReadTracker.recordUncacheable();
 							final String remoteAddress = securityContext.getRequest().getHeader("X-FORWARDED-FOR");
 							if (remoteAddress == null) {
 								return securityContext.getRequest().getRemoteAddr();
@@ -282,6 +284,7 @@ public class ActionContext {
 							return remoteAddress;
 
 						case "response": {
+							ReadTracker.recordUncacheable();
 							final HttpServletResponse response = securityContext.getResponse();
 							if (response != null) {
 
@@ -318,6 +321,7 @@ public class ActionContext {
 				switch (key) {
 
 					case "now":
+						ReadTracker.recordUncacheable();
 						return this.isJavaScriptContext() ? new Date() : DatePropertyParser.format(new Date(), Settings.DefaultDateFormat.getValue());
 
 					case "element":
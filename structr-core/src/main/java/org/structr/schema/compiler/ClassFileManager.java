@@ -20,19 +20,26 @@ package org.structr.schema.compiler;
 
 import java.io.IOException;
 import java.security.SecureClassLoader;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.JavaFileObject.Kind;
 import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import org.structr.module.JarConfigurationProvider;
 
 /**
  *
  *
  */
-public class ClassFileManager extends ForwardingJavaFileManager {
+public class ClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
 
 	/**
 	 * Instance of JavaClassObject that will store the compiled byte code of
@@ -40,6 +47,12 @@ public class ClassFileManager extends ForwardingJavaFileManager {
 	 */
 	private final Map<String, JavaClassObject> objects = new LinkedHashMap<>();
 
+	/**
+	 * Byte code of the dynamic classes that are not compiled in the
+	 * current run, but can be referenced by the compiled classes.
+	 */
+	private Map<String, byte[]> classPath = Collections.emptyMap();
+
 	/**
 	 * Will initialize the manager with the specified standard java file
 	 * manager
@@ -97,4 +110,64 @@ public class ClassFileManager extends ForwardingJavaFileManager {
 		
 		return obj;
 	}
-}
\ No newline at end of file
+
+	@Override
+	public Iterable<JavaFileObject> list(final Location location, final String packageName, final Set<Kind> kinds, final boolean recurse) throws IOException {
+
+		final Iterable<JavaFileObject> files = super.list(location, packageName, kinds, recurse);
+
+		if (StandardLocation.CLASS_PATH.equals(location) && JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE.equals(packageName) && kinds.contains(Kind.CLASS) && !classPath.isEmpty()) {
+
+			final List<JavaFileObject> result = new LinkedList<>();
+
+			for (final JavaFileObject file : files) {
+				result.add(file);
+			}
+
+			for (final Entry<String, byte[]> entry : classPath.entrySet()) {
+				result.add(new JavaClassObject(entry.getKey(), entry.getValue()));
+			}
+
+			return result;
+		}
+
+		return files;
+	}
+
+	@Override
+	public String inferBinaryName(final Location location, final JavaFileObject file) {
+
+		if (file instanceof JavaClassObject) {
+			return ((JavaClassObject)file).getBinaryName();
+		}
+
+		return super.inferBinaryName(location, file);
+	}
+
+	/**
+	 * Prepares the next compiler run. The given byte code is made available
+	 * to the compiler, the output of previous runs is discarded.
+	 *
+	 * @param classPath byte code of the dynamic classes that are not compiled
+	 */
+	public void prepare(final Map<String, byte[]> classPath) {
+
+		this.classPath = classPath;
+
+		objects.clear();
+	}
+
+	/**
+	 * @return the byte code created in the last compiler run, keyed by class name
+	 */
+	public Map<String, byte[]> getCompiledClasses() {
+
+		final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+		for (final Entry<String, JavaClassObject> entry : objects.entrySet()) {
+			classes.put(entry.getKey(), entry.getValue().getBytes());
+		}
+
+		return classes;
+	}
+}
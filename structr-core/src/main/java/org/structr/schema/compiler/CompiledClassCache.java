@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.schema.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache for the byte code of dynamic classes. Each entry holds
+ * the byte code of a single source file (including nested classes) and
+ * is only valid for the key it was stored with.
+ */
+public class CompiledClassCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(CompiledClassCache.class.getName());
+	private static final String SUFFIX = ".classes";
+
+	private Path directory = null;
+
+	public CompiledClassCache(final Path directory) throws IOException {
+
+		this.directory = directory;
+
+		Files.createDirectories(directory);
+	}
+
+	/**
+	 * Returns the byte code that was stored for the given class and key,
+	 * or null if there is no such entry.
+	 *
+	 * @param fqcn
+	 * @param key
+	 * @return the byte code, keyed by class name, or null
+	 */
+	public Map<String, byte[]> get(final String fqcn, final String key) {
+
+		final Path file = directory.resolve(fqcn + SUFFIX);
+		if (Files.exists(file)) {
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+
+				if (key.equals(in.readUTF())) {
+
+					final Map<String, byte[]> classes = new LinkedHashMap<>();
+					final int count                   = in.readInt();
+
+					for (int i=0; i<count; i++) {
+
+						final String name  = in.readUTF();
+						final byte[] bytes = new byte[in.readInt()];
+
+						in.readFully(bytes);
+
+						classes.put(name, bytes);
+					}
+
+					return classes;
+				}
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to read compiled class cache entry for {}: {}", fqcn, ioex.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+	public void put(final String fqcn, final String key, final Map<String, byte[]> classes) {
+
+		final Path file = directory.resolve(fqcn + SUFFIX);
+		final Path tmp  = directory.resolve(fqcn + SUFFIX + ".tmp");
+
+		try {
+
+			try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+
+				out.writeUTF(key);
+				out.writeInt(classes.size());
+
+				for (final Entry<String, byte[]> entry : classes.entrySet()) {
+
+					out.writeUTF(entry.getKey());
+					out.writeInt(entry.getValue().length);
+					out.write(entry.getValue());
+				}
+			}
+
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to write compiled class cache entry for {}: {}", fqcn, ioex.getMessage());
+		}
+	}
+
+	public void remove(final String fqcn) {
+
+		try {
+
+			Files.deleteIfExists(directory.resolve(fqcn + SUFFIX));
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to remove compiled class cache entry for {}: {}", fqcn, ioex.getMessage());
+		}
+	}
+
+	/**
+	 * Returns a fingerprint of the runtime environment that compiled byte
+	 * code depends on, i.e. the Java version and the libraries on the
+	 * class path. Cache keys must include this fingerprint so that updated
+	 * libraries invalidate all entries.
+	 *
+	 * @return the fingerprint
+	 */
+	public static String getFingerprint() {
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(System.getProperty("java.version"));
+
+		for (final String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+
+			final File file = new File(entry);
+
+			buf.append(File.pathSeparator);
+			buf.append(entry);
+			buf.append(file.length());
+			buf.append(file.lastModified());
+		}
+
+		return DigestUtils.sha1Hex(buf.toString());
+	}
+}
@@ -20,23 +20,31 @@ package org.structr.schema.compiler;
 
 import java.io.StringWriter;
 import java.io.Writer;
-import java.util.ArrayList;
+import java.nio.file.Paths;
+import java.security.SecureClassLoader;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.tools.Diagnostic;
 import javax.tools.Diagnostic.Kind;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
-import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.ToolProvider;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
@@ -48,26 +56,37 @@ import org.structr.core.graph.TransactionCommand;
 import org.structr.module.JarConfigurationProvider;
 
 /**
+ * Compiles and loads the dynamic schema classes.
  *
+ * Only classes whose source changed since the last run are compiled,
+ * together with all classes that (transitively) reference them. All other
+ * classes are kept. The byte code of each class is stored in a persistent
+ * {@link CompiledClassCache}, keyed by the hash of its source and of the
+ * sources it depends on, so an unchanged schema can be loaded without
+ * invoking the compiler.
  *
  */
 public class NodeExtender {
 
 	private static final Logger logger   = LoggerFactory.getLogger(NodeExtender.class.getName());
+	private static final Pattern identifierPattern = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
 
-	private static final JavaCompiler compiler       = ToolProvider.getSystemJavaCompiler();
-	private static final JavaFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
-	private static final ClassLoader classLoader     = fileManager.getClassLoader(null);
-	private static final Map<String, Class> classes  = new TreeMap<>();
+	private static final JavaCompiler compiler                     = ToolProvider.getSystemJavaCompiler();
+	private static final ClassFileManager fileManager              = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
+	private static final ClassLoader classLoader                   = fileManager.getClassLoader(null);
+	private static final Map<String, Class> classes                = new TreeMap<>();
+	private static final Map<String, String> sourceHashes          = new HashMap<>();
+	private static final Map<String, Map<String, byte[]>> bytecode = new HashMap<>();
+	private static String fingerprint                              = null;
 
-	private List<JavaFileObject> jfiles  = null;
-	private Set<String> fqcns            = null;
-	private String initiatedBySessionId  = null;
+	private Map<String, CharSequenceJavaFileObject> jfiles = null;
+	private Map<String, String> sources                    = null;
+	private String initiatedBySessionId                    = null;
 
 	public NodeExtender() {
 
-		jfiles      = new ArrayList<>();
-		fqcns       = new LinkedHashSet<>();
+		jfiles      = new LinkedHashMap<>();
+		sources     = new LinkedHashMap<>();
 	}
 
 	public static ClassLoader getClassLoader() {
@@ -87,9 +106,10 @@ public class NodeExtender {
 		if (className != null && content != null) {
 
 			final String packageName = JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE;
+			final String fqcn        = packageName.concat(".".concat(className));
 
-			jfiles.add(new CharSequenceJavaFileObject(className, content));
-			fqcns.add(packageName.concat(".".concat(className)));
+			jfiles.put(fqcn, new CharSequenceJavaFileObject(className, content));
+			sources.put(fqcn, content);
 
 			if (Settings.LogSchemaOutput.getValue()) {
 
@@ -99,26 +119,131 @@ public class NodeExtender {
 		}
 	}
 
-	public synchronized Map<String, Class> compile(final ErrorBuffer errorBuffer) throws ClassNotFoundException {
+	public Map<String, Class> compile(final ErrorBuffer errorBuffer) throws ClassNotFoundException {
 
-		final Writer errorWriter     = new StringWriter();
-		final List<Class> newClasses = new LinkedList<>();
+		synchronized (NodeExtender.class) {
 
-		if (!jfiles.isEmpty()) {
+			if (jfiles.isEmpty()) {
+				return classes;
+			}
+
+			final Map<String, String> hashes              = new LinkedHashMap<>();
+			final Set<String> removed                     = new LinkedHashSet<>(classes.keySet());
+			final Set<String> changed                     = new LinkedHashSet<>();
+
+			removed.removeAll(jfiles.keySet());
+
+			for (final Entry<String, String> entry : sources.entrySet()) {
+				hashes.put(entry.getKey(), DigestUtils.sha1Hex(entry.getValue()));
+			}
+
+			final Map<String, Set<String>> dependencies = getDependencies(removed);
+
+			for (final String fqcn : jfiles.keySet()) {
+
+				if (!classes.containsKey(fqcn) || !hashes.get(fqcn).equals(sourceHashes.get(fqcn)) || !Collections.disjoint(dependencies.get(fqcn), removed)) {
+					changed.add(fqcn);
+				}
+			}
+
+			final Set<String> affected = getDependents(changed, dependencies);
+			if (affected.isEmpty() && removed.isEmpty()) {
+
+				logger.debug("Dynamic schema unchanged, nothing to compile.");
+
+				notifySchemaCompiled();
+
+				return classes;
+			}
+
+			final Map<String, Map<String, byte[]>> newBytecode = new LinkedHashMap<>();
+			final Map<String, String> cacheKeys                = new LinkedHashMap<>();
+			final CompiledClassCache cache                     = getCache();
+			final List<JavaFileObject> compilationUnits        = new LinkedList<>();
+			boolean success                                    = true;
+
+			// try to load byte code of changed classes from the cache
+			for (final String fqcn : affected) {
+
+				final String key = getCacheKey(fqcn, hashes, dependencies);
+				cacheKeys.put(fqcn, key);
+
+				final Map<String, byte[]> cached = cache != null ? cache.get(fqcn, key) : null;
+				if (cached != null) {
+
+					newBytecode.put(fqcn, cached);
+
+				} else {
+
+					compilationUnits.add(jfiles.get(fqcn));
+				}
+			}
+
+			if (!compilationUnits.isEmpty()) {
+
+				final Writer errorWriter        = new StringWriter();
+				final Map<String, byte[]> known = new HashMap<>();
+
+				logger.debug("Compiling {} dynamic entities...", compilationUnits.size());
+
+				// make byte code of the classes that are not compiled available to the compiler
+				for (final String fqcn : jfiles.keySet()) {
+
+					final Map<String, byte[]> classBytes = newBytecode.containsKey(fqcn) ? newBytecode.get(fqcn) : bytecode.get(fqcn);
+					if (classBytes != null && !compilationUnits.contains(jfiles.get(fqcn))) {
+
+						known.putAll(classBytes);
+					}
+				}
+
+				fileManager.prepare(known);
+
+				success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), null, null, compilationUnits).call();
+
+				if (success) {
 
-			logger.debug("Compiling {} dynamic entities...", jfiles.size());
+					for (final Entry<String, byte[]> entry : fileManager.getCompiledClasses().entrySet()) {
 
-			Boolean success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), null, null, jfiles).call();
+						final String fqcn = StringUtils.substringBefore(entry.getKey(), "$");
+
+						newBytecode.computeIfAbsent(fqcn, k -> new LinkedHashMap<>()).put(entry.getKey(), entry.getValue());
+					}
+				}
+
+				fileManager.prepare(Collections.emptyMap());
+			}
 
 			if (success) {
 
-				final ClassLoader loader = fileManager.getClassLoader(null);
+				final Map<String, Class> unchanged = new HashMap<>(classes);
+				final Map<String, byte[]> toLoad   = new HashMap<>();
+				final Map<String, Class> newTypes  = new LinkedHashMap<>();
+
+				unchanged.keySet().retainAll(jfiles.keySet());
+				unchanged.keySet().removeAll(affected);
+
+				// helper classes register their properties in the static
+				// initializer, so they are always loaded again
+				for (final String fqcn : jfiles.keySet()) {
+
+					if (unchanged.containsKey(fqcn) && isHelper(fqcn) && bytecode.containsKey(fqcn)) {
 
-				for (final String fqcn : fqcns) {
+						unchanged.remove(fqcn);
+						newBytecode.put(fqcn, bytecode.get(fqcn));
+					}
+				}
+
+				for (final Map<String, byte[]> classBytes : newBytecode.values()) {
+					toLoad.putAll(classBytes);
+				}
+
+				final ClassLoader loader = new DynamicClassLoader(toLoad, unchanged);
+
+				for (final String fqcn : newBytecode.keySet()) {
 
 					try {
 
-						newClasses.add(loader.loadClass(fqcn));
+						newTypes.put(fqcn, loader.loadClass(fqcn));
 
 					} catch (Throwable t) {
 
@@ -135,29 +260,44 @@ public class NodeExtender {
 						StructrApp.getConfiguration().unregisterEntityType(oldType);
 					}
 
-					// clear classes map
+					// replace classes map
 					classes.clear();
+					classes.putAll(unchanged);
+					classes.putAll(newTypes);
 
-					// add new classes to map
-					for (final Class newType : newClasses) {
-						classes.put(newType.getName(), newType);
-					}
+					sourceHashes.clear();
+					sourceHashes.putAll(hashes);
 
-					logger.info("Successfully compiled {} dynamic entities: {}", new Object[] { jfiles.size(), jfiles.stream().map(f -> f.getName().replaceFirst("/", "")).collect(Collectors.joining(", ")) });
+					bytecode.keySet().retainAll(jfiles.keySet());
+					bytecode.putAll(newBytecode);
 
-					final Map<String, Object> data = new LinkedHashMap();
-					data.put("success", true);
-					TransactionCommand.simpleBroadcast("SCHEMA_COMPILED", data, getInitiatedBySessionId());
+					if (cache != null) {
 
-					Services.getInstance().setOverridingSchemaTypesAllowed(false);
+						for (final JavaFileObject compilationUnit : compilationUnits) {
 
-				}
+							final String fqcn = JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE.concat(".").concat(((CharSequenceJavaFileObject)compilationUnit).getClassName());
+
+							cache.put(fqcn, cacheKeys.get(fqcn), newBytecode.get(fqcn));
+						}
 
+						for (final String fqcn : removed) {
+							cache.remove(fqcn);
+						}
+					}
+
+					logger.info("Successfully compiled {} dynamic entities, loaded {} from cache, kept {}: {}", new Object[] {
+						compilationUnits.size(),
+						affected.size() - compilationUnits.size(),
+						unchanged.size(),
+						compilationUnits.stream().map(f -> ((CharSequenceJavaFileObject)f).getClassName()).collect(Collectors.joining(", "))
+					});
+
+					notifySchemaCompiled();
+				}
 			}
 
+			return classes;
 		}
-
-		return classes;
 	}
 
 	public String getInitiatedBySessionId () {
@@ -168,6 +308,176 @@ public class NodeExtender {
 		this.initiatedBySessionId = initiatedBySessionId;
 	}
 
+	// ----- private methods -----
+	private void notifySchemaCompiled() {
+
+		final Map<String, Object> data = new LinkedHashMap();
+		data.put("success", true);
+		TransactionCommand.simpleBroadcast("SCHEMA_COMPILED", data, getInitiatedBySessionId());
+
+		Services.getInstance().setOverridingSchemaTypesAllowed(false);
+	}
+
+	/**
+	 * Returns the dynamic classes that each source references, including
+	 * the given removed classes.
+	 */
+	private Map<String, Set<String>> getDependencies(final Set<String> removed) {
+
+		final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+		final Map<String, String> simpleNames       = new HashMap<>();
+
+		for (final String fqcn : jfiles.keySet()) {
+			simpleNames.put(StringUtils.substringAfterLast(fqcn, "."), fqcn);
+		}
+
+		for (final String fqcn : removed) {
+			simpleNames.put(StringUtils.substringAfterLast(fqcn, "."), fqcn);
+		}
+
+		for (final Entry<String, String> entry : sources.entrySet()) {
+
+			final Set<String> references = new LinkedHashSet<>();
+			final Matcher matcher        = identifierPattern.matcher(entry.getValue());
+
+			while (matcher.find()) {
+
+				final String reference = simpleNames.get(matcher.group());
+				if (reference != null && !reference.equals(entry.getKey())) {
+
+					references.add(reference);
+				}
+			}
+
+			dependencies.put(entry.getKey(), references);
+		}
+
+		return dependencies;
+	}
+
+	/**
+	 * Returns the given classes and all classes that depend on them.
+	 */
+	private Set<String> getDependents(final Set<String> changed, final Map<String, Set<String>> dependencies) {
+
+		final Set<String> affected    = new LinkedHashSet<>(changed);
+		final LinkedList<String> todo = new LinkedList<>(changed);
+
+		while (!todo.isEmpty()) {
+
+			final String fqcn = todo.removeFirst();
+
+			for (final Entry<String, Set<String>> entry : dependencies.entrySet()) {
+
+				if (entry.getValue().contains(fqcn) && affected.add(entry.getKey())) {
+					todo.add(entry.getKey());
+				}
+			}
+		}
+
+		return affected;
+	}
+
+	/**
+	 * The cache key of a class consists of the hashes of its own source
+	 * and of the sources of all classes it transitively depends on.
+	 */
+	private String getCacheKey(final String fqcn, final Map<String, String> hashes, final Map<String, Set<String>> dependencies) {
+
+		final Set<String> closure     = new TreeSet<>();
+		final LinkedList<String> todo = new LinkedList<>(dependencies.get(fqcn));
+		final StringBuilder buf       = new StringBuilder();
+
+		while (!todo.isEmpty()) {
+
+			final String dependency = todo.removeFirst();
+
+			if (hashes.containsKey(dependency) && closure.add(dependency)) {
+				todo.addAll(dependencies.get(dependency));
+			}
+		}
+
+		buf.append(getFingerprint());
+		buf.append(fqcn).append(hashes.get(fqcn));
+
+		for (final String dependency : closure) {
+			buf.append(dependency).append(hashes.get(dependency));
+		}
+
+		return DigestUtils.sha1Hex(buf.toString());
+	}
+
+	private boolean isHelper(final String fqcn) {
+
+		final String name = StringUtils.substringAfterLast(fqcn, ".");
+
+		return name.startsWith("_") && name.endsWith("Helper");
+	}
+
+	private CompiledClassCache getCache() {
+
+		if (Settings.SchemaCacheEnabled.getValue()) {
+
+			try {
+
+				return new CompiledClassCache(Paths.get(Settings.getFullSettingPath(Settings.SchemaCachePath)));
+
+			} catch (Throwable t) {
+				logger.warn("Unable to open compiled class cache: {}", t.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+	private static String getFingerprint() {
+
+		if (fingerprint == null) {
+			fingerprint = CompiledClassCache.getFingerprint();
+		}
+
+		return fingerprint;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Defines the classes of a single compilation run and resolves all
+	 * other dynamic classes to the already loaded classes that were kept.
+	 */
+	private static class DynamicClassLoader extends SecureClassLoader {
+
+		private Map<String, byte[]> bytecode = null;
+		private Map<String, Class> classes   = null;
+
+		public DynamicClassLoader(final Map<String, byte[]> bytecode, final Map<String, Class> classes) {
+
+			this.bytecode = bytecode;
+			this.classes  = classes;
+		}
+
+		@Override
+		protected Class<?> findClass(final String name) throws ClassNotFoundException {
+
+			final byte[] bytes = bytecode.get(name);
+			if (bytes != null) {
+
+				return defineClass(name, bytes, 0, bytes.length);
+			}
+
+			final Class type = classes.get(StringUtils.substringBefore(name, "$"));
+			if (type != null) {
+
+				if (type.getName().equals(name)) {
+					return type;
+				}
+
+				return type.getClassLoader().loadClass(name);
+			}
+
+			throw new ClassNotFoundException(name);
+		}
+	}
+
 	private static class Listener implements DiagnosticListener<JavaFileObject> {
 
 		private ErrorBuffer errorBuffer = null;
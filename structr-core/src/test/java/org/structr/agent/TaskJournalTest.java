@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.agent;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.structr.agent.TaskJournal.TaskRecord;
+
+/**
+ *
+ */
+public class TaskJournalTest {
+
+	@Test
+	public void testReplayOfPendingTasks() throws Exception {
+
+		final Path directory = Files.createTempDirectory("structr-task-journal");
+		TaskJournal journal  = new TaskJournal(directory, 1000);
+
+		final long first  = journal.append(new TaskRecord("org.structr.test.FirstTask", "First", 0, null, null));
+		final long second = journal.append(new TaskRecord("org.structr.test.SecondTask", "Second", 5, "user", Arrays.asList("node1", "node2")));
+		final long third  = journal.append(new TaskRecord("org.structr.test.ThirdTask", null, 0, null, null));
+
+		journal.complete(first);
+		journal.close();
+
+		// simulate restart
+		journal = new TaskJournal(directory, 1000);
+
+		final Map<Long, TaskRecord> pending = journal.getPending();
+
+		Assert.assertEquals("Invalid number of pending tasks", 2, pending.size());
+		Assert.assertEquals("Invalid order of pending tasks", Arrays.asList(second, third), Arrays.asList(pending.keySet().toArray()));
+
+		final TaskRecord record = pending.get(second);
+
+		Assert.assertEquals("Invalid class name", "org.structr.test.SecondTask", record.getClassName());
+		Assert.assertEquals("Invalid type",       "Second", record.getType());
+		Assert.assertEquals("Invalid priority",   5, record.getPriority());
+		Assert.assertEquals("Invalid user",       "user", record.getUserId());
+		Assert.assertEquals("Invalid nodes",      Arrays.asList("node1", "node2"), record.getNodeIds());
+		Assert.assertNull("Invalid type",         pending.get(third).getType());
+
+		// new ids must not collide with replayed ones
+		final long fourth = journal.append(new TaskRecord("org.structr.test.FourthTask", "Fourth", 0, null, null));
+
+		Assert.assertTrue("Journal id was reused", fourth > third);
+
+		journal.complete(second);
+		journal.complete(third);
+		journal.complete(fourth);
+
+		Assert.assertEquals("Journal should be empty", 0, journal.size());
+		Assert.assertEquals("Journal file should be truncated", 0L, Files.size(directory.resolve("tasks.journal")));
+
+		journal.close();
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+
+		final Path directory = Files.createTempDirectory("structr-task-journal");
+		TaskJournal journal  = new TaskJournal(directory, 10);
+
+		final long pending = journal.append(new TaskRecord("org.structr.test.PendingTask", "Pending", 0, null, null));
+
+		for (int i=0; i<100; i++) {
+			journal.complete(journal.append(new TaskRecord("org.structr.test.Task", "Task", 0, null, null)));
+		}
+
+		// compaction removes all completed records
+		final long size = Files.size(directory.resolve("tasks.journal"));
+
+		journal.close();
+		journal = new TaskJournal(directory, 10);
+
+		Assert.assertEquals("Invalid number of pending tasks", 1, journal.size());
+		Assert.assertTrue("Invalid pending task", journal.getPending().containsKey(pending));
+		Assert.assertTrue("Journal was not compacted", size < 100 * 13);
+
+		journal.close();
+	}
+
+	@Test
+	public void testCompleteAfterClose() throws Exception {
+
+		final Path directory = Files.createTempDirectory("structr-task-journal");
+		TaskJournal journal  = new TaskJournal(directory, 1000);
+
+		final long first  = journal.append(new TaskRecord("org.structr.test.FirstTask", "First", 0, null, null));
+		final long second = journal.append(new TaskRecord("org.structr.test.SecondTask", "Second", 0, null, null));
+
+		// tasks that are still running when the service shuts down
+		journal.close();
+		journal.complete(first);
+		journal.complete(second);
+
+		journal = new TaskJournal(directory, 1000);
+
+		Assert.assertEquals("Tasks completed after close should be replayed", Arrays.asList(first, second), Arrays.asList(journal.getPending().keySet().toArray()));
+
+		journal.close();
+	}
+}
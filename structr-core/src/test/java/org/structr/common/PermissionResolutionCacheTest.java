@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class PermissionResolutionCacheTest {
+
+	@Test
+	public void testIncrementalInvalidation() {
+
+		final PermissionResolutionCache cache = new PermissionResolutionCache(1000);
+		final long generation                 = cache.getGeneration();
+
+		// node 1 was resolved over node 2 for principal 10, node 3 was resolved from the cached result of node 1
+		cache.put(1L, 10L, Permission.read, true, Arrays.asList(1L, 2L, 10L), generation);
+		cache.put(3L, 10L, Permission.read, true, Arrays.asList(3L, 1L, 10L), generation);
+		cache.put(4L, 11L, Permission.read, true, Arrays.asList(4L, 5L, 11L), generation);
+
+		Assert.assertEquals("Invalid cached result", Boolean.TRUE, cache.get(1L, 10L, Permission.read));
+		Assert.assertNull("Unresolved permission must not be cached", cache.get(1L, 10L, Permission.write));
+
+		// modification of node 2 affects node 1 and (transitively) node 3, but not node 4
+		cache.invalidate(2L);
+
+		Assert.assertNull("Result should be invalidated", cache.get(1L, 10L, Permission.read));
+		Assert.assertNull("Result should be invalidated", cache.get(3L, 10L, Permission.read));
+		Assert.assertEquals("Result should not be invalidated", Boolean.TRUE, cache.get(4L, 11L, Permission.read));
+
+		// modification of principal 11 affects its results
+		cache.invalidate(11L);
+
+		Assert.assertNull("Result should be invalidated", cache.get(4L, 11L, Permission.read));
+
+		final Map<String, Long> statistics = cache.getStatistics();
+
+		Assert.assertEquals("Invalid number of invalidations", Long.valueOf(3), statistics.get("invalidations"));
+		Assert.assertEquals("Invalid cache size",              Long.valueOf(0), statistics.get("size"));
+	}
+
+	@Test
+	public void testConcurrentInvalidation() {
+
+		final PermissionResolutionCache cache = new PermissionResolutionCache(1000);
+		final long generation                 = cache.getGeneration();
+
+		// invalidation between start of the resolution and caching
+		cache.invalidate(2L);
+
+		cache.put(1L, 10L, Permission.read, true, Arrays.asList(1L, 2L, 10L), generation);
+
+		Assert.assertNull("Outdated result must not be cached", cache.get(1L, 10L, Permission.read));
+	}
+}
@@ -1952,7 +1952,177 @@ public class SearchAndSortingTest extends StructrTest {
 
 	}
 
+	@Test
+	public void test09PagingWithoutResultCount() {
+
+		try {
+
+			createNamedTestNodes(TestOne.class, 25);
+
+			final SecurityContext ctx = SecurityContext.getSuperUserInstance();
+			final App countlessApp    = StructrApp.getInstance(ctx);
+
+			ctx.ignoreResultCount(true);
+
+			try (final Tx tx = countlessApp.tx()) {
+
+				final Result<TestOne> page2 = countlessApp.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(10).page(2).getResult();
+
+				assertEquals("Invalid page size", 10, page2.size());
+				assertEquals("Invalid paging result", "TestOne-10", page2.get(0).getProperty(AbstractNode.name));
+				assertEquals("Invalid paging result", "TestOne-19", page2.get(9).getProperty(AbstractNode.name));
+				assertEquals("Estimated result count should indicate a next page", 21, (int)page2.getRawResultCount());
+
+				final Result<TestOne> page3 = countlessApp.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(10).page(3).getResult();
+
+				assertEquals("Invalid page size", 5, page3.size());
+				assertEquals("Invalid paging result", "TestOne-20", page3.get(0).getProperty(AbstractNode.name));
+				assertEquals("Estimated result count should be exact on the last page", 25, (int)page3.getRawResultCount());
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void test10KeysetPaging() {
+
+		try {
+
+			createNamedTestNodes(TestOne.class, 25);
+
+			try (final Tx tx = app.tx()) {
+
+				final List<String> names = new LinkedList<>();
+				TestOne last             = null;
+
+				for (int i=0; i<5; i++) {
+
+					final Query<TestOne> query = app.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(10);
+
+					if (last != null) {
+						query.after(last);
+					}
+
+					final List<TestOne> page = query.getAsList();
+					if (page.isEmpty()) {
+						break;
+					}
+
+					for (final TestOne node : page) {
+						names.add(node.getProperty(AbstractNode.name));
+					}
+
+					last = page.get(page.size() - 1);
+				}
+
+				assertEquals("Keyset paging should return all elements exactly once", 25, names.size());
+
+				for (int i=0; i<25; i++) {
+					assertEquals("Invalid keyset paging order", "TestOne-" + String.format("%02d", i), names.get(i));
+				}
+
+				// descending
+				final TestOne first              = app.nodeQuery(TestOne.class).sortDescending(AbstractNode.name).getFirst();
+				final List<TestOne> descending   = app.nodeQuery(TestOne.class).sortDescending(AbstractNode.name).pageSize(3).after(first).getAsList();
+
+				assertEquals("Invalid keyset paging result", 3, descending.size());
+				assertEquals("Invalid keyset paging order", "TestOne-23", descending.get(0).getProperty(AbstractNode.name));
+				assertEquals("Invalid keyset paging order", "TestOne-21", descending.get(2).getProperty(AbstractNode.name));
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void test14PagingWithExactResultCount() {
+
+		try {
+
+			final List<TestOne> nodes = createNamedTestNodes(TestOne.class, 25);
+
+			try (final Tx tx = app.tx()) {
+
+				for (int i=0; i<25; i++) {
+
+					final TestOne node = nodes.get(i);
+
+					node.setProperty(GraphObject.visibleToPublicUsers, i % 2 == 0);
+					node.setProperty(NodeInterface.hidden, i == 4);
+				}
+
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				final Result<TestOne> page2 = app.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(10).page(2).getResult();
+
+				assertEquals("Invalid page size", 10, page2.size());
+				assertEquals("Invalid paging result", "TestOne-10", page2.get(0).getProperty(AbstractNode.name));
+				assertEquals("Result count should be exact", 25, (int)page2.getRawResultCount());
+
+				// the superuser context ignores publicOnly
+				final Result<TestOne> all = app.nodeQuery(TestOne.class).publicOnly().sort(AbstractNode.name).pageSize(10).page(3).getResult();
+
+				assertEquals("Invalid page size", 5, all.size());
+				assertEquals("Result count should be exact", 25, (int)all.getRawResultCount());
+
+				tx.success();
+			}
+
+			final App publicApp = StructrApp.getInstance(SecurityContext.getInstance(null, AccessMode.Frontend));
+
+			try (final Tx tx = publicApp.tx()) {
+
+				// public nodes are 00, 02, .., 24, 04 is hidden
+				final Result<TestOne> publicPage = publicApp.nodeQuery(TestOne.class).includeDeletedAndHidden(false).sort(AbstractNode.name).pageSize(5).page(2).getResult();
+
+				assertEquals("Invalid page size", 5, publicPage.size());
+				assertEquals("Invalid paging result", "TestOne-12", publicPage.get(0).getProperty(AbstractNode.name));
+				assertEquals("Invalid paging result", "TestOne-20", publicPage.get(4).getProperty(AbstractNode.name));
+				assertEquals("Result count should be exact", 12, (int)publicPage.getRawResultCount());
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
 	// ----- private methods -----
+	private <T extends AbstractNode> List<T> createNamedTestNodes(final Class<T> type, final int number) throws FrameworkException {
+
+		final List<T> nodes = createTestNodes(type, number);
+
+		try (final Tx tx = app.tx()) {
+
+			int i = 0;
+
+			for (final AbstractNode node : nodes) {
+				node.setProperty(AbstractNode.name, "TestOne-" + String.format("%02d", i++));
+			}
+
+			tx.success();
+		}
+
+		return nodes;
+	}
+
 	private void testPaging(final Class type, final int pageSize, final int page, final int number, final int offset, final boolean includeDeletedAndHidden, final boolean publicOnly, final PropertyKey sortKey, final boolean sortDesc) throws FrameworkException {
 
 		final Query query = app.nodeQuery(type).sort(sortKey).order(sortDesc).page(page).pageSize(pageSize);
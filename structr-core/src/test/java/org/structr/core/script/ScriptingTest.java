@@ -2404,4 +2404,110 @@ public class ScriptingTest extends StructrTest {
 			fail("Unexpected exception.");
 		}
 	}
+
+	@Test
+	public void testSharedExpressionsInParallel() {
+
+		final List<TestOne> nodes = new LinkedList<>();
+
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<10; i++) {
+				nodes.add(app.create(TestOne.class, new NodeAttribute<>(AbstractNode.name, "node" + i)));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		final List<String> errors   = Collections.synchronizedList(new LinkedList<>());
+		final List<Thread> threads  = new LinkedList<>();
+		final String template       = "${upper(this.name)}: ${add(1, 2)} / ${if(equal(this.name, 'node0'), 'first', 'other')}";
+
+		for (final TestOne node : nodes) {
+
+			final Thread thread = new Thread(() -> {
+
+				try (final Tx tx = app.tx()) {
+
+					final ActionContext ctx = new ActionContext(securityContext, null);
+					final String name       = node.getProperty(AbstractNode.name);
+					final String expected   = name.toUpperCase() + ": 3.0 / " + ("node0".equals(name) ? "first" : "other");
+
+					for (int i=0; i<100; i++) {
+
+						final String result = Scripting.replaceVariables(ctx, node, template);
+						if (!expected.equals(result)) {
+
+							errors.add("Expected " + expected + ", got " + result);
+							break;
+						}
+					}
+
+					tx.success();
+
+				} catch (FrameworkException fex) {
+					errors.add(fex.getMessage());
+				}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (final Thread thread : threads) {
+			try { thread.join(); } catch (InterruptedException ignore) {}
+		}
+
+		assertTrue("Shared expressions must not interfere with each other: " + errors, errors.isEmpty());
+		assertEquals("Invalid extracted scripts", 3, Scripting.extractScripts(template).size());
+	}
+
+	@Test
+	public void testIsolatedJavascriptScopes() {
+
+		try (final Tx tx = app.tx()) {
+
+			final ActionContext actionContext = new ActionContext(securityContext);
+			final TestOne testOne             = app.create(TestOne.class);
+
+			// top-level declarations and implicit globals must not leak into subsequent invocations
+			Scripting.evaluate(actionContext, testOne, "${{ var leaked = 'var'; implicitGlobal = 'global'; }}", "scopeTest");
+
+			assertEquals("Javascript variable leaked into shared scope", "undefined", Scripting.evaluate(actionContext, testOne, "${{ return typeof leaked; }}", "scopeTest"));
+			assertEquals("Javascript variable leaked into shared scope", "undefined", Scripting.evaluate(actionContext, testOne, "${{ return typeof implicitGlobal; }}", "scopeTest"));
+
+			// standard objects are shared and sealed
+			assertEquals("Invalid standard objects", "a,b", Scripting.evaluate(actionContext, testOne, "${{ return ['a', 'b'].join(','); }}", "scopeTest"));
+
+			try {
+
+				Scripting.evaluate(actionContext, testOne, "${{ Array.prototype.join = null; }}", "scopeTest");
+				fail("Shared standard objects must not be modifiable.");
+
+			} catch (FrameworkException expected) {}
+
+			final Map<String, Long> statistics = Scripting.getStatistics().get("scopeTest");
+
+			assertNotNull("Missing scripting statistics", statistics);
+			assertEquals("Invalid number of compilations", Long.valueOf(5), statistics.get("compilations"));
+			assertEquals("Invalid number of executions",   Long.valueOf(5), statistics.get("executions"));
+
+			// compiled scripts are cached
+			Scripting.evaluate(actionContext, testOne, "${{ return typeof leaked; }}", "scopeTest");
+
+			assertEquals("Invalid number of compilations", Long.valueOf(5), Scripting.getStatistics().get("scopeTest").get("compilations"));
+
+			tx.success();
+
+		} catch(UnlicensedException|FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
 }
@@ -22,6 +22,9 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang.StringUtils;
@@ -32,6 +35,7 @@ import static org.junit.Assert.fail;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.common.StructrTest;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.StructrApp;
@@ -43,6 +47,7 @@ import org.structr.core.entity.SchemaRelationshipNode;
 import org.structr.core.entity.SchemaView;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
+import org.structr.core.property.StringProperty;
 import org.structr.schema.export.StructrSchema;
 import org.structr.schema.json.InvalidSchemaException;
 import org.structr.schema.json.JsonObjectType;
@@ -428,6 +433,60 @@ public class SchemaTest extends StructrTest {
 
 	}
 
+	@Test
+	public void test07IncrementalCompilation() {
+
+		try (final Tx tx = app.tx()) {
+
+			final SchemaNode project = app.create(SchemaNode.class, "Project");
+			final SchemaNode task    = app.create(SchemaNode.class, "Task");
+
+			app.create(SchemaNode.class, "Unrelated");
+
+			app.create(SchemaRelationshipNode.class,
+				new NodeAttribute<>(SchemaRelationshipNode.sourceNode, project),
+				new NodeAttribute<>(SchemaRelationshipNode.targetNode, task),
+				new NodeAttribute<>(SchemaRelationshipNode.relationshipType, "has")
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		final Class unrelated = StructrApp.getConfiguration().getNodeEntityClass("Unrelated");
+		final Class project   = StructrApp.getConfiguration().getNodeEntityClass("Project");
+		final Class task      = StructrApp.getConfiguration().getNodeEntityClass("Task");
+
+		assertNotNull("Dynamic type was not compiled", unrelated);
+		assertNotNull("Dynamic type was not compiled", project);
+		assertNotNull("Dynamic type was not compiled", task);
+
+		try (final Tx tx = app.tx()) {
+
+			app.nodeQuery(SchemaNode.class).andName("Task").getFirst().setProperty(new StringProperty("_description"), "String");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		// changed type and its dependents are recompiled, other types are kept
+		assertTrue("Changed type was not recompiled",   task      != StructrApp.getConfiguration().getNodeEntityClass("Task"));
+		assertTrue("Dependent type was not recompiled", project   != StructrApp.getConfiguration().getNodeEntityClass("Project"));
+		assertTrue("Unchanged type was recompiled",     unrelated == StructrApp.getConfiguration().getNodeEntityClass("Unrelated"));
+
+		// byte code is stored in the persistent cache
+		final Path cache = Paths.get(Settings.getFullSettingPath(Settings.SchemaCachePath));
+
+		assertTrue("Byte code was not cached", Files.exists(cache.resolve("org.structr.dynamic.Unrelated.classes")));
+		assertTrue("Byte code was not cached", Files.exists(cache.resolve("org.structr.dynamic.Task.classes")));
+	}
+
 	@Test
 	public void test00DeleteSchemaRelationshipInView() {
 
@@ -20,6 +20,7 @@ package org.structr.api;
 
 import java.util.Map;
 import java.util.Set;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.GraphProperties;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
@@ -51,6 +52,18 @@ public interface DatabaseService {
 	QueryResult<Relationship> getAllRelationships();
 	QueryResult<Relationship> getRelationshipsByType(final String type);
 
+	/**
+	 * Loads the relationships with the given types and direction of all
+	 * given nodes at once, so that subsequent calls to
+	 * Node.getRelationships(direction, type) can be answered without
+	 * querying the database for each node separately.
+	 *
+	 * @param nodes
+	 * @param direction
+	 * @param types
+	 */
+	void prefetchRelationships(final Iterable<Node> nodes, final Direction direction, final Set<String> types);
+
 	GraphProperties getGlobalProperties();
 
 
@@ -63,4 +76,5 @@ public interface DatabaseService {
 	NativeResult execute(final String nativeQuery);
 
 	void invalidateQueryCache();
+	Map<String, Map<String, Long>> getQueryCacheStatistics();
 }
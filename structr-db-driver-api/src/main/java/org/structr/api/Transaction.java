@@ -26,6 +26,13 @@ public interface Transaction extends AutoCloseable {
 	void failure();
 	void success();
 
+	/**
+	 * Sends all modifications that are buffered by this transaction to
+	 * the database, so that the database locks they need are acquired
+	 * at this point.
+	 */
+	void flush();
+
 	@Override
 	void close();
 }
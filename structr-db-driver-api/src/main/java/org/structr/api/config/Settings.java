@@ -63,6 +63,15 @@ public class Settings {
 	public static final Setting<String> SnapshotsPath         = new StringSetting(generalGroup,   "Paths",       "snapshot.path",              "snapshots" + File.separator, "IMPORTANT: Path is relative to base.path");
 	public static final Setting<String> LayoutsPath           = new StringSetting(generalGroup,   "Paths",       "layouts.path",               "layouts" + File.separator, "IMPORTANT: Path is relative to base.path");
 	public static final Setting<String> WebDataPath           = new StringSetting(generalGroup,   "Paths",       "data.webapp.path",           "webapp-data" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> ImportCheckpointPath  = new StringSetting(generalGroup,   "Paths",       "import.checkpoint.path",     "import-checkpoints" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> DeploymentStatePath   = new StringSetting(generalGroup,   "Paths",       "deployment.state.path",      "deployment" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> FulltextIndexPath     = new StringSetting(generalGroup,   "Paths",       "fulltext.index.path",        "fulltext-index" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> EventLogPath          = new StringSetting(generalGroup,   "Paths",       "eventlog.path",              "eventlog" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> TaskJournalPath       = new StringSetting(generalGroup,   "Paths",       "tasks.journal.path",         "tasks" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> SchemaCachePath       = new StringSetting(generalGroup,   "Paths",       "schema.cache.path",          "schema-cache" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> FileStorage           = new StringSetting(generalGroup,   "Files",       "files.storage.provider",     "local", "Either local, deduplicated or the fully qualified name of a FileStorageProvider implementation");
+	public static final Setting<Integer> BlobGCInterval       = new IntegerSetting(generalGroup,  "Files",       "files.storage.gc.interval",  3600);
+	public static final Setting<Integer> BlobGCGracePeriod    = new IntegerSetting(generalGroup,  "Files",       "files.storage.gc.grace",     3600);
 	public static final Setting<Boolean> LogSchemaOutput      = new BooleanSetting(generalGroup,  "Logging",     "NodeExtender.log",           false);
 	public static final Setting<Boolean> RequestLogging       = new BooleanSetting(generalGroup,  "Logging",     "log.requests",               false);
 	public static final Setting<String> LogPrefix             = new StringSetting(generalGroup,   "Logging",     "log.prefix",                 "structr");
@@ -119,14 +128,29 @@ public class Settings {
 
 	// application settings
 	public static final Setting<Integer> ResolutionDepth      = new IntegerSetting(applicationGroup, "Security",   "application.security.resolution.depth",     5);
+	public static final Setting<Integer> ResolutionCacheSize  = new IntegerSetting(applicationGroup, "Security",   "application.security.resolution.cache.size", 100000);
+	public static final Setting<Integer> AccessPathCacheSize  = new IntegerSetting(applicationGroup, "Security",   "application.security.accesspath.cache.size", 10000);
 	public static final Setting<String> OwnerlessNodes        = new StringSetting(applicationGroup,  "Security",   "application.security.ownerless.nodes",      "read");
+	public static final Setting<String> SessionStoreClass     = new StringSetting(applicationGroup,  "Security",   "application.session.store",                 "org.structr.rest.auth.GraphSessionStore");
+	public static final Setting<Integer> SessionMaxAge        = new IntegerSetting(applicationGroup, "Security",   "application.session.registry.maxage",       60);
 	public static final Setting<Boolean> ChangelogEnabled     = new BooleanSetting(applicationGroup, "Changelog",  "application.changelog.enabled",             false);
 	public static final Setting<Boolean> FilesystemEnabled    = new BooleanSetting(applicationGroup, "Filesystem", "application.filesystem.enabled",            false);
 	public static final Setting<Boolean> UniquePaths          = new BooleanSetting(applicationGroup, "Filesystem", "application.filesystem.unique.paths",       true);
 	public static final Setting<Integer> IndexingLimit        = new IntegerSetting(applicationGroup, "Filesystem", "application.filesystem.indexing.limit",     50000);
 	public static final Setting<Integer> IndexingMinLength    = new IntegerSetting(applicationGroup, "Filesystem", "application.filesystem.indexing.minlength", 4);
 	public static final Setting<Integer> IndexingMaxLength    = new IntegerSetting(applicationGroup, "Filesystem", "application.filesystem.indexing.maxlength", 40);
+	public static final Setting<Integer> IndexingJournalSize  = new IntegerSetting(applicationGroup, "Filesystem", "application.filesystem.indexing.journal.size", 10000);
 	public static final Setting<String> DefaultUploadFolder   = new StringSetting(applicationGroup,  "Filesystem", "application.uploads.folder",                "");
+	public static final Setting<Integer> ImportParallelJobs   = new IntegerSetting(applicationGroup, "Import",     "application.import.parallel.jobs",          1);
+	public static final Setting<Integer> ImportWriterThreads  = new IntegerSetting(applicationGroup, "Import",     "application.import.writer.threads",         1);
+	public static final Setting<Integer> ImportQueueSize      = new IntegerSetting(applicationGroup, "Import",     "application.import.queue.size",             4);
+	public static final Setting<Integer> DeploymentThreads    = new IntegerSetting(applicationGroup, "Deployment", "application.deployment.import.threads",     1);
+	public static final Setting<Integer> EventLogSegmentSize  = new IntegerSetting(applicationGroup, "Event Log",  "application.eventlog.segment.minutes",      60);
+	public static final Setting<Integer> EventLogBatchSize    = new IntegerSetting(applicationGroup, "Event Log",  "application.eventlog.batch.size",           1000);
+	public static final Setting<Integer> EventLogFlushTime    = new IntegerSetting(applicationGroup, "Event Log",  "application.eventlog.flush.interval",       1000);
+	public static final Setting<Boolean> SchemaCacheEnabled   = new BooleanSetting(applicationGroup, "Schema",     "application.schema.cache.enabled",          true);
+	public static final Setting<Integer> AgentWorkers         = new IntegerSetting(applicationGroup, "Agents",     "application.agents.workers",                4);
+	public static final Setting<Integer> AgentRetries         = new IntegerSetting(applicationGroup, "Agents",     "application.agents.retries",                3);
 	public static final Setting<String> HttpProxyUrl          = new StringSetting(applicationGroup,  "Proxy",      "application.proxy.http.url",                "");
 	public static final Setting<String> HttpProxyUser         = new StringSetting(applicationGroup,  "Proxy",      "application.proxy.http.username",           "");
 	public static final Setting<String> HttpProxyPassword     = new StringSetting(applicationGroup,  "Proxy",      "application.proxy.http.password",           "");
@@ -177,6 +201,15 @@ public class Settings {
 	public static final Setting<Boolean> HtmlUserAutocreate       = new BooleanSetting(servletsGroup, "HtmlServlet", "HtmlServlet.user.autocreate",       true);
 	public static final Setting<String> HtmlResolveProperties     = new StringSetting(servletsGroup,  "HtmlServlet", "HtmlServlet.resolveProperties",     "AbstractNode.name");
 	public static final Setting<String> HtmlCustomResponseHeaders = new TextSetting(servletsGroup,    "HtmlServlet", "HtmlServlet.customResponseHeaders", "Strict-Transport-Security:max-age=60,X-Content-Type-Options:nosniff,X-Frame-Options:SAMEORIGIN,X-XSS-Protection:1;mode=block");
+	public static final Setting<Boolean> HtmlOutputCacheEnabled   = new BooleanSetting(servletsGroup, "HtmlServlet", "HtmlServlet.outputcache.enabled",   true);
+	public static final Setting<Integer> HtmlOutputCacheSize      = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.outputcache.size",      1000);
+	public static final Setting<Integer> HtmlFragmentCacheSize    = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.fragmentcache.size",    10000);
+	public static final Setting<Integer> HtmlAsyncRenderThreads   = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.threads",         16);
+	public static final Setting<Integer> HtmlAsyncRenderQueueSize = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.queuesize",       1000);
+	public static final Setting<Integer> HtmlAsyncBufferSize      = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.buffersize",      1048576);
+	public static final Setting<Integer> HtmlAsyncTimeout         = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.async.timeout",         60);
+	public static final Setting<Boolean> HtmlFilePrecompression   = new BooleanSetting(servletsGroup, "HtmlServlet", "HtmlServlet.files.precompress",     false);
+	public static final Setting<Integer> HtmlMappedFileCacheSize  = new IntegerSetting(servletsGroup, "HtmlServlet", "HtmlServlet.files.mappedcachesize", 100);
 
 	public static final Setting<String> WebsocketServletPath       = new StringSetting(servletsGroup,  "WebSocketServlet", "WebSocketServlet.path",              "/structr/ws/*");
 	public static final Setting<String> WebsocketServletClass      = new StringSetting(servletsGroup,  "WebSocketServlet", "WebSocketServlet.class",             "org.structr.websocket.servlet.WebSocketServlet");
@@ -32,4 +32,42 @@ public interface Index<T> {
 	void remove(final T t, final String key);
 
 	QueryResult<T> query(final QueryPredicate predicate);
+
+	/**
+	 * Returns at most <code>limit</code> results of the given query,
+	 * starting at <code>offset</code>. The window is applied by the
+	 * database, so the skipped results are never loaded.
+	 *
+	 * @param predicate
+	 * @param offset
+	 * @param limit
+	 *
+	 * @return the requested window of the query result
+	 */
+	QueryResult<T> query(final QueryPredicate predicate, final int offset, final int limit);
+
+	/**
+	 * Returns at most <code>limit</code> results of the given query that
+	 * follow the entity with the given sort value and UUID in the sort
+	 * order of the query (keyset pagination). Entities with equal sort
+	 * values are ordered by their UUID.
+	 *
+	 * @param predicate
+	 * @param sortValue the sort value of the last entity of the previous page
+	 * @param uuid the UUID of the last entity of the previous page
+	 * @param limit
+	 *
+	 * @return the results following the given entity
+	 */
+	QueryResult<T> queryAfter(final QueryPredicate predicate, final Object sortValue, final String uuid, final int limit);
+
+	/**
+	 * Returns the number of results of the given query without loading
+	 * them, or -1 if the number cannot be determined by the database.
+	 *
+	 * @param predicate
+	 *
+	 * @return the number of results or -1
+	 */
+	long count(final QueryPredicate predicate);
 }
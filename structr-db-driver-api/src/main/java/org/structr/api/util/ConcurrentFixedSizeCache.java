@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A concurrent variant of {@link FixedSizeCache} that splits its entries
+ * into independently locked LRU segments, so that threads accessing
+ * different keys do not contend for a single monitor. Each segment evicts
+ * its least recently used entry when it exceeds its share of the maximum
+ * size, and evicted {@link Cachable} values are notified <b>after</b> the
+ * segment lock has been released.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class ConcurrentFixedSizeCache<K, V> {
+
+	private static final int MAX_SEGMENTS     = 64;
+	private static final int MIN_SEGMENT_SIZE = 64;
+
+	private Segment<K, V>[] segments = null;
+	private int mask                 = 0;
+
+	public ConcurrentFixedSizeCache(final int maxSize) {
+
+		int count = 1;
+
+		// use a power of two so that the segment can be selected by masking
+		while (count < MAX_SEGMENTS && count * 2 * MIN_SEGMENT_SIZE <= maxSize) {
+			count *= 2;
+		}
+
+		this.segments = new Segment[count];
+		this.mask     = count - 1;
+
+		for (int i=0; i<count; i++) {
+			segments[i] = new Segment<>(Math.max(1, maxSize / count));
+		}
+	}
+
+	public V get(final K key) {
+
+		final Segment<K, V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	public void put(final K key, final V value) {
+
+		final Segment<K, V> segment = segmentFor(key);
+		final List<V> evicted;
+
+		synchronized (segment) {
+
+			segment.put(key, value);
+			evicted = segment.drainEvicted();
+		}
+
+		notifyEvicted(evicted);
+	}
+
+	/**
+	 * Stores the given value if no value is present for the given key.
+	 *
+	 * @param key
+	 * @param value
+	 *
+	 * @return the value that is stored in the cache after this call
+	 */
+	public V putIfAbsent(final K key, final V value) {
+
+		final Segment<K, V> segment = segmentFor(key);
+		final List<V> evicted;
+		final V result;
+
+		synchronized (segment) {
+
+			final V existing = segment.get(key);
+			if (existing != null) {
+
+				return existing;
+			}
+
+			segment.put(key, value);
+			evicted = segment.drainEvicted();
+			result  = value;
+		}
+
+		notifyEvicted(evicted);
+
+		return result;
+	}
+
+	public void remove(final K key) {
+
+		final Segment<K, V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			segment.remove(key);
+		}
+	}
+
+	public void clear() {
+
+		for (final Segment<K, V> segment : segments) {
+
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public int size() {
+
+		int size = 0;
+
+		for (final Segment<K, V> segment : segments) {
+
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	// ----- private methods -----
+	private Segment<K, V> segmentFor(final K key) {
+
+		// spread the bits of the hash code to make use of the higher bits
+		final int hash = key.hashCode();
+
+		return segments[(hash ^ (hash >>> 16)) & mask];
+	}
+
+	private void notifyEvicted(final List<V> evicted) {
+
+		if (evicted != null) {
+
+			for (final V value : evicted) {
+
+				if (value instanceof Cachable) {
+
+					((Cachable)value).onRemoveFromCache();
+				}
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	private static class Segment<K, V> extends LinkedHashMap<K, V> {
+
+		private List<V> evicted = null;
+		private int maxSize     = 0;
+
+		public Segment(final int maxSize) {
+
+			super(16, 0.75f, true);
+
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+
+			if (size() > maxSize) {
+
+				if (evicted == null) {
+					evicted = new ArrayList<>();
+				}
+
+				evicted.add(eldest.getValue());
+
+				return true;
+			}
+
+			return false;
+		}
+
+		public List<V> drainEvicted() {
+
+			final List<V> result = evicted;
+
+			evicted = null;
+
+			return result;
+		}
+	}
+}
@@ -97,6 +97,22 @@ public class QueryUtils {
 		return new MapIterable.MapIterator<>(from, function);
 	}
 
+	/**
+	 * Returns a query result that skips the first <code>offset</code>
+	 * elements of the given result and stops after <code>limit</code>
+	 * elements.
+	 *
+	 * @param <T>
+	 * @param source
+	 * @param offset
+	 * @param limit
+	 *
+	 * @return the given window of the source
+	 */
+	public static <T> QueryResult<T> window(final QueryResult<T> source, final int offset, final int limit) {
+		return new WindowIterable<>(source, offset, limit);
+	}
+
 	public static <T> List<T> toList(QueryResult<T> iterable) {
 		return addAll(new ArrayList<T>(), iterable);
 	}
@@ -261,4 +277,53 @@ public class QueryUtils {
 			}
 		}
 	}
+
+	private static class WindowIterable<T> implements QueryResult<T> {
+
+		private final QueryResult<T> source;
+		private final int offset;
+		private final int limit;
+
+		public WindowIterable(final QueryResult<T> source, final int offset, final int limit) {
+
+			this.source = source;
+			this.offset = offset;
+			this.limit  = limit;
+		}
+
+		@Override
+		public void close() {
+			source.close();
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+
+			final Iterator<T> iterator = source.iterator();
+
+			for (int i=0; i<offset && iterator.hasNext(); i++) {
+				iterator.next();
+			}
+
+			return new Iterator<T>() {
+
+				private int count = 0;
+
+				@Override
+				public boolean hasNext() {
+					return count < limit && iterator.hasNext();
+				}
+
+				@Override
+				public T next() {
+
+					if (count++ >= limit) {
+						throw new NoSuchElementException("This iterator is exhausted.");
+					}
+
+					return iterator.next();
+				}
+			};
+		}
+	}
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.api.util.FixedSizeCache;
+
+/**
+ * Multi-threaded getNodeById read mix against the global-lock cache
+ * access pattern of {@link FixedSizeCache} and the segmented
+ * {@link ConcurrentFixedSizeCache}. Cache misses simulate the Cypher
+ * round trip by consuming CPU tokens, inside the global monitor for
+ * the old pattern and outside of any lock for the new one.
+ *
+ * Run the main method of this class (or org.openjdk.jmh.Main) with the
+ * test classpath of this module on a multi-core machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeCacheBenchmark {
+
+	private static final int CACHE_SIZE = 100000;
+
+	@Param({ "150000" })
+	private int idRange;
+
+	@Param({ "1000" })
+	private int loadTokens;
+
+	private FixedSizeCache<Long, Long> fixedSizeCache            = null;
+	private ConcurrentFixedSizeCache<Long, Long> concurrentCache = null;
+
+	@Setup
+	public void setup() {
+
+		fixedSizeCache  = new FixedSizeCache<>(CACHE_SIZE);
+		concurrentCache = new ConcurrentFixedSizeCache<>(CACHE_SIZE);
+
+		for (long i=0; i<CACHE_SIZE; i++) {
+
+			fixedSizeCache.put(i, i);
+			concurrentCache.put(i, i);
+		}
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Long globalLock() {
+
+		final Long id = nextId();
+
+		synchronized (fixedSizeCache) {
+
+			Long value = fixedSizeCache.get(id);
+			if (value == null) {
+
+				value = load(id);
+				fixedSizeCache.put(id, value);
+			}
+
+			return value;
+		}
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Long segmented() {
+
+		final Long id    = nextId();
+		final Long value = concurrentCache.get(id);
+
+		if (value != null) {
+			return value;
+		}
+
+		return concurrentCache.putIfAbsent(id, load(id));
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+
+		new Runner(new OptionsBuilder()
+			.include(NodeCacheBenchmark.class.getSimpleName())
+			.build()
+		).run();
+	}
+
+	// ----- private methods -----
+	private Long nextId() {
+		return ThreadLocalRandom.current().nextLong(idRange);
+	}
+
+	private Long load(final Long id) {
+
+		// simulate database round trip
+		Blackhole.consumeCPU(loadTokens);
+
+		return id;
+	}
+}
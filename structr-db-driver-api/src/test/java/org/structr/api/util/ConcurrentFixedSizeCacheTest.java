@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+
+/**
+ *
+ */
+public class ConcurrentFixedSizeCacheTest {
+
+	@org.junit.Test
+	public void testSizeLimit() {
+
+		final ConcurrentFixedSizeCache<Long, Long> test = new ConcurrentFixedSizeCache<>(1000);
+
+		for (int i=0; i<10000; i++) {
+
+			final Long value = Long.valueOf(i);
+			test.put(value, value);
+		}
+
+		Assert.assertTrue("Invalid ConcurrentFixedSizeCache size", test.size() <= 1000);
+
+		// the most recently inserted entries must be kept
+		for (int i=9990; i<10000; i++) {
+
+			final Long value = Long.valueOf(i);
+			Assert.assertEquals("Invalid ConcurrentFixedSizeCache contents", test.get(value), value);
+		}
+	}
+
+	@org.junit.Test
+	public void testEvictionCallback() {
+
+		final ConcurrentFixedSizeCache<Long, CachableValue> test = new ConcurrentFixedSizeCache<>(10);
+		final AtomicInteger evictions                            = new AtomicInteger();
+
+		for (int i=0; i<100; i++) {
+			test.put(Long.valueOf(i), new CachableValue(evictions));
+		}
+
+		Assert.assertEquals("Invalid number of evictions", 90, evictions.get());
+	}
+
+	@org.junit.Test
+	public void testPutIfAbsent() throws InterruptedException {
+
+		final ConcurrentFixedSizeCache<Long, Object> test = new ConcurrentFixedSizeCache<>(100000);
+		final ExecutorService executor                    = Executors.newFixedThreadPool(8);
+		final Object[] winners                            = new Object[1000];
+		final AtomicInteger conflicts                     = new AtomicInteger();
+
+		for (int t=0; t<8; t++) {
+
+			executor.submit(() -> {
+
+				for (int i=0; i<1000; i++) {
+
+					final Object value = test.putIfAbsent(Long.valueOf(i), new Object());
+
+					synchronized (winners) {
+
+						if (winners[i] == null) {
+
+							winners[i] = value;
+
+						} else if (winners[i] != value) {
+
+							conflicts.incrementAndGet();
+						}
+					}
+				}
+			});
+		}
+
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+
+		Assert.assertEquals("All threads must see the same cached instance", 0, conflicts.get());
+	}
+
+	// ----- nested classes -----
+	private static class CachableValue implements Cachable {
+
+		private AtomicInteger evictions = null;
+
+		public CachableValue(final AtomicInteger evictions) {
+			this.evictions = evictions;
+		}
+
+		@Override
+		public void onRemoveFromCache() {
+			evictions.incrementAndGet();
+		}
+	}
+}
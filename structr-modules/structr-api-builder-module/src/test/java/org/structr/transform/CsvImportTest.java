@@ -171,4 +171,100 @@ public class CsvImportTest extends StructrApiModuleTest {
 		}
 
 	}
+
+	@Test
+	public void testParallelCsvFileImport() {
+
+		final StringBuilder csvData = new StringBuilder("id;name\n");
+		String newFileId            = null;
+
+		for (int i=0; i<100; i++) {
+			csvData.append(i).append(";name").append(i).append("\n");
+		}
+
+		// test setup
+		try (final Tx tx = app.tx()) {
+
+			final byte[] fileData = csvData.toString().getBytes("utf-8");
+			final FileBase file   = FileHelper.createFile(securityContext, fileData, "text/csv", File.class, "test.csv");
+
+			// extract UUID for later use
+			newFileId = file.getUuid();
+
+			// create new type
+			final JsonSchema schema = StructrSchema.createEmptySchema();
+			final JsonType newType  = schema.addType("Item");
+
+			newType.addStringProperty("name");
+			newType.addIntegerProperty("originId").isIndexed();
+
+			StructrSchema.extendDatabaseSchema(app, schema);
+
+			// create test user
+			app.create(User.class,
+				new NodeAttribute<>(Principal.name,     "admin"),
+				new NodeAttribute<>(Principal.password, "admin"),
+				new NodeAttribute<>(Principal.isAdmin,  true)
+			);
+
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		final Gson gson                    = new GsonBuilder().setPrettyPrinting().create();
+		final Map<String, Object> params   = new LinkedHashMap<>();
+		final Map<String, Object> mappings = new LinkedHashMap<>();
+
+		// import parameters, small chunks and three writer threads
+		params.put("targetType",     "Item");
+		params.put("quoteChar",      "'");
+		params.put("delimiter",      ";");
+		params.put("commitInterval", 7);
+		params.put("writerThreads",  3);
+		params.put("mappings",       mappings);
+
+		// property mapping
+		mappings.put("originId", "id");
+		mappings.put("name", "name");
+
+		RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+			.header("X-User",     "admin")
+			.header("X-Password", "admin")
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(400))
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(422))
+			.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+			.body(gson.toJson(params))
+			.expect().statusCode(200).when().post("/File/" + newFileId + "/doCSVImport");
+
+		// wait for result (import is async.)
+		try { Thread.sleep(5000); } catch (Throwable t) {}
+
+		// check imported data for correct import
+		try (final Tx tx = app.tx()) {
+
+			final ConfigurationProvider conf = StructrApp.getConfiguration();
+			final Class type                 = conf.getNodeEntityClass("Item");
+			final List<NodeInterface> items  = app.nodeQuery(type).sort(conf.getPropertyKeyForJSONName(type, "originId")).getAsList();
+
+			assertEquals("Invalid CSV import result, expected 100 items to be created from CSV import. ", 100, items.size());
+
+			for (int i=0; i<100; i++) {
+
+				final NodeInterface item = items.get(i);
+
+				assertEquals("Invalid CSV mapping result", i,         item.getProperty(conf.getPropertyKeyForJSONName(type, "originId")));
+				assertEquals("Invalid CSV mapping result", "name" + i, item.getProperty(conf.getPropertyKeyForJSONName(type, "name")));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+	}
 }
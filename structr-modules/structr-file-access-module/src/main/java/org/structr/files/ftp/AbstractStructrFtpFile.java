@@ -18,8 +18,8 @@
  */
 package org.structr.files.ftp;
 
+import java.nio.file.attribute.FileTime;
 import java.util.Date;
-import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.slf4j.Logger;
@@ -29,9 +29,9 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
-import org.structr.core.entity.AbstractUser;
-import org.structr.core.entity.Principal;
 import org.structr.core.graph.Tx;
+import org.structr.files.ssh.filesystem.FilePathCache;
+import org.structr.files.ssh.filesystem.StructrFileAttributes;
 import org.structr.web.common.FileHelper;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
@@ -52,12 +52,22 @@ public abstract class AbstractStructrFtpFile implements FtpFile {
 	protected StructrFtpUser owner;
 	protected String newPath = "/";
 
+	private StructrFileAttributes attributes = null;
+	private long attributesGeneration        = 0L;
 
 	public AbstractStructrFtpFile(final SecurityContext securityContext, final AbstractFile file) {
 		this.structrFile     = file;
 		this.securityContext = securityContext;
 	}
 
+	public AbstractStructrFtpFile(final SecurityContext securityContext, final StructrFileAttributes attributes, final long generation) {
+
+		this(securityContext, attributes.getFile());
+
+		this.attributes           = attributes;
+		this.attributesGeneration = generation;
+	}
+
 	public AbstractStructrFtpFile(final String path, final StructrFtpUser user) {
 		this.newPath = path;
 		this.owner   = user;
@@ -124,20 +134,7 @@ public abstract class AbstractStructrFtpFile implements FtpFile {
 
 	@Override
 	public boolean isHidden() {
-
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-
-			final boolean hidden = structrFile.getProperty(FileBase.hidden);
-
-			tx.success();
-
-			return hidden;
-
-		} catch (FrameworkException fex) {
-			logger.error("Error in isHidden() of abstract ftp file", fex);
-		}
-
-		return true;
+		return getAttributes().isHiddenNode();
 	}
 
 	@Override
@@ -163,52 +160,17 @@ public abstract class AbstractStructrFtpFile implements FtpFile {
 	@Override
 	public String getOwnerName() {
 
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-
-			final Principal owner = getOwner();
-
-			String name = "";
-
-			if (owner != null) {
-				name = owner.getProperty(AbstractUser.name);
-			}
-
-			tx.success();
-
-			return name;
-
-		} catch (FrameworkException fex) {
-			logger.error("Error while getting owner name of " + this, fex);
-		}
+		final String name = getAttributes().getOwnerName();
 
-		return null;
+		return name != null ? name : "";
 	}
 
 	@Override
 	public String getGroupName() {
 
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-
-			final Principal owner = getOwner();
-			String name = "";
-
-			if (owner != null) {
-
-				final List<Principal> parents = owner.getParents();
-				if (!parents.isEmpty()) {
-
-					name = parents.get(0).getProperty(AbstractNode.name);
-				}
-			}
-
-			tx.success();
-			return name;
-
-		} catch (FrameworkException fex) {
-			logger.error("Error while getting group name of " + this, fex);
-		}
+		final String name = getAttributes().getGroupName();
 
-		return "";
+		return name != null ? name : "";
 	}
 
 	@Override
@@ -219,19 +181,9 @@ public abstract class AbstractStructrFtpFile implements FtpFile {
 	@Override
 	public long getLastModified() {
 
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-
-			final Date date = structrFile.getProperty(AbstractFile.lastModifiedDate);
-
-			tx.success();
+		final FileTime lastModified = getAttributes().lastModifiedTime();
 
-			return date.getTime();
-
-		} catch (FrameworkException fex) {
-			logger.error("Error while last modified date of " + this, fex);
-		}
-
-		return 0L;
+		return lastModified != null ? lastModified.toMillis() : 0L;
 	}
 
 	@Override
@@ -320,21 +272,25 @@ public abstract class AbstractStructrFtpFile implements FtpFile {
 		return false;
 	}
 
-	private Principal getOwner() {
-
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
+	/**
+	 * Returns the attribute snapshot of this file, which is reloaded when
+	 * a file or folder was modified in the meantime.
+	 *
+	 * @return the attribute snapshot
+	 */
+	protected StructrFileAttributes getAttributes() {
 
-			Principal owner = structrFile.getProperty(FileBase.owner);
+		final FilePathCache pathCache = FilePathCache.getInstance();
 
-			tx.success();
+		if (attributes == null || attributesGeneration != pathCache.getGeneration()) {
 
-			return owner;
+			final long generation = pathCache.getGeneration();
 
-		} catch (FrameworkException fex) {
-			logger.error("Error while getting owner of " + this, fex);
+			attributes           = new StructrFileAttributes(securityContext, structrFile);
+			attributesGeneration = generation;
 		}
 
-		return null;
+		return attributes;
 	}
 
 	protected AbstractFile getStructrFile() {
@@ -32,8 +32,8 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractUser;
 import org.structr.core.graph.Tx;
+import org.structr.files.ssh.filesystem.FilePathCache;
 import org.structr.rest.auth.AuthHelper;
-import org.structr.web.common.FileHelper;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
 import org.structr.web.entity.Folder;
@@ -93,7 +93,7 @@ public class StructrFileSystemView implements FileSystemView {
 
 		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
 
-			AbstractFile structrWorkingDir = FileHelper.getFileByAbsolutePath(securityContext, workingDir);
+			AbstractFile structrWorkingDir = FilePathCache.getInstance().resolve(securityContext, workingDir);
 
 			tx.success();
 
@@ -176,7 +176,7 @@ public class StructrFileSystemView implements FileSystemView {
 
 			}
 
-			AbstractFile file = FileHelper.getFileByAbsolutePath(securityContext, requestedPath);
+			AbstractFile file = FilePathCache.getInstance().resolve(securityContext, requestedPath);
 
 
 			if (file != null) {
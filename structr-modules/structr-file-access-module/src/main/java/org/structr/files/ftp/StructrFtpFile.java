@@ -29,6 +29,7 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.Tx;
+import org.structr.files.ssh.filesystem.StructrFileAttributes;
 import org.structr.web.entity.FileBase;
 
 /**
@@ -43,6 +44,10 @@ public class StructrFtpFile extends AbstractStructrFtpFile {
 		super(securityContext, file);
 	}
 
+	public StructrFtpFile(final SecurityContext securityContext, final StructrFileAttributes attributes, final long generation) {
+		super(securityContext, attributes, generation);
+	}
+
 	@Override
 	public boolean isDirectory() {
 		return false;
@@ -55,18 +60,7 @@ public class StructrFtpFile extends AbstractStructrFtpFile {
 
 	@Override
 	public long getSize() {
-		
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-		
-			final Long size = ((FileBase) structrFile).getSize();
-			
-			tx.success();
-			
-			return size == null ? 0L : size;
-			
-		} catch (FrameworkException fex) {}
-		
-		return 0L;
+		return getAttributes().size();
 	}
 
 	@Override
@@ -22,7 +22,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import org.apache.ftpserver.ftplet.FtpFile;
 import org.slf4j.Logger;
@@ -33,6 +32,8 @@ import org.structr.core.Result;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.Tx;
+import org.structr.files.ssh.filesystem.FilePathCache;
+import org.structr.files.ssh.filesystem.StructrFileAttributes;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
 import org.structr.web.entity.Folder;
@@ -50,6 +51,10 @@ public class StructrFtpFolder extends AbstractStructrFtpFile implements FtpFile
 		super(securityContext, folder);		
 	}
 
+	public StructrFtpFolder(final SecurityContext securityContext, final StructrFileAttributes attributes, final long generation) {
+		super(securityContext, attributes, generation);
+	}
+
 	@Override
 	public boolean doesExist() {
 		boolean exists = "/".equals(newPath) || super.doesExist();
@@ -71,23 +76,6 @@ public class StructrFtpFolder extends AbstractStructrFtpFile implements FtpFile
 		return 1;
 	}
 
-	@Override
-	public long getLastModified() {
-		
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-		
-			final Date date = structrFile.getProperty(Folder.lastModifiedDate);
-			
-			tx.success();
-			
-			return date.getTime();
-		
-		} catch (Exception ex) {
-		}
-		
-		return 0L;
-	}
-
 	@Override
 	public long getSize() {
 		return listFiles().size();
@@ -97,87 +85,43 @@ public class StructrFtpFolder extends AbstractStructrFtpFile implements FtpFile
 	public List<FtpFile> listFiles() {
 
 		final List<FtpFile> ftpFiles = new ArrayList();
-
-		final App app = StructrApp.getInstance(securityContext);
+		final long generation        = FilePathCache.getInstance().getGeneration();
+		final App app                = StructrApp.getInstance(securityContext);
 
 		try (final Tx tx = app.tx()) {
 
 			String requestedPath = getAbsolutePath();
 			logger.debug("Children of {} requested", requestedPath);
 
-			if ("/".equals(requestedPath)) {
-				try {
-					Result<Folder> folders = app.nodeQuery(Folder.class).getResult();
-					logger.debug("{} folders found", folders.size());
-
-					for (Folder f : folders.getResults()) {
-
-						if (f.getProperty(AbstractFile.hasParent)) {
-							continue;
-						}
-
-						FtpFile ftpFile = new StructrFtpFolder(securityContext, f);
-						logger.debug("Folder found: {}", ftpFile.getAbsolutePath());
-
-						ftpFiles.add(ftpFile);
-
-					}
+			final boolean isRoot = "/".equals(requestedPath);
 
-					Result<FileBase> files = app.nodeQuery(FileBase.class).getResult();
-					logger.debug("{} files found", files.size());
+			// load all children with their attributes at once
+			for (final StructrFileAttributes attributes : StructrFileAttributes.listChildren(securityContext, isRoot ? null : (Folder)structrFile)) {
 
-					for (FileBase f : files.getResults()) {
+				final AbstractFile file = attributes.getFile();
 
-						if (f.getProperty(AbstractFile.hasParent)) {
-							continue;
-						}
+				if (file instanceof Folder) {
 
-						logger.debug("Structr file found: {}", f);
+					ftpFiles.add(new StructrFtpFolder(securityContext, attributes, generation));
 
-						FtpFile ftpFile = new StructrFtpFile(securityContext, f);
-						logger.debug("File found: {}", ftpFile.getAbsolutePath());
+				} else if (file instanceof FileBase) {
 
-						ftpFiles.add(ftpFile);
-
-					}
-
-					Result<Page> pages = app.nodeQuery(Page.class).getResult();
-					logger.debug("{} pages found", pages.size());
-
-					for (Page p : pages.getResults()) {
-
-						logger.debug("Structr page found: {}", p);
-
-						ftpFiles.add(new FtpFilePageWrapper(p));
-
-					}
-
-					return ftpFiles;
-
-				} catch (FrameworkException ex) {
-					logger.error("", ex);
+					ftpFiles.add(new StructrFtpFile(securityContext, attributes, generation));
 				}
-
 			}
 
-			List<Folder> folders = ((Folder) structrFile).getProperty(Folder.folders);
-
-			for (Folder f : folders) {
+			if (isRoot) {
 
-				FtpFile ftpFile = new StructrFtpFolder(securityContext, f);
-				logger.debug("Subfolder found: {}", ftpFile.getAbsolutePath());
+				Result<Page> pages = app.nodeQuery(Page.class).getResult();
+				logger.debug("{} pages found", pages.size());
 
-				ftpFiles.add(ftpFile);
-			}
-
-			List<FileBase> files = ((Folder) structrFile).getProperty(Folder.files);
+				for (Page p : pages.getResults()) {
 
-			for (FileBase f : files) {
+					logger.debug("Structr page found: {}", p);
 
-				FtpFile ftpFile = new StructrFtpFile(securityContext, f);
-				logger.debug("File found: {}", ftpFile.getAbsolutePath());
+					ftpFiles.add(new FtpFilePageWrapper(p));
 
-				ftpFiles.add(ftpFile);
+				}
 			}
 
 			tx.success();
@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.files.ssh.filesystem;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.relationship.AbstractChildren;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.Tx;
+import org.structr.web.entity.AbstractFile;
+
+/**
+ * A short-lived cache for the resolution of absolute paths to files and
+ * folders, shared by the SSH and FTP file systems.
+ *
+ * Entries are cached per user and expire after a few seconds. The whole
+ * cache is invalidated when a transaction modifies a file, a folder or the
+ * folder hierarchy, and results that were resolved while an invalidation
+ * took place are not stored.
+ */
+public class FilePathCache implements StructrTransactionListener {
+
+	private static final Logger logger          = LoggerFactory.getLogger(FilePathCache.class.getName());
+	private static final long MAX_AGE           = 2000L;
+	private static final int MAX_SIZE           = 10000;
+	private static FilePathCache instance       = null;
+
+	private final ConcurrentFixedSizeCache<String, Entry> cache = new ConcurrentFixedSizeCache<>(MAX_SIZE);
+	private final AtomicLong generation                         = new AtomicLong();
+	private final AtomicLong invalidations                      = new AtomicLong();
+	private final AtomicLong misses                             = new AtomicLong();
+	private final AtomicLong hits                               = new AtomicLong();
+
+	private FilePathCache() {}
+
+	public static synchronized FilePathCache getInstance() {
+
+		if (instance == null) {
+
+			instance = new FilePathCache();
+
+			TransactionCommand.registerTransactionListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Returns the current invalidation generation, can be used to check
+	 * whether a snapshot of file attributes might be outdated.
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Resolves the given absolute path to a file or folder that is visible
+	 * to the user of the given security context.
+	 *
+	 * @param securityContext
+	 * @param path the absolute path
+	 *
+	 * @return the file or folder, or null
+	 */
+	public AbstractFile resolve(final SecurityContext securityContext, final String path) {
+
+		final String key = getKey(securityContext, path);
+		final long now   = System.currentTimeMillis();
+
+		final Entry entry = cache.get(key);
+		if (entry != null && now - entry.timestamp < MAX_AGE) {
+
+			hits.incrementAndGet();
+			return entry.file;
+		}
+
+		misses.incrementAndGet();
+
+		final long expectedGeneration = generation.get();
+		final App app                 = StructrApp.getInstance(securityContext);
+		AbstractFile file             = null;
+
+		try (final Tx tx = app.tx()) {
+
+			file = app.nodeQuery(AbstractFile.class).and(AbstractFile.path, path).getFirst();
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.warn("Unable to resolve path {}: {}", path, fex.getMessage());
+		}
+
+		// do not cache negative results, the file might be created right away
+		if (file != null && generation.get() == expectedGeneration) {
+
+			cache.put(key, new Entry(file, now));
+
+			// an invalidation could have happened in the meantime
+			if (generation.get() != expectedGeneration) {
+				cache.remove(key);
+			}
+		}
+
+		return file;
+	}
+
+	public void invalidate() {
+
+		generation.incrementAndGet();
+		invalidations.incrementAndGet();
+
+		cache.clear();
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",          Long.valueOf(cache.size()));
+		statistics.put("hits",          hits.get());
+		statistics.put("misses",        misses.get());
+		statistics.put("invalidations", invalidations.get());
+
+		return statistics;
+	}
+
+	// ----- interface StructrTransactionListener -----
+	@Override
+	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException {
+
+		// afterCommit is not called for transactions without notifications
+		if (affectsFiles(modificationEvents)) {
+			invalidate();
+		}
+	}
+
+	@Override
+	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+		// invalidate again to remove results that were resolved during the commit
+		if (affectsFiles(modificationEvents)) {
+			invalidate();
+		}
+	}
+
+	// ----- private methods -----
+	private boolean affectsFiles(final Collection<ModificationEvent> modificationEvents) {
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			final GraphObject obj = event.getGraphObject();
+
+			if (obj instanceof AbstractFile) {
+				return true;
+			}
+
+			if (obj instanceof AbstractChildren && AbstractFile.class.isAssignableFrom(((AbstractChildren)obj).getTargetType())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private String getKey(final SecurityContext securityContext, final String path) {
+
+		if (securityContext.isSuperUser()) {
+			return "superuser:" + path;
+		}
+
+		final Principal user = securityContext.getUser(false);
+		if (user != null) {
+
+			return user.getUuid() + ":" + path;
+		}
+
+		return "public:" + path;
+	}
+
+	// ----- nested classes -----
+	private static class Entry {
+
+		private AbstractFile file = null;
+		private long timestamp    = 0L;
+
+		public Entry(final AbstractFile file, final long timestamp) {
+
+			this.file      = file;
+			this.timestamp = timestamp;
+		}
+	}
+}
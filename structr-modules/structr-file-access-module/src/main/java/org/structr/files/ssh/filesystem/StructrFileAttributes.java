@@ -26,12 +26,14 @@ import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.PosixFileAttributes;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,176 +41,181 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
-import org.structr.core.entity.Group;
 import org.structr.core.entity.Principal;
 import org.structr.core.graph.Tx;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
 import org.structr.web.entity.Folder;
-import org.structr.web.entity.User;
 
 /**
- *
+ * An immutable snapshot of the attributes of a file or folder. All values
+ * are read in a single transaction when the snapshot is created, so that
+ * the attribute accessors do not need to open transactions of their own.
  */
 public class StructrFileAttributes implements PosixFileAttributes, DosFileAttributes, PosixFileAttributeView {
 
 	private static final Logger logger              = LoggerFactory.getLogger(StructrFileAttributes.class.getName());
 	public static final Set<String> SUPPORTED_VIEWS = new LinkedHashSet<>(Arrays.asList(new String[] { "owner", "dos", "basic", "posix", "permissions" } ));
 
-	private SecurityContext securityContext = null;
-	private AbstractFile file               = null;
+	private Set<PosixFilePermission> permissions = Collections.emptySet();
+	private SecurityContext securityContext      = null;
+	private AbstractFile file                    = null;
+	private FileTime lastModifiedTime            = null;
+	private FileTime creationTime                = null;
+	private String defaultOwnerName              = null;
+	private String ownerName                     = null;
+	private String groupName                     = null;
+	private String uuid                          = null;
+	private String name                          = null;
+	private boolean isRegularFile                = false;
+	private boolean isDirectory                  = false;
+	private boolean hiddenNode                   = false;
+	private long size                            = 0L;
 
 	public StructrFileAttributes(final SecurityContext securityContext, final AbstractFile file) {
 
 		this.securityContext = securityContext;
 		this.file            = file;
-	}
-
-	@Override
-	public UserPrincipal owner() {
 
 		if (file == null) {
-			return null;
-		}
 
-		UserPrincipal owner = null;
+			this.permissions = Collections.unmodifiableSet(EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE));
 
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
+		} else {
+
+			try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
 
-			final Principal fileOwner = file.getOwnerNode();
-			if (fileOwner == null) {
+				load();
 
-				owner = securityContext.getUser(false)::getName;
+				tx.success();
 
-			} else {
-				owner = fileOwner::getName;
+			} catch (FrameworkException fex) {
+				logger.error("", fex);
 			}
-			tx.success();
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
 		}
-
-		return owner;
 	}
 
-	@Override
-	public GroupPrincipal group() {
+	/**
+	 * Loads the children of the given folder (or the top-level files and
+	 * folders if the folder is null) together with their attributes in a
+	 * single query and a single transaction.
+	 *
+	 * @param securityContext
+	 * @param folder the folder, or null for the root directory
+	 *
+	 * @return the attribute snapshots of the children
+	 *
+	 * @throws FrameworkException
+	 */
+	public static List<StructrFileAttributes> listChildren(final SecurityContext securityContext, final Folder folder) throws FrameworkException {
 
-		if (file == null) {
-			return null;
-		}
+		final App app                                = StructrApp.getInstance(securityContext);
+		final List<StructrFileAttributes> attributes = new ArrayList<>();
 
-		final List<Group> groups = new LinkedList<>();
+		try (final Tx tx = app.tx()) {
 
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
+			final List<AbstractFile> children;
 
-			final Principal owner = file.getOwnerNode();
-			if (owner != null) {
+			if (folder != null) {
 
-				groups.addAll(owner.getProperty(User.groups));
-			}
+				children = folder.getProperty(AbstractFile.children);
 
-			tx.success();
+			} else {
 
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
-		}
+				children = app.nodeQuery(AbstractFile.class).and(AbstractFile.hasParent, false).getAsList();
+			}
 
-		return groups.size() > 0 ? groups.get(0)::getName : null;
-	}
+			for (final AbstractFile child : children) {
 
-	@Override
-	public FileTime lastModifiedTime() {
+				// snapshots are created in the enclosing transaction
+				attributes.add(new StructrFileAttributes(securityContext, child));
+			}
 
-		if (file == null) {
-			return null;
+			tx.success();
 		}
 
-		FileTime time = null;
-
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-
-			final Date date = file.getLastModifiedDate();
-			if (date != null) {
+		// list folders first
+		Collections.sort(attributes, (a, b) -> Boolean.compare(b.isDirectory(), a.isDirectory()));
 
-				time = FileTime.fromMillis(date.getTime());
-			}
+		return attributes;
+	}
 
-			tx.success();
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
-		}
+	public AbstractFile getFile() {
+		return file;
+	}
 
-		return time;
+	/**
+	 * Returns the name of the owner of the file, or null if the file has
+	 * no owner.
+	 *
+	 * @return the name of the owner
+	 */
+	public String getOwnerName() {
+		return ownerName;
+	}
 
+	public String getGroupName() {
+		return groupName;
 	}
 
-	@Override
-	public FileTime lastAccessTime() {
-		return lastModifiedTime();
+	/**
+	 * Returns the value of the hidden flag of the Structr node, which is
+	 * not mapped to the DOS attribute.
+	 *
+	 * @return whether the node is hidden
+	 */
+	public boolean isHiddenNode() {
+		return hiddenNode;
 	}
 
 	@Override
-	public FileTime creationTime() {
+	public UserPrincipal owner() {
 
-		if (file == null) {
+		// files without owner are displayed as owned by the current user
+		final String name = ownerName != null ? ownerName : defaultOwnerName;
+
+		if (file == null || name == null) {
 			return null;
 		}
 
-		FileTime time = null;
-
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
+		return () -> name;
+	}
 
-			final Date date = file.getCreatedDate();
-			if (date != null) {
+	@Override
+	public GroupPrincipal group() {
 
-				time = FileTime.fromMillis(date.getTime());
-			}
-			tx.success();
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
+		if (file == null || groupName == null) {
+			return null;
 		}
 
-		return time;
+		return () -> groupName;
 	}
 
 	@Override
-	public boolean isRegularFile() {
-
-		if (file == null) {
-			return false;
-		}
+	public FileTime lastModifiedTime() {
+		return lastModifiedTime;
+	}
 
-		boolean isRegularFile = false;
+	@Override
+	public FileTime lastAccessTime() {
+		return lastModifiedTime();
+	}
 
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-			isRegularFile = file.getProperty(FileBase.isFile);
-			tx.success();
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
-		}
+	@Override
+	public FileTime creationTime() {
+		return creationTime;
+	}
 
+	@Override
+	public boolean isRegularFile() {
 		return isRegularFile;
 	}
 
 	@Override
 	public boolean isDirectory() {
-
-		if (file == null) {
-			return false;
-		}
-
-		boolean isDirectory = false;
-
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-			isDirectory = file.getProperty(Folder.isFolder);
-			tx.success();
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
-		}
-
 		return isDirectory;
 	}
 
@@ -225,90 +232,16 @@ public class StructrFileAttributes implements PosixFileAttributes, DosFileAttrib
 
 	@Override
 	public long size() {
-
-		if (file == null) {
-			return 0L;
-		}
-
-		long size = 0;
-
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-
-			final Number s = file.getProperty(FileBase.size);
-			if (s != null) {
-
-				size = s.longValue();
-			}
-
-			tx.success();
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
-		}
-
 		return size;
 	}
 
 	@Override
 	public Object fileKey() {
-
-		if (file == null) {
-			return null;
-		}
-
-		String uuid = null;
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-			uuid = file.getUuid();
-			tx.success();
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
-		}
-
 		return uuid;
 	}
 
 	@Override
 	public Set<PosixFilePermission> permissions() {
-
-		final Set<PosixFilePermission> permissions = new HashSet<>();
-
-		permissions.add(PosixFilePermission.OWNER_READ);
-		permissions.add(PosixFilePermission.OWNER_WRITE);
-
-		if (file != null) {
-
-			if (file instanceof Folder) {
-				permissions.add(PosixFilePermission.OWNER_EXECUTE);
-			}
-
-			try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-
-				if (file.isVisibleToPublicUsers()) {
-
-					permissions.add(PosixFilePermission.OTHERS_READ);
-					permissions.add(PosixFilePermission.OTHERS_WRITE);
-
-					if (file instanceof Folder) {
-						permissions.add(PosixFilePermission.OTHERS_EXECUTE);
-					}
-				}
-
-				if (file.isVisibleToAuthenticatedUsers()) {
-
-					permissions.add(PosixFilePermission.GROUP_READ);
-					permissions.add(PosixFilePermission.GROUP_WRITE);
-
-					if (file instanceof Folder) {
-						permissions.add(PosixFilePermission.GROUP_EXECUTE);
-					}
-				}
-
-				tx.success();
-
-			} catch (FrameworkException fex) {
-				logger.error("", fex);
-			}
-		}
-
 		return permissions;
 	}
 
@@ -396,22 +329,6 @@ public class StructrFileAttributes implements PosixFileAttributes, DosFileAttrib
 	// ----- interface PosixFileAttributeView -----
 	@Override
 	public String name() {
-
-		if (file == null) {
-			return null;
-		}
-
-		String name = null;
-
-		try (Tx tx = StructrApp.getInstance(securityContext).tx()) {
-
-			name = file.getName();
-			tx.success();
-
-		} catch (FrameworkException fex) {
-			logger.error("", fex);
-		}
-
 		return name;
 	}
 
@@ -455,4 +372,85 @@ public class StructrFileAttributes implements PosixFileAttributes, DosFileAttrib
 	@Override
 	public void setOwner(final UserPrincipal owner) throws IOException {
 	}
+
+	// ----- private methods -----
+	private void load() {
+
+		final Principal fileOwner = file.getOwnerNode();
+		final Date lastModified   = file.getLastModifiedDate();
+		final Date created        = file.getCreatedDate();
+		final Number fileSize     = file.getProperty(FileBase.size);
+
+		if (fileOwner == null) {
+
+			final Principal user = securityContext.getUser(false);
+			if (user != null) {
+
+				defaultOwnerName = user.getName();
+			}
+
+		} else {
+
+			ownerName = fileOwner.getName();
+
+			final List<Principal> groups = fileOwner.getParents();
+			if (!groups.isEmpty()) {
+
+				groupName = groups.get(0).getName();
+			}
+		}
+
+		if (lastModified != null) {
+			lastModifiedTime = FileTime.fromMillis(lastModified.getTime());
+		}
+
+		if (created != null) {
+			creationTime = FileTime.fromMillis(created.getTime());
+		}
+
+		if (fileSize != null) {
+			size = fileSize.longValue();
+		}
+
+		isRegularFile = Boolean.TRUE.equals(file.getProperty(FileBase.isFile));
+		isDirectory   = Boolean.TRUE.equals(file.getProperty(Folder.isFolder));
+		hiddenNode    = Boolean.TRUE.equals(file.getProperty(AbstractFile.hidden));
+		uuid          = file.getUuid();
+		name          = file.getName();
+		permissions   = Collections.unmodifiableSet(loadPermissions());
+	}
+
+	private Set<PosixFilePermission> loadPermissions() {
+
+		final Set<PosixFilePermission> set = new HashSet<>();
+
+		set.add(PosixFilePermission.OWNER_READ);
+		set.add(PosixFilePermission.OWNER_WRITE);
+
+		if (file instanceof Folder) {
+			set.add(PosixFilePermission.OWNER_EXECUTE);
+		}
+
+		if (file.isVisibleToPublicUsers()) {
+
+			set.add(PosixFilePermission.OTHERS_READ);
+			set.add(PosixFilePermission.OTHERS_WRITE);
+
+			if (file instanceof Folder) {
+				set.add(PosixFilePermission.OTHERS_EXECUTE);
+			}
+		}
+
+		if (file.isVisibleToAuthenticatedUsers()) {
+
+			set.add(PosixFilePermission.GROUP_READ);
+			set.add(PosixFilePermission.GROUP_WRITE);
+
+			if (file instanceof Folder) {
+				set.add(PosixFilePermission.GROUP_EXECUTE);
+			}
+		}
+
+		return set;
+	}
 }
@@ -47,6 +47,7 @@ import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
 import org.structr.dynamic.File;
+import org.structr.files.ssh.filesystem.FilePathCache;
 import org.structr.files.ssh.filesystem.StructrFileAttributes;
 import org.structr.files.ssh.filesystem.StructrFileChannel;
 import org.structr.files.ssh.filesystem.StructrFilesystem;
@@ -64,12 +65,23 @@ public class StructrFilePath extends StructrPath {
 
 	private static final Logger logger = LoggerFactory.getLogger(StructrFilePath.class.getName());
 
-	private AbstractFile cachedActualFile = null;
+	private StructrFileAttributes cachedAttributes = null;
+	private AbstractFile cachedActualFile          = null;
+	private long cachedGeneration                  = 0L;
 
 	public StructrFilePath(final StructrFilesystem fs, final StructrPath parent, final String name) {
 		super(fs, parent, name);
 	}
 
+	public StructrFilePath(final StructrFilesystem fs, final StructrPath parent, final StructrFileAttributes attributes, final long generation) {
+
+		super(fs, parent, attributes.name());
+
+		this.cachedActualFile = attributes.getFile();
+		this.cachedAttributes = attributes;
+		this.cachedGeneration = generation;
+	}
+
 	@Override
 	public DirectoryStream<Path> getDirectoryStream(DirectoryStream.Filter<? super Path> filter) {
 
@@ -85,24 +97,17 @@ public class StructrFilePath extends StructrPath {
 
 					if (!closed) {
 
-						final App app                 = StructrApp.getInstance(fs.getSecurityContext());
 						final List<StructrPath> files = new LinkedList<>();
+						final long generation         = FilePathCache.getInstance().getGeneration();
 
-						try (final Tx tx = app.tx()) {
-
-
-							for (final Folder folder : folder.getProperty(Folder.folders)) {
-
-								files.add(new StructrFilePath(fs, StructrFilePath.this, folder.getName()));
-							}
+						try {
 
-							for (final FileBase file : folder.getProperty(Folder.files)) {
+							// load all children with their attributes at once
+							for (final StructrFileAttributes attributes : StructrFileAttributes.listChildren(fs.getSecurityContext(), folder)) {
 
-								files.add(new StructrFilePath(fs, StructrFilePath.this, file.getName()));
+								files.add(new StructrFilePath(fs, StructrFilePath.this, attributes, generation));
 							}
 
-							tx.success();
-
 						} catch (FrameworkException fex) {
 							logger.warn("", fex);
 						}
@@ -241,6 +246,7 @@ public class StructrFilePath extends StructrPath {
 
 				// remove cached version
 				this.cachedActualFile = null;
+				this.cachedAttributes = null;
 			}
 
 			tx.success();
@@ -258,10 +264,10 @@ public class StructrFilePath extends StructrPath {
 	@Override
 	public Map<String, Object> getAttributes(final String attributes, final LinkOption... options) throws IOException {
 
-		final AbstractFile actualFile = getActualFile();
-		if (actualFile != null) {
+		final StructrFileAttributes fileAttributes = getFileAttributes();
+		if (fileAttributes != null) {
 
-			return new StructrFileAttributes(fs.getSecurityContext(), actualFile).toMap(attributes);
+			return fileAttributes.toMap(attributes);
 		}
 
 		throw new NoSuchFileException(toString());
@@ -270,10 +276,10 @@ public class StructrFilePath extends StructrPath {
 	@Override
 	public <T extends BasicFileAttributes> T getAttributes(Class<T> type, LinkOption... options) throws IOException {
 
-		final AbstractFile actualFile = getActualFile();
-		if (actualFile != null) {
+		final StructrFileAttributes fileAttributes = getFileAttributes();
+		if (fileAttributes != null) {
 
-			return (T)new StructrFileAttributes(fs.getSecurityContext(), actualFile);
+			return (T)fileAttributes;
 		}
 
 		throw new NoSuchFileException(toString());
@@ -354,20 +360,10 @@ public class StructrFilePath extends StructrPath {
 
 		if (cachedActualFile == null) {
 
+			// remove /files from path since it is a virtual directory
 			final String filePath = toString().substring(StructrPath.FILES_DIRECTORY.length() + 1);
-			final App app         = StructrApp.getInstance(fs.getSecurityContext());
-
-			try (final Tx tx = app.tx()) {
-
-				// remove /files from path since it is a virtual directory
-				cachedActualFile = app.nodeQuery(AbstractFile.class).and(AbstractFile.path, filePath).getFirst();
-
-				tx.success();
-
-			} catch (FrameworkException fex) {
 
-				logger.warn("Unable to load actual file for path {}: {}", new Object[] { toString(), fex.getMessage() } );
-			}
+			cachedActualFile = FilePathCache.getInstance().resolve(fs.getSecurityContext(), filePath);
 		}
 
 		return cachedActualFile;
@@ -392,6 +388,29 @@ public class StructrFilePath extends StructrPath {
 	}
 
 	// ----- private methods -----
+	private StructrFileAttributes getFileAttributes() {
+
+		final FilePathCache pathCache = FilePathCache.getInstance();
+
+		// the snapshot of the directory listing is valid until a file is modified
+		if (cachedAttributes != null && cachedGeneration == pathCache.getGeneration()) {
+			return cachedAttributes;
+		}
+
+		final long generation         = pathCache.getGeneration();
+		final AbstractFile actualFile = getActualFile();
+
+		if (actualFile != null) {
+
+			cachedAttributes = new StructrFileAttributes(fs.getSecurityContext(), actualFile);
+			cachedGeneration = generation;
+
+			return cachedAttributes;
+		}
+
+		return null;
+	}
+
 	private void setParentFolder(final AbstractFile file) throws FrameworkException {
 
 		final Path parentPath = getParent();
@@ -39,15 +39,11 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.error.FrameworkException;
-import org.structr.core.app.App;
-import org.structr.core.app.StructrApp;
-import org.structr.core.graph.Tx;
+import org.structr.files.ssh.filesystem.FilePathCache;
+import org.structr.files.ssh.filesystem.StructrFileAttributes;
 import org.structr.files.ssh.filesystem.StructrFilesystem;
 import org.structr.files.ssh.filesystem.StructrPath;
 import org.structr.files.ssh.filesystem.StructrToplevelAttributes;
-import org.structr.web.entity.AbstractFile;
-import org.structr.web.entity.FileBase;
-import org.structr.web.entity.Folder;
 
 /**
  *
@@ -77,23 +73,17 @@ public class StructrFilesPath extends StructrPath {
 
 				if (!closed) {
 
-					final App app                 = StructrApp.getInstance(fs.getSecurityContext());
 					final List<StructrPath> files = new LinkedList<>();
+					final long generation         = FilePathCache.getInstance().getGeneration();
 
-					try (final Tx tx = app.tx()) {
+					try {
 
-						for (final Folder folder : app.nodeQuery(Folder.class).and(AbstractFile.hasParent, false).getAsList()) {
+						// load all top-level files and folders with their attributes at once
+						for (final StructrFileAttributes attributes : StructrFileAttributes.listChildren(fs.getSecurityContext(), null)) {
 
-							files.add(new StructrFilePath(fs, StructrFilesPath.this, folder.getName()));
+							files.add(new StructrFilePath(fs, StructrFilesPath.this, attributes, generation));
 						}
 
-						for (final FileBase file : app.nodeQuery(FileBase.class).and(AbstractFile.hasParent, false).getAsList()) {
-
-							files.add(new StructrFilePath(fs, StructrFilesPath.this, file.getName()));
-						}
-
-						tx.success();
-
 					} catch (FrameworkException fex) {
 						logger.warn("", fex);
 					}
@@ -74,7 +74,7 @@ public class ConverterProcess extends AbstractProcess<VideoFile> {
 			newFile = FileHelper.createFile(securityContext, new byte[0], null, VideoFile.class, outputFileName);
 
 			// obtain destination path of new file
-			outputFileName = newFile.getFileOnDisk().getAbsolutePath();
+			outputFileName = newFile.getPrivateFileOnDisk().getAbsolutePath();
 
 			tx.success();
 
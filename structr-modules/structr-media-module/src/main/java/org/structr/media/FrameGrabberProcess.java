@@ -78,7 +78,7 @@ public class FrameGrabberProcess extends AbstractProcess<Image> {
 			newFile = FileHelper.createFile(securityContext, new byte[0], null, Image.class, imageName);
 
 			// obtain destination path of new file
-			outputFileName = newFile.getFileOnDisk().getAbsolutePath();
+			outputFileName = newFile.getPrivateFileOnDisk().getAbsolutePath();
 
 			tx.success();
 
@@ -18,6 +18,7 @@
  */
 package org.structr.mqtt;
 
+import java.util.Map;
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallback;
 import org.eclipse.paho.client.mqttv3.MqttClient;
@@ -32,6 +33,7 @@ import org.structr.common.error.FrameworkException;
 public class MQTTClientConnection implements MqttCallback {
 	private MemoryPersistence persistence = new MemoryPersistence();
 	private MqttConnectOptions connOpts;
+	private MQTTIngestionQueue queue;
 	private MqttClient client;
 	private MQTTInfo info;
 
@@ -45,6 +47,7 @@ public class MQTTClientConnection implements MqttCallback {
 		client.setCallback(this);
 		connOpts = new MqttConnectOptions();
 		connOpts.setCleanSession(true);
+		queue = new MQTTIngestionQueue(info);
 	}
 
 	public void connect() throws FrameworkException {
@@ -71,12 +74,21 @@ public class MQTTClientConnection implements MqttCallback {
 				client.disconnect();
 				info.connectionStatusCallback(false);
 			}
+
+			// process the messages that are still queued
+			queue.close();
+
 		} catch (MqttException ex) {
 
 			throw new FrameworkException(422, "Error while disconnecting from MQTT broker.");
 		}
 	}
 
+	public Map<String, Object> getStatistics() {
+
+		return queue.getStatistics();
+	}
+
 	public boolean isConnected(){
 
 		return client.isConnected();
@@ -133,8 +145,7 @@ public class MQTTClientConnection implements MqttCallback {
 	@Override
 	public void messageArrived(String topic, MqttMessage msg) throws Exception {
 
-		Thread workerThread = new Thread(new CallbackWorker(info, topic, msg.toString()));
-		workerThread.start();
+		queue.add(topic, msg.toString());
 	}
 
 	@Override
@@ -162,22 +173,4 @@ public class MQTTClientConnection implements MqttCallback {
 	public void deliveryComplete(IMqttDeliveryToken token) {
 	}
 
-	private class CallbackWorker implements Runnable {
-		private final MQTTInfo info;
-		private final String topic;
-		private final String message;
-
-		public CallbackWorker(MQTTInfo info, String topic, String message){
-			this.info = info;
-			this.topic = topic;
-			this.message = message;
-		}
-
-		@Override
-		public void run() {
-			info.messageCallback(topic, message);
-		}
-
-	}
-
 }
@@ -18,6 +18,8 @@
  */
 package org.structr.mqtt;
 
+import java.util.List;
+
 public interface MQTTInfo {
 
 	public String getProtocol();
@@ -26,8 +28,13 @@ public interface MQTTInfo {
 	public int getQoS();
 	public String getUuid();
 
+	public int getBatchSize();
+	public int getLingerTime();
+	public int getQueueSize();
+	public String getBackpressurePolicy();
+
 	public String[] getTopics();
 
-	public void messageCallback(String topic, String message);
+	public void messageCallback(List<MQTTMessage> messages);
 	public void connectionStatusCallback(boolean connected);
 }
@@ -0,0 +1,430 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.mqtt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Buffers the incoming messages of an MQTT client in a bounded queue and
+ * hands them to the client in micro-batches, so that a single transaction
+ * handles many messages. Messages are delivered in the order of arrival by
+ * a single worker thread per client.
+ *
+ * A batch is complete when it contains the configured number of messages,
+ * or when the linger time has elapsed since its first message was taken
+ * from the queue. When the queue is full, the backpressure policy decides
+ * whether the MQTT callback thread blocks, the oldest queued message is
+ * dropped, or new messages are written to a spill file until the worker
+ * has caught up. Each queue uses its own spill file, because the worker of
+ * a closed queue can still be draining its messages when the client has
+ * already created a new queue.
+ */
+public class MQTTIngestionQueue {
+
+	private static final Logger logger = LoggerFactory.getLogger(MQTTIngestionQueue.class.getName());
+
+	public enum BackpressurePolicy {
+
+		block, dropOldest, spill;
+
+		/**
+		 * Returns the policy with the given name. The names are matched
+		 * case-insensitively and without dashes or underscores, and
+		 * "spill-to-disk" is accepted as an alias for "spill".
+		 *
+		 * @param value
+		 * @return the policy, or block if the value is empty or unknown
+		 */
+		public static BackpressurePolicy fromString(final String value) {
+
+			if (value == null || value.trim().isEmpty()) {
+				return block;
+			}
+
+			final String name = value.trim().replace("-", "").replace("_", "");
+
+			if ("spilltodisk".equalsIgnoreCase(name)) {
+				return spill;
+			}
+
+			for (final BackpressurePolicy policy : values()) {
+
+				if (policy.name().equalsIgnoreCase(name)) {
+					return policy;
+				}
+			}
+
+			logger.warn("Unknown MQTT backpressure policy {}, using block", value);
+
+			return block;
+		}
+	}
+
+	private final AtomicLong failedBatches   = new AtomicLong();
+	private final AtomicLong processed       = new AtomicLong();
+	private final AtomicLong received        = new AtomicLong();
+	private final AtomicLong dropped         = new AtomicLong();
+	private final AtomicLong spilled         = new AtomicLong();
+	private final AtomicLong batches         = new AtomicLong();
+	private BlockingDeque<MQTTMessage> queue = null;
+	private ExecutorService executor         = null;
+	private BackpressurePolicy policy        = null;
+	private SpillFile spillFile              = null;
+	private MQTTInfo info                    = null;
+	private volatile boolean running         = true;
+	private volatile long lag                = 0L;
+	private long rateTimestamp               = 0L;
+	private long rateCount                   = 0L;
+	private double rate                      = 0.0;
+	private long lingerTime                  = 0L;
+	private int batchSize                    = 0;
+
+	public MQTTIngestionQueue(final MQTTInfo info) {
+
+		this.queue         = new LinkedBlockingDeque<>(Math.max(1, info.getQueueSize()));
+		this.policy        = BackpressurePolicy.fromString(info.getBackpressurePolicy());
+		this.batchSize     = Math.max(1, info.getBatchSize());
+		this.lingerTime    = Math.max(0, info.getLingerTime());
+		this.rateTimestamp = System.currentTimeMillis();
+		this.info          = info;
+
+		if (BackpressurePolicy.spill.equals(policy)) {
+			this.spillFile = new SpillFile(new File(Settings.TmpPath.getValue(), "structr-mqtt-" + info.getUuid() + "-" + UUID.randomUUID().toString().replace("-", "") + ".spill"));
+		}
+
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+
+			final Thread thread = new Thread(r, "MQTTIngestion-" + info.getUuid());
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		executor.submit(this::work);
+	}
+
+	/**
+	 * Adds a message to this queue, applying the backpressure policy if the
+	 * queue is full.
+	 *
+	 * @param topic
+	 * @param payload
+	 * @throws InterruptedException
+	 */
+	public void add(final String topic, final String payload) throws InterruptedException {
+
+		final MQTTMessage message = new MQTTMessage(topic, payload, System.currentTimeMillis());
+
+		received.incrementAndGet();
+
+		switch (policy) {
+
+			case dropOldest:
+
+				while (!queue.offer(message)) {
+
+					if (queue.pollFirst() != null) {
+						dropped.incrementAndGet();
+					}
+				}
+				break;
+
+			case spill:
+
+				// keep the order of arrival while spilled messages exist
+				if (spillFile.isEmpty() && queue.offer(message)) {
+					break;
+				}
+
+				if (spillFile.write(message)) {
+
+					spilled.incrementAndGet();
+
+				} else {
+
+					dropped.incrementAndGet();
+				}
+				break;
+
+			default:
+
+				// block the callback thread of the MQTT client
+				queue.put(message);
+				break;
+		}
+	}
+
+	/**
+	 * Stops the worker thread after the queued messages have been
+	 * processed. This method does not wait for the worker thread, because
+	 * it is called from within transactions that the worker could depend
+	 * on.
+	 */
+	public void close() {
+
+		running = false;
+
+		executor.shutdown();
+	}
+
+	public synchronized Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+		final long now                       = System.currentTimeMillis();
+		final long count                     = processed.get();
+		final long batchCount                = batches.get();
+		final MQTTMessage oldest             = queue.peekFirst();
+
+		// update the throughput at most once per second
+		if (now - rateTimestamp >= 1000L) {
+
+			rate          = ((count - rateCount) * 1000.0) / (now - rateTimestamp);
+			rateTimestamp = now;
+			rateCount     = count;
+		}
+
+		statistics.put("received",          received.get());
+		statistics.put("processed",         count);
+		statistics.put("dropped",           dropped.get());
+		statistics.put("spilled",           spilled.get());
+		statistics.put("queued",            queue.size() + (spillFile != null ? spillFile.size() : 0));
+		statistics.put("batches",           batchCount);
+		statistics.put("failedBatches",     failedBatches.get());
+		statistics.put("averageBatchSize",  batchCount > 0 ? count / batchCount : 0L);
+		statistics.put("messagesPerSecond", Math.round(rate));
+		statistics.put("lagMillis",         oldest != null ? now - oldest.getTimestamp() : lag);
+		statistics.put("backpressure",      policy.name());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private void work() {
+
+		while (running || !queue.isEmpty() || (spillFile != null && !spillFile.isEmpty())) {
+
+			try {
+
+				final List<MQTTMessage> batch = nextBatch();
+				if (!batch.isEmpty()) {
+
+					lag = System.currentTimeMillis() - batch.get(0).getTimestamp();
+
+					try {
+
+						info.messageCallback(batch);
+
+					} catch (Throwable t) {
+
+						logger.warn("Error while handling MQTT messages: {}", t.getMessage());
+						failedBatches.incrementAndGet();
+					}
+
+					processed.addAndGet(batch.size());
+					batches.incrementAndGet();
+				}
+
+			} catch (InterruptedException iex) {
+
+				break;
+			}
+		}
+
+		if (spillFile != null) {
+			spillFile.delete();
+		}
+	}
+
+	private List<MQTTMessage> nextBatch() throws InterruptedException {
+
+		final List<MQTTMessage> batch = new ArrayList<>(batchSize);
+
+		// queued messages are older than spilled ones
+		MQTTMessage first = queue.poll();
+		if (first == null) {
+
+			// drain spilled messages without waiting for the queue
+			if (spillFile != null && !spillFile.isEmpty()) {
+
+				spillFile.read(batch, batchSize);
+
+				return batch;
+			}
+
+			first = queue.poll(100, TimeUnit.MILLISECONDS);
+			if (first == null) {
+
+				return batch;
+			}
+		}
+
+		final long deadline = System.currentTimeMillis() + lingerTime;
+
+		batch.add(first);
+
+		while (batch.size() < batchSize) {
+
+			final long remaining = deadline - System.currentTimeMillis();
+
+			// take what is available without waiting once the linger time has elapsed
+			final MQTTMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.MILLISECONDS) : queue.poll();
+			if (next == null) {
+				break;
+			}
+
+			batch.add(next);
+		}
+
+		return batch;
+	}
+
+	// ----- nested classes -----
+	private static class SpillFile {
+
+		private DataOutputStream output = null;
+		private DataInputStream input   = null;
+		private File file               = null;
+		private long written            = 0L;
+		private long read               = 0L;
+
+		public SpillFile(final File file) {
+			this.file = file;
+		}
+
+		public synchronized boolean isEmpty() {
+			return read == written;
+		}
+
+		public synchronized long size() {
+			return written - read;
+		}
+
+		public synchronized boolean write(final MQTTMessage message) {
+
+			try {
+
+				if (output == null) {
+					output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+				}
+
+				final byte[] payload = message.getPayload().getBytes(StandardCharsets.UTF_8);
+
+				output.writeUTF(message.getTopic());
+				output.writeLong(message.getTimestamp());
+				output.writeInt(payload.length);
+				output.write(payload);
+
+				written++;
+
+				return true;
+
+			} catch (IOException ioex) {
+
+				logger.warn("Unable to spill MQTT message to {}: {}", file, ioex.getMessage());
+			}
+
+			return false;
+		}
+
+		public synchronized void read(final List<MQTTMessage> batch, final int max) {
+
+			try {
+
+				if (read < written) {
+
+					if (input == null) {
+
+						output.flush();
+						input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+					}
+
+					while (read < written && batch.size() < max) {
+
+						// make buffered records visible to the reader
+						output.flush();
+
+						final String topic   = input.readUTF();
+						final long timestamp = input.readLong();
+						final byte[] payload = new byte[input.readInt()];
+
+						input.readFully(payload);
+
+						batch.add(new MQTTMessage(topic, new String(payload, StandardCharsets.UTF_8), timestamp));
+
+						read++;
+					}
+				}
+
+				// start over with an empty file when all records have been read
+				if (read == written && output != null) {
+					delete();
+				}
+
+			} catch (IOException ioex) {
+
+				logger.warn("Unable to read spilled MQTT messages from {}, {} messages lost: {}", file, written - read, ioex.getMessage());
+				delete();
+			}
+		}
+
+		public synchronized void delete() {
+
+			try {
+
+				if (input != null) {
+					input.close();
+				}
+
+				if (output != null) {
+					output.close();
+				}
+
+			} catch (IOException ignore) {}
+
+			input   = null;
+			output  = null;
+			written = 0L;
+			read    = 0L;
+
+			file.delete();
+		}
+	}
+}
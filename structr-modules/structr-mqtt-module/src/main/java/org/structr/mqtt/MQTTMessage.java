@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.mqtt;
+
+/**
+ * A received MQTT message.
+ */
+public class MQTTMessage {
+
+	private String topic   = null;
+	private String payload = null;
+	private long timestamp = 0L;
+
+	public MQTTMessage(final String topic, final String payload, final long timestamp) {
+
+		this.timestamp = timestamp;
+		this.payload   = payload;
+		this.topic     = topic;
+	}
+
+	public String getTopic() {
+		return topic;
+	}
+
+	public String getPayload() {
+		return payload;
+	}
+
+	/**
+	 * @return the time of arrival in milliseconds
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+}
@@ -19,6 +19,8 @@
 package org.structr.mqtt.entity;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import org.apache.cxf.common.util.StringUtils;
@@ -57,6 +59,7 @@ import org.structr.core.property.StringProperty;
 import org.structr.mqtt.MQTTClientConnection;
 import org.structr.mqtt.MQTTContext;
 import org.structr.mqtt.MQTTInfo;
+import org.structr.mqtt.MQTTMessage;
 import org.structr.mqtt.entity.relation.MQTTClientHAS_SUBSCRIBERMQTTSubscriber;
 import org.structr.rest.RestMethodResult;
 import org.structr.schema.SchemaService;
@@ -72,12 +75,16 @@ public class MQTTClient extends AbstractNode implements MQTTInfo{
 	public static final Property<Integer>				qos					= new IntProperty("qos").defaultValue(0);
 	public static final Property<Boolean>				isEnabled			= new BooleanProperty("isEnabled");
 	public static final Property<Boolean>				isConnected			= new BooleanProperty("isConnected");
+	public static final Property<Integer>				batchSize			= new IntProperty("batchSize").defaultValue(100);
+	public static final Property<Integer>				lingerTime			= new IntProperty("lingerTime").defaultValue(50);
+	public static final Property<Integer>				queueSize			= new IntProperty("queueSize").defaultValue(10000);
+	public static final Property<String>				backpressure		= new StringProperty("backpressure").defaultValue("block");
 
-	public static final View defaultView = new View(MQTTClient.class, PropertyView.Public, id, type, subscribers, protocol, url, port, qos, isEnabled, isConnected);
+	public static final View defaultView = new View(MQTTClient.class, PropertyView.Public, id, type, subscribers, protocol, url, port, qos, isEnabled, isConnected, batchSize, lingerTime, queueSize, backpressure);
 
 	public static final View uiView = new View(MQTTClient.class, PropertyView.Ui,
 		id, name, owner, type, createdBy, deleted, hidden, createdDate, lastModifiedDate, visibleToPublicUsers, visibleToAuthenticatedUsers, visibilityStartDate, visibilityEndDate,
-        subscribers, protocol, url, port, qos, isEnabled, isConnected
+        subscribers, protocol, url, port, qos, isEnabled, isConnected, batchSize, lingerTime, queueSize, backpressure
 	);
 
 	static {
@@ -99,12 +106,15 @@ public class MQTTClient extends AbstractNode implements MQTTInfo{
 	@Override
 	public boolean onModification(final SecurityContext securityContext, final ErrorBuffer errorBuffer, final ModificationQueue modificationQueue) throws FrameworkException {
 
-		if (modificationQueue.isPropertyModified(this,protocol) || modificationQueue.isPropertyModified(this,url) || modificationQueue.isPropertyModified(this,port)) {
+		// the ingestion queue is configured when the connection is created
+		final boolean queueModified = modificationQueue.isPropertyModified(this,batchSize) || modificationQueue.isPropertyModified(this,lingerTime) || modificationQueue.isPropertyModified(this,queueSize) || modificationQueue.isPropertyModified(this,backpressure);
+
+		if (modificationQueue.isPropertyModified(this,protocol) || modificationQueue.isPropertyModified(this,url) || modificationQueue.isPropertyModified(this,port) || queueModified) {
 
 			MQTTContext.disconnect(this);
 		}
 
-		if(modificationQueue.isPropertyModified(this,isEnabled) || modificationQueue.isPropertyModified(this,protocol) || modificationQueue.isPropertyModified(this,url) || modificationQueue.isPropertyModified(this,port)){
+		if(modificationQueue.isPropertyModified(this,isEnabled) || modificationQueue.isPropertyModified(this,protocol) || modificationQueue.isPropertyModified(this,url) || modificationQueue.isPropertyModified(this,port) || queueModified){
 
 			MQTTClientConnection connection = MQTTContext.getClientForId(getUuid());
 			boolean enabled                 = getProperty(isEnabled);
@@ -178,24 +188,53 @@ public class MQTTClient extends AbstractNode implements MQTTInfo{
 	}
 
 	@Override
-	public void messageCallback(String topic, String message) {
+	public int getBatchSize() {
+		return getProperty(MQTTClient.batchSize);
+	}
+
+	@Override
+	public int getLingerTime() {
+		return getProperty(MQTTClient.lingerTime);
+	}
+
+	@Override
+	public int getQueueSize() {
+		return getProperty(MQTTClient.queueSize);
+	}
+
+	@Override
+	public String getBackpressurePolicy() {
+		return getProperty(MQTTClient.backpressure);
+	}
 
+	@Override
+	public void messageCallback(final List<MQTTMessage> messages) {
 
 		final App app = StructrApp.getInstance();
 		try (final Tx tx = app.tx()) {
 
-		List<MQTTSubscriber> subs = getProperty(MQTTClient.subscribers);
+			// resolve the subscribers once for the whole batch
+			final Map<String, List<MQTTSubscriber>> subscribersByTopic = new HashMap<>();
 
-			for(MQTTSubscriber sub : subs) {
+			for (final MQTTSubscriber sub : getProperty(MQTTClient.subscribers)) {
 
-				String subTopic = sub.getProperty(MQTTSubscriber.topic);
-				if(!StringUtils.isEmpty(subTopic)) {
+				final String subTopic = sub.getProperty(MQTTSubscriber.topic);
+				if (!StringUtils.isEmpty(subTopic)) {
 
-					if(subTopic.equals(topic)){
+					subscribersByTopic.computeIfAbsent(subTopic, k -> new LinkedList<>()).add(sub);
+				}
+			}
+
+			for (final MQTTMessage message : messages) {
+
+				final List<MQTTSubscriber> subs = subscribersByTopic.get(message.getTopic());
+				if (subs != null) {
+
+					for (final MQTTSubscriber sub : subs) {
 
 						Map<String,Object> params = new HashMap<>();
-						params.put("topic", topic);
-						params.put("message", message);
+						params.put("topic", message.getTopic());
+						params.put("message", message.getPayload());
 
 						try {
 
@@ -254,6 +293,18 @@ public class MQTTClient extends AbstractNode implements MQTTInfo{
 
 	}
 
+	@Export
+	public Map<String, Object> getMetrics() {
+
+		final MQTTClientConnection connection = MQTTContext.getClientForId(getUuid());
+		if (connection != null) {
+
+			return connection.getStatistics();
+		}
+
+		return new LinkedHashMap<>();
+	}
+
 	@Export
 	public RestMethodResult sendMessage(final String topic, final String message) throws FrameworkException {
 
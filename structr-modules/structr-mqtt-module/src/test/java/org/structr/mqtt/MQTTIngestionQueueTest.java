@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.mqtt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.structr.mqtt.MQTTIngestionQueue.BackpressurePolicy;
+
+/**
+ *
+ */
+public class MQTTIngestionQueueTest {
+
+	@Test
+	public void testBatchSize() throws InterruptedException {
+
+		final TestInfo info            = new TestInfo(10, 500, 1000, "block");
+		final MQTTIngestionQueue queue = new MQTTIngestionQueue(info);
+
+		for (int i=0; i<25; i++) {
+			queue.add("topic", "message" + i);
+		}
+
+		info.awaitMessages(25);
+		queue.close();
+
+		Assert.assertEquals("Invalid batch sizes", Arrays.asList(10, 10, 5), info.getBatchSizes());
+		Assert.assertEquals("Invalid message order", payloads(0, 25), info.getPayloads());
+		Assert.assertEquals("Invalid number of batches", 3L, queue.getStatistics().get("batches"));
+	}
+
+	@Test
+	public void testLingerTime() throws InterruptedException {
+
+		final TestInfo info            = new TestInfo(100, 300, 1000, "block");
+		final MQTTIngestionQueue queue = new MQTTIngestionQueue(info);
+		final long start               = System.currentTimeMillis();
+
+		queue.add("topic", "message0");
+		queue.add("topic", "message1");
+		queue.add("topic", "message2");
+
+		info.awaitMessages(3);
+		queue.close();
+
+		Assert.assertTrue("Incomplete batch must wait for the linger time", System.currentTimeMillis() - start >= 250);
+		Assert.assertEquals("Incomplete batch must be delivered after the linger time", Arrays.asList(3), info.getBatchSizes());
+	}
+
+	@Test
+	public void testDropOldest() throws InterruptedException {
+
+		final TestInfo info            = new TestInfo(1, 0, 5, "dropOldest");
+		final MQTTIngestionQueue queue = new MQTTIngestionQueue(info);
+
+		info.block();
+
+		// the worker is blocked in the callback while the queue fills up
+		queue.add("topic", "message0");
+		info.awaitCallback();
+
+		for (int i=1; i<=10; i++) {
+			queue.add("topic", "message" + i);
+		}
+
+		Assert.assertEquals("Invalid number of dropped messages", 5L, queue.getStatistics().get("dropped"));
+
+		info.unblock();
+		info.awaitMessages(6);
+		queue.close();
+
+		final List<String> expected = payloads(6, 11);
+		expected.add(0, "message0");
+
+		Assert.assertEquals("Oldest messages must be dropped", expected, info.getPayloads());
+	}
+
+	@Test
+	public void testSpillAndReplay() throws InterruptedException {
+
+		final TestInfo info            = new TestInfo(4, 0, 2, "spill-to-disk");
+		final MQTTIngestionQueue queue = new MQTTIngestionQueue(info);
+
+		info.block();
+
+		queue.add("topic", "message0");
+		info.awaitCallback();
+
+		for (int i=1; i<=10; i++) {
+			queue.add("topic", "message" + i);
+		}
+
+		Assert.assertEquals("Invalid number of spilled messages", 8L, queue.getStatistics().get("spilled"));
+		Assert.assertEquals("Invalid number of queued messages",  10L, queue.getStatistics().get("queued"));
+
+		info.unblock();
+		info.awaitMessages(11);
+		queue.close();
+
+		Assert.assertEquals("Spilled messages must be replayed in order", payloads(0, 11), info.getPayloads());
+		Assert.assertEquals("Invalid number of dropped messages", 0L, queue.getStatistics().get("dropped"));
+		Assert.assertEquals("Invalid number of queued messages",  0L, queue.getStatistics().get("queued"));
+	}
+
+	@Test
+	public void testPolicyNames() {
+
+		Assert.assertEquals("Invalid backpressure policy", BackpressurePolicy.spill,      BackpressurePolicy.fromString("spill-to-disk"));
+		Assert.assertEquals("Invalid backpressure policy", BackpressurePolicy.spill,      BackpressurePolicy.fromString("spill"));
+		Assert.assertEquals("Invalid backpressure policy", BackpressurePolicy.dropOldest, BackpressurePolicy.fromString("drop-oldest"));
+		Assert.assertEquals("Invalid backpressure policy", BackpressurePolicy.dropOldest, BackpressurePolicy.fromString("dropOldest"));
+		Assert.assertEquals("Invalid backpressure policy", BackpressurePolicy.block,      BackpressurePolicy.fromString(null));
+		Assert.assertEquals("Invalid backpressure policy", BackpressurePolicy.block,      BackpressurePolicy.fromString("unknown"));
+	}
+
+	// ----- private methods -----
+	private List<String> payloads(final int from, final int to) {
+
+		final List<String> payloads = new ArrayList<>();
+
+		for (int i=from; i<to; i++) {
+			payloads.add("message" + i);
+		}
+
+		return payloads;
+	}
+
+	// ----- nested classes -----
+	private static class TestInfo implements MQTTInfo {
+
+		private final List<Integer> batchSizes  = new ArrayList<>();
+		private final List<String> payloads     = new ArrayList<>();
+		private final CountDownLatch entered    = new CountDownLatch(1);
+		private volatile CountDownLatch blocker = null;
+		private String backpressure             = null;
+		private int lingerTime                  = 0;
+		private int batchSize                   = 0;
+		private int queueSize                   = 0;
+
+		public TestInfo(final int batchSize, final int lingerTime, final int queueSize, final String backpressure) {
+
+			this.backpressure = backpressure;
+			this.lingerTime   = lingerTime;
+			this.batchSize    = batchSize;
+			this.queueSize    = queueSize;
+		}
+
+		public void block() {
+			blocker = new CountDownLatch(1);
+		}
+
+		public void unblock() {
+			blocker.countDown();
+		}
+
+		public void awaitCallback() throws InterruptedException {
+			Assert.assertTrue("Callback was not called", entered.await(10, TimeUnit.SECONDS));
+		}
+
+		public void awaitMessages(final int count) throws InterruptedException {
+
+			final long deadline = System.currentTimeMillis() + 10000L;
+
+			while (getPayloads().size() < count && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+
+			Assert.assertEquals("Messages were not processed", count, getPayloads().size());
+		}
+
+		public synchronized List<Integer> getBatchSizes() {
+			return new ArrayList<>(batchSizes);
+		}
+
+		public synchronized List<String> getPayloads() {
+			return new ArrayList<>(payloads);
+		}
+
+		@Override
+		public String getProtocol() {
+			return "tcp://";
+		}
+
+		@Override
+		public String getUrl() {
+			return "localhost";
+		}
+
+		@Override
+		public int getPort() {
+			return 1883;
+		}
+
+		@Override
+		public int getQoS() {
+			return 0;
+		}
+
+		@Override
+		public String getUuid() {
+			return "test";
+		}
+
+		@Override
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		@Override
+		public int getLingerTime() {
+			return lingerTime;
+		}
+
+		@Override
+		public int getQueueSize() {
+			return queueSize;
+		}
+
+		@Override
+		public String getBackpressurePolicy() {
+			return backpressure;
+		}
+
+		@Override
+		public String[] getTopics() {
+			return new String[0];
+		}
+
+		@Override
+		public void messageCallback(final List<MQTTMessage> messages) {
+
+			entered.countDown();
+
+			if (blocker != null) {
+
+				try { blocker.await(10, TimeUnit.SECONDS); } catch (InterruptedException ignore) {}
+			}
+
+			synchronized (this) {
+
+				batchSizes.add(messages.size());
+
+				for (final MQTTMessage message : messages) {
+					payloads.add(message.getPayload());
+				}
+			}
+		}
+
+		@Override
+		public void connectionStatusCallback(final boolean connected) {
+		}
+	}
+}
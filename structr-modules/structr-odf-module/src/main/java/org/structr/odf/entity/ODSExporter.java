@@ -173,7 +173,7 @@ public class ODSExporter extends ODFExporter {
 
 			}
 
-			spreadsheet.save(output.getFileOnDisk().getAbsolutePath());
+			spreadsheet.save(output.getPrivateFileOnDisk().getAbsolutePath());
 			spreadsheet.close();
 
 		} catch (Exception e) {
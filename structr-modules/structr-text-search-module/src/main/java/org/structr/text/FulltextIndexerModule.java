@@ -18,27 +18,48 @@
  */
 package org.structr.text;
 
+import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.structr.api.service.LicenseManager;
+import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.fulltext.FulltextIndexer;
 import org.structr.common.fulltext.Indexable;
 import org.structr.core.GraphObjectMap;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractSchemaNode;
+import org.structr.core.function.Functions;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.TransactionCommand;
 import org.structr.core.property.GenericProperty;
 import org.structr.module.StructrModule;
 import org.structr.schema.action.Actions;
+import org.structr.text.index.InvertedIndex;
+import org.structr.web.common.UiResourceProvider;
 
 /**
  *
  */
 public class FulltextIndexerModule implements FulltextIndexer, StructrModule {
 
+	private static final Logger logger = LoggerFactory.getLogger(FulltextIndexerModule.class.getName());
+
 	@Override
 	public void onLoad(final LicenseManager licenseManager) {
+
+		Functions.put(true, LicenseManager.Community, "search_fulltext", new FulltextSearchFunction());
+
+		UiResourceProvider.registerResource("_search", FulltextSearchResource.class);
+
+		// remove deleted documents from the fulltext index
+		TransactionCommand.registerTransactionListener(new IndexRemovalListener());
 	}
 
 	@Override
@@ -251,4 +272,34 @@ public class FulltextIndexerModule implements FulltextIndexer, StructrModule {
 
 		return wordCount;
 	}
+
+	// ----- nested classes -----
+	private static class IndexRemovalListener implements StructrTransactionListener {
+
+		@Override
+		public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException {
+		}
+
+		@Override
+		public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+			for (final ModificationEvent event : modificationEvents) {
+
+				if (event.isDeleted() && event.getGraphObject() instanceof Indexable) {
+
+					final InvertedIndex index = InvertedIndex.getInstance();
+					if (index != null) {
+
+						try {
+
+							index.remove(event.getUuid());
+
+						} catch (IOException ioex) {
+							logger.warn("Unable to remove {} from fulltext index: {}", event.getUuid(), ioex.getMessage());
+						}
+					}
+				}
+			}
+		}
+	}
 }
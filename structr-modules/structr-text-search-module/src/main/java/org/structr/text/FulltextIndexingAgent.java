@@ -21,9 +21,10 @@ package org.structr.text;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -42,16 +43,13 @@ import org.slf4j.LoggerFactory;
 import org.structr.agent.Agent;
 import org.structr.agent.ReturnValue;
 import org.structr.agent.Task;
-import org.structr.api.graph.Node;
-import org.structr.api.index.Index;
 import org.structr.common.fulltext.Indexable;
-import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Person;
 import org.structr.core.entity.Principal;
 import static org.structr.core.graph.NodeInterface.owner;
-import org.structr.core.graph.NodeService;
 import org.structr.core.graph.Tx;
+import org.structr.text.index.InvertedIndex;
 
 /**
  *
@@ -90,12 +88,32 @@ public class FulltextIndexingAgent extends Agent<Indexable> {
 		return false;
 	}
 
+	/**
+	 * Indicates whether the given word is a stop word in any of the
+	 * supported languages.
+	 *
+	 * @param word
+	 * @return whether the word is a stop word
+	 */
+	public static boolean isStopWord(final String word) {
+
+		for (final Set<String> stopWords : languageStopwordMap.values()) {
+
+			if (stopWords.contains(word)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
 	// ----- private methods -----
 	private void doIndexing(final Indexable file) {
 
 		boolean parsingSuccessful         = false;
 		InputStream inputStream           = null;
 		String fileName                   = "unknown file";
+		String uuid                       = null;
 
 		try {
 
@@ -103,6 +121,7 @@ public class FulltextIndexingAgent extends Agent<Indexable> {
 
 				inputStream = file.getInputStream();
 				fileName = file.getName();
+				uuid = file.getUuid();
 
 				tx.success();
 			}
@@ -164,35 +183,28 @@ public class FulltextIndexingAgent extends Agent<Indexable> {
 						}
 
 						// index document excluding stop words
-						final NodeService nodeService       = Services.getInstance().getService(NodeService.class);
-						final Index<Node> fulltextIndex     = nodeService.getNodeIndex();
-						final Set<String> stopWords         = languageStopwordMap.get(tokenizer.getLanguage());
-						final String indexKeyName           = Indexable.indexedWords.jsonName();
-						final Iterator<String> wordIterator = tokenizer.getWords().iterator();
-						final Node node                     = file.getNode();
-						final Set<String> indexedWords      = new TreeSet<>();
-
-						while (wordIterator.hasNext()) {
+						final Set<String> stopWords    = languageStopwordMap.get(tokenizer.getLanguage());
+						final List<String> tokens      = new ArrayList<>();
+						final Set<String> indexedWords = new TreeSet<>();
 
-							try (Tx tx = StructrApp.getInstance().tx()) {
+						for (final String token : tokenizer.getTokens()) {
 
-								// remove node from index (in case of previous indexing runs)
-								fulltextIndex.remove(node, indexKeyName);
+							// strip double quotes
+							final String word = StringUtils.strip(token, "\"");
 
-								while (wordIterator.hasNext()) {
+							if (stopWords == null || !stopWords.contains(word)) {
 
-									// strip double quotes
-									final String word = StringUtils.strip(wordIterator.next(), "\"");
+								indexedWords.add(word);
+							}
 
-									if (!stopWords.contains(word)) {
+							tokens.add(StringUtils.isEmpty(word) ? null : word);
+						}
 
-										indexedWords.add(word);
-										fulltextIndex.add(node, indexKeyName, word, String.class);
-									}
-								}
+						final InvertedIndex index = InvertedIndex.getInstance();
+						if (index != null) {
 
-								tx.success();
-							}
+							// replaces the entries of previous indexing runs
+							index.add(uuid, tokens, stopWords);
 						}
 
 						// store indexed words separately
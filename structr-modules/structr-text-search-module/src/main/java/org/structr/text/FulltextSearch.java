@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.NodeInterface;
+import org.structr.text.index.InvertedIndex;
+import org.structr.text.index.SearchHit;
+import org.structr.text.index.SearchQuery;
+
+/**
+ * Ranked search in the fulltext index. Quoted parts of a query string
+ * are treated as phrases, all other words as optional search terms.
+ */
+public class FulltextSearch {
+
+	private static final Pattern PHRASE_PATTERN = Pattern.compile("\"([^\"]*)\"");
+
+	/**
+	 * Returns the nodes that match the given query and are readable in the
+	 * given security context, mapped to their score, best match first.
+	 *
+	 * @param securityContext
+	 * @param queryString
+	 * @param typeName the type of the nodes, or null
+	 * @param offset the number of matching nodes to skip
+	 * @param limit the maximum number of results
+	 *
+	 * @return the matching nodes and their score
+	 *
+	 * @throws FrameworkException
+	 */
+	public static Map<NodeInterface, Double> search(final SecurityContext securityContext, final String queryString, final String typeName, final int offset, final int limit) throws FrameworkException {
+
+		final Map<NodeInterface, Double> result = new LinkedHashMap<>();
+		final InvertedIndex index               = InvertedIndex.getInstance();
+
+		if (index == null || StringUtils.isBlank(queryString)) {
+			return result;
+		}
+
+		// resolve the type on each call, the schema can change at runtime
+		final Class type     = typeName != null ? StructrApp.getConfiguration().getNodeEntityClass(typeName) : null;
+		final App app        = StructrApp.getInstance(securityContext);
+		int skipped          = 0;
+
+		if (typeName != null && type == null) {
+			throw new FrameworkException(422, "Unknown type " + typeName);
+		}
+
+		final List<SearchHit> hits;
+
+		try {
+
+			hits = index.search(parse(queryString));
+
+		} catch (IOException ioex) {
+			throw new FrameworkException(500, "Unable to read fulltext index: " + ioex.getMessage());
+		}
+
+		for (final SearchHit hit : hits) {
+
+			// documents that were deleted since they were indexed are ignored
+			final NodeInterface node = app.getNodeById(hit.getUuid());
+			if (node != null && securityContext.isReadable(node, false, false) && (type == null || type.isAssignableFrom(node.getClass()))) {
+
+				if (skipped++ < offset) {
+					continue;
+				}
+
+				result.put(node, hit.getScore());
+
+				if (result.size() >= limit) {
+					break;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Converts the given query string into a query, using the same
+	 * tokenization as the indexing of documents.
+	 *
+	 * @param queryString
+	 *
+	 * @return the query
+	 */
+	public static SearchQuery parse(final String queryString) {
+
+		final SearchQuery query = new SearchQuery();
+		final Matcher matcher   = PHRASE_PATTERN.matcher(queryString);
+		final StringBuilder buf = new StringBuilder();
+		int last                = 0;
+
+		while (matcher.find()) {
+
+			final List<String> phrase = new ArrayList<>();
+
+			for (final String word : tokenize(matcher.group(1))) {
+				phrase.add(FulltextIndexingAgent.isStopWord(word) ? null : word);
+			}
+
+			query.addPhrase(phrase);
+
+			buf.append(queryString.substring(last, matcher.start()));
+			buf.append(" ");
+
+			last = matcher.end();
+		}
+
+		buf.append(queryString.substring(last));
+
+		for (final String word : tokenize(buf.toString())) {
+
+			if (!FulltextIndexingAgent.isStopWord(word)) {
+				query.addTerm(word);
+			}
+		}
+
+		return query;
+	}
+
+	// ----- private methods -----
+	private static List<String> tokenize(final String text) {
+
+		final FulltextTokenizer tokenizer = new FulltextTokenizer(null);
+		final List<String> words          = new ArrayList<>();
+
+		try {
+
+			// remaining (unbalanced) quotes are not part of the search terms
+			tokenizer.write(text.replace("\"", " "));
+			tokenizer.flush();
+
+		} catch (IOException ignore) {}
+
+		for (final String token : tokenizer.getTokens()) {
+
+			final String word = StringUtils.strip(token, "\"");
+			if (StringUtils.isNotEmpty(word)) {
+
+				words.add(word);
+			}
+		}
+
+		return words;
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text;
+
+import java.util.ArrayList;
+import org.structr.common.error.FrameworkException;
+import org.structr.schema.action.ActionContext;
+import org.structr.schema.action.Function;
+
+/**
+ *
+ */
+public class FulltextSearchFunction extends Function<Object, Object> {
+
+	private static final String ERROR_MESSAGE = "Usage: ${search_fulltext(query[, limit])}. Example: ${search_fulltext('\"annual report\" 2017', 10)}";
+
+	@Override
+	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) throws FrameworkException {
+
+		if (arrayHasMinLengthAndAllElementsNotNull(sources, 1)) {
+
+			final String query = sources[0].toString();
+			int limit          = Integer.MAX_VALUE;
+
+			if (sources.length > 1) {
+
+				if (sources[1] instanceof Number) {
+
+					limit = ((Number)sources[1]).intValue();
+
+				} else {
+
+					try {
+
+						limit = Integer.parseInt(sources[1].toString());
+
+					} catch (NumberFormatException nfex) {
+
+						logParameterError(caller, sources, ctx.isJavaScriptContext());
+						return usage(ctx.isJavaScriptContext());
+					}
+				}
+			}
+
+			return new ArrayList<>(FulltextSearch.search(ctx.getSecurityContext(), query, null, 0, limit).keySet());
+
+		} else {
+
+			logParameterError(caller, sources, ctx.isJavaScriptContext());
+		}
+
+		return usage(ctx.isJavaScriptContext());
+	}
+
+	@Override
+	public String usage(final boolean inJavaScriptContext) {
+		return ERROR_MESSAGE;
+	}
+
+	@Override
+	public String shortDescription() {
+		return "Returns the nodes that match the given fulltext query, best match first";
+	}
+
+	@Override
+	public String getName() {
+		return "search_fulltext";
+	}
+}
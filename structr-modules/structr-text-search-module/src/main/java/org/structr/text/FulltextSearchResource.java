@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import javax.servlet.http.HttpServletRequest;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.GraphObjectMap;
+import org.structr.core.Result;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.property.DoubleProperty;
+import org.structr.core.property.PropertyKey;
+import org.structr.rest.RestMethodResult;
+import org.structr.rest.exception.IllegalMethodException;
+import org.structr.rest.exception.IllegalPathException;
+import org.structr.rest.resource.Resource;
+
+/**
+ * Ranked fulltext search, e.g. /structr/rest/_search?q="annual report" 2017&type=File
+ */
+public class FulltextSearchResource extends Resource {
+
+	private static final DoubleProperty scoreProperty = new DoubleProperty("score");
+
+	public enum UriPart {
+		_search
+	}
+
+	private String query    = null;
+	private String typeName = null;
+
+	@Override
+	public boolean checkAndConfigure(String part, SecurityContext securityContext, HttpServletRequest request) throws FrameworkException {
+
+		this.securityContext = securityContext;
+
+		if (UriPart._search.name().equals(part)) {
+
+			if (request != null) {
+
+				this.query    = request.getParameter("q");
+				this.typeName = request.getParameter("type");
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public Result doGet(PropertyKey sortKey, boolean sortDescending, int pageSize, int page) throws FrameworkException {
+
+		final List<GraphObjectMap> resultList = new LinkedList<>();
+		final int offset                      = (int)Math.min(Integer.MAX_VALUE, (long)Math.max(0, page - 1) * pageSize);
+
+		for (final Entry<NodeInterface, Double> entry : FulltextSearch.search(securityContext, query, typeName, offset, pageSize).entrySet()) {
+
+			final NodeInterface node  = entry.getKey();
+			final GraphObjectMap item = new GraphObjectMap();
+
+			item.setProperty(GraphObject.id,     node.getUuid());
+			item.setProperty(GraphObject.type,   node.getType());
+			item.setProperty(NodeInterface.name, node.getName());
+			item.setProperty(scoreProperty,      entry.getValue());
+
+			resultList.add(item);
+		}
+
+		return new Result(resultList, resultList.size(), true, false);
+	}
+
+	@Override
+	public RestMethodResult doPost(Map<String, Object> propertySet) throws FrameworkException {
+		throw new IllegalMethodException("POST not allowed on " + getResourceSignature());
+	}
+
+	@Override
+	public Resource tryCombineWith(Resource next) throws FrameworkException {
+		throw new IllegalPathException(getResourceSignature() + " has no subresources");
+	}
+
+	@Override
+	public String getUriPart() {
+		return getResourceSignature();
+	}
+
+	@Override
+	public Class getEntityClass() {
+		return null;
+	}
+
+	@Override
+	public String getResourceSignature() {
+		return UriPart._search.name();
+	}
+
+	@Override
+	public boolean isCollectionResource() throws FrameworkException {
+		return true;
+	}
+}
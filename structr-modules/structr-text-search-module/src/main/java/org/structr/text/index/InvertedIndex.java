@@ -0,0 +1,968 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * An inverted fulltext index that maps terms to posting lists with term
+ * frequencies and positions, and ranks search results with BM25.
+ *
+ * The posting lists are stored in a snapshot file and read from disk when
+ * a term is searched, only the term dictionary (the position and size of
+ * each posting list in the snapshot) and the document table are held in
+ * memory. Modifications since the snapshot was written are recorded in an
+ * append-only journal, the postings of documents added since then are kept
+ * in memory until the journal is compacted into a new snapshot. The number
+ * of journal records and therefore the heap usage of these postings is
+ * bounded by the configured journal size.
+ *
+ * Removed documents are only marked as deleted and purged from the posting
+ * lists when a new snapshot is written.
+ */
+public class InvertedIndex {
+
+	private static final Logger logger              = LoggerFactory.getLogger(InvertedIndex.class.getName());
+	private static final String SNAPSHOT_FILE_NAME  = "index.dat";
+	private static final String JOURNAL_FILE_NAME   = "index.journal";
+	private static final int MAGIC                  = 0x53545849;
+	private static final int VERSION                = 2;
+	private static final byte ADD                   = 1;
+	private static final byte REMOVE                = 2;
+	private static final double K1                  = 1.2;
+	private static final double B                   = 0.75;
+	private static InvertedIndex instance           = null;
+
+	private final ReadWriteLock lock                = new ReentrantReadWriteLock();
+	private final Map<String, TermEntry> dictionary = new HashMap<>();
+	private final Map<String, PostingList> recent   = new HashMap<>();
+	private final Map<String, Integer> documents    = new HashMap<>();
+	private final List<String> uuids                = new ArrayList<>();
+	private final BitSet deleted                    = new BitSet();
+	private DataOutputStream journal                = null;
+	private FileChannel snapshot                    = null;
+	private Path directory                          = null;
+	private int[] lengths                           = new int[16];
+	private long totalLength                        = 0L;
+	private int maxJournalSize                      = 0;
+	private int journalSize                         = 0;
+
+	public InvertedIndex(final Path directory, final int maxJournalSize) throws IOException {
+
+		this.directory      = directory;
+		this.maxJournalSize = maxJournalSize;
+
+		Files.createDirectories(directory);
+
+		load();
+	}
+
+	/**
+	 * Returns the index in the configured fulltext index directory.
+	 *
+	 * @return the index, or null if the index could not be opened
+	 */
+	public static synchronized InvertedIndex getInstance() {
+
+		if (instance == null) {
+
+			final Path path = Paths.get(Settings.getFullSettingPath(Settings.FulltextIndexPath));
+
+			try {
+
+				instance = new InvertedIndex(path, Settings.IndexingJournalSize.getValue());
+
+			} catch (IOException ioex) {
+				logger.error("Unable to open fulltext index in {}: {}", path, ioex.getMessage());
+			}
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Adds the given document to the index, replacing a previous version
+	 * of the document.
+	 *
+	 * @param uuid the id of the document
+	 * @param tokens the words of the document in their order
+	 * @param stopWords words that are not indexed (but still count as positions), or null
+	 *
+	 * @throws IOException
+	 */
+	public void add(final String uuid, final List<String> tokens, final Set<String> stopWords) throws IOException {
+
+		final Map<String, List<Integer>> positionLists = new TreeMap<>();
+		final Map<String, int[]> document              = new LinkedHashMap<>();
+		final int size                                 = tokens.size();
+
+		for (int i=0; i<size; i++) {
+
+			final String token = tokens.get(i);
+			if (token != null && (stopWords == null || !stopWords.contains(token))) {
+
+				positionLists.computeIfAbsent(token, k -> new ArrayList<>()).add(i);
+			}
+		}
+
+		for (final Entry<String, List<Integer>> entry : positionLists.entrySet()) {
+
+			final List<Integer> list = entry.getValue();
+			final int[] positions    = new int[list.size()];
+
+			for (int i=0; i<positions.length; i++) {
+				positions[i] = list.get(i);
+			}
+
+			document.put(entry.getKey(), positions);
+		}
+
+		lock.writeLock().lock();
+		try {
+
+			writeAdd(uuid, document);
+			addDocument(uuid, document);
+
+			journalWritten();
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the given document from the index.
+	 *
+	 * @param uuid the id of the document
+	 *
+	 * @throws IOException
+	 */
+	public void remove(final String uuid) throws IOException {
+
+		lock.writeLock().lock();
+		try {
+
+			if (documents.containsKey(uuid)) {
+
+				writeRemove(uuid);
+				removeDocument(uuid);
+
+				journalWritten();
+			}
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean contains(final String uuid) {
+
+		lock.readLock().lock();
+		try {
+
+			return documents.containsKey(uuid);
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the documents that match the given query, ordered by their
+	 * BM25 score. If the query contains phrases, all phrases must occur in
+	 * a document, otherwise a document must contain at least one term.
+	 *
+	 * @param query
+	 *
+	 * @return the matching documents, best match first
+	 *
+	 * @throws IOException
+	 */
+	public List<SearchHit> search(final SearchQuery query) throws IOException {
+
+		final List<SearchHit> hits = new ArrayList<>();
+
+		lock.readLock().lock();
+		try {
+
+			final int documentCount = documents.size();
+			if (documentCount == 0 || query.isEmpty()) {
+				return hits;
+			}
+
+			final double averageLength = Math.max(1.0, (double)totalLength / documentCount);
+			final double[] scores      = new double[uuids.size()];
+			final BitSet matches       = new BitSet();
+
+			for (final String term : query.getAllTerms()) {
+
+				final PostingList postings = getPostings(term);
+				if (postings != null) {
+
+					final int frequency = getDocumentFrequency(postings);
+					final double idf    = Math.log(1.0 + (documentCount - frequency + 0.5) / (frequency + 0.5));
+					final int size      = postings.size();
+
+					for (int i=0; i<size; i++) {
+
+						final int document = postings.getDocument(i);
+						if (!deleted.get(document)) {
+
+							final double tf     = postings.getFrequency(i);
+							final double length = lengths[document];
+
+							scores[document] += idf * (tf * (K1 + 1.0)) / (tf + K1 * (1.0 - B + B * length / averageLength));
+
+							matches.set(document);
+						}
+					}
+				}
+			}
+
+			for (final List<String> phrase : query.getPhrases()) {
+
+				final BitSet phraseMatches = matchPhrase(phrase);
+				if (phraseMatches != null) {
+
+					matches.and(phraseMatches);
+				}
+			}
+
+			for (int document = matches.nextSetBit(0); document >= 0; document = matches.nextSetBit(document + 1)) {
+				hits.add(new SearchHit(uuids.get(document), scores[document]));
+			}
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+
+		hits.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+
+		return hits;
+	}
+
+	/**
+	 * Writes a new snapshot of the index and truncates the journal.
+	 *
+	 * @throws IOException
+	 */
+	public void compact() throws IOException {
+
+		lock.writeLock().lock();
+		try {
+
+			writeSnapshot();
+
+			openJournal(false);
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void close() throws IOException {
+
+		lock.writeLock().lock();
+		try {
+
+			if (journal != null) {
+
+				journal.close();
+				journal = null;
+			}
+
+			if (snapshot != null) {
+
+				snapshot.close();
+				snapshot = null;
+			}
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		lock.readLock().lock();
+		try {
+
+			statistics.put("documents",   Long.valueOf(documents.size()));
+			statistics.put("terms",       Long.valueOf(getTermCount()));
+			statistics.put("deleted",     Long.valueOf(deleted.cardinality()));
+			statistics.put("journalSize", Long.valueOf(journalSize));
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private void addDocument(final String uuid, final Map<String, int[]> document) {
+
+		removeDocument(uuid);
+
+		final int id = uuids.size();
+		int length   = 0;
+
+		uuids.add(uuid);
+		documents.put(uuid, id);
+
+		for (final Entry<String, int[]> entry : document.entrySet()) {
+
+			final int[] positions = entry.getValue();
+
+			recent.computeIfAbsent(entry.getKey(), k -> new PostingList()).add(id, positions);
+
+			length += positions.length;
+		}
+
+		if (id >= lengths.length) {
+			lengths = Arrays.copyOf(lengths, Math.max(lengths.length * 2, id + 1));
+		}
+
+		lengths[id]  = length;
+		totalLength += length;
+	}
+
+	private void removeDocument(final String uuid) {
+
+		final Integer id = documents.remove(uuid);
+		if (id != null) {
+
+			deleted.set(id);
+			totalLength -= lengths[id];
+		}
+	}
+
+	/**
+	 * Returns the postings of the given term from the snapshot followed by
+	 * the postings of the documents that were added since the snapshot was
+	 * written, which all have higher document ids.
+	 */
+	private PostingList getPostings(final String term) throws IOException {
+
+		final TermEntry entry      = dictionary.get(term);
+		final PostingList postings = recent.get(term);
+
+		if (entry == null) {
+			return postings;
+		}
+
+		final PostingList result = readPostings(entry);
+		if (postings != null) {
+
+			final int size = postings.size();
+
+			for (int i=0; i<size; i++) {
+				result.add(postings.getDocument(i), postings.getPositions(i));
+			}
+		}
+
+		return result;
+	}
+
+	private PostingList readPostings(final TermEntry entry) throws IOException {
+
+		final ByteBuffer buffer    = ByteBuffer.allocate(entry.length);
+		final PostingList postings = new PostingList();
+
+		readFully(buffer, entry.offset);
+
+		try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()))) {
+
+			int document = 0;
+
+			for (int i=0; i<entry.size; i++) {
+
+				document += readVarInt(in);
+
+				postings.add(document, readPositions(in));
+			}
+		}
+
+		return postings;
+	}
+
+	private void readFully(final ByteBuffer buffer, final long position) throws IOException {
+
+		while (buffer.hasRemaining()) {
+
+			if (snapshot.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of fulltext index file");
+			}
+		}
+	}
+
+	private int getTermCount() {
+
+		int count = dictionary.size();
+
+		for (final String term : recent.keySet()) {
+
+			if (!dictionary.containsKey(term)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private int getDocumentFrequency(final PostingList postings) {
+
+		final int size = postings.size();
+		int frequency  = 0;
+
+		for (int i=0; i<size; i++) {
+
+			if (!deleted.get(postings.getDocument(i))) {
+				frequency++;
+			}
+		}
+
+		return frequency;
+	}
+
+	private BitSet matchPhrase(final List<String> phrase) throws IOException {
+
+		final List<PostingList> lists = new ArrayList<>();
+		final List<Integer> offsets   = new ArrayList<>();
+		final BitSet result           = new BitSet();
+		final int phraseLength        = phrase.size();
+		int rarest                    = -1;
+
+		for (int i=0; i<phraseLength; i++) {
+
+			final String term = phrase.get(i);
+			if (term != null) {
+
+				final PostingList postings = getPostings(term);
+				if (postings == null) {
+
+					// a term that does not occur in any document
+					return result;
+				}
+
+				if (rarest < 0 || postings.size() < lists.get(rarest).size()) {
+					rarest = lists.size();
+				}
+
+				lists.add(postings);
+				offsets.add(i);
+			}
+		}
+
+		if (lists.isEmpty()) {
+
+			// a phrase that consists of stop words only
+			return null;
+		}
+
+		final PostingList candidates = lists.get(rarest);
+		final int listCount          = lists.size();
+		final int size               = candidates.size();
+
+		for (int i=0; i<size; i++) {
+
+			final int document = candidates.getDocument(i);
+			if (deleted.get(document)) {
+				continue;
+			}
+
+			final int[][] positions = new int[listCount][];
+			boolean allTerms        = true;
+
+			for (int j=0; j<listCount; j++) {
+
+				if (j == rarest) {
+
+					positions[j] = candidates.getPositions(i);
+
+				} else {
+
+					final PostingList postings = lists.get(j);
+					final int index            = postings.find(document);
+
+					if (index < 0) {
+
+						allTerms = false;
+						break;
+					}
+
+					positions[j] = postings.getPositions(index);
+				}
+			}
+
+			if (allTerms && containsPhrase(positions, offsets, rarest)) {
+				result.set(document);
+			}
+		}
+
+		return result;
+	}
+
+	private boolean containsPhrase(final int[][] positions, final List<Integer> offsets, final int rarest) {
+
+		for (final int position : positions[rarest]) {
+
+			final int start = position - offsets.get(rarest);
+			boolean found   = true;
+
+			for (int j=0; j<positions.length; j++) {
+
+				if (j != rarest && Arrays.binarySearch(positions[j], start + offsets.get(j)) < 0) {
+
+					found = false;
+					break;
+				}
+			}
+
+			if (found) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void journalWritten() throws IOException {
+
+		journal.flush();
+
+		if (++journalSize >= maxJournalSize) {
+
+			writeSnapshot();
+
+			openJournal(false);
+		}
+	}
+
+	private void load() throws IOException {
+
+		final Path snapshotFile = directory.resolve(SNAPSHOT_FILE_NAME);
+		final Path journalFile  = directory.resolve(JOURNAL_FILE_NAME);
+
+		if (Files.exists(snapshotFile)) {
+			readSnapshot(snapshotFile);
+		}
+
+		if (Files.exists(journalFile) && Files.size(journalFile) > 0) {
+
+			replayJournal(journalFile);
+
+			// journal might be truncated, start with a new one
+			writeSnapshot();
+
+			openJournal(false);
+
+		} else {
+
+			openJournal(true);
+		}
+
+		logger.info("Fulltext index loaded, {} documents, {} terms", documents.size(), getTermCount());
+	}
+
+	private void readSnapshot(final Path snapshotFile) throws IOException {
+
+		snapshot = FileChannel.open(snapshotFile, StandardOpenOption.READ);
+
+		final ByteBuffer trailer = ByteBuffer.allocate(8);
+		final long size          = snapshot.size();
+
+		if (size < 24) {
+			throw new IOException("Invalid fulltext index file " + snapshotFile);
+		}
+
+		readFully(trailer, size - 8);
+
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Invalid fulltext index file " + snapshotFile);
+			}
+
+			final int documentCount = in.readInt();
+
+			lengths = new int[Math.max(16, documentCount)];
+
+			for (int i=0; i<documentCount; i++) {
+
+				final String uuid = in.readUTF();
+				final int length  = readVarInt(in);
+
+				uuids.add(uuid);
+				documents.put(uuid, i);
+
+				lengths[i]   = length;
+				totalLength += length;
+			}
+		}
+
+		// the term dictionary follows the posting lists
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(Files.newByteChannel(snapshotFile).position(trailer.getLong(0)))))) {
+
+			final int termCount = in.readInt();
+
+			for (int i=0; i<termCount; i++) {
+
+				final String term = in.readUTF();
+				final int count   = readVarInt(in);
+				final int length  = readVarInt(in);
+
+				dictionary.put(term, new TermEntry(in.readLong(), count, length));
+			}
+		}
+	}
+
+	/**
+	 * Writes a new snapshot that contains the posting lists of the current
+	 * snapshot and of the recently added documents without the deleted
+	 * documents. The posting lists are copied one term at a time, so that
+	 * only one of them needs to be held in memory.
+	 */
+	private void writeSnapshot() throws IOException {
+
+		final Path snapshotFile                    = directory.resolve(SNAPSHOT_FILE_NAME);
+		final Path tmp                             = directory.resolve(SNAPSHOT_FILE_NAME + ".tmp");
+		final Map<String, TermEntry> newDictionary = new HashMap<>();
+		final Set<String> allTerms                 = new HashSet<>(dictionary.keySet());
+		final ByteArrayOutputStream buffer         = new ByteArrayOutputStream();
+		final DataOutputStream postingsOut         = new DataOutputStream(buffer);
+		final int[] mapping                        = new int[uuids.size()];
+		final List<String> newUuids                = new ArrayList<>();
+		final int[] newLengths                     = new int[Math.max(16, documents.size())];
+
+		allTerms.addAll(recent.keySet());
+
+		for (int i=0; i<mapping.length; i++) {
+
+			if (deleted.get(i)) {
+
+				mapping[i] = -1;
+
+			} else {
+
+				final int id = newUuids.size();
+
+				mapping[i]     = id;
+				newLengths[id] = lengths[i];
+
+				newUuids.add(uuids.get(i));
+			}
+		}
+
+		final CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+
+		try (final DataOutputStream out = new DataOutputStream(counter)) {
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(newUuids.size());
+
+			for (int i=0; i<newUuids.size(); i++) {
+
+				out.writeUTF(newUuids.get(i));
+				writeVarInt(out, newLengths[i]);
+			}
+
+			for (final String term : allTerms) {
+
+				final PostingList postings = getPostings(term).remap(mapping);
+				final int size             = postings.size();
+
+				if (size > 0) {
+
+					int last = 0;
+
+					buffer.reset();
+
+					for (int i=0; i<size; i++) {
+
+						final int document = postings.getDocument(i);
+
+						writeVarInt(postingsOut, document - last);
+						writePositions(postingsOut, postings.getPositions(i));
+
+						last = document;
+					}
+
+					newDictionary.put(term, new TermEntry(counter.getByteCount(), size, buffer.size()));
+
+					buffer.writeTo(out);
+				}
+			}
+
+			final long dictionaryOffset = counter.getByteCount();
+
+			out.writeInt(newDictionary.size());
+
+			for (final Entry<String, TermEntry> entry : newDictionary.entrySet()) {
+
+				final TermEntry term = entry.getValue();
+
+				out.writeUTF(entry.getKey());
+				writeVarInt(out, term.size);
+				writeVarInt(out, term.length);
+				out.writeLong(term.offset);
+			}
+
+			out.writeLong(dictionaryOffset);
+		}
+
+		if (snapshot != null) {
+
+			snapshot.close();
+			snapshot = null;
+		}
+
+		try {
+
+			Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} finally {
+
+			// reopen the old snapshot if the new one could not be moved into place
+			if (Files.exists(snapshotFile)) {
+				snapshot = FileChannel.open(snapshotFile, StandardOpenOption.READ);
+			}
+		}
+
+		documents.clear();
+
+		for (int i=0; i<newUuids.size(); i++) {
+			documents.put(newUuids.get(i), i);
+		}
+
+		uuids.clear();
+		uuids.addAll(newUuids);
+		deleted.clear();
+		recent.clear();
+
+		dictionary.clear();
+		dictionary.putAll(newDictionary);
+
+		lengths = newLengths;
+	}
+
+	private void replayJournal(final Path journalFile) throws IOException {
+
+		int count = 0;
+
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+
+			while (true) {
+
+				final int type = in.read();
+				if (type < 0) {
+					break;
+				}
+
+				final String uuid = in.readUTF();
+
+				if (type == ADD) {
+
+					final Map<String, int[]> document = new LinkedHashMap<>();
+					final int termCount               = readVarInt(in);
+
+					for (int i=0; i<termCount; i++) {
+
+						final String term = in.readUTF();
+
+						document.put(term, readPositions(in));
+					}
+
+					addDocument(uuid, document);
+
+				} else if (type == REMOVE) {
+
+					removeDocument(uuid);
+
+				} else {
+
+					throw new IOException("Invalid record type " + type + " in fulltext index journal");
+				}
+
+				count++;
+			}
+
+		} catch (EOFException eofex) {
+
+			logger.warn("Fulltext index journal is truncated, last record ignored");
+		}
+
+		logger.info("Replayed {} records from fulltext index journal", count);
+	}
+
+	private void openJournal(final boolean append) throws IOException {
+
+		if (journal != null) {
+			journal.close();
+		}
+
+		final Path journalFile = directory.resolve(JOURNAL_FILE_NAME);
+
+		if (append) {
+
+			journal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(journalFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+
+		} else {
+
+			journal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(journalFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+		}
+
+		journalSize = 0;
+	}
+
+	private void writeAdd(final String uuid, final Map<String, int[]> document) throws IOException {
+
+		journal.write(ADD);
+		journal.writeUTF(uuid);
+
+		writeVarInt(journal, document.size());
+
+		for (final Entry<String, int[]> entry : document.entrySet()) {
+
+			journal.writeUTF(entry.getKey());
+			writePositions(journal, entry.getValue());
+		}
+	}
+
+	private void writeRemove(final String uuid) throws IOException {
+
+		journal.write(REMOVE);
+		journal.writeUTF(uuid);
+	}
+
+	private static int[] readPositions(final DataInputStream in) throws IOException {
+
+		final int[] positions = new int[readVarInt(in)];
+		int last              = 0;
+
+		for (int i=0; i<positions.length; i++) {
+
+			last        += readVarInt(in);
+			positions[i] = last;
+		}
+
+		return positions;
+	}
+
+	private static void writePositions(final DataOutputStream out, final int[] positions) throws IOException {
+
+		int last = 0;
+
+		writeVarInt(out, positions.length);
+
+		for (final int position : positions) {
+
+			writeVarInt(out, position - last);
+			last = position;
+		}
+	}
+
+	private static int readVarInt(final DataInputStream in) throws IOException {
+
+		int value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+
+			b = in.readUnsignedByte();
+
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	private static void writeVarInt(final DataOutputStream out, final int value) throws IOException {
+
+		int v = value;
+
+		while ((v & ~0x7f) != 0) {
+
+			out.write((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+
+		out.write(v);
+	}
+
+	// ----- nested classes -----
+	private static class TermEntry {
+
+		private long offset = 0L;
+		private int size    = 0;
+		private int length  = 0;
+
+		public TermEntry(final long offset, final int size, final int length) {
+
+			this.offset = offset;
+			this.size   = size;
+			this.length = length;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.util.Arrays;
+
+/**
+ * The posting list of a single term: the ids of the documents that contain
+ * the term in ascending order, the term frequencies and the positions of
+ * the term in each document.
+ *
+ * Positions are stored as delta-encoded variable-length integers in a
+ * single byte array, so that a posting list needs only a few bytes per
+ * occurrence of the term.
+ */
+public class PostingList {
+
+	private int[] documents = new int[4];
+	private int[] offsets   = new int[4];
+	private int[] frequency = new int[4];
+	private byte[] data     = new byte[16];
+	private int length      = 0;
+	private int size        = 0;
+
+	/**
+	 * Appends a posting. Documents must be added in ascending order.
+	 *
+	 * @param document
+	 * @param positions the positions of the term in ascending order
+	 */
+	public void add(final int document, final int[] positions) {
+
+		if (size == documents.length) {
+
+			final int newSize = size * 2;
+
+			documents = Arrays.copyOf(documents, newSize);
+			offsets   = Arrays.copyOf(offsets,   newSize);
+			frequency = Arrays.copyOf(frequency, newSize);
+		}
+
+		documents[size] = document;
+		offsets[size]   = length;
+		frequency[size] = positions.length;
+
+		int last = 0;
+
+		for (final int position : positions) {
+
+			writeVarInt(position - last);
+			last = position;
+		}
+
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getDocument(final int index) {
+		return documents[index];
+	}
+
+	public int getFrequency(final int index) {
+		return frequency[index];
+	}
+
+	public int[] getPositions(final int index) {
+
+		final int[] positions = new int[frequency[index]];
+		int offset            = offsets[index];
+		int last              = 0;
+
+		for (int i=0; i<positions.length; i++) {
+
+			int value = 0;
+			int shift = 0;
+			byte b;
+
+			do {
+
+				b      = data[offset++];
+				value |= (b & 0x7f) << shift;
+				shift += 7;
+
+			} while ((b & 0x80) != 0);
+
+			last        += value;
+			positions[i] = last;
+		}
+
+		return positions;
+	}
+
+	/**
+	 * Returns the index of the posting of the given document, or a negative
+	 * value if the document does not contain the term.
+	 *
+	 * @param document
+	 *
+	 * @return the index of the posting
+	 */
+	public int find(final int document) {
+		return Arrays.binarySearch(documents, 0, size, document);
+	}
+
+	/**
+	 * Creates a copy of this posting list with renumbered documents, removing
+	 * the documents that are mapped to a negative value.
+	 *
+	 * @param mapping the new document ids, indexed by the old document ids
+	 *
+	 * @return the new posting list
+	 */
+	public PostingList remap(final int[] mapping) {
+
+		final PostingList result = new PostingList();
+
+		for (int i=0; i<size; i++) {
+
+			final int document = mapping[documents[i]];
+			if (document >= 0) {
+
+				result.add(document, getPositions(i));
+			}
+		}
+
+		return result;
+	}
+
+	// ----- private methods -----
+	private void writeVarInt(final int value) {
+
+		if (length + 5 > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+		}
+
+		int v = value;
+
+		while ((v & ~0x7f) != 0) {
+
+			data[length++] = (byte)((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+
+		data[length++] = (byte)v;
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A fulltext query that consists of optional terms and of phrases that
+ * must occur in the matching documents.
+ */
+public class SearchQuery {
+
+	private final List<List<String>> phrases = new ArrayList<>();
+	private final Set<String> terms          = new LinkedHashSet<>();
+
+	/**
+	 * Adds an optional term that contributes to the score of a document.
+	 *
+	 * @param term
+	 */
+	public void addTerm(final String term) {
+		terms.add(term);
+	}
+
+	/**
+	 * Adds a phrase that must occur in the matching documents. Null
+	 * elements (e.g. stop words) match any word at their position.
+	 *
+	 * @param phrase the terms of the phrase in their order
+	 */
+	public void addPhrase(final List<String> phrase) {
+
+		if (phrase.size() == 1) {
+
+			// a single word is a required term
+			if (phrase.get(0) != null) {
+				phrases.add(phrase);
+			}
+
+		} else if (!phrase.isEmpty()) {
+
+			phrases.add(phrase);
+		}
+	}
+
+	public Set<String> getTerms() {
+		return Collections.unmodifiableSet(terms);
+	}
+
+	public List<List<String>> getPhrases() {
+		return Collections.unmodifiableList(phrases);
+	}
+
+	/**
+	 * Returns all terms of this query, including the terms of the phrases.
+	 *
+	 * @return all terms
+	 */
+	public Set<String> getAllTerms() {
+
+		final Set<String> allTerms = new LinkedHashSet<>(terms);
+
+		for (final List<String> phrase : phrases) {
+
+			for (final String term : phrase) {
+
+				if (term != null) {
+					allTerms.add(term);
+				}
+			}
+		}
+
+		return allTerms;
+	}
+
+	public boolean isEmpty() {
+		return getAllTerms().isEmpty();
+	}
+}
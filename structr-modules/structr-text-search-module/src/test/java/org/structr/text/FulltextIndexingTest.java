@@ -20,7 +20,9 @@ package org.structr.text;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import org.apache.cxf.helpers.IOUtils;
 import org.junit.Assert;
@@ -28,6 +30,7 @@ import static org.junit.Assert.fail;
 import org.junit.Test;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.fulltext.Indexable;
+import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
 import org.structr.dynamic.File;
 import org.structr.web.common.FileHelper;
@@ -146,6 +149,38 @@ public class FulltextIndexingTest extends StructrTextSearchModuleTest {
 
 	}
 
+	@Test
+	public void testRankedSearch() {
+
+		try (final Tx tx = app.tx()) {
+
+			FileHelper.createFile(securityContext, FulltextIndexingTest.class.getResourceAsStream("/test/test.txt"), "", File.class, "test.txt");
+			FileHelper.createFile(securityContext, FulltextIndexingTest.class.getResourceAsStream("/test/test2.txt"), "", File.class, "test2.txt");
+
+			tx.success();
+
+		} catch (FrameworkException|IOException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			// wait for the indexing agent
+			for (int i=0; i<20 && FulltextSearch.search(securityContext, "repetition", "File", 0, 10).isEmpty(); i++) {
+				delay();
+			}
+
+			Assert.assertEquals("Invalid search result", Arrays.asList("test2.txt"), names(FulltextSearch.search(securityContext, "repetition", "File", 0, 10).keySet()));
+			Assert.assertEquals("Invalid phrase search result", Arrays.asList("test.txt"), names(FulltextSearch.search(securityContext, "\"consectetuer adipiscing elit\"", "File", 0, 10).keySet()));
+			Assert.assertTrue("Invalid phrase search result", FulltextSearch.search(securityContext, "\"elit adipiscing\"", "File", 0, 10).isEmpty());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+	}
+
 	// ----- private methods -----
 	private void testFile() {
 
@@ -194,5 +229,15 @@ public class FulltextIndexingTest extends StructrTextSearchModuleTest {
 
 		return null;
 	}
-}
 
+	private List<String> names(final Collection<NodeInterface> nodes) {
+
+		final List<String> names = new ArrayList<>();
+
+		for (final NodeInterface node : nodes) {
+			names.add(node.getName());
+		}
+
+		return names;
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.structr.text.index.InvertedIndex;
+import org.structr.text.index.SearchHit;
+import org.structr.text.index.SearchQuery;
+
+/**
+ *
+ */
+public class InvertedIndexTest {
+
+	private static final Set<String> stopWords = Collections.singleton("the");
+
+	private Path directory = null;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("structr-fulltext-index");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory.toFile());
+	}
+
+	@Test
+	public void testRanking() throws IOException {
+
+		final InvertedIndex index = new InvertedIndex(directory, 1000);
+
+		index.add("doc1", tokens("the quick brown fox jumps over the lazy dog"), stopWords);
+		index.add("doc2", tokens("fox fox fox hunting season"), stopWords);
+		index.add("doc3", tokens("a dog without a fox"), stopWords);
+
+		final SearchQuery query = new SearchQuery();
+		query.addTerm("fox");
+
+		final List<SearchHit> hits = index.search(query);
+
+		Assert.assertEquals("Invalid number of search results", 3, hits.size());
+		Assert.assertEquals("Document with the highest term frequency should be ranked first", "doc2", hits.get(0).getUuid());
+
+		final SearchQuery stopWordQuery = new SearchQuery();
+		stopWordQuery.addTerm("the");
+
+		Assert.assertTrue("Stop words must not be indexed", index.search(stopWordQuery).isEmpty());
+
+		index.close();
+	}
+
+	@Test
+	public void testPhrases() throws IOException {
+
+		final InvertedIndex index = new InvertedIndex(directory, 1000);
+
+		index.add("doc1", tokens("the quick brown fox jumps over the lazy dog"), stopWords);
+		index.add("doc2", tokens("brown dogs and a quick fox"), stopWords);
+
+		Assert.assertEquals("Invalid phrase search result", Arrays.asList("doc1"), uuids(index.search(phrase("quick", "brown", "fox"))));
+		Assert.assertEquals("Invalid phrase search result", Arrays.asList("doc2"), uuids(index.search(phrase("quick", "fox"))));
+
+		// stop words match any word at their position
+		Assert.assertEquals("Invalid phrase search result", Arrays.asList("doc1"), uuids(index.search(phrase("over", null, "lazy"))));
+		Assert.assertTrue("Invalid phrase search result", index.search(phrase("fox", "quick")).isEmpty());
+
+		index.close();
+	}
+
+	@Test
+	public void testRemovalAndPersistence() throws IOException {
+
+		final InvertedIndex index = new InvertedIndex(directory, 1000);
+
+		index.add("doc1", tokens("structr graph database"), stopWords);
+		index.add("doc2", tokens("graph theory"), stopWords);
+		index.add("doc3", tokens("database theory"), stopWords);
+
+		// replace and remove documents
+		index.add("doc1", tokens("structr content management"), stopWords);
+		index.remove("doc2");
+		index.close();
+
+		// the reopened index replays the journal
+		final InvertedIndex reopened = new InvertedIndex(directory, 2);
+
+		Assert.assertFalse("Removed document must not be in the index", reopened.contains("doc2"));
+		Assert.assertTrue("Indexed document must be in the index", reopened.contains("doc1"));
+		Assert.assertTrue("Indexed document must be in the index", reopened.contains("doc3"));
+		Assert.assertTrue("Old version of document must not be found", reopened.search(term("graph")).isEmpty());
+		Assert.assertEquals("Invalid search result", Arrays.asList("doc3"), uuids(reopened.search(term("theory"))));
+
+		// exceed the journal size to trigger a compaction
+		reopened.add("doc4", tokens("content delivery"), stopWords);
+		reopened.remove("doc3");
+		reopened.close();
+
+		final InvertedIndex compacted = new InvertedIndex(directory, 1000);
+
+		Assert.assertEquals("Invalid number of documents", Long.valueOf(2), compacted.getStatistics().get("documents"));
+		Assert.assertEquals("Invalid search result", Arrays.asList("doc1", "doc4"), sorted(uuids(compacted.search(term("content")))));
+		Assert.assertEquals("Invalid phrase search result", Arrays.asList("doc1"), uuids(compacted.search(phrase("content", "management"))));
+
+		compacted.close();
+	}
+
+	@Test
+	public void testSnapshotAndRecentDocuments() throws IOException {
+
+		final InvertedIndex index = new InvertedIndex(directory, 3);
+
+		// the third record writes a snapshot
+		index.add("doc1", tokens("the quick brown fox"), stopWords);
+		index.add("doc2", tokens("a lazy brown dog"), stopWords);
+		index.add("doc3", tokens("quick brown foxes"), stopWords);
+
+		// these documents are only in the journal
+		index.add("doc4", tokens("another quick brown fox"), stopWords);
+		index.remove("doc2");
+
+		Assert.assertEquals("Invalid search result", Arrays.asList("doc1", "doc3", "doc4"), sorted(uuids(index.search(term("brown")))));
+		Assert.assertEquals("Invalid phrase search result", Arrays.asList("doc1", "doc4"), sorted(uuids(index.search(phrase("quick", "brown", "fox")))));
+		Assert.assertTrue("Removed document must not be found", index.search(term("lazy")).isEmpty());
+		Assert.assertEquals("Invalid number of terms", Long.valueOf(8), index.getStatistics().get("terms"));
+
+		index.compact();
+
+		Assert.assertEquals("Invalid search result", Arrays.asList("doc1", "doc3", "doc4"), sorted(uuids(index.search(term("brown")))));
+		Assert.assertEquals("Invalid phrase search result", Arrays.asList("doc1", "doc4"), sorted(uuids(index.search(phrase("quick", "brown", "fox")))));
+		Assert.assertEquals("Invalid number of terms", Long.valueOf(5), index.getStatistics().get("terms"));
+
+		index.close();
+
+		final InvertedIndex reopened = new InvertedIndex(directory, 1000);
+
+		Assert.assertEquals("Invalid number of documents", Long.valueOf(3), reopened.getStatistics().get("documents"));
+		Assert.assertEquals("Invalid phrase search result", Arrays.asList("doc3"), uuids(reopened.search(phrase("brown", "foxes"))));
+
+		reopened.close();
+	}
+
+	// ----- private methods -----
+	private List<String> tokens(final String text) {
+		return Arrays.asList(text.split(" "));
+	}
+
+	private SearchQuery term(final String term) {
+
+		final SearchQuery query = new SearchQuery();
+		query.addTerm(term);
+
+		return query;
+	}
+
+	private SearchQuery phrase(final String... terms) {
+
+		final SearchQuery query = new SearchQuery();
+		query.addPhrase(Arrays.asList(terms));
+
+		return query;
+	}
+
+	private List<String> uuids(final List<SearchHit> hits) {
+
+		final List<String> uuids = new ArrayList<>();
+
+		for (final SearchHit hit : hits) {
+			uuids.add(hit.getUuid());
+		}
+
+		return uuids;
+	}
+
+	private List<String> sorted(final List<String> list) {
+
+		Collections.sort(list);
+
+		return list;
+	}
+}
@@ -28,6 +28,7 @@ import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +52,7 @@ import org.structr.api.NotInTransactionException;
 import org.structr.api.QueryResult;
 import org.structr.api.Transaction;
 import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.GraphProperties;
 import org.structr.api.graph.Label;
 import org.structr.api.graph.Node;
@@ -221,7 +223,12 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		// make properties available to Cypher statement
 		map.put("properties", properties);
 
-		return NodeWrapper.newInstance(this, getCurrentTransaction().getNode(buf.toString(), map));
+		final SessionTransaction tx = getCurrentTransaction();
+		final NodeWrapper node      = NodeWrapper.newInstance(this, tx.getNode(buf.toString(), map));
+
+		tx.structureModified(node);
+
+		return node;
 	}
 
 	@Override
@@ -343,6 +350,11 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		return execute(nativeQuery, Collections.EMPTY_MAP);
 	}
 
+	@Override
+	public void prefetchRelationships(final Iterable<Node> nodes, final Direction direction, final Set<String> types) {
+		NodeWrapper.prefetchRelationships(this, nodes, direction, types);
+	}
+
 	@Override
 	public void invalidateQueryCache() {
 
@@ -355,6 +367,33 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		}
 	}
 
+	public void invalidateQueryCache(final Map<String, Set<String>> nodeModifications, final Map<String, Set<String>> relationshipModifications) {
+
+		if (nodeIndex != null) {
+			nodeIndex.invalidateCache(nodeModifications);
+		}
+
+		if (relationshipIndex != null) {
+			relationshipIndex.invalidateCache(relationshipModifications);
+		}
+	}
+
+	@Override
+	public Map<String, Map<String, Long>> getQueryCacheStatistics() {
+
+		final Map<String, Map<String, Long>> statistics = new LinkedHashMap<>();
+
+		if (nodeIndex != null) {
+			statistics.put("nodes", nodeIndex.getCacheStatistics());
+		}
+
+		if (relationshipIndex != null) {
+			statistics.put("relationships", relationshipIndex.getCacheStatistics());
+		}
+
+		return statistics;
+	}
+
 	public SessionTransaction getCurrentTransaction() {
 
 		final SessionTransaction tx = sessions.get();
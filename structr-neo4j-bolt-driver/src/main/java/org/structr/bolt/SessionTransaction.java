@@ -19,10 +19,12 @@
 package org.structr.bolt;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 import org.neo4j.driver.v1.Record;
 import org.neo4j.driver.v1.Session;
 import org.neo4j.driver.v1.StatementResult;
@@ -39,10 +41,12 @@ import org.structr.api.NotFoundException;
 import org.structr.api.QueryResult;
 import org.structr.api.RetryException;
 import org.structr.api.util.QueryUtils;
+import org.structr.bolt.index.QueryCache;
 import org.structr.bolt.mapper.RecordLongMapper;
 import org.structr.bolt.mapper.RecordNodeMapper;
 import org.structr.bolt.mapper.RecordRelationshipMapper;
 import org.structr.bolt.wrapper.EntityWrapper;
+import org.structr.bolt.wrapper.NodeWrapper;
 import org.structr.bolt.wrapper.StatementResultWrapper;
 
 /**
@@ -50,12 +54,19 @@ import org.structr.bolt.wrapper.StatementResultWrapper;
  */
 public class SessionTransaction implements org.structr.api.Transaction {
 
-	private final Set<EntityWrapper> modifiedEntities = new HashSet<>();
-	private BoltDatabaseService db                    = null;
-	private Session session                           = null;
-	private Transaction tx                            = null;
-	private boolean closed                            = false;
-	private boolean success                           = false;
+	private static final int MAX_BUFFERED_MODIFICATIONS              = 1000;
+	private static final Pattern WRITE_CLAUSES                       = Pattern.compile("\\b(CREATE|MERGE|SET|DELETE|REMOVE)\\b", Pattern.CASE_INSENSITIVE);
+	private final Map<String, Set<String>> relationshipModifications = new HashMap<>();
+	private final Map<String, Set<String>> nodeModifications         = new HashMap<>();
+	private final Set<EntityWrapper> modifiedEntities                = new HashSet<>();
+	private final Set<EntityWrapper> lockedEntities                  = new HashSet<>();
+	private final WriteBehindBuffer buffer                           = new WriteBehindBuffer();
+	private BoltDatabaseService db                                   = null;
+	private Session session                                          = null;
+	private Transaction tx                                           = null;
+	private boolean unknownModifications                             = false;
+	private boolean closed                                           = false;
+	private boolean success                                          = false;
 
 	public SessionTransaction(final BoltDatabaseService db, final Session session) {
 
@@ -81,29 +92,28 @@ public class SessionTransaction implements org.structr.api.Transaction {
 	@Override
 	public void close() {
 
-		if (!success) {
+		RuntimeException flushException = null;
+		boolean committed               = false;
 
-			// We need to invalidate all existing references because we cannot
-			// be sure that they contain the correct values after a rollback.
-			for (final EntityWrapper entity : modifiedEntities) {
-				entity.stale();
-			}
+		if (success) {
 
-		} else {
+			try {
 
-			if (!modifiedEntities.isEmpty()) {
+				// send buffered modifications before the transaction is committed
+				flush();
 
-				// data was written, invalidate query cache
-				db.invalidateQueryCache();
-			}
+			} catch (RuntimeException rex) {
 
-			// Notify all nodes that are modified in this transaction
-			// so that the relationship caches are rebuilt.
-			for (final EntityWrapper entity : modifiedEntities) {
-				entity.clearCaches();
+				// buffered modifications could not be written, roll back
+				flushException = rex;
+				success        = false;
+
+				tx.failure();
 			}
 		}
 
+		buffer.clear();
+
 		// mark this transaction as closed BEFORE trying to actually close it
 		// so that it is closed in case of a failure
 		closed = true;
@@ -113,6 +123,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 			tx.close();
 			session.close();
 
+			committed = success;
+
 		} catch (TransientException tex) {
 
 			// transient exceptions can be retried
@@ -124,6 +136,40 @@ public class SessionTransaction implements org.structr.api.Transaction {
 			if (session.isOpen()) {
 				session.close();
 			}
+
+			if (committed) {
+
+				// caches must be invalidated after the commit, otherwise other
+				// transactions could cache results that do not contain our data
+				if (unknownModifications) {
+
+					// native queries can modify arbitrary data, invalidate query cache
+					db.invalidateQueryCache();
+
+				} else if (!modifiedEntities.isEmpty()) {
+
+					// data was written, invalidate affected query cache entries
+					db.invalidateQueryCache(nodeModifications, relationshipModifications);
+				}
+
+				// Notify all nodes that are modified in this transaction
+				// so that the relationship caches are rebuilt.
+				for (final EntityWrapper entity : modifiedEntities) {
+					entity.clearCaches();
+				}
+
+			} else {
+
+				// We need to invalidate all existing references because we cannot
+				// be sure that they contain the correct values after a rollback.
+				for (final EntityWrapper entity : modifiedEntities) {
+					entity.stale();
+				}
+			}
+		}
+
+		if (flushException != null) {
+			throw flushException;
 		}
 	}
 
@@ -157,6 +203,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			return tx.run(statement, map).next().get(0).asLong();
@@ -173,6 +221,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			final StatementResult result = tx.run(statement, map);
@@ -195,6 +245,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			return tx.run(statement, map).next().get(0).asEntity();
@@ -211,6 +263,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			return tx.run(statement, map).next().get(0).asNode();
@@ -227,6 +281,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			return tx.run(statement, map).next().get(0).asRelationship();
@@ -243,6 +299,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			return QueryUtils.map(new RecordNodeMapper(), new StatementIterable(tx.run(statement, map)));
@@ -259,6 +317,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			return QueryUtils.map(new RecordRelationshipMapper(), new StatementIterable(tx.run(statement, map)));
@@ -275,6 +335,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			return QueryUtils.map(new RecordLongMapper(), new StatementIterable(tx.run(statement, map)));
@@ -291,6 +353,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			final StatementResult result = tx.run(statement, map);
@@ -322,8 +386,14 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
+			if (WRITE_CLAUSES.matcher(statement).find()) {
+				unknownModifications = true;
+			}
+
 			return new StatementResultWrapper(db, tx.run(statement, map));
 
 		} catch (TransientException tex) {
@@ -338,6 +408,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			logQuery(statement, map);
 
 			tx.run(statement, map).consume();
@@ -350,6 +422,58 @@ public class SessionTransaction implements org.structr.api.Transaction {
 		}
 	}
 
+	/**
+	 * Buffers the modification of the given property. Buffered modifications
+	 * are sent to the database before the next statement is executed, when
+	 * the buffer is full, or when the transaction is committed.
+	 *
+	 * The first modification of an entity is sent immediately, so that the
+	 * write lock of the entity is acquired at the same point in time as
+	 * without buffering. Otherwise, concurrent transactions could modify
+	 * the (shared) wrapper of the entity before one of them is committed.
+	 *
+	 * @param wrapper
+	 * @param key
+	 * @param value the new value, or null to remove the property
+	 */
+	public void setProperty(final EntityWrapper<?> wrapper, final String key, final Object value) {
+
+		if (wrapper instanceof NodeWrapper) {
+
+			buffer.setNodeProperty(wrapper.getId(), key, value);
+
+		} else {
+
+			buffer.setRelationshipProperty(wrapper.getId(), key, value);
+		}
+
+		flushIfFullOrUnlocked(wrapper);
+	}
+
+	public void addLabel(final NodeWrapper wrapper, final String label) {
+
+		buffer.addLabel(wrapper.getId(), label);
+		flushIfFullOrUnlocked(wrapper);
+	}
+
+	public void removeLabel(final NodeWrapper wrapper, final String label) {
+
+		buffer.removeLabel(wrapper.getId(), label);
+		flushIfFullOrUnlocked(wrapper);
+	}
+
+	/**
+	 * Sends all buffered modifications to the database.
+	 */
+	@Override
+	public void flush() {
+
+		if (!buffer.isEmpty()) {
+
+			buffer.flush(this);
+		}
+	}
+
 	public void logQuery(final String statement) {
 
 		logQuery(statement, null);
@@ -374,12 +498,88 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	}
 
+	public boolean hasModifications() {
+		return unknownModifications || !modifiedEntities.isEmpty();
+	}
+
 	public void modified(final EntityWrapper wrapper) {
+		modifiedEntities.add(wrapper);
+	}
 
-		// data was written, invalidate query cache
-		db.invalidateQueryCache();
+	/**
+	 * Registers a modification of the given property key, so that only
+	 * the query cache entries that depend on the key are invalidated when
+	 * this transaction is committed.
+	 *
+	 * @param wrapper
+	 * @param key
+	 */
+	public void modified(final EntityWrapper<?> wrapper, final String key) {
 
-		modifiedEntities.add(wrapper);
+		final boolean isNode = wrapper instanceof NodeWrapper;
+
+		for (final String label : wrapper.getLabelNames()) {
+
+			if (isNode) {
+
+				record(nodeModifications, label, key);
+
+				// label changes of nodes affect relationship queries as well
+				if (QueryCache.ANY_KEY.equals(key)) {
+					record(relationshipModifications, label, key);
+				}
+
+			} else {
+
+				record(relationshipModifications, label, key);
+			}
+		}
+
+		modified(wrapper);
+	}
+
+	/**
+	 * Registers the creation, deletion or label change of the given entity,
+	 * which invalidates all query cache entries for the labels of the entity.
+	 *
+	 * @param wrapper
+	 */
+	public void structureModified(final EntityWrapper wrapper) {
+
+		// created and deleted entities are locked by the database
+		lockedEntities.add(wrapper);
+
+		modified(wrapper, QueryCache.ANY_KEY);
+	}
+
+	// ----- package-private methods -----
+	void execute(final String statement, final Map<String, Object> map) {
+
+		try {
+
+			logQuery(statement, map);
+
+			tx.run(statement, map).consume();
+
+		} catch (TransientException tex) {
+			closed = true;
+			throw new RetryException(tex);
+		} catch (NoSuchRecordException nex) {
+			throw new NotFoundException(nex);
+		}
+	}
+
+	// ----- private methods -----
+	private void flushIfFullOrUnlocked(final EntityWrapper wrapper) {
+
+		if (lockedEntities.add(wrapper) || buffer.size() >= MAX_BUFFERED_MODIFICATIONS) {
+
+			flush();
+		}
+	}
+
+	private void record(final Map<String, Set<String>> modifications, final String label, final String key) {
+		modifications.computeIfAbsent(label, k -> new HashSet<>()).add(key);
 	}
 
 	private class StatementIterable implements QueryResult<Record> {
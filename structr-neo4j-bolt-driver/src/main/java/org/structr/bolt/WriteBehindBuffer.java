@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Collects property and label modifications of a transaction so that they
+ * can be sent to the database in a few UNWIND statements instead of one
+ * round trip per modification.
+ */
+public class WriteBehindBuffer {
+
+	private final Map<Long, Map<String, Object>> relationshipProperties = new LinkedHashMap<>();
+	private final Map<Long, Map<String, Object>> nodeProperties         = new LinkedHashMap<>();
+	private final Map<String, Set<Long>> removedLabels                  = new LinkedHashMap<>();
+	private final Map<String, Set<Long>> addedLabels                    = new LinkedHashMap<>();
+	private int size                                                    = 0;
+
+	public void setNodeProperty(final long id, final String key, final Object value) {
+		setProperty(nodeProperties, id, key, value);
+	}
+
+	public void setRelationshipProperty(final long id, final String key, final Object value) {
+		setProperty(relationshipProperties, id, key, value);
+	}
+
+	public void addLabel(final long id, final String label) {
+
+		remove(removedLabels, label, id);
+		add(addedLabels, label, id);
+	}
+
+	public void removeLabel(final long id, final String label) {
+
+		remove(addedLabels, label, id);
+		add(removedLabels, label, id);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the number of buffered modifications.
+	 *
+	 * @return the number of modifications
+	 */
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+
+		relationshipProperties.clear();
+		nodeProperties.clear();
+		removedLabels.clear();
+		addedLabels.clear();
+
+		size = 0;
+	}
+
+	/**
+	 * Sends all buffered modifications to the database and clears this
+	 * buffer afterwards.
+	 *
+	 * @param tx
+	 */
+	public void flush(final SessionTransaction tx) {
+
+		if (isEmpty()) {
+			return;
+		}
+
+		try {
+
+			// SET n += {map} removes properties whose value is null
+			flushProperties(tx, "UNWIND {rows} AS row MATCH (n) WHERE ID(n) = row.id SET n += row.properties", nodeProperties);
+			flushProperties(tx, "UNWIND {rows} AS row MATCH ()-[n]->() WHERE ID(n) = row.id SET n += row.properties", relationshipProperties);
+
+			// labels cannot be parameterized, so we need one statement per label
+			for (final Entry<String, Set<Long>> entry : addedLabels.entrySet()) {
+				flushLabels(tx, "UNWIND {ids} AS id MATCH (n) WHERE ID(n) = id SET n:" + entry.getKey(), entry.getValue());
+			}
+
+			for (final Entry<String, Set<Long>> entry : removedLabels.entrySet()) {
+				flushLabels(tx, "UNWIND {ids} AS id MATCH (n) WHERE ID(n) = id REMOVE n:" + entry.getKey(), entry.getValue());
+			}
+
+		} finally {
+
+			clear();
+		}
+	}
+
+	// ----- private methods -----
+	private void setProperty(final Map<Long, Map<String, Object>> properties, final long id, final String key, final Object value) {
+
+		Map<String, Object> map = properties.get(id);
+		if (map == null) {
+
+			map = new HashMap<>();
+			properties.put(id, map);
+		}
+
+		if (!map.containsKey(key)) {
+			size++;
+		}
+
+		map.put(key, value);
+	}
+
+	private void add(final Map<String, Set<Long>> labels, final String label, final long id) {
+
+		Set<Long> ids = labels.get(label);
+		if (ids == null) {
+
+			ids = new LinkedHashSet<>();
+			labels.put(label, ids);
+		}
+
+		if (ids.add(id)) {
+			size++;
+		}
+	}
+
+	private void remove(final Map<String, Set<Long>> labels, final String label, final long id) {
+
+		final Set<Long> ids = labels.get(label);
+		if (ids != null && ids.remove(id)) {
+
+			size--;
+		}
+	}
+
+	private void flushProperties(final SessionTransaction tx, final String statement, final Map<Long, Map<String, Object>> properties) {
+
+		if (!properties.isEmpty()) {
+
+			final List<Map<String, Object>> rows = new ArrayList<>(properties.size());
+			final Map<String, Object> params     = new HashMap<>();
+
+			for (final Entry<Long, Map<String, Object>> entry : properties.entrySet()) {
+
+				final Map<String, Object> row = new HashMap<>();
+
+				row.put("id",         entry.getKey());
+				row.put("properties", entry.getValue());
+
+				rows.add(row);
+			}
+
+			params.put("rows", rows);
+
+			tx.execute(statement, params);
+		}
+	}
+
+	private void flushLabels(final SessionTransaction tx, final String statement, final Set<Long> ids) {
+
+		if (!ids.isEmpty()) {
+
+			final Map<String, Object> params = new HashMap<>();
+
+			params.put("ids", new ArrayList<>(ids));
+
+			tx.execute(statement, params);
+		}
+	}
+}
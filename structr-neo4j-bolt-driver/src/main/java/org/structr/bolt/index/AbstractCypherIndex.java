@@ -19,11 +19,9 @@
 package org.structr.bolt.index;
 
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import org.slf4j.Logger;
@@ -43,8 +41,7 @@ import org.structr.api.search.SpatialQuery;
 import org.structr.api.search.TypeConverter;
 import org.structr.api.search.TypeQuery;
 import org.structr.api.search.UuidQuery;
-import org.structr.api.util.FixedSizeCache;
-import org.structr.api.util.Iterables;
+import org.structr.api.util.QueryUtils;
 import org.structr.bolt.*;
 import org.structr.bolt.index.converter.BooleanTypeConverter;
 import org.structr.bolt.index.converter.ByteTypeConverter;
@@ -105,12 +102,12 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 		CONVERTERS.put(byte.class,    new ByteTypeConverter());
 	}
 
-	protected final FixedSizeCache<Integer, CachedQueryResult> queryCache;
+	protected final QueryCache<T> queryCache;
 	protected final BoltDatabaseService db;
 
 	public AbstractCypherIndex(final BoltDatabaseService db, final int queryCacheSize) {
 
-		this.queryCache = new FixedSizeCache<>(queryCacheSize);
+		this.queryCache = new QueryCache<>(queryCacheSize);
 		this.db         = db;
 	}
 
@@ -148,6 +145,73 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 
 	@Override
 	public QueryResult<T> query(final QueryPredicate predicate) {
+		return getCachedResult(createQuery(predicate));
+	}
+
+	@Override
+	public QueryResult<T> query(final QueryPredicate predicate, final int offset, final int limit) {
+
+		final AdvancedCypherQuery query = createQuery(predicate);
+
+		if (query.isUnion()) {
+
+			return QueryUtils.window(getCachedResult(query), offset, limit);
+		}
+
+		query.window(offset, limit);
+
+		return getCachedResult(query);
+	}
+
+	@Override
+	public QueryResult<T> queryAfter(final QueryPredicate predicate, final Object sortValue, final String uuid, final int limit) {
+
+		final AdvancedCypherQuery query = createQuery(predicate);
+
+		query.after(sortValue, uuid);
+
+		if (query.isUnion()) {
+
+			return QueryUtils.window(getCachedResult(query), 0, limit);
+		}
+
+		query.window(0, limit);
+
+		return getCachedResult(query);
+	}
+
+	@Override
+	public long count(final QueryPredicate predicate) {
+
+		final AdvancedCypherQuery query = createQuery(predicate);
+
+		// the parts of a UNION may overlap, so they cannot be counted separately
+		if (query.isUnion()) {
+
+			return -1;
+		}
+
+		return db.getCurrentTransaction().getLong(query.getCountStatement(), query.getParameters());
+	}
+
+	public void invalidateCache() {
+
+		if (!queryCache.isEmpty()) {
+
+			queryCache.clear();
+		}
+	}
+
+	public void invalidateCache(final Map<String, Set<String>> modifications) {
+		queryCache.invalidate(modifications);
+	}
+
+	public Map<String, Long> getCacheStatistics() {
+		return queryCache.getStatistics();
+	}
+
+	// ----- private methods -----
+	private AdvancedCypherQuery createQuery(final QueryPredicate predicate) {
 
 		final AdvancedCypherQuery query = new AdvancedCypherQuery(this);
 
@@ -159,15 +223,31 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 			query.sort(predicate.getSortType(), sortKey, predicate.sortDescending());
 		}
 
-		return getResult(query);
+		return query;
 	}
 
-	public void invalidateCache() {
+	private QueryResult<T> getCachedResult(final AdvancedCypherQuery query) {
 
-		if (!queryCache.isEmpty()) {
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-			queryCache.clear();
+		// Transactions with pending modifications must neither see nor
+		// populate the cache because their results are not committed yet.
+		if (tx.hasModifications()) {
+
+			return getResult(query);
+		}
+
+		// hash code must be computed before the query is executed
+		final int hashCode       = query.getHashCode();
+		final QueryResult<T> hit = queryCache.get(hashCode);
+
+		if (hit != null) {
+			return hit;
 		}
+
+		final long generation = queryCache.getGeneration();
+
+		return queryCache.record(hashCode, generation, query.getDependencyLabels(), query.getDependencyKeys(), getResult(query));
 	}
 
 	// ----- interface QueryFactory -----
@@ -190,36 +270,4 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 
 		return false;
 	}
-
-	// ----- nested classes -----
-	protected class CachedQueryResult implements QueryResult<T> {
-
-		private Collection<T> result = null;
-
-		public CachedQueryResult(final Iterable<T> source) {
-
-			if (source instanceof Collection) {
-
-				this.result = (Collection)source;
-
-			} else {
-
-				this.result = Iterables.toList(source);
-
-			}
-		}
-
-		@Override
-		public void close() {
-		}
-
-		@Override
-		public Iterator<T> iterator() {
-			return result.iterator();
-		}
-
-		public boolean isEmpty() {
-			return result.isEmpty();
-		}
-	}
 }
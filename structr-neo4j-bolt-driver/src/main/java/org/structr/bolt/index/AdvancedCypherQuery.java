@@ -19,11 +19,13 @@
 package org.structr.bolt.index;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import org.structr.api.search.SortType;
 
 /**
@@ -33,6 +35,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 	private final Map<String, Object> parameters = new HashMap<>();
 	private final List<String> typeLabels        = new LinkedList<>();
+	private final Set<String> propertyKeys       = new HashSet<>();
 	private final StringBuilder buffer           = new StringBuilder();
 	private String sourceTypeLabel               = null;
 	private String targetTypeLabel               = null;
@@ -40,6 +43,10 @@ public class AdvancedCypherQuery implements PageableQuery {
 	private boolean sortDescending               = false;
 	private SortType sortType                    = null;
 	private String sortKey                       = null;
+	private Object cursorValue                   = null;
+	private String cursorId                      = null;
+	private int offset                           = 0;
+	private int limit                            = -1;
 	private int page                             = 0;
 	private int pageSize                         = 0;
 	private int count                            = 0;
@@ -95,10 +102,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 				buf.append(index.getQueryPrefix(null, sourceTypeLabel, targetTypeLabel));
 
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
+				appendWhereClause(buf);
 
 				buf.append(index.getQuerySuffix());
 				break;
@@ -107,10 +111,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 				buf.append(index.getQueryPrefix(typeLabels.get(0), sourceTypeLabel, targetTypeLabel));
 
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
+				appendWhereClause(buf);
 
 				buf.append(index.getQuerySuffix());
 				break;
@@ -122,10 +123,7 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 					buf.append(index.getQueryPrefix(it.next(), sourceTypeLabel, targetTypeLabel));
 
-					if (buffer.length() > 0) {
-						buf.append(" WHERE ");
-						buf.append(buffer);
-					}
+					appendWhereClause(buf);
 
 					buf.append(index.getQuerySuffix());
 
@@ -163,21 +161,190 @@ public class AdvancedCypherQuery implements PageableQuery {
 			if (sortDescending) {
 				buf.append(" DESC");
 			}
+
+			// windows and keyset pagination need a unique sort order
+			if (cursorId != null || limit >= 0) {
+
+				buf.append(", n.id");
+
+				if (sortDescending) {
+					buf.append(" DESC");
+				}
+			}
+
+		} else if (cursorId != null) {
+
+			buf.append(" ORDER BY n.id");
+
+			if (sortDescending) {
+				buf.append(" DESC");
+			}
+		}
+
+		if (limit >= 0) {
+
+			final int start = page * pageSize;
+
+			buf.append(" SKIP ");
+			buf.append(offset + start);
+			buf.append(" LIMIT ");
+			buf.append(Math.max(0, Math.min(pageSize, limit - start)));
+
+		} else {
+
+			buf.append(" SKIP ");
+			buf.append(page * pageSize);
+			buf.append(" LIMIT ");
+			buf.append(pageSize);
 		}
 
-		buf.append(" SKIP ");
-		buf.append(page * pageSize);
-		buf.append(" LIMIT ");
-		buf.append(pageSize);
+		return buf.toString();
+	}
+
+	/**
+	 * Returns a statement that counts the distinct results of this query,
+	 * ignoring sort order and window. Must not be used for UNION queries.
+	 *
+	 * @return the count statement
+	 */
+	public String getCountStatement() {
+
+		final StringBuilder buf = new StringBuilder();
+		final String typeLabel  = typeLabels.isEmpty() ? null : typeLabels.get(0);
+
+		buf.append(index.getQueryPrefix(typeLabel, sourceTypeLabel, targetTypeLabel));
+
+		appendWhereClause(buf);
+
+		buf.append(" RETURN count(DISTINCT n)");
 
 		return buf.toString();
 	}
 
+	/**
+	 * Restricts the result of this query to at most <code>limit</code>
+	 * elements, starting at <code>offset</code>.
+	 *
+	 * @param offset
+	 * @param limit
+	 */
+	public void window(final int offset, final int limit) {
+
+		this.pageSize = Math.max(1, Math.min(pageSize, limit));
+		this.offset   = offset;
+		this.limit    = limit;
+	}
+
+	/**
+	 * Restricts the result of this query to the elements that follow the
+	 * element with the given sort value and UUID in the sort order.
+	 *
+	 * @param sortValue
+	 * @param uuid
+	 */
+	public void after(final Object sortValue, final String uuid) {
+
+		this.cursorValue = sortValue;
+		this.cursorId    = uuid;
+
+		parameters.put("cursorValue", sortValue);
+		parameters.put("cursorId", uuid);
+
+		propertyKeys.add("id");
+	}
+
 	@Override
 	public Map<String, Object> getParameters() {
 		return parameters;
 	}
 
+	// ----- private methods -----
+	private void appendWhereClause(final StringBuilder buf) {
+
+		final boolean hasCursor = cursorId != null;
+
+		if (buffer.length() > 0 || hasCursor) {
+
+			buf.append(" WHERE ");
+
+			if (buffer.length() > 0) {
+
+				if (hasCursor) {
+
+					buf.append("(");
+					buf.append(buffer);
+					buf.append(") AND ");
+
+				} else {
+
+					buf.append(buffer);
+				}
+			}
+
+			if (hasCursor) {
+
+				appendCursorCondition(buf);
+			}
+		}
+	}
+
+	private void appendCursorCondition(final StringBuilder buf) {
+
+		final String operator = sortDescending ? " < " : " > ";
+
+		if (sortKey != null && cursorValue != null) {
+
+			final String value = getSortExpression();
+
+			buf.append("(");
+			buf.append(value);
+			buf.append(operator);
+			buf.append("{cursorValue} OR (");
+			buf.append(value);
+			buf.append(" = {cursorValue} AND n.id");
+			buf.append(operator);
+			buf.append("{cursorId}))");
+
+		} else if (sortKey != null) {
+
+			// no sort value: COALESCE maps missing values to the minimum
+			final String value = getSortExpression();
+
+			buf.append("(");
+			buf.append(value);
+			buf.append(operator);
+			buf.append(getSortDefault());
+			buf.append(" OR (");
+			buf.append(value);
+			buf.append(" = ");
+			buf.append(getSortDefault());
+			buf.append(" AND n.id");
+			buf.append(operator);
+			buf.append("{cursorId}))");
+
+		} else {
+
+			buf.append("n.id");
+			buf.append(operator);
+			buf.append("{cursorId}");
+		}
+	}
+
+	private String getSortExpression() {
+		return "COALESCE(n.`" + sortKey + "`, " + getSortDefault() + ")";
+	}
+
+	private String getSortDefault() {
+
+		// COALESCE needs a correctly typed minimum value
+		if (SortType.Default.equals(sortType)) {
+			return "''";
+		}
+
+		return "-1";
+	}
+
+	// ----- public methods -----
 	public void beginGroup() {
 		buffer.append("(");
 	}
@@ -210,12 +377,57 @@ public class AdvancedCypherQuery implements PageableQuery {
 		this.typeLabels.add(typeLabel);
 	}
 
+	/**
+	 * Indicates whether this query is a UNION of several type queries.
+	 * SKIP, LIMIT and ORDER BY only apply to the last part of a UNION, so
+	 * windows must not be pushed into the statement in that case.
+	 *
+	 * @return whether this query is a UNION
+	 */
+	public boolean isUnion() {
+		return typeLabels.size() > 1;
+	}
+
+	/**
+	 * Returns the labels (or relationship types) this query depends on,
+	 * an empty set means that the query depends on all labels.
+	 *
+	 * @return the labels this query depends on
+	 */
+	public Set<String> getDependencyLabels() {
+
+		final Set<String> labels = new HashSet<>(typeLabels);
+
+		if (sourceTypeLabel != null) {
+			labels.add(sourceTypeLabel);
+		}
+
+		if (targetTypeLabel != null) {
+			labels.add(targetTypeLabel);
+		}
+
+		return labels;
+	}
+
+	/**
+	 * Returns the property keys this query uses for filtering and sorting.
+	 *
+	 * @return the property keys this query depends on
+	 */
+	public Set<String> getDependencyKeys() {
+		return propertyKeys;
+	}
+
 	public void addSimpleParameter(final String key, final String operator, final Object value) {
 		addSimpleParameter(key, operator, value, true);
 	}
 
 	public void addSimpleParameter(final String key, final String operator, final Object value, final boolean isProperty) {
 
+		if (isProperty) {
+			propertyKeys.add(key);
+		}
+
 		if (value != null) {
 
 			final String paramKey = "param" + count++;
@@ -261,6 +473,8 @@ public class AdvancedCypherQuery implements PageableQuery {
 
 	public void addListParameter(final String key, final String operator, final Object value) {
 
+		propertyKeys.add(key);
+
 		if (value != null) {
 
 			final String paramKey = "param" + count++;
@@ -290,6 +504,8 @@ public class AdvancedCypherQuery implements PageableQuery {
 		final String paramKey1 = "param" + count++;
 		final String paramKey2 = "param" + count++;
 
+		propertyKeys.add(key);
+
 		buffer.append("(n.`");
 		buffer.append(key);
 		buffer.append("` ");
@@ -315,6 +531,10 @@ public class AdvancedCypherQuery implements PageableQuery {
 		this.sortDescending = sortDescending;
 		this.sortType       = sortType;
 		this.sortKey        = sortKey;
+
+		if (sortKey != null) {
+			propertyKeys.add(sortKey);
+		}
 	}
 
 	public void setSourceType(final String sourceTypeLabel) {
@@ -0,0 +1,350 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.api.QueryResult;
+import org.structr.api.util.Cachable;
+import org.structr.api.util.FixedSizeCache;
+
+/**
+ * A query result cache that records the labels and property keys each
+ * cached query depends on, so that a committing transaction only evicts
+ * the entries whose dependencies intersect with the labels and keys it
+ * has modified.
+ *
+ * @param <T>
+ */
+public class QueryCache<T> {
+
+	/**
+	 * Placeholder key that marks a structural modification (creation,
+	 * deletion or label change) of an entity with a given label. A
+	 * structural modification affects all queries for that label.
+	 */
+	public static final String ANY_KEY          = "*";
+
+	/**
+	 * Placeholder label for queries that are not restricted to a label.
+	 */
+	private static final String ANY_LABEL       = "*";
+	private static final int MAX_RESULT_SIZE    = 10000;
+
+	private final Map<String, Set<Integer>> dependencies = new ConcurrentHashMap<>();
+	private final AtomicLong generation                  = new AtomicLong();
+	private final AtomicLong invalidations               = new AtomicLong();
+	private final AtomicLong evictions                   = new AtomicLong();
+	private final AtomicLong misses                      = new AtomicLong();
+	private final AtomicLong hits                        = new AtomicLong();
+	private FixedSizeCache<Integer, CachedQueryResult> cache = null;
+
+	public QueryCache(final int maxSize) {
+		this.cache = new FixedSizeCache<>(maxSize);
+	}
+
+	/**
+	 * Returns the current invalidation generation. Callers must obtain the
+	 * generation <b>before</b> they run a query whose result they want to
+	 * put into the cache, so that results which were computed concurrently
+	 * to an invalidation are not stored.
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	public QueryResult<T> get(final int key) {
+
+		final CachedQueryResult result = cache.get(key);
+		if (result != null) {
+
+			hits.incrementAndGet();
+			return result;
+		}
+
+		misses.incrementAndGet();
+
+		return null;
+	}
+
+	/**
+	 * Wraps the given source so that the elements are recorded while the
+	 * caller iterates over them. The recorded result is stored in this
+	 * cache when the source is exhausted and no invalidation took place
+	 * since the given generation.
+	 *
+	 * @param key
+	 * @param generation
+	 * @param labels the labels the query depends on, empty for all labels
+	 * @param keys the property keys the query depends on
+	 * @param source
+	 *
+	 * @return a query result that records its elements
+	 */
+	public QueryResult<T> record(final int key, final long generation, final Collection<String> labels, final Collection<String> keys, final QueryResult<T> source) {
+		return new RecordingQueryResult(key, generation, labels, keys, source);
+	}
+
+	/**
+	 * Removes all entries that depend on at least one of the given
+	 * modifications.
+	 *
+	 * @param modifications the modified property keys, grouped by label
+	 */
+	public void invalidate(final Map<String, Set<String>> modifications) {
+
+		if (modifications.isEmpty()) {
+			return;
+		}
+
+		// advance generation before scanning the dependencies
+		generation.incrementAndGet();
+
+		final Set<Integer> candidates = new HashSet<>();
+
+		collect(candidates, ANY_LABEL);
+
+		for (final String label : modifications.keySet()) {
+			collect(candidates, label);
+		}
+
+		for (final Integer candidate : candidates) {
+
+			final CachedQueryResult result = cache.get(candidate);
+			if (result != null && result.dependsOn(modifications)) {
+
+				remove(result);
+				invalidations.incrementAndGet();
+			}
+		}
+	}
+
+	public void clear() {
+
+		generation.incrementAndGet();
+
+		cache.clear();
+		dependencies.clear();
+	}
+
+	public boolean isEmpty() {
+		return cache.isEmpty();
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",          Long.valueOf(cache.size()));
+		statistics.put("hits",          hits.get());
+		statistics.put("misses",        misses.get());
+		statistics.put("evictions",     evictions.get());
+		statistics.put("invalidations", invalidations.get());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private void collect(final Set<Integer> candidates, final String label) {
+
+		final Set<Integer> keys = dependencies.get(label);
+		if (keys != null) {
+
+			candidates.addAll(keys);
+		}
+	}
+
+	private void put(final CachedQueryResult result, final long expectedGeneration) {
+
+		if (generation.get() != expectedGeneration) {
+			return;
+		}
+
+		for (final String label : result.getDependencyLabels()) {
+			dependencies.computeIfAbsent(label, k -> ConcurrentHashMap.newKeySet()).add(result.key);
+		}
+
+		cache.put(result.key, result);
+
+		// an invalidation that happened in the meantime could have missed
+		// the new entry, so we need to check the generation again.
+		if (generation.get() != expectedGeneration) {
+			remove(result);
+		}
+	}
+
+	private void remove(final CachedQueryResult result) {
+
+		cache.remove(result.key);
+		unregister(result);
+	}
+
+	private void unregister(final CachedQueryResult result) {
+
+		for (final String label : result.getDependencyLabels()) {
+
+			final Set<Integer> keys = dependencies.get(label);
+			if (keys != null) {
+
+				keys.remove(result.key);
+			}
+		}
+	}
+
+	// ----- nested classes -----
+	private class CachedQueryResult implements QueryResult<T>, Cachable {
+
+		private Set<String> labels = null;
+		private Set<String> keys   = null;
+		private List<T> result     = null;
+		private int key            = 0;
+
+		public CachedQueryResult(final int key, final Collection<String> labels, final Collection<String> keys, final List<T> result) {
+
+			this.labels = new HashSet<>(labels);
+			this.keys   = new HashSet<>(keys);
+			this.result = Collections.unmodifiableList(result);
+			this.key    = key;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return result.iterator();
+		}
+
+		@Override
+		public void onRemoveFromCache() {
+
+			evictions.incrementAndGet();
+			unregister(this);
+		}
+
+		public Set<String> getDependencyLabels() {
+
+			if (labels.isEmpty()) {
+				return Collections.singleton(ANY_LABEL);
+			}
+
+			return labels;
+		}
+
+		public boolean dependsOn(final Map<String, Set<String>> modifications) {
+
+			for (final String label : labels.isEmpty() ? modifications.keySet() : labels) {
+
+				final Set<String> modifiedKeys = modifications.get(label);
+				if (modifiedKeys != null) {
+
+					if (modifiedKeys.contains(ANY_KEY) || !Collections.disjoint(modifiedKeys, keys)) {
+						return true;
+					}
+				}
+			}
+
+			return false;
+		}
+	}
+
+	private class RecordingQueryResult implements QueryResult<T> {
+
+		private final List<T> recorded    = new ArrayList<>();
+		private Collection<String> labels = null;
+		private Collection<String> keys   = null;
+		private QueryResult<T> source     = null;
+		private long generation           = 0L;
+		private int key                   = 0;
+
+		public RecordingQueryResult(final int key, final long generation, final Collection<String> labels, final Collection<String> keys, final QueryResult<T> source) {
+
+			this.generation = generation;
+			this.labels     = labels;
+			this.source     = source;
+			this.keys       = keys;
+			this.key        = key;
+		}
+
+		@Override
+		public void close() {
+			source.close();
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+
+			final Iterator<T> iterator = source.iterator();
+
+			return new Iterator<T>() {
+
+				private boolean overflow = false;
+				private boolean done     = false;
+
+				@Override
+				public boolean hasNext() {
+
+					final boolean hasNext = iterator.hasNext();
+					if (!hasNext && !done && !overflow) {
+
+						// result is complete, store it
+						put(new CachedQueryResult(key, labels, keys, recorded), generation);
+						done = true;
+					}
+
+					return hasNext;
+				}
+
+				@Override
+				public T next() {
+
+					final T next = iterator.next();
+
+					if (!overflow) {
+
+						if (recorded.size() < MAX_RESULT_SIZE) {
+
+							recorded.add(next);
+
+						} else {
+
+							// result too large to be cached
+							recorded.clear();
+							overflow = true;
+						}
+					}
+
+					return next;
+				}
+			};
+		}
+	}
+}
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.neo4j.driver.v1.exceptions.NoSuchRecordException;
 import org.neo4j.driver.v1.types.Entity;
@@ -42,7 +43,7 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 	protected final Map<String, Object> data = new ConcurrentHashMap<>();
 	protected BoltDatabaseService db         = null;
-	protected boolean stale                  = false;
+	protected volatile boolean stale         = false;
 	protected long id                        = -1L;
 
 	public EntityWrapper(final BoltDatabaseService db, final T entity) {
@@ -55,6 +56,14 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 	protected abstract String getQueryPrefix();
 	public abstract void clearCaches();
 
+	/**
+	 * Returns the labels (or the type) of this entity that query cache
+	 * entries can depend on.
+	 *
+	 * @return the label names of this entity
+	 */
+	public abstract Set<String> getLabelNames();
+
 	@Override
 	public long getId() {
 		return id;
@@ -123,17 +132,13 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		// only update values if actually different from what is stored
 		if (differentValue(key, value)) {
 
-			final Map<String, Object> map = new HashMap<>();
-			final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n.`" + key + "` = {value}";
-
-			map.put("id", id);
-			map.put("value", value);
-
-			// update entity handle
-			tx.set(query, map);
+			// buffer modification, will be sent with the next statement
+			tx.setProperty(this, key, value);
 
 			// update data
 			update(key, value);
+
+			tx.modified(this, key);
 		}
 
 		// mark node as modified
@@ -145,16 +150,14 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>(values);
-		final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n += {properties}";
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-		// overwrite a potential "id" property
-		map.put("id", id);
-		map.put("properties", values);
+		// buffer modifications, will be sent with the next statement
+		for (final Map.Entry<String, Object> entry : values.entrySet()) {
 
-		// execute query
-		tx.set(query, map);
+			tx.setProperty(this, entry.getKey(), entry.getValue());
+			tx.modified(this, entry.getKey());
+		}
 
 		// update data
 		update(values);
@@ -167,19 +170,15 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
-		final String query            = getQueryPrefix() + " WHERE ID(n) = {id} SET n.`" + key + "` = Null";
-
-		map.put("id", id);
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-		// execute query
-		tx.set(query, map);
+		// buffer modification, a null value removes the property
+		tx.setProperty(this, key, null);
 
 		// remove key from data
 		data.remove(key);
 
-		tx.modified(this);
+		tx.modified(this, key);
 	}
 
 	@Override
@@ -201,7 +200,7 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 		map.put("id", id);
 
 		tx.set(getQueryPrefix() + " WHERE ID(n) = {id} DELETE n", map);
-		tx.modified(this);
+		tx.structureModified(this);
 
 		stale = true;
 	}
@@ -220,32 +219,44 @@ public abstract class EntityWrapper<T extends Entity> implements PropertyContain
 	}
 
 	// ----- protected methods -----
-	protected synchronized void assertNotStale() {
+	protected void assertNotStale() {
 
 		if (stale) {
 
-			// invalidate caches
-			onRemoveFromCache();
+			final SessionTransaction tx = db.getCurrentTransaction();
 
-			// if a node/rel was deleted in a previous transaction but the caller keeps a
-			// reference to this entity, we need to make sure that the reference is fresh.
+			// Buffered writes must be sent before the monitor is acquired,
+			// otherwise we could wait for a database lock while holding
+			// the monitor another transaction needs to release that lock.
+			tx.flush();
 
-			final SessionTransaction tx   = db.getCurrentTransaction();
-			final Map<String, Object> map = new HashMap<>();
+			synchronized (this) {
 
-			map.put("id", id);
+				if (stale) {
 
-			try {
+					// invalidate caches
+					onRemoveFromCache();
 
-				// update data
-				data.clear();
-				update(tx.getEntity(getQueryPrefix() + " WHERE ID(n) = {id} RETURN n", map).asMap());
+					// if a node/rel was deleted in a previous transaction but the caller keeps a
+					// reference to this entity, we need to make sure that the reference is fresh.
 
-			} catch (NoSuchRecordException nex) {
-				throw new NotFoundException(nex);
-			}
+					final Map<String, Object> map = new HashMap<>();
+
+					map.put("id", id);
 
-			stale  = false;
+					try {
+
+						// update data
+						data.clear();
+						update(tx.getEntity(getQueryPrefix() + " WHERE ID(n) = {id} RETURN n", map).asMap());
+
+					} catch (NoSuchRecordException nex) {
+						throw new NotFoundException(nex);
+					}
+
+					stale  = false;
+				}
+			}
 		}
 	}
 
@@ -18,17 +18,23 @@
  */
 package org.structr.bolt.wrapper;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.structr.api.graph.Direction;
 import org.structr.api.graph.Label;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
-import org.structr.api.util.FixedSizeCache;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.api.util.Iterables;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.SessionTransaction;
@@ -39,15 +45,27 @@ import org.structr.bolt.mapper.RelationshipRelationshipMapper;
  */
 public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> implements Node {
 
-	private final Map<String, Map<String, List<Relationship>>> relationshipCache = new HashMap<>();
-	private static FixedSizeCache<Long, NodeWrapper> nodeCache                   = null;
+	/**
+	 * The maximum number of relationships that are loaded by a single call
+	 * to {@link #prefetchRelationships}.
+	 */
+	public static final int MAX_PREFETCHED_RELATIONSHIPS = 10000;
+
+	private final Map<String, Map<String, List<Relationship>>> relationshipCache = new ConcurrentHashMap<>();
+	private final Set<String> labels                                             = ConcurrentHashMap.newKeySet();
+	private static ConcurrentFixedSizeCache<Long, NodeWrapper> nodeCache         = null;
 
 	private NodeWrapper(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Node node) {
+
 		super(db, node);
+
+		for (final String label : node.labels()) {
+			labels.add(label);
+		}
 	}
 
 	public static void initialize(final int cacheSize) {
-		nodeCache = new FixedSizeCache<>(cacheSize);
+		nodeCache = new ConcurrentFixedSizeCache<>(cacheSize);
 	}
 
 	@Override
@@ -66,6 +84,11 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		relationshipCache.clear();
 	}
 
+	@Override
+	public Set<String> getLabelNames() {
+		return labels;
+	}
+
 	@Override
 	public Relationship createRelationshipTo(final Node endNode, final RelationshipType relationshipType) {
 		return createRelationshipTo(endNode, relationshipType, Collections.EMPTY_MAP);
@@ -97,7 +120,11 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		((NodeWrapper)endNode).relationshipCache.clear();
 		relationshipCache.clear();
 
-		return RelationshipWrapper.newInstance(db, rel);
+		final RelationshipWrapper relationship = RelationshipWrapper.newInstance(db, rel);
+
+		tx.structureModified(relationship);
+
+		return relationship;
 	}
 
 	@Override
@@ -105,13 +132,12 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-		map.put("id", id);
+		tx.addLabel(this, label.name());
 
-		tx.set("MATCH (n) WHERE ID(n) = {id} SET n :" + label.name(), map);
-		tx.modified(this);
+		labels.add(label.name());
+		tx.structureModified(this);
 	}
 
 	@Override
@@ -119,13 +145,13 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-		map.put("id", id);
+		tx.removeLabel(this, label.name());
 
-		tx.set("MATCH (n) WHERE ID(n) = {id} REMOVE n:" + label.name(), map);
-		tx.modified(this);
+		// register modification before the label is removed
+		tx.structureModified(this);
+		labels.remove(label.name());
 	}
 
 	@Override
@@ -179,6 +205,12 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		final RelationshipRelationshipMapper mapper = new RelationshipRelationshipMapper(db);
 		List<Relationship> list                     = getList(direction, null);
 
+		if (list == null && !Direction.BOTH.equals(direction)) {
+
+			// derive list from prefetched relationships if possible
+			list = filter(direction, null);
+		}
+
 		if (list == null) {
 
 			final SessionTransaction tx   = db.getCurrentTransaction();
@@ -215,6 +247,12 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		final RelationshipRelationshipMapper mapper = new RelationshipRelationshipMapper(db);
 		List<Relationship> list                     = getList(direction, relationshipType);
 
+		if (list == null) {
+
+			// derive list from prefetched relationships if possible
+			list = filter(direction, relationshipType);
+		}
+
 		if (list == null) {
 
 			final SessionTransaction tx   = db.getCurrentTransaction();
@@ -257,52 +295,154 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 	// ----- public static methods -----
 	public static NodeWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Node node) {
 
-		synchronized (nodeCache) {
+		final NodeWrapper wrapper = nodeCache.get(node.id());
+		if (wrapper != null) {
 
-			NodeWrapper wrapper = nodeCache.get(node.id());
-			if (wrapper == null) {
+			return wrapper;
+		}
 
-				wrapper = new NodeWrapper(db, node);
-				nodeCache.put(node.id(), wrapper);
-			}
+		// another thread may have cached the same node in the meantime
+		return nodeCache.putIfAbsent(node.id(), new NodeWrapper(db, node));
+	}
+
+	public static NodeWrapper newInstance(final BoltDatabaseService db, final long id) {
+
+		final NodeWrapper wrapper = nodeCache.get(id);
+		if (wrapper != null) {
 
 			return wrapper;
 		}
+
+		final SessionTransaction tx   = db.getCurrentTransaction();
+		final Map<String, Object> map = new HashMap<>();
+
+		map.put("id", id);
+
+		// load node outside of any cache lock
+		final NodeWrapper loaded = new NodeWrapper(db, tx.getNode("MATCH (n) WHERE ID(n) = {id} RETURN n", map));
+
+		return nodeCache.putIfAbsent(id, loaded);
 	}
 
-	public static NodeWrapper newInstance(final BoltDatabaseService db, final long id) {
+	/**
+	 * Loads the relationships of the given types and direction of all
+	 * given nodes in a single statement and stores them in the
+	 * relationship cache of each node. Nodes whose relationships of these
+	 * types are already cached are skipped. If the nodes have more than
+	 * {@link #MAX_PREFETCHED_RELATIONSHIPS} matching relationships, nothing
+	 * is cached and the relationships are loaded on demand.
+	 *
+	 * @param db
+	 * @param nodes
+	 * @param direction
+	 * @param types
+	 */
+	public static void prefetchRelationships(final BoltDatabaseService db, final Iterable<Node> nodes, final Direction direction, final Set<String> types) {
+
+		final Map<Long, Map<String, List<Relationship>>> adjacency = new LinkedHashMap<>();
+		final Map<Long, NodeWrapper> wrappers                      = new LinkedHashMap<>();
+
+		if (types.isEmpty()) {
+			return;
+		}
 
-		synchronized (nodeCache) {
+		for (final Node node : nodes) {
 
-			NodeWrapper wrapper = nodeCache.get(id);
-			if (wrapper == null) {
+			if (node instanceof NodeWrapper) {
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
+				final NodeWrapper wrapper = (NodeWrapper)node;
+				if (!wrapper.isStale() && !wrapper.getCache(direction).keySet().containsAll(types)) {
 
-				map.put("id", id);
+					final Map<String, List<Relationship>> lists = new LinkedHashMap<>();
 
-				wrapper = new NodeWrapper(db, tx.getNode("MATCH (n) WHERE ID(n) = {id} RETURN n", map));
-				nodeCache.put(id, wrapper);
+					for (final String type : types) {
+						lists.put(type, new ArrayList<>());
+					}
+
+					adjacency.put(wrapper.id, lists);
+					wrappers.put(wrapper.id, wrapper);
+				}
 			}
+		}
 
-			return wrapper;
+		if (wrappers.isEmpty()) {
+			return;
 		}
-	}
 
-	// ----- private methods -----
-	private Map<String, List<Relationship>> getCache(final Direction direction) {
+		final RelationshipRelationshipMapper mapper = new RelationshipRelationshipMapper(db);
+		final SessionTransaction tx                 = db.getCurrentTransaction();
+		final Map<String, Object> map               = new HashMap<>();
+		final StringBuilder buf                     = new StringBuilder("MATCH (n)");
+		final List<Relationship> relationships      = new ArrayList<>();
+
+		buf.append(Direction.INCOMING.equals(direction) ? "<-" : "-");
+		buf.append("[r:");
+		buf.append(types.stream().map(type -> "`" + type + "`").collect(Collectors.joining("|")));
+		buf.append("]");
+		buf.append(Direction.OUTGOING.equals(direction) ? "->" : "-");
+		buf.append("() WHERE ID(n) IN {ids} RETURN DISTINCT r LIMIT {limit}");
+
+		map.put("ids", new ArrayList<>(wrappers.keySet()));
+		map.put("limit", MAX_PREFETCHED_RELATIONSHIPS + 1);
+
+		for (final Relationship relationship : Iterables.map(mapper, tx.getRelationships(buf.toString(), map))) {
+			relationships.add(relationship);
+		}
 
-		final String key              = direction != null ? direction.name() : "*";
-		Map<String, List<Relationship>> cache = relationshipCache.get(key);
+		// incomplete lists must not be cached
+		if (relationships.size() > MAX_PREFETCHED_RELATIONSHIPS) {
+			return;
+		}
+
+		for (final Relationship relationship : relationships) {
+
+			final RelationshipWrapper wrapper = (RelationshipWrapper)relationship;
+			final String type                 = wrapper.getType().name();
+			final long sourceId               = wrapper.getSourceNodeId();
+			final long targetId               = wrapper.getTargetNodeId();
 
-		if (cache == null) {
+			if (!Direction.INCOMING.equals(direction)) {
 
-			cache = new HashMap<>();
-			relationshipCache.put(key, cache);
+				final Map<String, List<Relationship>> outgoing = adjacency.get(sourceId);
+				if (outgoing != null) {
+
+					outgoing.get(type).add(relationship);
+				}
+			}
+
+			if (!Direction.OUTGOING.equals(direction) && !(Direction.BOTH.equals(direction) && sourceId == targetId)) {
+
+				final Map<String, List<Relationship>> incoming = adjacency.get(targetId);
+				if (incoming != null) {
+
+					incoming.get(type).add(relationship);
+				}
+			}
+		}
+
+		for (final Entry<Long, NodeWrapper> entry : wrappers.entrySet()) {
+
+			entry.getValue().getCache(direction).putAll(adjacency.get(entry.getKey()));
 		}
+	}
 
-		return cache;
+	/**
+	 * Returns the cached wrapper for the given id without loading it
+	 * from the database.
+	 *
+	 * @param id
+	 * @return the cached wrapper or null
+	 */
+	public static NodeWrapper getCachedInstance(final long id) {
+		return nodeCache.get(id);
+	}
+
+	// ----- private methods -----
+	private Map<String, List<Relationship>> getCache(final Direction direction) {
+
+		final String key = direction != null ? direction.name() : "*";
+
+		return relationshipCache.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
 	}
 
 	private List<Relationship> getList(final Direction direction, final RelationshipType relType) {
@@ -313,6 +453,48 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 		return cache.get(key);
 	}
 
+	private List<Relationship> filter(final Direction direction, final RelationshipType relType) {
+
+		final List<Relationship> all = getList(null, null);
+		if (all != null) {
+
+			final String type             = relType != null ? relType.name() : null;
+			final List<Relationship> list = new ArrayList<>();
+
+			for (final Relationship relationship : all) {
+
+				final RelationshipWrapper wrapper = (RelationshipWrapper)relationship;
+
+				if (type != null && !type.equals(wrapper.getType().name())) {
+					continue;
+				}
+
+				switch (direction) {
+
+					case OUTGOING:
+						if (wrapper.getSourceNodeId() != id) {
+							continue;
+						}
+						break;
+
+					case INCOMING:
+						if (wrapper.getTargetNodeId() != id) {
+							continue;
+						}
+						break;
+				}
+
+				list.add(relationship);
+			}
+
+			setList(direction, relType, list);
+
+			return list;
+		}
+
+		return null;
+	}
+
 	private void setList(final Direction direction, final RelationshipType relType, final List<Relationship> list) {
 
 		final String key                    = relType != null ? relType.name() : "*";
@@ -18,13 +18,15 @@
  */
 package org.structr.bolt.wrapper;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import org.structr.api.NotFoundException;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
-import org.structr.api.util.FixedSizeCache;
+import org.structr.api.util.ConcurrentFixedSizeCache;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.SessionTransaction;
 
@@ -33,7 +35,7 @@ import org.structr.bolt.SessionTransaction;
  */
 public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Relationship> implements Relationship {
 
-	private static FixedSizeCache<Long, RelationshipWrapper> relationshipCache = null;
+	private static ConcurrentFixedSizeCache<Long, RelationshipWrapper> relationshipCache = null;
 
 	private long sourceNodeId = -1L;
 	private long targetNodeId = -1L;
@@ -49,7 +51,7 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	}
 
 	public static void initialize(final int cacheSize) {
-		relationshipCache = new FixedSizeCache<>(cacheSize);
+		relationshipCache = new ConcurrentFixedSizeCache<>(cacheSize);
 	}
 
 	@Override
@@ -60,21 +62,19 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	@Override
 	public void onRemoveFromCache() {
 
-		try {
-
-			final NodeWrapper startNode = (NodeWrapper)getStartNode();
-			if (startNode != null) {
-
-				startNode.onRemoveFromCache();
-			}
+		// only notify nodes that are cached, there is no need
+		// to load a node just to clear its relationship cache
+		final NodeWrapper startNode = NodeWrapper.getCachedInstance(sourceNodeId);
+		if (startNode != null) {
 
-			final NodeWrapper endNode = (NodeWrapper)getEndNode();
-			if (endNode != null) {
+			startNode.onRemoveFromCache();
+		}
 
-				endNode.onRemoveFromCache();
-			}
+		final NodeWrapper endNode = NodeWrapper.getCachedInstance(targetNodeId);
+		if (endNode != null) {
 
-		} catch (Throwable t) {}
+			endNode.onRemoveFromCache();
+		}
 
 		stale = true;
 	}
@@ -83,6 +83,11 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	public void clearCaches() {
 	}
 
+	@Override
+	public Set<String> getLabelNames() {
+		return Collections.singleton(type);
+	}
+
 	@Override
 	public Node getStartNode() {
 
@@ -113,6 +118,14 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 		return getStartNode();
 	}
 
+	public long getSourceNodeId() {
+		return sourceNodeId;
+	}
+
+	public long getTargetNodeId() {
+		return targetNodeId;
+	}
+
 	@Override
 	public RelationshipType getType() {
 		return db.forName(RelationshipType.class, type);
@@ -144,36 +157,32 @@ public class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.v1.types
 	// ----- public static methods -----
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.v1.types.Relationship relationship) {
 
-		synchronized (relationshipCache) {
-
-			RelationshipWrapper wrapper = relationshipCache.get(relationship.id());
-			if (wrapper == null) {
-
-				wrapper = new RelationshipWrapper(db, relationship);
-				relationshipCache.put(relationship.id(), wrapper);
-			}
+		final RelationshipWrapper wrapper = relationshipCache.get(relationship.id());
+		if (wrapper != null) {
 
 			return wrapper;
 		}
+
+		// another thread may have cached the same relationship in the meantime
+		return relationshipCache.putIfAbsent(relationship.id(), new RelationshipWrapper(db, relationship));
 	}
 
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final long id) {
 
-		synchronized (relationshipCache) {
+		final RelationshipWrapper wrapper = relationshipCache.get(id);
+		if (wrapper != null) {
 
-			RelationshipWrapper wrapper = relationshipCache.get(id);
-			if (wrapper == null) {
+			return wrapper;
+		}
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
+		final SessionTransaction tx   = db.getCurrentTransaction();
+		final Map<String, Object> map = new HashMap<>();
 
-				map.put("id", id);
+		map.put("id", id);
 
-				wrapper = new RelationshipWrapper(db, tx.getRelationship("MATCH ()-[n]-() WHERE ID(n) = {id} RETURN n", map));
-				relationshipCache.put(id, wrapper);
-			}
+		// load relationship outside of any cache lock
+		final RelationshipWrapper loaded = new RelationshipWrapper(db, tx.getRelationship("MATCH ()-[n]-() WHERE ID(n) = {id} RETURN n", map));
 
-			return wrapper;
-		}
+		return relationshipCache.putIfAbsent(id, loaded);
 	}
 }
@@ -20,7 +20,9 @@ package org.structr.bolt;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import org.junit.Assert;
 import static org.junit.Assert.fail;
@@ -29,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.Transaction;
 import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
@@ -167,4 +170,66 @@ public class NodeWrapperTest {
 		s.shutdown();
 	}
 
+	@Test
+	public void testPrefetchRelationships() {
+
+		try {
+
+			Settings.DatabasePath.setValue(Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+			Settings.ConnectionUrl.setValue(Settings.TestingConnectionUrl.getValue());
+
+		} catch (IOException ioex) {
+			logger.warn("", ioex);
+		}
+
+		final BoltDatabaseService s = new BoltDatabaseService();
+		s.initialize();
+
+		final RelationshipType test  = s.forName(RelationshipType.class, "TEST");
+		final RelationshipType other = s.forName(RelationshipType.class, "OTHER");
+		long id1                     = 0L;
+		long id2                     = 0L;
+		long id3                     = 0L;
+
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node1 = s.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+			final Node node2 = s.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+			final Node node3 = s.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+
+			node1.createRelationshipTo(node2, test);
+			node3.createRelationshipTo(node1, other);
+
+			id1 = node1.getId();
+			id2 = node2.getId();
+			id3 = node3.getId();
+
+			tx.success();
+		}
+
+		try (final Transaction tx = s.beginTx()) {
+
+			final Node node1 = s.getNodeById(id1);
+			final Node node2 = s.getNodeById(id2);
+			final Node node3 = s.getNodeById(id3);
+
+			s.prefetchRelationships(Arrays.asList(node1, node2, node3), Direction.INCOMING, new LinkedHashSet<>(Arrays.asList("TEST", "OTHER")));
+			s.prefetchRelationships(Arrays.asList(node1, node2, node3), Direction.OUTGOING, new LinkedHashSet<>(Arrays.asList("OTHER")));
+
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node1.getRelationships(Direction.INCOMING, other)));
+			Assert.assertEquals("Invalid prefetch result", 0, Iterables.count(node1.getRelationships(Direction.INCOMING, test)));
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node2.getRelationships(Direction.INCOMING, test)));
+			Assert.assertEquals("Invalid prefetch result", 0, Iterables.count(node2.getRelationships(Direction.INCOMING, other)));
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node3.getRelationships(Direction.OUTGOING, other)));
+			Assert.assertEquals("Invalid prefetch result", 0, Iterables.count(node1.getRelationships(Direction.OUTGOING, other)));
+
+			// types that were not prefetched are loaded on demand
+			Assert.assertEquals("Invalid prefetch result", 1, Iterables.count(node1.getRelationships(Direction.OUTGOING, test)));
+			Assert.assertEquals("Invalid prefetch result", 2, Iterables.count(node1.getRelationships()));
+
+			tx.success();
+		}
+
+		s.shutdown();
+	}
 }
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.structr.api.QueryResult;
+
+/**
+ *
+ */
+public class QueryCacheTest {
+
+	@Test
+	public void testInvalidationByLabelAndKey() {
+
+		final QueryCache<String> cache = new QueryCache<>(100);
+
+		consume(cache.record(1, cache.getGeneration(), set("User"),   set("name"),  result("a", "b")));
+		consume(cache.record(2, cache.getGeneration(), set("Folder"), set("name"),  result("c")));
+		consume(cache.record(3, cache.getGeneration(), set(),         set("email"), result("d")));
+
+		Assert.assertNotNull("Result should be cached", cache.get(1));
+		Assert.assertNotNull("Result should be cached", cache.get(2));
+		Assert.assertNotNull("Result should be cached", cache.get(3));
+
+		// modification of an unrelated key must not invalidate anything
+		cache.invalidate(modifications("User", "lastLoginDate"));
+
+		Assert.assertNotNull("Result should not be invalidated", cache.get(1));
+		Assert.assertNotNull("Result should not be invalidated", cache.get(2));
+		Assert.assertNotNull("Result should not be invalidated", cache.get(3));
+
+		// modification of User.name must only invalidate the User query
+		cache.invalidate(modifications("User", "name"));
+
+		Assert.assertNull("Result should be invalidated", cache.get(1));
+		Assert.assertNotNull("Result should not be invalidated", cache.get(2));
+		Assert.assertNotNull("Result should not be invalidated", cache.get(3));
+
+		// structural modification must invalidate unlabeled queries as well
+		cache.invalidate(modifications("Folder", QueryCache.ANY_KEY));
+
+		Assert.assertNull("Result should be invalidated", cache.get(2));
+		Assert.assertNull("Result should be invalidated", cache.get(3));
+
+		final Map<String, Long> statistics = cache.getStatistics();
+
+		Assert.assertEquals("Invalid number of invalidations", Long.valueOf(3), statistics.get("invalidations"));
+		Assert.assertEquals("Invalid number of cache hits",    Long.valueOf(8), statistics.get("hits"));
+	}
+
+	@Test
+	public void testConcurrentInvalidation() {
+
+		final QueryCache<String> cache = new QueryCache<>(100);
+		final long generation          = cache.getGeneration();
+
+		// invalidation between query start and caching
+		cache.invalidate(modifications("User", "name"));
+
+		consume(cache.record(1, generation, set("User"), set("name"), result("a")));
+
+		Assert.assertNull("Outdated result must not be cached", cache.get(1));
+	}
+
+	@Test
+	public void testIncompleteResultIsNotCached() {
+
+		final QueryCache<String> cache = new QueryCache<>(100);
+		final Iterator<String> it      = cache.record(1, cache.getGeneration(), set("User"), set("name"), result("a", "b")).iterator();
+
+		it.next();
+
+		Assert.assertNull("Incomplete result must not be cached", cache.get(1));
+	}
+
+	// ----- private methods -----
+	private void consume(final QueryResult<String> result) {
+
+		for (final Iterator<String> it = result.iterator(); it.hasNext();) {
+			it.next();
+		}
+	}
+
+	private Set<String> set(final String... values) {
+		return new HashSet<>(Arrays.asList(values));
+	}
+
+	private Map<String, Set<String>> modifications(final String label, final String key) {
+
+		final Map<String, Set<String>> map = new HashMap<>();
+
+		map.put(label, Collections.singleton(key));
+
+		return map;
+	}
+
+	private QueryResult<String> result(final String... values) {
+
+		final List<String> list = Arrays.asList(values);
+
+		return new QueryResult<String>() {
+
+			@Override
+			public void close() {
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				return list.iterator();
+			}
+		};
+	}
+}
@@ -175,8 +175,32 @@ public class AuthHelper {
 	 */
 	public static Principal getPrincipalForSessionId(final String sessionId) {
 
-		return getPrincipalForCredential(Principal.sessionIds, new String[]{ sessionId });
+		if (sessionId != null) {
 
+			final SessionRegistry registry = SessionRegistry.getInstance();
+			final String principalId       = registry.getPrincipalId(sessionId);
+
+			if (principalId != null) {
+
+				try {
+
+					final Principal principal = StructrApp.getInstance().get(Principal.class, principalId);
+					if (principal != null) {
+
+						return principal;
+					}
+
+					// principal does not exist any more
+					registry.unregister(sessionId);
+
+				} catch (FrameworkException fex) {
+
+					logger.warn("Error while searching for principal", fex);
+				}
+			}
+		}
+
+		return null;
 	}
 
 	public static void doLogin(final HttpServletRequest request, final Principal user) throws FrameworkException {
@@ -192,8 +216,8 @@ public class AuthHelper {
 		// We need a session to login a user
 		if (session != null) {
 
-			SessionHelper.clearSession(session.getId());
-			user.addSessionId(session.getId());
+			// replaces possible existing assignments of this session
+			SessionRegistry.getInstance().register(session.getId(), user);
 
 			try {
 
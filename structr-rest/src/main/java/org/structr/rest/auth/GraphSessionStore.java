@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.auth;
+
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.Tx;
+
+/**
+ * The default {@link SessionStore} that stores the session ids in the
+ * sessionIds property of the principals.
+ */
+public class GraphSessionStore implements SessionStore {
+
+	@Override
+	public String getPrincipalId(final String sessionId) throws FrameworkException {
+
+		final App app = StructrApp.getInstance();
+
+		try (final Tx tx = app.tx()) {
+
+			final Principal principal = app.nodeQuery(Principal.class).and(Principal.sessionIds, new String[] { sessionId }).getFirst();
+
+			tx.success();
+
+			return principal != null ? principal.getUuid() : null;
+		}
+	}
+
+	@Override
+	public void store(final String sessionId, final String principalId) throws FrameworkException {
+
+		final App app = StructrApp.getInstance();
+
+		try (final Tx tx = app.tx()) {
+
+			removeFromAll(app, sessionId);
+
+			final Principal principal = app.get(Principal.class, principalId);
+			if (principal != null) {
+
+				principal.addSessionId(sessionId);
+			}
+
+			tx.success();
+		}
+	}
+
+	@Override
+	public void remove(final String sessionId) throws FrameworkException {
+
+		final App app = StructrApp.getInstance();
+
+		try (final Tx tx = app.tx()) {
+
+			removeFromAll(app, sessionId);
+
+			tx.success();
+		}
+	}
+
+	// ----- private methods -----
+	private void removeFromAll(final App app, final String sessionId) throws FrameworkException {
+
+		for (final Principal principal : app.nodeQuery(Principal.class).and(Principal.sessionIds, new String[] { sessionId }).getAsList()) {
+
+			principal.removeSessionId(sessionId);
+		}
+	}
+}
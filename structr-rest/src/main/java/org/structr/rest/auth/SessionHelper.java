@@ -20,7 +20,6 @@ package org.structr.rest.auth;
 
 import java.time.Instant;
 import java.util.Date;
-import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import org.eclipse.jetty.server.session.HashSessionManager;
@@ -28,9 +27,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Services;
-import org.structr.core.app.App;
-import org.structr.core.app.Query;
-import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Principal;
 import org.structr.rest.service.HttpService;
 
@@ -111,24 +107,10 @@ public class SessionHelper {
 	 */
 	public static void clearSession(final String sessionId) {
 
-		final App app = StructrApp.getInstance();
-		final Query<Principal> query = app.nodeQuery(Principal.class).and(Principal.sessionIds, new String[]{sessionId});
-
-		try {
-			List<Principal> principals = query.getAsList();
-
-			for (Principal p : principals) {
-
-				p.removeSessionId(sessionId);
-
-			}
-
-		} catch (FrameworkException fex) {
-
-			logger.warn("Error while removing sessionId " + sessionId + " from all principals", fex);
+		if (sessionId != null) {
 
+			SessionRegistry.getInstance().unregister(sessionId);
 		}
-
 	}
 
 	/**
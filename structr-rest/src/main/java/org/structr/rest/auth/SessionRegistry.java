@@ -0,0 +1,429 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.auth;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.SuperUser;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.TransactionCommand;
+
+/**
+ * An in-memory index from session ids to principal ids, backed by a
+ * {@link SessionStore}.
+ *
+ * Lookups are answered from memory and only fall back to the store for
+ * sessions that are not known yet, e.g. after a restart or if another
+ * cluster node has created the session. Modifications are applied to
+ * memory immediately and written to the store asynchronously, in the
+ * order in which they were made. Entries that have not been accessed
+ * within the session timeout are evicted from memory (but not from the
+ * store). A session timeout of zero or less disables the eviction.
+ *
+ * Entries older than the maximum age are revalidated against the store,
+ * so that sessions removed by another cluster node do not stay valid.
+ * Entries of principals whose sessionIds change locally are dropped
+ * immediately, unless the change was made by the registry itself.
+ */
+public class SessionRegistry implements StructrTransactionListener {
+
+	private static final Logger logger      = LoggerFactory.getLogger(SessionRegistry.class.getName());
+	private static SessionRegistry instance = null;
+
+	private final Map<String, Integer> pendingRemovals = new ConcurrentHashMap<>();
+	private final Map<String, Entry> sessions          = new ConcurrentHashMap<>();
+	private final ThreadLocal<Boolean> writing         = new ThreadLocal<>();
+	private final AtomicLong pendingWrites             = new AtomicLong();
+	private final AtomicLong failedWrites              = new AtomicLong();
+	private final AtomicLong revalidations             = new AtomicLong();
+	private final AtomicLong invalidations             = new AtomicLong();
+	private final AtomicLong generation                = new AtomicLong();
+	private final AtomicLong evictions                 = new AtomicLong();
+	private final AtomicLong misses                    = new AtomicLong();
+	private final AtomicLong hits                      = new AtomicLong();
+	private ScheduledExecutorService executor          = null;
+	private SessionStore store                         = null;
+	private long timeToLive                            = 0L;
+	private long maxAge                                = 0L;
+
+	public SessionRegistry(final SessionStore store, final long timeToLive) {
+		this(store, timeToLive, TimeUnit.SECONDS.toMillis(Settings.SessionMaxAge.getValue()));
+	}
+
+	public SessionRegistry(final SessionStore store, final long timeToLive, final long maxAge) {
+
+		this.timeToLive = timeToLive;
+		this.maxAge     = maxAge;
+		this.store      = store;
+		this.executor   = Executors.newSingleThreadScheduledExecutor(r -> {
+
+			final Thread thread = new Thread(r, "SessionRegistry");
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		// sessions without a timeout are never evicted
+		if (timeToLive > 0) {
+
+			final long interval = Math.max(1000L, Math.min(timeToLive, TimeUnit.MINUTES.toMillis(1)));
+
+			executor.scheduleWithFixedDelay(this::evictExpired, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public static synchronized SessionRegistry getInstance() {
+
+		if (instance == null) {
+
+			instance = new SessionRegistry(createStore(), TimeUnit.SECONDS.toMillis(Services.getGlobalSessionTimeout()));
+
+			TransactionCommand.registerTransactionListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Writes all pending modifications and stops the shared instance.
+	 */
+	public static synchronized void shutdown() {
+
+		if (instance != null) {
+
+			TransactionCommand.removeTransactionListener(instance);
+
+			instance.close();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Returns the UUID of the principal the given session belongs to.
+	 *
+	 * @param sessionId
+	 * @return the UUID of the principal, or null
+	 */
+	public String getPrincipalId(final String sessionId) {
+
+		final Entry entry = sessions.get(sessionId);
+		if (entry != null) {
+
+			final long now = System.currentTimeMillis();
+
+			// entries whose write is still pending can not be revalidated yet
+			if (entry.pending || now - entry.validated < maxAge) {
+
+				hits.incrementAndGet();
+				entry.lastAccess = now;
+
+				return entry.principalId;
+			}
+
+			// reload the entry from the store
+			revalidations.incrementAndGet();
+			sessions.remove(sessionId, entry);
+		}
+
+		misses.incrementAndGet();
+
+		// the store still contains sessions whose removal has not been written yet
+		if (pendingRemovals.containsKey(sessionId)) {
+			return null;
+		}
+
+		try {
+
+			final long expectedGeneration = generation.get();
+			final String principalId       = store.getPrincipalId(sessionId);
+
+			// the principal could have been modified while the session was loaded
+			if (principalId != null && generation.get() == expectedGeneration) {
+
+				sessions.putIfAbsent(sessionId, new Entry(principalId, false));
+
+				// the session could have been removed while it was loaded
+				if (pendingRemovals.containsKey(sessionId)) {
+
+					sessions.remove(sessionId);
+					return null;
+				}
+			}
+
+			return principalId;
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("Unable to load principal for session {}: {}", sessionId, fex.getMessage());
+		}
+
+		return null;
+	}
+
+	/**
+	 * Assigns the given session to the given principal.
+	 *
+	 * @param sessionId
+	 * @param principal
+	 */
+	public void register(final String sessionId, final Principal principal) {
+
+		// the superuser is not stored in the database
+		if (principal instanceof SuperUser) {
+			return;
+		}
+
+		register(sessionId, principal.getUuid());
+	}
+
+	/**
+	 * Assigns the given session to the principal with the given UUID.
+	 *
+	 * @param sessionId
+	 * @param principalId
+	 */
+	public void register(final String sessionId, final String principalId) {
+
+		final Entry entry = new Entry(principalId, true);
+
+		sessions.put(sessionId, entry);
+
+		write(() -> {
+
+			try {
+
+				store.store(sessionId, principalId);
+
+			} finally {
+
+				entry.validated = System.currentTimeMillis();
+				entry.pending   = false;
+			}
+		});
+	}
+
+	/**
+	 * Removes the given session.
+	 *
+	 * @param sessionId
+	 */
+	public void unregister(final String sessionId) {
+
+		pendingRemovals.merge(sessionId, 1, Integer::sum);
+		sessions.remove(sessionId);
+
+		write(() -> {
+
+			try {
+
+				store.remove(sessionId);
+
+			} finally {
+
+				pendingRemovals.computeIfPresent(sessionId, (k, count) -> count > 1 ? count - 1 : null);
+			}
+		});
+	}
+
+	/**
+	 * Removes all entries of the principal with the given UUID from
+	 * memory, so that they are reloaded from the store when they are
+	 * accessed again. Entries whose write is still pending are kept.
+	 *
+	 * Calls made while the registry writes to the store are ignored, the
+	 * modifications of these writes are already applied in memory.
+	 *
+	 * @param principalId
+	 */
+	public void invalidate(final String principalId) {
+
+		if (Boolean.TRUE.equals(writing.get())) {
+			return;
+		}
+
+		generation.incrementAndGet();
+
+		if (sessions.values().removeIf(entry -> !entry.pending && principalId.equals(entry.principalId))) {
+
+			invalidations.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Blocks until all modifications made so far have been written.
+	 */
+	public void flush() {
+
+		try {
+
+			executor.submit(() -> {}).get();
+
+		} catch (InterruptedException iex) {
+
+			Thread.currentThread().interrupt();
+
+		} catch (ExecutionException eex) {
+
+			logger.warn("Unable to flush session registry: {}", eex.getMessage());
+		}
+	}
+
+	public void close() {
+
+		flush();
+		executor.shutdown();
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",          Long.valueOf(sessions.size()));
+		statistics.put("hits",          hits.get());
+		statistics.put("misses",        misses.get());
+		statistics.put("evictions",     evictions.get());
+		statistics.put("revalidations", revalidations.get());
+		statistics.put("invalidations", invalidations.get());
+		statistics.put("pendingWrites", pendingWrites.get());
+		statistics.put("failedWrites",  failedWrites.get());
+
+		return statistics;
+	}
+
+	// ----- interface StructrTransactionListener -----
+	@Override
+	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException {
+
+		// afterCommit is not called for transactions without notifications
+		invalidate(modificationEvents);
+	}
+
+	@Override
+	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+		// invalidate again to drop entries that were loaded during the commit
+		invalidate(modificationEvents);
+	}
+
+	// ----- private methods -----
+	private void invalidate(final Collection<ModificationEvent> modificationEvents) {
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			if (event.isNode() && event.getGraphObject() instanceof Principal) {
+
+				if (event.isDeleted() || event.getModifiedProperties().containsKey(Principal.sessionIds) || event.getRemovedProperties().containsKey(Principal.sessionIds)) {
+
+					invalidate(event.getUuid());
+				}
+			}
+		}
+	}
+
+	private void write(final StoreOperation operation) {
+
+		pendingWrites.incrementAndGet();
+
+		executor.submit(() -> {
+
+			writing.set(true);
+
+			try {
+
+				operation.run();
+
+			} catch (Throwable t) {
+
+				failedWrites.incrementAndGet();
+				logger.warn("Unable to write session data: {}", t.getMessage());
+
+			} finally {
+
+				writing.remove();
+				pendingWrites.decrementAndGet();
+			}
+		});
+	}
+
+	private void evictExpired() {
+
+		final long threshold = System.currentTimeMillis() - timeToLive;
+
+		for (final Map.Entry<String, Entry> entry : sessions.entrySet()) {
+
+			if (entry.getValue().lastAccess < threshold && sessions.remove(entry.getKey(), entry.getValue())) {
+
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private static SessionStore createStore() {
+
+		final String className = Settings.SessionStoreClass.getValue();
+
+		try {
+
+			return (SessionStore)Class.forName(className).newInstance();
+
+		} catch (Throwable t) {
+
+			logger.warn("Unable to instantiate session store {}, using default: {}", className, t.getMessage());
+		}
+
+		return new GraphSessionStore();
+	}
+
+	// ----- nested classes -----
+	private static class Entry {
+
+		private volatile long lastAccess = System.currentTimeMillis();
+		private volatile long validated  = System.currentTimeMillis();
+		private volatile boolean pending = false;
+		private String principalId       = null;
+
+		public Entry(final String principalId, final boolean pending) {
+
+			this.principalId = principalId;
+			this.pending     = pending;
+		}
+	}
+
+	@FunctionalInterface
+	private interface StoreOperation {
+
+		void run() throws FrameworkException;
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.auth;
+
+import org.structr.common.error.FrameworkException;
+
+/**
+ * Persistent backend of the {@link SessionRegistry}. Implementations
+ * can store the session-to-principal mapping in the graph (the default),
+ * or in an external store that is shared between cluster nodes.
+ *
+ * Implementations must have a public no-argument constructor and are
+ * configured with the "application.session.store" setting. All methods
+ * except {@link #getPrincipalId(java.lang.String)} are called
+ * asynchronously from a single background thread.
+ */
+public interface SessionStore {
+
+	/**
+	 * Returns the UUID of the principal the given session belongs to.
+	 *
+	 * @param sessionId
+	 * @return the UUID of the principal, or null
+	 * @throws FrameworkException
+	 */
+	public String getPrincipalId(final String sessionId) throws FrameworkException;
+
+	/**
+	 * Assigns the given session to the given principal, and removes it from
+	 * all other principals.
+	 *
+	 * @param sessionId
+	 * @param principalId the UUID of the principal
+	 * @throws FrameworkException
+	 */
+	public void store(final String sessionId, final String principalId) throws FrameworkException;
+
+	/**
+	 * Removes the given session.
+	 *
+	 * @param sessionId
+	 * @throws FrameworkException
+	 */
+	public void remove(final String sessionId) throws FrameworkException;
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.logging;
+
+import java.util.Date;
+import org.structr.core.GraphObject;
+import org.structr.core.GraphObjectMap;
+import org.structr.rest.logging.entity.LogEvent;
+
+/**
+ * An immutable entry of the event log.
+ */
+public class LogEntry {
+
+	private String subjectId = null;
+	private String objectId  = null;
+	private String action    = null;
+	private String message   = null;
+	private long timestamp   = 0L;
+
+	public LogEntry(final long timestamp, final String subjectId, final String objectId, final String action, final String message) {
+
+		this.timestamp = timestamp;
+		this.subjectId = subjectId;
+		this.objectId  = objectId;
+		this.action    = action;
+		this.message   = message;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getAction() {
+		return action;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public String getSubjectId() {
+		return subjectId;
+	}
+
+	public String getObjectId() {
+		return objectId;
+	}
+
+	/**
+	 * Returns the properties of this entry in the shape of the LogEvent
+	 * nodes that were created by previous versions. Log entries are not
+	 * nodes, so the result has no id.
+	 *
+	 * @return the entry as a map
+	 */
+	public GraphObjectMap toGraphObjectMap() {
+
+		final GraphObjectMap map = new GraphObjectMap();
+
+		map.put(GraphObject.type,           LogEvent.class.getSimpleName());
+		map.put(LogEvent.actionProperty,    action);
+		map.put(LogEvent.messageProperty,   message);
+		map.put(LogEvent.timestampProperty, new Date(timestamp));
+		map.put(LogEvent.subjectProperty,   subjectId);
+		map.put(LogEvent.objectProperty,    objectId);
+
+		return map;
+	}
+}
@@ -0,0 +1,552 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.logging;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A time partition of the event log, stored in an append-only file.
+ *
+ * Each record consists of its length, the timestamp and the subject,
+ * object, action and message of the entry. The file is read through a
+ * memory mapping. The subject, object and action indexes are built on
+ * the first query that needs them, the rollup (number of entries, first
+ * and last timestamp and the number of entries per action) is kept up to
+ * date on append and stored in a summary file next to the segment, so
+ * that the segment does not need to be read when the store is opened.
+ */
+class LogSegment {
+
+	private static final Logger logger             = LoggerFactory.getLogger(LogSegment.class.getName());
+	private static final int SUMMARY_VERSION       = 1;
+
+	private final Map<String, Integer> actionCounts = new LinkedHashMap<>();
+	private Map<String, OffsetList> subjectIndex    = null;
+	private Map<String, OffsetList> objectIndex     = null;
+	private Map<String, OffsetList> actionIndex     = null;
+	private ByteBuffer mapping                      = null;
+	private FileChannel channel                     = null;
+	private Path summaryFile                        = null;
+	private Path file                               = null;
+	private long firstTimestamp                     = Long.MAX_VALUE;
+	private long lastTimestamp                      = Long.MIN_VALUE;
+	private long start                              = 0L;
+	private int size                                = 0;
+	private int count                               = 0;
+	private boolean dirty                           = false;
+
+	LogSegment(final Path directory, final long start) throws IOException {
+
+		this.start       = start;
+		this.file        = directory.resolve(start + ".log");
+		this.summaryFile = directory.resolve(start + ".sum");
+
+		if (Files.exists(file)) {
+
+			size = (int)Files.size(file);
+
+			if (!readSummary()) {
+
+				// rebuild rollup from the data
+				scan(true);
+				writeSummary();
+			}
+		}
+	}
+
+	long getStart() {
+		return start;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	long getFirstTimestamp() {
+		return firstTimestamp;
+	}
+
+	long getLastTimestamp() {
+		return lastTimestamp;
+	}
+
+	Map<String, Integer> getActionCounts() {
+		return actionCounts;
+	}
+
+	/**
+	 * Appends the given entries in a single write. Must not be called
+	 * concurrently with any other method of this segment.
+	 *
+	 * @param entries
+	 *
+	 * @throws IOException
+	 */
+	void append(final List<LogEntry> entries) throws IOException {
+
+		final byte[][] records = new byte[entries.size()][];
+		int length             = 0;
+
+		for (int i=0; i<records.length; i++) {
+
+			records[i] = encode(entries.get(i));
+			length    += records[i].length;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+
+		for (final byte[] record : records) {
+			buffer.put(record);
+		}
+
+		buffer.flip();
+
+		if (channel == null) {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		}
+
+		long position = size;
+
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+
+		int offset = size;
+
+		for (int i=0; i<records.length; i++) {
+
+			add(entries.get(i), offset);
+			offset += records[i].length;
+		}
+
+		size    = offset;
+		mapping = null;
+		dirty   = true;
+	}
+
+	/**
+	 * Adds the entries that match the given criteria to the result. Null
+	 * criteria match any value.
+	 *
+	 * @param subjectId
+	 * @param objectId
+	 * @param action
+	 * @param begin
+	 * @param end
+	 * @param result
+	 *
+	 * @throws IOException
+	 */
+	void query(final String subjectId, final String objectId, final String action, final long begin, final long end, final List<LogEntry> result) throws IOException {
+
+		if (count == 0 || lastTimestamp < begin || firstTimestamp > end) {
+			return;
+		}
+
+		final ByteBuffer data = map();
+
+		if (subjectId != null || objectId != null || action != null) {
+
+			final OffsetList candidates;
+
+			synchronized (this) {
+
+				if (subjectIndex == null) {
+					buildIndexes();
+				}
+
+				final OffsetList subjects = lookup(subjectIndex, subjectId);
+				final OffsetList objects  = lookup(objectIndex,  objectId);
+				final OffsetList actions  = lookup(actionIndex,  action);
+
+				// one of the values does not occur in this segment
+				if ((subjectId != null && subjects == null) || (objectId != null && objects == null) || (action != null && actions == null)) {
+					return;
+				}
+
+				// check the entries of the shortest list
+				candidates = shortest(shortest(subjects, objects), actions).copy();
+			}
+
+			for (int i=0; i<candidates.size; i++) {
+
+				final LogEntry entry = read(data, candidates.offsets[i]);
+				if (matches(entry, subjectId, objectId, action, begin, end)) {
+
+					result.add(entry);
+				}
+			}
+
+		} else {
+
+			int offset = 0;
+
+			while (offset < size) {
+
+				final LogEntry entry = read(data, offset);
+				if (matches(entry, null, null, null, begin, end)) {
+
+					result.add(entry);
+				}
+
+				offset += data.getInt(offset) + 4;
+			}
+		}
+	}
+
+	synchronized void writeSummary() throws IOException {
+
+		final Path tmp = summaryFile.resolveSibling(summaryFile.getFileName() + ".tmp");
+
+		try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+
+			out.writeInt(SUMMARY_VERSION);
+			out.writeInt(size);
+			out.writeInt(count);
+			out.writeLong(firstTimestamp);
+			out.writeLong(lastTimestamp);
+			out.writeInt(actionCounts.size());
+
+			for (final Entry<String, Integer> entry : actionCounts.entrySet()) {
+
+				final String action = entry.getKey();
+
+				out.writeBoolean(action != null);
+
+				if (action != null) {
+					out.writeUTF(action);
+				}
+
+				out.writeInt(entry.getValue());
+			}
+		}
+
+		Files.move(tmp, summaryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		dirty = false;
+	}
+
+	boolean isDirty() {
+		return dirty;
+	}
+
+	void close() throws IOException {
+
+		if (dirty) {
+			writeSummary();
+		}
+
+		if (channel != null) {
+
+			channel.close();
+			channel = null;
+		}
+
+		mapping = null;
+	}
+
+	// ----- private methods -----
+	private boolean readSummary() {
+
+		if (Files.exists(summaryFile)) {
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(summaryFile)))) {
+
+				// the summary is only valid if it matches the data file
+				if (in.readInt() == SUMMARY_VERSION && in.readInt() == size) {
+
+					count          = in.readInt();
+					firstTimestamp = in.readLong();
+					lastTimestamp  = in.readLong();
+
+					final int actions = in.readInt();
+
+					for (int i=0; i<actions; i++) {
+
+						final String action = in.readBoolean() ? in.readUTF() : null;
+
+						actionCounts.put(action, in.readInt());
+					}
+
+					return true;
+				}
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to read event log summary {}: {}", summaryFile, ioex.getMessage());
+			}
+		}
+
+		return false;
+	}
+
+	private void scan(final boolean rollup) throws IOException {
+
+		final ByteBuffer data = map();
+		int offset            = 0;
+
+		while (offset < size) {
+
+			final int length = offset + 4 <= size ? data.getInt(offset) : -1;
+			if (length < 0 || offset + 4 + length > size) {
+
+				// incomplete record at the end of the file (e.g. after a crash)
+				logger.warn("Truncating incomplete record at offset {} in event log segment {}", offset, file);
+
+				try (final FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+					truncate.truncate(offset);
+				}
+
+				size    = offset;
+				mapping = null;
+
+				break;
+			}
+
+			final LogEntry entry = read(data, offset);
+
+			if (rollup) {
+
+				add(entry, offset);
+
+			} else {
+
+				index(entry, offset);
+			}
+
+			offset += length + 4;
+		}
+	}
+
+	private void add(final LogEntry entry, final int offset) {
+
+		final long timestamp = entry.getTimestamp();
+
+		if (timestamp < firstTimestamp) {
+			firstTimestamp = timestamp;
+		}
+
+		if (timestamp > lastTimestamp) {
+			lastTimestamp = timestamp;
+		}
+
+		actionCounts.merge(entry.getAction(), 1, Integer::sum);
+		count++;
+
+		// update indexes only if they were built already
+		if (subjectIndex != null) {
+			index(entry, offset);
+		}
+	}
+
+	private void buildIndexes() throws IOException {
+
+		subjectIndex = new HashMap<>();
+		objectIndex  = new HashMap<>();
+		actionIndex  = new HashMap<>();
+
+		scan(false);
+	}
+
+	private void index(final LogEntry entry, final int offset) {
+
+		index(subjectIndex, entry.getSubjectId(), offset);
+		index(objectIndex,  entry.getObjectId(),  offset);
+		index(actionIndex,  entry.getAction(),    offset);
+	}
+
+	private void index(final Map<String, OffsetList> index, final String key, final int offset) {
+
+		if (key != null) {
+			index.computeIfAbsent(key, k -> new OffsetList()).add(offset);
+		}
+	}
+
+	private OffsetList lookup(final Map<String, OffsetList> index, final String key) {
+
+		if (key != null) {
+			return index.get(key);
+		}
+
+		return null;
+	}
+
+	private OffsetList shortest(final OffsetList list1, final OffsetList list2) {
+
+		if (list1 == null) {
+			return list2;
+		}
+
+		if (list2 == null || list1.size <= list2.size) {
+			return list1;
+		}
+
+		return list2;
+	}
+
+	private synchronized ByteBuffer map() throws IOException {
+
+		if (mapping == null) {
+
+			if (size == 0) {
+
+				mapping = ByteBuffer.allocate(0);
+
+			} else {
+
+				try (final FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+					mapping = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+				}
+			}
+		}
+
+		// absolute reads only, so the buffer can be shared between threads
+		return mapping;
+	}
+
+	private boolean matches(final LogEntry entry, final String subjectId, final String objectId, final String action, final long begin, final long end) {
+
+		final long timestamp = entry.getTimestamp();
+
+		return timestamp >= begin && timestamp <= end
+			&& (subjectId == null || subjectId.equals(entry.getSubjectId()))
+			&& (objectId  == null || objectId.equals(entry.getObjectId()))
+			&& (action    == null || action.equals(entry.getAction()));
+	}
+
+	// ----- private static methods -----
+	private static byte[] encode(final LogEntry entry) {
+
+		final byte[] subjectId = bytes(entry.getSubjectId());
+		final byte[] objectId  = bytes(entry.getObjectId());
+		final byte[] action    = bytes(entry.getAction());
+		final byte[] message   = bytes(entry.getMessage());
+		final int length       = 8 + length(subjectId) + length(objectId) + length(action) + length(message);
+		final ByteBuffer buf   = ByteBuffer.allocate(length + 4);
+
+		buf.putInt(length);
+		buf.putLong(entry.getTimestamp());
+
+		put(buf, subjectId);
+		put(buf, objectId);
+		put(buf, action);
+		put(buf, message);
+
+		return buf.array();
+	}
+
+	private static LogEntry read(final ByteBuffer data, final int offset) {
+
+		final long timestamp = data.getLong(offset + 4);
+		final int[] position = new int[] { offset + 12 };
+
+		final String subjectId = string(data, position);
+		final String objectId  = string(data, position);
+		final String action    = string(data, position);
+		final String message   = string(data, position);
+
+		return new LogEntry(timestamp, subjectId, objectId, action, message);
+	}
+
+	private static String string(final ByteBuffer data, final int[] position) {
+
+		final int length = data.getInt(position[0]);
+
+		position[0] += 4;
+
+		if (length < 0) {
+			return null;
+		}
+
+		final ByteBuffer view = data.duplicate();
+		final byte[] bytes    = new byte[length];
+
+		view.position(position[0]);
+		view.get(bytes);
+
+		position[0] += length;
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static byte[] bytes(final String value) {
+		return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	private static int length(final byte[] bytes) {
+		return 4 + (bytes != null ? bytes.length : 0);
+	}
+
+	private static void put(final ByteBuffer buf, final byte[] bytes) {
+
+		if (bytes != null) {
+
+			buf.putInt(bytes.length);
+			buf.put(bytes);
+
+		} else {
+
+			buf.putInt(-1);
+		}
+	}
+
+	// ----- nested classes -----
+	private static class OffsetList {
+
+		private int[] offsets = new int[4];
+		private int size      = 0;
+
+		public void add(final int offset) {
+
+			if (size == offsets.length) {
+				offsets = Arrays.copyOf(offsets, size * 2);
+			}
+
+			offsets[size++] = offset;
+		}
+
+		public OffsetList copy() {
+
+			final OffsetList copy = new OffsetList();
+
+			copy.offsets = Arrays.copyOf(offsets, size);
+			copy.size    = size;
+
+			return copy;
+		}
+	}
+}
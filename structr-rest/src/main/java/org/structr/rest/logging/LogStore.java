@@ -0,0 +1,417 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.logging;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.common.error.FrameworkException;
+
+/**
+ * An append-only, time-partitioned store for the entries of the event log.
+ *
+ * Entries are queued and written in batches by a background thread, one
+ * write per segment and batch, without any database transaction. Each
+ * segment holds the entries of a fixed time interval, so that queries for
+ * a time range only read the segments that overlap with the range.
+ */
+public class LogStore {
+
+	private static final Logger logger                = LoggerFactory.getLogger(LogStore.class.getName());
+	private static LogStore instance                  = null;
+
+	private final TreeMap<Long, LogSegment> segments  = new TreeMap<>();
+	private final ReadWriteLock lock                  = new ReentrantReadWriteLock();
+	private final AtomicLong appended                 = new AtomicLong();
+	private final AtomicLong written                  = new AtomicLong();
+	private final AtomicLong batches                  = new AtomicLong();
+	private final AtomicLong failed                   = new AtomicLong();
+	private final Object flushLock                    = new Object();
+	private BlockingQueue<LogEntry> queue             = null;
+	private Thread writer                             = null;
+	private Path directory                            = null;
+	private volatile boolean running                  = true;
+	private long segmentDuration                      = 0L;
+	private long flushInterval                        = 0L;
+	private int batchSize                             = 0;
+
+	public LogStore(final Path directory, final long segmentDuration, final int batchSize, final long flushInterval) throws IOException {
+
+		this.directory       = directory;
+		this.segmentDuration = segmentDuration;
+		this.batchSize       = batchSize;
+		this.flushInterval   = flushInterval;
+		this.queue           = new ArrayBlockingQueue<>(batchSize * 10);
+
+		Files.createDirectories(directory);
+
+		try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.log")) {
+
+			for (final Path file : stream) {
+
+				final String name = file.getFileName().toString();
+
+				try {
+
+					final long start = Long.parseLong(name.substring(0, name.length() - 4));
+
+					segments.put(start, new LogSegment(directory, start));
+
+				} catch (NumberFormatException nfex) {
+					logger.warn("Ignoring unknown file {} in event log directory", file);
+				}
+			}
+		}
+
+		this.writer = new Thread(this::run, "EventLogWriter");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	public static synchronized LogStore getInstance() throws FrameworkException {
+
+		if (instance == null) {
+
+			final Path path = Paths.get(Settings.getFullSettingPath(Settings.EventLogPath));
+
+			try {
+
+				instance = new LogStore(path, TimeUnit.MINUTES.toMillis(Math.max(1, Settings.EventLogSegmentSize.getValue())), Math.max(1, Settings.EventLogBatchSize.getValue()), Settings.EventLogFlushTime.getValue());
+
+				// write pending entries on shutdown
+				Runtime.getRuntime().addShutdownHook(new Thread(instance::close, "EventLogShutdown"));
+
+			} catch (IOException ioex) {
+				throw new FrameworkException(500, "Unable to open event log in " + path + ": " + ioex.getMessage());
+			}
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Queues the given entry for writing. Blocks if the queue is full.
+	 *
+	 * @param entry
+	 */
+	public void append(final LogEntry entry) {
+
+		try {
+
+			queue.put(entry);
+			appended.incrementAndGet();
+
+		} catch (InterruptedException iex) {
+
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes all entries that were appended before this call.
+	 */
+	public void flush() {
+
+		final long target = appended.get();
+
+		synchronized (flushLock) {
+
+			write(drain(Integer.MAX_VALUE));
+
+			// wait for the entries that the writer thread is processing
+			while (written.get() + failed.get() < target) {
+
+				try {
+
+					flushLock.wait(100);
+
+				} catch (InterruptedException iex) {
+
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns all entries that match the given criteria. Null criteria
+	 * match any value. Only the segments that overlap with the given time
+	 * range are read.
+	 *
+	 * @param subjectId
+	 * @param objectId
+	 * @param action
+	 * @param begin the start of the time range (inclusive)
+	 * @param end the end of the time range (inclusive)
+	 *
+	 * @return the matching entries, ordered by segment
+	 *
+	 * @throws FrameworkException
+	 */
+	public List<LogEntry> query(final String subjectId, final String objectId, final String action, final long begin, final long end) throws FrameworkException {
+
+		final List<LogEntry> result = new ArrayList<>();
+
+		if (begin > end) {
+			return result;
+		}
+
+		flush();
+
+		lock.readLock().lock();
+		try {
+
+			final long first = segments.floorKey(begin) != null ? segments.floorKey(begin) : begin;
+
+			for (final LogSegment segment : segments.subMap(first, true, end, true).values()) {
+
+				segment.query(subjectId, objectId, action, begin, end, result);
+			}
+
+		} catch (IOException ioex) {
+
+			throw new FrameworkException(500, "Unable to read event log: " + ioex.getMessage());
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of entries per action and the timestamps of the
+	 * first and the last entry, computed from the rollups of the segments.
+	 *
+	 * @return the summary of all entries
+	 */
+	public Summary getSummary() {
+
+		final Summary summary = new Summary();
+
+		flush();
+
+		lock.readLock().lock();
+		try {
+
+			for (final LogSegment segment : segments.values()) {
+
+				if (segment.getCount() > 0) {
+
+					summary.count         += segment.getCount();
+					summary.firstTimestamp = Math.min(summary.firstTimestamp, segment.getFirstTimestamp());
+					summary.lastTimestamp  = Math.max(summary.lastTimestamp,  segment.getLastTimestamp());
+
+					for (final Entry<String, Integer> entry : segment.getActionCounts().entrySet()) {
+						summary.actions.merge(entry.getKey() != null ? entry.getKey() : "null", entry.getValue(), Integer::sum);
+					}
+				}
+			}
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+
+		return summary;
+	}
+
+	public void close() {
+
+		// don't interrupt the writer, an interrupted write would close the file channel
+		running = false;
+
+		try {
+			writer.join(flushInterval + 1000L);
+
+		} catch (InterruptedException iex) {
+			Thread.currentThread().interrupt();
+		}
+
+		flush();
+
+		lock.writeLock().lock();
+		try {
+
+			for (final LogSegment segment : segments.values()) {
+
+				try {
+
+					segment.close();
+
+				} catch (IOException ioex) {
+					logger.warn("Unable to close event log segment {}: {}", segment.getStart(), ioex.getMessage());
+				}
+			}
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		statistics.put("segments", Long.valueOf(segments.size()));
+		statistics.put("queued",   Long.valueOf(queue.size()));
+		statistics.put("appended", appended.get());
+		statistics.put("written",  written.get());
+		statistics.put("failed",   failed.get());
+		statistics.put("batches",  batches.get());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private void run() {
+
+		while (running) {
+
+			try {
+
+				final LogEntry first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if (first != null) {
+
+					synchronized (flushLock) {
+
+						final List<LogEntry> batch = drain(batchSize - 1);
+
+						batch.add(0, first);
+
+						write(batch);
+					}
+				}
+
+			} catch (InterruptedException iex) {
+				logger.warn("Event log writer interrupted");
+			}
+		}
+	}
+
+	private List<LogEntry> drain(final int maxSize) {
+
+		final List<LogEntry> batch = new ArrayList<>();
+
+		queue.drainTo(batch, maxSize);
+
+		return batch;
+	}
+
+	private void write(final List<LogEntry> batch) {
+
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		final Map<Long, List<LogEntry>> partitions = new LinkedHashMap<>();
+
+		for (final LogEntry entry : batch) {
+			partitions.computeIfAbsent(getSegmentStart(entry.getTimestamp()), k -> new ArrayList<>()).add(entry);
+		}
+
+		lock.writeLock().lock();
+		try {
+
+			for (final Entry<Long, List<LogEntry>> partition : partitions.entrySet()) {
+
+				final List<LogEntry> entries = partition.getValue();
+				final long start             = partition.getKey();
+
+				try {
+
+					LogSegment segment = segments.get(start);
+					if (segment == null) {
+
+						segment = new LogSegment(directory, start);
+						segments.put(start, segment);
+					}
+
+					segment.append(entries);
+					segment.writeSummary();
+
+					written.addAndGet(entries.size());
+
+				} catch (IOException ioex) {
+
+					logger.error("Unable to write {} entries to event log segment {}: {}", entries.size(), start, ioex.getMessage());
+
+					failed.addAndGet(entries.size());
+				}
+			}
+
+			batches.incrementAndGet();
+
+		} finally {
+
+			lock.writeLock().unlock();
+
+			flushLock.notifyAll();
+		}
+	}
+
+	private long getSegmentStart(final long timestamp) {
+		return Math.floorDiv(timestamp, segmentDuration) * segmentDuration;
+	}
+
+	// ----- nested classes -----
+	public static class Summary {
+
+		private final Map<String, Integer> actions = new LinkedHashMap<>();
+		private long firstTimestamp                = Long.MAX_VALUE;
+		private long lastTimestamp                 = 0L;
+		private int count                          = 0;
+
+		public Map<String, Integer> getActions() {
+			return actions;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public long getFirstTimestamp() {
+			return firstTimestamp;
+		}
+
+		public long getLastTimestamp() {
+			return lastTimestamp;
+		}
+	}
+}
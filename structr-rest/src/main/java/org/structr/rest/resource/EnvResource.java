@@ -22,6 +22,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
+import org.structr.agent.AgentService;
 import org.structr.api.service.LicenseManager;
 import org.structr.common.SecurityContext;
 import org.structr.common.VersionHelper;
@@ -29,10 +30,14 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObjectMap;
 import org.structr.core.Result;
 import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.StringProperty;
+import org.structr.core.script.Scripting;
 import org.structr.rest.RestMethodResult;
+import org.structr.rest.auth.SessionRegistry;
 import org.structr.rest.exception.IllegalMethodException;
 import org.structr.rest.exception.IllegalPathException;
 
@@ -65,6 +70,16 @@ public class EnvResource extends Resource {
 		info.setProperty(new StringProperty("classPath"),     VersionHelper.getClassPath());
 		info.setProperty(new StringProperty("instanceName"),  VersionHelper.getInstanceName());
 		info.setProperty(new StringProperty("instanceStage"), VersionHelper.getInstanceStage());
+		info.setProperty(new GenericProperty("queryCache"),   StructrApp.getInstance().getDatabaseService().getQueryCacheStatistics());
+		info.setProperty(new GenericProperty("permissionResolutionCache"), AbstractNode.getPermissionResolutionCacheStatistics());
+		info.setProperty(new GenericProperty("scripting"),    Scripting.getStatistics());
+		info.setProperty(new GenericProperty("sessionRegistry"), SessionRegistry.getInstance().getStatistics());
+
+		final AgentService agentService = Services.getInstance().getService(AgentService.class);
+		if (agentService != null) {
+
+			info.setProperty(new GenericProperty("agents"), agentService.getStatistics());
+		}
 
 		final LicenseManager licenseManager = Services.getInstance().getLicenseManager();
 		if (licenseManager != null) {
@@ -64,10 +64,12 @@ import org.structr.core.property.ISO8601DateProperty;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.Property;
 import org.structr.core.property.PropertyKey;
-import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StringProperty;
 import org.structr.rest.RestMethodResult;
 import org.structr.rest.exception.IllegalMethodException;
+import org.structr.rest.exception.NotAllowedException;
+import org.structr.rest.logging.LogEntry;
+import org.structr.rest.logging.LogStore;
 import org.structr.rest.logging.entity.LogEvent;
 
 /**
@@ -86,7 +88,7 @@ public class LogResource extends Resource {
 	private static final Property<String> subjectProperty       = new StringProperty("subject");
 	private static final Property<String> objectProperty        = new StringProperty("object");
 	private static final Property<String> actionProperty        = new StringProperty("action");
-	private static final Property<String> actionsProperty       = new StringProperty("actions");
+	private static final Property<Map> actionsProperty          = new GenericProperty<>("actions");
 	private static final Property<String> messageProperty       = new StringProperty("message");
 	private static final Property<Integer> entryCountProperty   = new IntProperty("entryCount");
 	private static final Property<Integer> totalProperty        = new IntProperty("total");
@@ -141,6 +143,12 @@ public class LogResource extends Resource {
 	@Override
 	public Result doGet(PropertyKey sortKey, boolean sortDescending, int pageSize, int page) throws FrameworkException {
 
+		// Admins only, the log store has no per-entry visibility
+		if (!securityContext.isSuperUser()) {
+
+			throw new NotAllowedException("Reading the event log is restricted to admin users");
+		}
+
 		final HttpServletRequest request = securityContext.getRequest();
 		if (request != null) {
 
@@ -151,36 +159,17 @@ public class LogResource extends Resource {
 
 			if (StringUtils.isNotEmpty(subjectId) && StringUtils.isNotEmpty(objectId)) {
 
-				processData(logState, StructrApp.getInstance(securityContext)
-					.nodeQuery(LogEvent.class)
-					.and(LogEvent.subjectProperty, subjectId)
-					.and(LogEvent.objectProperty, objectId)
-					.and(LogEvent.actionProperty, logState.logAction)
-					.andRange(LogEvent.timestampProperty, new Date(logState.beginTimestamp()), new Date(logState.endTimestamp()))
-					.getAsList()
-				);
+				processData(logState, LogStore.getInstance().query(subjectId, objectId, logState.logAction, logState.rangeStart(), logState.rangeEnd()));
 
 			} else if (StringUtils.isNotEmpty(subjectId) && StringUtils.isEmpty(objectId)) {
 
-				processData(logState, StructrApp.getInstance(securityContext)
-					.nodeQuery(LogEvent.class)
-					.and(LogEvent.subjectProperty, subjectId)
-					.and(LogEvent.actionProperty, logState.logAction)
-					.andRange(LogEvent.timestampProperty, new Date(logState.beginTimestamp()), new Date(logState.endTimestamp()))
-					.getAsList()
-				);
+				processData(logState, LogStore.getInstance().query(subjectId, null, logState.logAction, logState.rangeStart(), logState.rangeEnd()));
 
 			} else if (StringUtils.isEmpty(subjectId) && StringUtils.isNotEmpty(objectId)) {
 
 				logState.inverse(true);
 
-				processData(logState, StructrApp.getInstance(securityContext)
-					.nodeQuery(LogEvent.class)
-					.and(LogEvent.objectProperty, objectId)
-					.and(LogEvent.actionProperty, logState.logAction)
-					.andRange(LogEvent.timestampProperty, new Date(logState.beginTimestamp()), new Date(logState.endTimestamp()))
-					.getAsList()
-				);
+				processData(logState, LogStore.getInstance().query(null, objectId, logState.logAction, logState.rangeStart(), logState.rangeEnd()));
 
 			} else if (logState.doActionQuery()) {
 
@@ -188,25 +177,18 @@ public class LogResource extends Resource {
 
 			} else {
 
-				// create overview of existing logs
-				logState.overview(true);
-
-				processData(logState, StructrApp.getInstance(securityContext)
-					.nodeQuery(LogEvent.class)
-					.getAsList()
-				);
-			}
-
-			if (logState.overview()) {
+				// create overview of existing logs from the rollups of the log store
+				final LogStore.Summary summary = LogStore.getInstance().getSummary();
 
-				overviewMap.put(actionsProperty, logState.actions());
-				overviewMap.put(entryCountProperty, logState.actionCount());
-				overviewMap.put(firstEntryProperty, new Date(logState.beginTimestamp()));
-				overviewMap.put(lastEntryProperty, new Date(logState.endTimestamp()));
+				overviewMap.put(actionsProperty, summary.getActions());
+				overviewMap.put(entryCountProperty, summary.getCount());
+				overviewMap.put(firstEntryProperty, new Date(summary.getFirstTimestamp()));
+				overviewMap.put(lastEntryProperty, new Date(summary.getLastTimestamp()));
 
 				return new Result(overviewMap, false);
+			}
 
-			} else if (logState.doHistogram()) {
+			if (logState.doHistogram()) {
 
 				// aggregate results
 				return histogram(logState);
@@ -238,15 +220,18 @@ public class LogResource extends Resource {
 			// initialize?!
 			if ("true".equals(request.getParameter("initialize"))) {
 
-				final String filesPath = Settings.FilesPath.getValue();
+				if (!securityContext.isSuperUser()) {
+
+					throw new NotAllowedException("Initializing the event log is restricted to admin users");
+				}
 
-				try (final Context context  = new Context(1000)) {
+				final String filesPath = Settings.FilesPath.getValue();
+				final LogStore store   = LogStore.getInstance();
 
-					collectFilesAndStore(context, new File(filesPath + SUBJECTS).toPath(), 0);
+				collectFilesAndStore(store, new File(filesPath + SUBJECTS).toPath(), 0);
+				migrateLogEvents(store);
 
-				} catch (FrameworkException fex) {
-					logger.warn("", fex);
-				}
+				store.flush();
 
 				return new RestMethodResult(200);
 			}
@@ -258,27 +243,13 @@ public class LogResource extends Resource {
 
 			if (subjectId != null && objectId != null && action != null) {
 
-				final App app  = StructrApp.getInstance(securityContext);
-				LogEvent event = null;
+				final LogEntry entry = new LogEntry(System.currentTimeMillis(), subjectId, objectId, action, message);
 
-				try (final Tx tx = app.tx()) {
-
-					final PropertyMap properties = new PropertyMap();
-					properties.put(LogEvent.timestampProperty,           new Date());
-					properties.put(LogEvent.actionProperty,              action);
-					properties.put(LogEvent.subjectProperty,             subjectId);
-					properties.put(LogEvent.objectProperty,              objectId);
-					properties.put(LogEvent.messageProperty,             message);
-					properties.put(LogEvent.visibleToPublicUsers,        true);
-					properties.put(LogEvent.visibleToAuthenticatedUsers, true);
-
-					event = app.create(LogEvent.class, properties);
-
-					tx.success();
-				}
+				// the entry is written asynchronously, without a transaction
+				LogStore.getInstance().append(entry);
 
 				final RestMethodResult result = new RestMethodResult(201);
-				result.addContent(event);
+				result.addContent(entry.toGraphObjectMap());
 
 				return result;
 
@@ -337,7 +308,7 @@ public class LogResource extends Resource {
 	}
 
 	// ----- private methods -----
-	private void collectFilesAndStore(final Context context, final Path dir, final int level) throws FrameworkException {
+	private void collectFilesAndStore(final LogStore store, final Path dir, final int level) throws FrameworkException {
 
 		if (level == 1) {
 			logger.info("Path {}", dir);
@@ -349,14 +320,11 @@ public class LogResource extends Resource {
 
 				if (Files.isDirectory(p)) {
 
-					collectFilesAndStore(context, p, level+1);
+					collectFilesAndStore(store, p, level+1);
 
 				} else {
 
-					context.update(storeLogEntry(p));
-
-					// update object count and commit
-					context.commit(true);
+					storeLogEntry(store, p);
 				}
 
 				Files.delete(p);
@@ -368,17 +336,52 @@ public class LogResource extends Resource {
 		}
 	}
 
+	/**
+	 * Moves the log events that were stored in the database by previous
+	 * versions into the log store.
+	 */
+	private void migrateLogEvents(final LogStore store) throws FrameworkException {
+
+		final App app = StructrApp.getInstance();
+		int count     = 0;
+
+		while (true) {
+
+			try (final Tx tx = app.tx(false, false, false)) {
+
+				final List<LogEvent> events = app.nodeQuery(LogEvent.class).pageSize(1000).page(1).getAsList();
+				if (events.isEmpty()) {
+					break;
+				}
+
+				for (final LogEvent event : events) {
+
+					store.append(new LogEntry(event.getTimestamp(), event.getSubjectId(), event.getObjectId(), event.getAction(), event.getMessage()));
+					app.delete(event);
+				}
+
+				count += events.size();
+
+				// make sure that the entries are stored before the nodes are deleted
+				store.flush();
+
+				tx.success();
+			}
+		}
+
+		if (count > 0) {
+			logger.info("Moved {} log events from the database to the log store", count);
+		}
+	}
+
 	private void processData(final LogState state) throws FrameworkException {
 
 		if (state.doCorrelate()) {
 
 			// get the basic correlation set (pds_click in the test case)
-			final List<LogEvent> correlationResult = StructrApp.getInstance(securityContext)
-				.nodeQuery(LogEvent.class)
-				.and(LogEvent.actionProperty, state.correlationAction)
-				.getAsList();
+			final List<LogEntry> correlationResult = LogStore.getInstance().query(null, null, state.correlationAction, 0L, Long.MAX_VALUE);
 
-			for (final LogEvent entry : correlationResult) {
+			for (final LogEntry entry : correlationResult) {
 
 				final String pathSubjectId = state.inverse() ? entry.getObjectId() : entry.getSubjectId();
 				final String pathObjectId  = state.inverse() ? entry.getSubjectId() : entry.getObjectId();
@@ -402,19 +405,16 @@ public class LogResource extends Resource {
 
 		logger.debug("No. of correlations: {}", state.getCorrelations().entrySet().size());
 
-		final List<LogEvent> result = StructrApp.getInstance(securityContext).nodeQuery(LogEvent.class)
-			.and(LogEvent.actionProperty, state.logAction)
-			.andRange(LogEvent.timestampProperty, new Date(state.beginTimestamp()), new Date(state.endTimestamp()))
-			.getAsList();
+		final List<LogEntry> result = LogStore.getInstance().query(null, null, state.logAction, state.rangeStart(), state.rangeEnd());
 
 		processData(state, result);
 	}
 
-	private void processData(final LogState state, final Iterable<LogEvent> result) throws FrameworkException {
+	private void processData(final LogState state, final Iterable<LogEntry> result) throws FrameworkException {
 
 		int count = 0;
 
-		for (final LogEvent event : result) {
+		for (final LogEntry event : result) {
 
 			if ((++count % 100000) == 0) {
 				System.out.println(count);
@@ -436,39 +436,24 @@ public class LogResource extends Resource {
 				state.endTimestamp(timestamp);
 			}
 
-			if (state.overview()) {
-
-				if (entryAction != null) {
-
-					state.countAction(entryAction);
-
-				} else {
-
-					state.countAction("null");
-				}
-
-			} else {
+			// passes filter? action present or matching?
+			if (state.passesFilter(entryMessage) && state.correlates(pathSubjectId, pathObjectId, entryMessage)) {
 
-				// passes filter? action present or matching?
-				if (state.passesFilter(entryMessage) && state.correlates(pathSubjectId, pathObjectId, entryMessage)) {
+				final Map<String, Object> map = new HashMap<>();
 
-					final Map<String, Object> map = new HashMap<>();
+				map.put(subjectProperty.jsonName(), pathSubjectId);
+				map.put(objectProperty.jsonName(), pathObjectId);
+				map.put(actionProperty.jsonName(), entryAction);
+				map.put(timestampProperty.jsonName(), timestamp);
+				map.put(messageProperty.jsonName(), entryMessage);
 
-					map.put(subjectProperty.jsonName(), pathSubjectId);
-					map.put(objectProperty.jsonName(), pathObjectId);
-					map.put(actionProperty.jsonName(), entryAction);
-					map.put(timestampProperty.jsonName(), timestamp);
-					map.put(messageProperty.jsonName(), entryMessage);
-
-					state.addEntry(map);
-				}
+				state.addEntry(map);
 			}
 		}
 	}
 
-	private int storeLogEntry(final Path path) throws IOException, FrameworkException {
+	private int storeLogEntry(final LogStore store, final Path path) throws IOException {
 
-		final App app          = StructrApp.getInstance(securityContext);
 		final String fileName  = path.getFileName().toString();
 		int count              = 0;
 
@@ -489,17 +474,7 @@ public class LogResource extends Resource {
 				final String action          = part1;
 				final String message         = part2;
 
-				final PropertyMap properties = new PropertyMap();
-
-				properties.put(LogEvent.messageProperty,             message);
-				properties.put(LogEvent.actionProperty,              action);
-				properties.put(LogEvent.subjectProperty,             subjectId);
-				properties.put(LogEvent.objectProperty,              objectId);
-				properties.put(LogEvent.timestampProperty,           new Date(timestamp));
-				properties.put(LogEvent.visibleToPublicUsers,        true);
-				properties.put(LogEvent.visibleToAuthenticatedUsers, true);
-
-				app.create(LogEvent.class, properties);
+				store.append(new LogEntry(timestamp, subjectId, objectId, action, message));
 
 				count++;
 			}
@@ -842,8 +817,7 @@ public class LogResource extends Resource {
 
 		private final Map<String, Pattern> aggregationPatterns       = new HashMap<>();
 		private final List<Map<String, Object>> entries              = new LinkedList<>();
-		private final Map<String, LinkedList<LogEvent>> correlations = new ConcurrentHashMap<>();
-		private final Map<String, Integer> actions                   = new HashMap<>();
+		private final Map<String, LinkedList<LogEntry>> correlations = new ConcurrentHashMap<>();
 		private long beginTimestamp                                  = Long.MAX_VALUE;
 		private long endTimestamp                                    = 0L;
 		private String logAction                                     = null;
@@ -856,9 +830,7 @@ public class LogResource extends Resource {
 		private Pattern correlationPattern                           = null;
 		private String[] filters                                     = null;
 		private boolean inverse                                      = false;
-		private boolean overview                                     = false;
 		private Range range                                          = null;
-		private int actionCount                                      = 0;
 		private boolean doCorrelate                                  = false;
 
 		public LogState(final HttpServletRequest request) {
@@ -902,11 +874,11 @@ public class LogResource extends Resource {
 			entries.add(entry);
 		}
 
-		public void addCorrelationEntry(final String key, final LogEvent event) {
+		public void addCorrelationEntry(final String key, final LogEntry event) {
 
 			logger.debug("No. of correllation entry lists: {}, adding action: {} {}", new Object[]{correlations.keySet().size(), key, event.getMessage()});
 
-			LinkedList<LogEvent> existingEventList = correlations.get(key);
+			LinkedList<LogEntry> existingEventList = correlations.get(key);
 
 			if (existingEventList == null) {
 				existingEventList = new LinkedList<>();
@@ -917,37 +889,14 @@ public class LogResource extends Resource {
 			correlations.put(key, existingEventList);
 		}
 
-		public Map<String, LinkedList<LogEvent>> getCorrelations() {
+		public Map<String, LinkedList<LogEntry>> getCorrelations() {
 			return correlations;
 		}
 
-		public Map<String, Integer> actions() {
-			return actions;
-		}
-
 		public Map<String, Pattern> aggregationPatterns() {
 			return aggregationPatterns;
 		}
 
-		public void countAction(final String action) {
-
-			Integer actionCount = actions.get(action);
-			if (actionCount == null) {
-
-				actions.put(action, 1);
-
-			} else {
-
-				actions.put(action, actionCount + 1);
-			}
-
-			this.actionCount++;
-		}
-
-		public int actionCount() {
-			return actionCount;
-		}
-
 		public boolean isRequestedActionOrNull(final String action) {
 			return logAction == null || logAction.equals(action);
 		}
@@ -968,14 +917,6 @@ public class LogResource extends Resource {
 			return inverse;
 		}
 
-		public void overview(final boolean overview) {
-			this.overview = overview;
-		}
-
-		public boolean overview() {
-			return overview;
-		}
-
 		public long beginTimestamp() {
 			return range != null ? range.start : beginTimestamp;
 		}
@@ -984,6 +925,14 @@ public class LogResource extends Resource {
 			return range != null ? range.end : endTimestamp;
 		}
 
+		public long rangeStart() {
+			return range != null ? range.start : 0L;
+		}
+
+		public long rangeEnd() {
+			return range != null ? range.end : Long.MAX_VALUE;
+		}
+
 		public void beginTimestamp(final long beginTimestamp) {
 			this.beginTimestamp = beginTimestamp;
 		}
@@ -1029,7 +978,7 @@ public class LogResource extends Resource {
 				return true;
 			}
 
-			LinkedList<LogEvent> correlationEntries;
+			LinkedList<LogEntry> correlationEntries;
 
 			if (correlationOp != null && correlationPattern != null) {
 
@@ -1051,7 +1000,7 @@ public class LogResource extends Resource {
 
 							if (correlationEntries != null) {
 
-								for (LogEvent correlationEntry : correlationEntries) {
+								for (LogEntry correlationEntry : correlationEntries) {
 
 									if (correlationEntry.getSubjectId().equals(pathSubjectId)) {
 
@@ -1071,7 +1020,7 @@ public class LogResource extends Resource {
 
 							if (correlationEntries != null) {
 
-								for (LogEvent correlationEntry : correlationEntries) {
+								for (LogEntry correlationEntry : correlationEntries) {
 
 									if (correlationEntry.getObjectId().equals(pathObjectId)) {
 
@@ -1241,53 +1190,4 @@ public class LogResource extends Resource {
 			return timestamp1.compareTo(timestamp2);
 		}
 	}
-
-	private static class Context implements AutoCloseable {
-
-		private final App app   = StructrApp.getInstance();
-		private Tx tx           = null;
-		private int total       = 0;
-		private int count       = 0;
-		private int commitCount = 0;
-
-		public Context(final int commitCount) {
-
-			this.commitCount = commitCount;
-			this.tx          = app.tx(false, false, false);
-		}
-
-		public void commit(final boolean intermediate) throws FrameworkException {
-
-			if (count > commitCount) {
-
-				logger.info("Committing transaction after {} objects..", total);
-
-				tx.success();
-				tx.close();
-
-				if (intermediate) {
-
-					tx = app.tx(false, false, false);
-				}
-
-				count = 0;
-			}
-		}
-
-		public int getTotal() {
-			return total;
-		}
-
-		public void update(final int count) {
-			this.count += count;
-			this.total += count;
-		}
-
-		@Override
-		public void close() throws FrameworkException {
-
-			tx.success();
-			tx.close();
-		}
-	}
 }
@@ -172,14 +172,20 @@ public class TypeResource extends SortableResource {
 
 			} else {
 
-				return query
+				query
 					.includeDeletedAndHidden(includeDeletedAndHidden)
 					.publicOnly(publicOnly)
 					.sort(actualSortKey)
 					.order(actualSortOrder)
 					.pageSize(pageSize)
-					.page(page)
-					.getResult();
+					.page(page);
+
+				if (securityContext.streamResults()) {
+
+					return query.getResultStream();
+				}
+
+				return query.getResult();
 			}
 
 		} else {
@@ -47,6 +47,15 @@ public interface RestWriter {
 	public RestWriter value(final long value) throws IOException;
 	public RestWriter value(final Number value) throws IOException;
 
+	/**
+	 * Sends the output that has been written so far to the client, if
+	 * the writer supports incremental output.
+	 *
+	 * @throws IOException
+	 */
+	default public void flush() throws IOException {
+	}
+
 	default public void increaseSerializationDepth() {
 
 		getSecurityContext().increaseSerializationDepth();
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -33,7 +34,12 @@ import java.util.concurrent.TimeUnit;
 import org.eclipse.jetty.util.ConcurrentHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
 import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
+import org.structr.api.graph.Node;
+import org.structr.api.util.Iterables;
+import org.structr.common.PagingHelper;
 import org.structr.common.PropertyView;
 import org.structr.common.QueryRange;
 import org.structr.common.SecurityContext;
@@ -44,9 +50,13 @@ import org.structr.core.Value;
 import org.structr.core.app.StructrApp;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.Relation;
 import org.structr.core.function.Functions;
+import org.structr.core.graph.Factory;
+import org.structr.core.graph.NodeInterface;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
+import org.structr.core.property.RelationProperty;
 
 /**
  *
@@ -126,7 +136,8 @@ public abstract class StreamingWriter {
 
 	public void stream(final SecurityContext securityContext, final Writer output, final Result result, final String baseUrl) throws IOException {
 
-		long t0 = System.nanoTime();
+		long t0       = System.nanoTime();
+		long readTime = 0L;
 
 		RestWriter writer = getRestWriter(securityContext, output);
 
@@ -134,8 +145,11 @@ public abstract class StreamingWriter {
 			writer.setIndent("	");
 		}
 
+		// streaming results are serialized while they are read from the database
+		final boolean streaming = result.isStreaming() && result.isCollection() && !result.isPrimitiveArray();
+
 		// result fields in alphabetical order
-		List<? extends GraphObject> results = result.getResults();
+		List<? extends GraphObject> results = streaming ? null : result.getResults();
 		Integer page = result.getPage();
 		Integer pageCount = result.getPageCount();
 		Integer pageSize = result.getPageSize();
@@ -171,7 +185,29 @@ public abstract class StreamingWriter {
 			writer.name("result_count").value(resultCount);
 		}
 
-		if (results != null) {
+		if (streaming) {
+
+			writer.name(resultKeyName).beginArray();
+
+			readTime = streamResults(securityContext, writer, result.getStream(), propertyView.get(null));
+
+			writer.endArray();
+
+			// result count and page count are known only now
+			if (page != null && pageSize != null) {
+
+				PagingHelper.addPagingParameter(result, pageSize, page);
+
+				if (result.getPageCount() != null) {
+					writer.name("page_count").value(result.getPageCount());
+				}
+			}
+
+			if (result.getRawResultCount() != null && renderResultCount) {
+				writer.name("result_count").value(result.getRawResultCount());
+			}
+
+		} else if (results != null) {
 
 			if (results.isEmpty() && result.isPrimitiveArray()) {
 
@@ -249,6 +285,8 @@ public abstract class StreamingWriter {
 
 					writer.name(resultKeyName).beginArray();
 
+					prefetchRelationships(results, localPropertyView, 0);
+
 					// serialize list of results
 					for (GraphObject graphObject : results) {
 
@@ -295,7 +333,7 @@ public abstract class StreamingWriter {
 		}
 
 		if (renderSerializationTime) {
-			writer.name("serialization_time").value(decimalFormat.format((System.nanoTime() - t0) / 1000000000.0));
+			writer.name("serialization_time").value(decimalFormat.format((System.nanoTime() - t0 - readTime) / 1000000000.0));
 		}
 
 		// finished
@@ -367,6 +405,137 @@ public abstract class StreamingWriter {
 		}
 	}
 
+	/**
+	 * Serializes the given results in batches while they are read from the
+	 * database, and returns the time spent reading, in nanoseconds.
+	 */
+	private long streamResults(final SecurityContext securityContext, final RestWriter writer, final Iterable<? extends GraphObject> results, final String localPropertyView) throws IOException {
+
+		final Iterator<? extends GraphObject> iterator = results.iterator();
+		final List<GraphObject> batch                  = new ArrayList<>();
+		final long startTime                           = System.currentTimeMillis();
+		long readTime                                  = 0L;
+		int count                                      = 0;
+
+		while (true) {
+
+			final long t0 = System.nanoTime();
+
+			if (!iterator.hasNext()) {
+
+				readTime += System.nanoTime() - t0;
+				break;
+			}
+
+			batch.add(iterator.next());
+
+			readTime += System.nanoTime() - t0;
+
+			if (batch.size() >= Factory.PREFETCH_BATCH_SIZE) {
+
+				count += batch.size();
+
+				serializeBatch(writer, batch, localPropertyView);
+
+				// check for timeout
+				if (System.currentTimeMillis() > startTime + MAX_SERIALIZATION_TIME) {
+
+					logger.error("JSON serialization of {} with more than {} results took more than {} ms, aborted. Please review output view size or adjust timeout.", new Object[] { securityContext.getCompoundRequestURI(), count, MAX_SERIALIZATION_TIME } );
+
+					// TODO: create some output indicating that streaming was interrupted
+					return readTime;
+				}
+			}
+		}
+
+		serializeBatch(writer, batch, localPropertyView);
+
+		return readTime;
+	}
+
+	private void serializeBatch(final RestWriter writer, final List<GraphObject> batch, final String localPropertyView) throws IOException {
+
+		if (!batch.isEmpty()) {
+
+			prefetchRelationships(batch, localPropertyView, 0);
+
+			for (final GraphObject graphObject : batch) {
+				root.serialize(writer, graphObject, localPropertyView, 0);
+			}
+
+			batch.clear();
+
+			// send the serialized batch to the client
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Loads the relationships that back the serialized properties of all
+	 * nodes in the given collection in a few statements, if their
+	 * properties will be serialized at the given depth.
+	 */
+	private void prefetchRelationships(final List<?> objects, final String localPropertyView, final int depth) {
+
+		// properties of nested objects are not serialized beyond the nesting depth or in compact mode
+		if (objects.size() < 2 || depth > outputNestingDepth || (compactNestedProperties && depth > 0 && PropertyView.Ui.equals(localPropertyView))) {
+			return;
+		}
+
+		final Set<Class> types     = new LinkedHashSet<>();
+		final Set<String> incoming = new LinkedHashSet<>();
+		final Set<String> outgoing = new LinkedHashSet<>();
+		final List<Node> nodes     = new ArrayList<>();
+
+		for (final Object obj : objects) {
+
+			if (obj instanceof NodeInterface) {
+
+				final NodeInterface node = (NodeInterface)obj;
+
+				// collect the relationship types of the rendered properties once per type
+				if (types.add(node.getClass())) {
+
+					for (final PropertyKey key : node.getPropertyKeys(localPropertyView)) {
+
+						if (key instanceof RelationProperty) {
+
+							final RelationProperty relationProperty = (RelationProperty)key;
+							final Relation relation                 = relationProperty.getRelation();
+
+							if (relation != null) {
+
+								if ("out".equals(relationProperty.getDirectionKey())) {
+
+									outgoing.add(relation.name());
+
+								} else {
+
+									incoming.add(relation.name());
+								}
+							}
+						}
+					}
+				}
+
+				nodes.add(node.getNode());
+			}
+		}
+
+		if (nodes.size() > 1) {
+
+			final DatabaseService db = StructrApp.getInstance().getDatabaseService();
+
+			for (int i = 0; i < nodes.size(); i += Factory.PREFETCH_BATCH_SIZE) {
+
+				final List<Node> batch = nodes.subList(i, Math.min(i + Factory.PREFETCH_BATCH_SIZE, nodes.size()));
+
+				db.prefetchRelationships(batch, Direction.INCOMING, incoming);
+				db.prefetchRelationships(batch, Direction.OUTGOING, outgoing);
+			}
+		}
+	}
+
 	private void serializePrimitive(RestWriter writer, final Object value) throws IOException {
 
 		if (value != null && !Functions.NULL_STRING.equals(value)) {
@@ -528,7 +697,11 @@ public abstract class StreamingWriter {
 			// prevent endless recursion by pruning at depth n
 			if (depth <= outputNestingDepth) {
 
-				for (Object o : value) {
+				final List<Object> list = Iterables.toList(value);
+
+				prefetchRelationships(list, localPropertyView, depth);
+
+				for (Object o : list) {
 
 					serializeRoot(writer, o, localPropertyView, depth);
 				}
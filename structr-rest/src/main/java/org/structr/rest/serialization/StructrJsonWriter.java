@@ -60,6 +60,11 @@ public class StructrJsonWriter implements RestWriter {
 		return this;
 	}
 
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
 	@Override
 	public RestWriter beginArray() throws IOException {
 		writer.beginArray();
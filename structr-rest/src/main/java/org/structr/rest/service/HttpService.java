@@ -70,6 +70,7 @@ import org.structr.api.service.RunnableService;
 import org.structr.api.service.StructrServices;
 import org.structr.core.Services;
 import org.structr.rest.ResourceProvider;
+import org.structr.rest.auth.SessionRegistry;
 import org.tuckey.web.filters.urlrewrite.UrlRewriteFilter;
 
 /**
@@ -459,6 +460,9 @@ public class HttpService implements RunnableService {
 			}
 		}
 
+		// write pending session modifications
+		SessionRegistry.shutdown();
+
 		// send lifecycle event that the server has been stopped
 		sendLifecycleEvent(LifecycleEvent.Stopped);
 	}
@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -40,7 +41,6 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -98,6 +98,7 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 
 	private SecurityContext securityContext;
 	private final Map<Pattern, Class<? extends Resource>> resourceMap = new LinkedHashMap<>();
+	private RouteTable routeTable = null;
 	private Value<String> propertyView = null;
 
 	private static boolean removeLineBreaks = false;
@@ -118,6 +119,9 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 		// inject resources
 		resourceMap.putAll(config.getResourceProvider().getResources());
 
+		// compile resources
+		this.routeTable = new RouteTable(resourceMap);
+
 		// initialize variables
 		this.propertyView        = new ThreadLocalPropertyView();
 		this.defaultPropertyView = config.getDefaultPropertyView();
@@ -155,7 +159,7 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 			// isolate resource authentication
 			try (final Tx tx = app.tx()) {
 
-				resource = ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView);
+				resource = ResourceHelper.optimizeNestedResourceChain(securityContext, request, routeTable, propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 
 				tx.success();
@@ -316,7 +320,7 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 				// isolate resource authentication
 				try (final Tx tx = app.tx()) {
 
-					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, routeTable, propertyView), propertyView);
 					authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 					tx.success();
 				}
@@ -345,14 +349,17 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 
 						if (doPeriodicCommit) {
 
-							final List<JsonInput> list = new ArrayList<>();
-							csv.iterator().forEachRemaining(list::add);
-							final List<List<JsonInput>> chunkedCsv = ListUtils.partition(list, periodicCommitInterval);
+							final Iterator<JsonInput> iterator = csv.iterator();
+							int currentChunkNo                 = 0;
+							long processedRows                 = 0L;
 
-							final int totalChunkNo = chunkedCsv.size();
-							int currentChunkNo = 0;
+							while (iterator.hasNext()) {
 
-							for (final List<JsonInput> currentChunk : chunkedCsv) {
+								// read one chunk at a time instead of copying the whole input
+								final List<JsonInput> currentChunk = new ArrayList<>(periodicCommitInterval);
+								while (iterator.hasNext() && currentChunk.size() < periodicCommitInterval) {
+									currentChunk.add(iterator.next());
+								}
 
 								try (final Tx tx = app.tx()) {
 
@@ -366,13 +373,18 @@ public class CsvServlet extends HttpServlet implements HttpServiceServlet {
 
 									tx.success();
 
-									logger.info("CSV: Finished importing chunk " + currentChunkNo + " / " + totalChunkNo);
+									processedRows += currentChunk.size();
+
+									final long rowsPerSecond = (processedRows * 1000L) / Math.max(1L, System.currentTimeMillis() - startTime);
+
+									logger.info("CSV: Finished importing chunk " + currentChunkNo + " (" + rowsPerSecond + " rows/s)");
 
 									final Map<String, Object> chunkMsgData = new LinkedHashMap();
 									chunkMsgData.put("type",           "CSV_IMPORT_STATUS");
 									chunkMsgData.put("subtype",        "CHUNK");
 									chunkMsgData.put("currentChunkNo", currentChunkNo);
-									chunkMsgData.put("totalChunkNo",   totalChunkNo);
+									chunkMsgData.put("processedRows",  processedRows);
+									chunkMsgData.put("rowsPerSecond",  rowsPerSecond);
 									chunkMsgData.put("username",       username);
 									TransactionCommand.simpleBroadcastGenericMessage(chunkMsgData);
 
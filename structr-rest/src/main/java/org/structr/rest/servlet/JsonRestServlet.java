@@ -115,6 +115,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 	private final StructrHttpServiceConfig config                     = new StructrHttpServiceConfig();
 
 	// non-final fields
+	private RouteTable routeTable            = null;
 	private Value<String> propertyView       = null;
 	private ThreadLocalGson gson             = null;
 	private boolean indentJson               = true;
@@ -141,6 +142,9 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			logger.error("Unable to initialize JsonRestServlet, no resource provider found. Please check structr.conf for a valid resource provider class.");
 		}
 
+		// compile resources
+		this.routeTable = new RouteTable(resourceMap);
+
 		// initialize variables
 		this.propertyView = new ThreadLocalPropertyView();
 		this.indentJson   = Settings.JsonIndentation.getValue();
@@ -184,7 +188,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			// isolate resource authentication
 			try (final Tx tx = app.tx()) {
 
-				resource = ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView);
+				resource = ResourceHelper.optimizeNestedResourceChain(securityContext, request, routeTable, propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 
 				tx.success();
@@ -307,7 +311,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			// isolate resource authentication
 			try (final Tx tx = app.tx()) {
 
-				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, routeTable, propertyView), propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 				tx.success();
 			}
@@ -419,7 +423,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				// isolate resource authentication
 				try (final Tx tx = app.tx()) {
 
-					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, routeTable, propertyView), propertyView);
 					authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 					tx.success();
 				}
@@ -607,7 +611,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				try (final Tx tx = app.tx()) {
 
 					// evaluate constraint chain
-					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+					resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, routeTable, propertyView), propertyView);
 					authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 					tx.success();
 				}
@@ -787,7 +791,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			// isolate resource authentication
 			try (final Tx tx = app.tx()) {
 
-				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, resourceMap, propertyView), propertyView);
+				resource = ResourceHelper.applyViewTransformation(request, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, request, routeTable, propertyView), propertyView);
 				authenticator.checkResourceAccess(securityContext, request, resource.getResourceSignature(), propertyView.get(securityContext));
 				tx.success();
 			}
@@ -817,16 +821,37 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				sortKey = StructrApp.getConfiguration().getPropertyKeyForDatabaseName(type, sortKeyName, false);
 			}
 
+			// allow resources to return results that are serialized while they are read,
+			// the HTML representation keeps the original order of the result fields
+			final String accept = request.getHeader("Accept");
+			securityContext.streamResults(returnContent && (accept == null || !accept.contains("text/html")));
+
 			// isolate doGet
-			boolean retry = true;
+			boolean written = false;
+			boolean retry   = true;
 			while (retry) {
 
 				try (final Tx tx = app.tx()) {
+
 					result = resource.doGet(sortKey, sortDescending, pageSize, page);
+
+					// streaming results must be consumed in the transaction they were created in
+					if (result != null && result.isStreaming()) {
+
+						writeResult(request, response, securityContext, resource, result, pageSize, page, baseUrl, queryTimeStart);
+						written = true;
+					}
+
 					tx.success();
 					retry = false;
 
 				} catch (RetryException ddex) {
+
+					// no retry if output has already been written
+					if (written) {
+						throw ddex;
+					}
+
 					retry = true;
 				}
 			}
@@ -836,68 +861,9 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				throw new FrameworkException(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Unable to retrieve result, check database connection.");
 			}
 			
-			if (returnContent) {
-
-				if (!(resource instanceof StaticRelationshipResource) && !result.isPrimitiveArray() && !result.isEmpty()) {
-
-					result.setIsCollection(resource.isCollectionResource());
-					result.setIsPrimitiveArray(resource.isPrimitiveArray());
-
-				}
-
-				PagingHelper.addPagingParameter(result, pageSize, page);
-
-				// timing..
-				double queryTimeEnd = System.nanoTime();
-
-				// store property view that will be used to render the results
-				result.setPropertyView(propertyView.get(securityContext));
-
-				// allow resource to modify result set
-				resource.postProcessResultSet(result);
-
-				DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
-				result.setQueryTime(decimalFormat.format((queryTimeEnd - queryTimeStart) / 1000000000.0));
-
-				String accept = request.getHeader("Accept");
-
-				if (accept != null && accept.contains("text/html")) {
-
-					final StreamingHtmlWriter htmlStreamer = new StreamingHtmlWriter(this.propertyView, indentJson, config.getOutputNestingDepth());
-
-					// isolate write output
-					try (final Tx tx = app.tx()) {
-
-						// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
-						response.setContentType("text/html; charset=utf-8");
-
-						final Writer writer = response.getWriter();
-
-						htmlStreamer.stream(securityContext, writer, result, baseUrl);
-						writer.append("\n");    // useful newline
-
-						tx.success();
-					}
-
-				} else {
-
-					final StreamingJsonWriter jsonStreamer = new StreamingJsonWriter(this.propertyView, indentJson, config.getOutputNestingDepth());
-
-					// isolate write output
-					try (final Tx tx = app.tx()) {
-
-						// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
-						response.setContentType("application/json; charset=utf-8");
-
-						final Writer writer = response.getWriter();
-
-						jsonStreamer.stream(securityContext, writer, result, baseUrl);
-						writer.append("\n");    // useful newline
-
-						tx.success();
-					}
+			if (returnContent && !written) {
 
-				}
+				writeResult(request, response, securityContext, resource, result, pageSize, page, baseUrl, queryTimeStart);
 			}
 
 			response.setStatus(HttpServletResponse.SC_OK);
@@ -951,6 +917,72 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 		}
 	}
 
+	private void writeResult(final HttpServletRequest request, final HttpServletResponse response, final SecurityContext securityContext, final Resource resource, final Result result, final int pageSize, final int page, final String baseUrl, final double queryTimeStart) throws FrameworkException, IOException {
+
+		final App app = StructrApp.getInstance(securityContext);
+
+		if (!(resource instanceof StaticRelationshipResource) && !result.isPrimitiveArray() && (result.isStreaming() || !result.isEmpty())) {
+
+			result.setIsCollection(resource.isCollectionResource());
+			result.setIsPrimitiveArray(resource.isPrimitiveArray());
+
+		}
+
+		PagingHelper.addPagingParameter(result, pageSize, page);
+
+		// timing..
+		double queryTimeEnd = System.nanoTime();
+
+		// store property view that will be used to render the results
+		result.setPropertyView(propertyView.get(securityContext));
+
+		// allow resource to modify result set
+		resource.postProcessResultSet(result);
+
+		DecimalFormat decimalFormat = new DecimalFormat("0.000000000", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+		result.setQueryTime(decimalFormat.format((queryTimeEnd - queryTimeStart) / 1000000000.0));
+
+		String accept = request.getHeader("Accept");
+
+		if (accept != null && accept.contains("text/html")) {
+
+			final StreamingHtmlWriter htmlStreamer = new StreamingHtmlWriter(this.propertyView, indentJson, config.getOutputNestingDepth());
+
+			// isolate write output
+			try (final Tx tx = app.tx()) {
+
+				// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
+				response.setContentType("text/html; charset=utf-8");
+
+				final Writer writer = response.getWriter();
+
+				htmlStreamer.stream(securityContext, writer, result, baseUrl);
+				writer.append("\n");    // useful newline
+
+				tx.success();
+			}
+
+		} else {
+
+			final StreamingJsonWriter jsonStreamer = new StreamingJsonWriter(this.propertyView, indentJson, config.getOutputNestingDepth());
+
+			// isolate write output
+			try (final Tx tx = app.tx()) {
+
+				// no trailing semicolon so we dont trip MimeTypes.getContentTypeWithoutCharset
+				response.setContentType("application/json; charset=utf-8");
+
+				final Writer writer = response.getWriter();
+
+				jsonStreamer.stream(securityContext, writer, result, baseUrl);
+				writer.append("\n");    // useful newline
+
+				tx.success();
+			}
+
+		}
+	}
+
 	private void assertInitialized() throws FrameworkException {
 
 		if (!Services.getInstance().isInitialized()) {
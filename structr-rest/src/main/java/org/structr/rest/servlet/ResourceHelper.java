@@ -22,10 +22,7 @@ package org.structr.rest.servlet;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -38,7 +35,6 @@ import org.structr.core.ViewTransformation;
 import org.structr.core.app.StructrApp;
 import org.structr.rest.exception.IllegalPathException;
 import org.structr.rest.exception.NoResultsException;
-import org.structr.rest.exception.NotFoundException;
 import org.structr.rest.resource.Resource;
 import org.structr.rest.resource.TransformationResource;
 import org.structr.rest.resource.ViewFilterResource;
@@ -60,12 +56,12 @@ public class ResourceHelper {
 	 *
 	 * @param securityContext
 	 * @param request
-	 * @param resourceMap
+	 * @param routeTable
 	 * @param propertyView
 	 * @return resourceChain
 	 * @throws FrameworkException
 	 */
-	public static List<Resource> parsePath(final SecurityContext securityContext, final HttpServletRequest request, final Map<Pattern, Class<? extends Resource>> resourceMap, final Value<String> propertyView) throws FrameworkException {
+	public static List<Resource> parsePath(final SecurityContext securityContext, final HttpServletRequest request, final RouteTable routeTable, final Value<String> propertyView) throws FrameworkException {
 
 		final String path = request.getPathInfo();
 
@@ -77,94 +73,20 @@ public class ResourceHelper {
 
 		// 1.: split request path into URI parts
 		final String[] pathParts = path.split("[/]+");
+		final List<String> parts = new ArrayList<>(pathParts.length);
 
-		// 2.: create container for resource constraints
-		final Set<String> propertyViews    = Services.getInstance().getConfigurationProvider().getPropertyViews();
-		final List<Resource> resourceChain = new ArrayList<>(pathParts.length);
-
-		// 3.: try to assign resource constraints for each URI part
-		for (int i = 0; i < pathParts.length; i++) {
-
-			// eliminate empty strings
-			final String part = pathParts[i].trim();
-
-			if (part.length() > 0) {
-
-				boolean found = false;
-
-				// check views first
-				if (propertyViews.contains(part)) {
-
-					Resource resource = new ViewFilterResource();
-					resource.checkAndConfigure(part, securityContext, request);
-					resource.configurePropertyView(propertyView);
-
-					resourceChain.add(resource);
-
-					// mark this part as successfully parsed
-					found = true;
-
-				} else {
-
-					// look for matching pattern
-					for (Map.Entry<Pattern, Class<? extends Resource>> entry : resourceMap.entrySet()) {
-
-						Pattern pattern = entry.getKey();
-						Matcher matcher = pattern.matcher(pathParts[i]);
-
-						if (matcher.matches()) {
-
-							Class<? extends Resource> type = entry.getValue();
-							Resource resource              = null;
-
-							try {
-
-								// instantiate resource constraint
-								resource = type.newInstance();
-							} catch (Throwable t) {
-
-								logger.warn("Error instantiating resource class", t);
-
-							}
-
-							if (resource != null) {
-
-								// set security context
-								resource.setSecurityContext(securityContext);
-
-								if (resource.checkAndConfigure(part, securityContext, request)) {
-
-									logger.debug("{} matched, adding resource of type {} for part {}", new Object[] { matcher.pattern(), type.getName(),
-										part });
-
-									// allow constraint to modify context
-									resource.configurePropertyView(propertyView);
-
-									// add constraint and go on
-									resourceChain.add(resource);
-
-									found = true;
-
-									// first match wins, so choose priority wisely ;)
-									break;
-
-								}
-							}
-
-						}
-					}
-				}
-
-				if (!found) {
-
-					throw new NotFoundException("Cannot resolve URL path");
-				}
+		// 2.: eliminate empty strings
+		for (final String pathPart : pathParts) {
 
+			if (pathPart.trim().length() > 0) {
+				parts.add(pathPart);
 			}
 		}
 
-		return resourceChain;
+		// 3.: resolve resource constraints for each URI part
+		final Set<String> propertyViews = Services.getInstance().getConfigurationProvider().getPropertyViews();
 
+		return routeTable.resolve(securityContext, request, parts, propertyViews, propertyView);
 	}
 
 	/**
@@ -172,17 +94,16 @@ public class ResourceHelper {
 	 *
 	 * @param securityContext
 	 * @param request
-	 * @param resourceMap
+	 * @param routeTable
 	 * @param propertyView
 	 * @return finalResource
 	 * @throws FrameworkException
 	 */
-	public static Resource optimizeNestedResourceChain(final SecurityContext securityContext, final HttpServletRequest request, final Map<Pattern, Class<? extends Resource>> resourceMap, final Value<String> propertyView) throws FrameworkException {
+	public static Resource optimizeNestedResourceChain(final SecurityContext securityContext, final HttpServletRequest request, final RouteTable routeTable, final Value<String> propertyView) throws FrameworkException {
 
-		final List<Resource> resourceChain = ResourceHelper.parsePath(securityContext, request, resourceMap, propertyView);
+		final List<Resource> resourceChain = ResourceHelper.parsePath(securityContext, request, routeTable, propertyView);
 
 		ViewFilterResource view = null;
-		int num                 = resourceChain.size();
 		boolean found           = false;
 
 		do {
@@ -205,7 +126,8 @@ public class ResourceHelper {
 
 			try {
 
-				for (int i = 0; i < num; i++) {
+				// stop at the last element instead of relying on an exception
+				for (int i = 0; i < resourceChain.size() - 1; i++) {
 
 					Resource firstElement       = resourceChain.get(i);
 					Resource secondElement      = resourceChain.get(i + 1);
@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.servlet;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import javax.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Value;
+import org.structr.core.app.StructrApp;
+import org.structr.rest.ResourceProvider;
+import org.structr.rest.exception.NotFoundException;
+import org.structr.rest.resource.Resource;
+import org.structr.rest.resource.ViewFilterResource;
+import org.structr.schema.ConfigurationProvider;
+import org.structr.schema.SchemaService;
+
+/**
+ * A compiled representation of a resource map that resolves URL path parts
+ * to resources without testing every pattern for every part.
+ *
+ * Path parts that are equal to a literal pattern or to the name of a type
+ * are looked up in a table that contains the matching resources for each
+ * literal in the order of the resource map. Only the remaining path parts
+ * (UUIDs etc.) are matched against the non-literal patterns. The literal
+ * table is rebuilt after the schema was reloaded.
+ *
+ * Additionally, the resource that finally accepted each path part is stored
+ * per URL template, so that subsequent requests for the same template only
+ * instantiate and configure that resource. A URL template consists of the
+ * literal path parts and, for all other parts, the set of patterns they match.
+ */
+public class RouteTable {
+
+	private static final Logger logger            = LoggerFactory.getLogger(RouteTable.class.getName());
+	private static final Pattern LITERAL_PATTERN  = Pattern.compile("[a-zA-Z0-9_\\-]+");
+	private static final int MAX_TEMPLATES        = 10000;
+
+	private static final Map<Class, RouteTable> providerTables      = new ConcurrentHashMap<>();
+
+	private final ConcurrentFixedSizeCache<String, int[]> templates = new ConcurrentFixedSizeCache<>(MAX_TEMPLATES);
+	private final List<Route> routes                                = new ArrayList<>();
+	private final List<Route> patternRoutes                         = new ArrayList<>();
+	private final AtomicLong rebuilds                               = new AtomicLong();
+	private final AtomicLong misses                                 = new AtomicLong();
+	private final AtomicLong hits                                   = new AtomicLong();
+	private volatile Map<String, Route[]> literals                  = null;
+	private volatile long generation                                = -1L;
+
+	public RouteTable(final Map<Pattern, Class<? extends Resource>> resourceMap) {
+
+		for (final Map.Entry<Pattern, Class<? extends Resource>> entry : resourceMap.entrySet()) {
+
+			final Route route = new Route(routes.size(), entry.getKey(), entry.getValue());
+
+			routes.add(route);
+
+			if (!route.isLiteral()) {
+				patternRoutes.add(route);
+			}
+		}
+	}
+
+	/**
+	 * Returns a shared route table for the resources of the given provider,
+	 * for callers that resolve paths without a servlet.
+	 *
+	 * @param provider
+	 * @return the route table
+	 */
+	public static RouteTable forProvider(final ResourceProvider provider) {
+		return providerTables.computeIfAbsent(provider.getClass(), k -> new RouteTable(provider.getResources()));
+	}
+
+	/**
+	 * Resolves the given path parts to a chain of configured resources.
+	 *
+	 * @param securityContext
+	 * @param request
+	 * @param parts the non-empty path parts
+	 * @param propertyViews the names of all property views
+	 * @param propertyView
+	 * @return resourceChain
+	 * @throws FrameworkException
+	 */
+	public List<Resource> resolve(final SecurityContext securityContext, final HttpServletRequest request, final List<String> parts, final Set<String> propertyViews, final Value<String> propertyView) throws FrameworkException {
+
+		final Map<String, Route[]> literalTable = getLiterals();
+		final int size                          = parts.size();
+		final Route[][] candidates              = new Route[size][];
+		final List<Resource> resourceChain      = new ArrayList<>(size);
+		final String template                   = createTemplate(literalTable, parts, propertyViews, candidates);
+		final int[] cachedWinners               = templates.get(template);
+		final int[] winners                     = new int[size];
+		boolean cacheable                       = true;
+
+		if (cachedWinners != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+
+		for (int i=0; i<size; i++) {
+
+			final String part = parts.get(i).trim();
+
+			// check views first
+			if (candidates[i] == null) {
+
+				final Resource resource = new ViewFilterResource();
+				resource.checkAndConfigure(part, securityContext, request);
+				resource.configurePropertyView(propertyView);
+
+				resourceChain.add(resource);
+
+				winners[i] = -1;
+
+				continue;
+			}
+
+			Resource resource = null;
+
+			// try the resource that accepted this part of the template before
+			if (cachedWinners != null && cachedWinners[i] >= 0) {
+
+				resource = routes.get(cachedWinners[i]).tryConfigure(part, securityContext, request);
+				winners[i] = cachedWinners[i];
+			}
+
+			if (resource == null) {
+
+				// first match wins, so choose priority wisely ;)
+				for (final Route route : candidates[i]) {
+
+					if (cachedWinners != null && route.index == cachedWinners[i]) {
+						continue;
+					}
+
+					resource = route.tryConfigure(part, securityContext, request);
+					if (resource != null) {
+
+						winners[i] = route.index;
+						break;
+					}
+				}
+			}
+
+			if (resource == null) {
+
+				throw new NotFoundException("Cannot resolve URL path");
+			}
+
+			// parts that are represented by their patterns in the template can only
+			// be cached if no other resource had the chance to accept them
+			if (!literalTable.containsKey(parts.get(i)) && candidates[i][0].index != winners[i]) {
+				cacheable = false;
+			}
+
+			// allow constraint to modify context
+			resource.configurePropertyView(propertyView);
+
+			// add constraint and go on
+			resourceChain.add(resource);
+		}
+
+		if (cacheable && (cachedWinners == null || !Arrays.equals(cachedWinners, winners))) {
+
+			templates.put(template, winners);
+		}
+
+		return resourceChain;
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		statistics.put("templates", Long.valueOf(templates.size()));
+		statistics.put("hits",      hits.get());
+		statistics.put("misses",    misses.get());
+		statistics.put("rebuilds",  rebuilds.get());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private String createTemplate(final Map<String, Route[]> literalTable, final List<String> parts, final Set<String> propertyViews, final Route[][] candidates) throws FrameworkException {
+
+		final StringBuilder buf = new StringBuilder();
+		final int size          = parts.size();
+
+		for (int i=0; i<size; i++) {
+
+			final String part = parts.get(i);
+
+			buf.append('/');
+
+			if (propertyViews.contains(part.trim())) {
+
+				// view parts are not represented by a route
+				buf.append(part);
+				continue;
+			}
+
+			final Route[] literalRoutes = literalTable.get(part);
+			if (literalRoutes != null) {
+
+				candidates[i] = literalRoutes;
+				buf.append(part);
+				continue;
+			}
+
+			final Route[] matchingRoutes = match(part, patternRoutes);
+			if (matchingRoutes.length == 0) {
+
+				throw new NotFoundException("Cannot resolve URL path");
+			}
+
+			candidates[i] = matchingRoutes;
+
+			buf.append('{');
+
+			for (final Route route : matchingRoutes) {
+				buf.append(route.index).append(',');
+			}
+
+			buf.append('}');
+		}
+
+		return buf.toString();
+	}
+
+	private Map<String, Route[]> getLiterals() {
+
+		final long currentGeneration = SchemaService.getGeneration();
+
+		if (literals == null || generation != currentGeneration) {
+
+			// concurrent rebuilds produce identical tables, so no locking is needed
+			final ConfigurationProvider config = StructrApp.getConfiguration();
+			final Map<String, Route[]> table   = new HashMap<>();
+
+			for (final Route route : routes) {
+
+				if (route.isLiteral()) {
+					table.put(route.literal, match(route.literal, routes));
+				}
+			}
+
+			for (final String type : config.getNodeEntities().keySet()) {
+				table.computeIfAbsent(type, k -> match(k, routes));
+			}
+
+			for (final String type : config.getRelationshipEntities().keySet()) {
+				table.computeIfAbsent(type, k -> match(k, routes));
+			}
+
+			// drop types that none of the patterns match
+			table.values().removeIf(r -> r.length == 0);
+
+			templates.clear();
+
+			literals   = table;
+			generation = currentGeneration;
+
+			rebuilds.incrementAndGet();
+		}
+
+		return literals;
+	}
+
+	private Route[] match(final String part, final List<Route> source) {
+
+		final List<Route> result = new ArrayList<>();
+
+		for (final Route route : source) {
+
+			if (route.pattern.matcher(part).matches()) {
+				result.add(route);
+			}
+		}
+
+		return result.toArray(new Route[0]);
+	}
+
+	// ----- nested classes -----
+	private static class Route {
+
+		private Constructor<? extends Resource> constructor = null;
+		private Class<? extends Resource> type              = null;
+		private Pattern pattern                             = null;
+		private String literal                              = null;
+		private int index                                   = 0;
+
+		public Route(final int index, final Pattern pattern, final Class<? extends Resource> type) {
+
+			this.pattern = pattern;
+			this.index   = index;
+			this.type    = type;
+
+			if (LITERAL_PATTERN.matcher(pattern.pattern()).matches()) {
+				this.literal = pattern.pattern();
+			}
+
+			try {
+
+				this.constructor = type.getConstructor();
+
+			} catch (Throwable t) {
+
+				logger.warn("Resource class {} has no public default constructor", type.getName());
+			}
+		}
+
+		public boolean isLiteral() {
+			return literal != null;
+		}
+
+		public Resource tryConfigure(final String part, final SecurityContext securityContext, final HttpServletRequest request) throws FrameworkException {
+
+			Resource resource = null;
+
+			if (constructor != null) {
+
+				try {
+
+					// instantiate resource constraint
+					resource = constructor.newInstance();
+
+				} catch (Throwable t) {
+
+					logger.warn("Error instantiating resource class", t);
+				}
+			}
+
+			if (resource != null) {
+
+				// set security context
+				resource.setSecurityContext(securityContext);
+
+				if (resource.checkAndConfigure(part, securityContext, request)) {
+
+					logger.debug("{} matched, adding resource of type {} for part {}", new Object[] { pattern, type.getName(), part });
+
+					return resource;
+				}
+			}
+
+			return null;
+		}
+	}
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.auth;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Assert;
+import org.junit.Test;
+import org.structr.common.error.FrameworkException;
+
+/**
+ *
+ */
+public class SessionRegistryTest {
+
+	@Test
+	public void testWriteBehind() {
+
+		final MapSessionStore store    = new MapSessionStore();
+		final SessionRegistry registry = new SessionRegistry(store, 60000L);
+
+		registry.register("session1", "principal1");
+		registry.register("session2", "principal1");
+
+		Assert.assertEquals("Invalid principal for session", "principal1", registry.getPrincipalId("session1"));
+
+		registry.flush();
+
+		Assert.assertEquals("Session was not written to the store", "principal1", store.sessions.get("session1"));
+		Assert.assertEquals("Session was not written to the store", "principal1", store.sessions.get("session2"));
+
+		registry.unregister("session1");
+
+		Assert.assertNull("Session was not removed", registry.getPrincipalId("session1"));
+
+		registry.flush();
+
+		Assert.assertNull("Session was not removed from the store", store.sessions.get("session1"));
+
+		registry.close();
+	}
+
+	@Test
+	public void testFallbackToStore() {
+
+		final MapSessionStore store    = new MapSessionStore();
+		final SessionRegistry registry = new SessionRegistry(store, 60000L);
+
+		// session created by another instance
+		store.sessions.put("session1", "principal1");
+
+		Assert.assertEquals("Invalid principal for session", "principal1", registry.getPrincipalId("session1"));
+		Assert.assertEquals("Invalid principal for session", "principal1", registry.getPrincipalId("session1"));
+
+		final Map<String, Long> statistics = registry.getStatistics();
+
+		Assert.assertEquals("Invalid number of cache hits",   Long.valueOf(1), statistics.get("hits"));
+		Assert.assertEquals("Invalid number of cache misses", Long.valueOf(1), statistics.get("misses"));
+
+		registry.close();
+	}
+
+	@Test
+	public void testPendingRemovalIsNotReloaded() throws InterruptedException {
+
+		final CountDownLatch latch     = new CountDownLatch(1);
+		final MapSessionStore store    = new MapSessionStore(latch);
+		final SessionRegistry registry = new SessionRegistry(store, 60000L);
+
+		store.sessions.put("session1", "principal1");
+
+		registry.unregister("session1");
+
+		// the store still contains the session, but it must not be used
+		Assert.assertEquals("Invalid store content", "principal1", store.sessions.get("session1"));
+		Assert.assertNull("Removed session must not be reloaded from the store", registry.getPrincipalId("session1"));
+
+		latch.countDown();
+		registry.flush();
+
+		Assert.assertNull("Session was not removed from the store", store.sessions.get("session1"));
+
+		registry.close();
+	}
+
+	@Test
+	public void testEviction() throws InterruptedException {
+
+		final MapSessionStore store    = new MapSessionStore();
+		final SessionRegistry registry = new SessionRegistry(store, 1L);
+
+		registry.register("session1", "principal1");
+		registry.flush();
+
+		// wait for the eviction run
+		Thread.sleep(1500);
+
+		Assert.assertEquals("Session was not evicted", Long.valueOf(0), registry.getStatistics().get("size"));
+		Assert.assertEquals("Evicted session must be loaded from the store", "principal1", registry.getPrincipalId("session1"));
+
+		registry.close();
+	}
+
+	@Test
+	public void testRevalidation() throws InterruptedException {
+
+		final MapSessionStore store    = new MapSessionStore();
+		final SessionRegistry registry = new SessionRegistry(store, 60000L, 100L);
+
+		registry.register("session1", "principal1");
+		registry.flush();
+
+		// session removed by another instance
+		store.sessions.remove("session1");
+
+		Assert.assertEquals("Session must be answered from memory within the maximum age", "principal1", registry.getPrincipalId("session1"));
+
+		Thread.sleep(200);
+
+		Assert.assertNull("Session was not revalidated against the store", registry.getPrincipalId("session1"));
+		Assert.assertEquals("Invalid number of revalidations", Long.valueOf(1), registry.getStatistics().get("revalidations"));
+
+		registry.close();
+	}
+
+	@Test
+	public void testInvalidation() {
+
+		final MapSessionStore store    = new MapSessionStore();
+		final SessionRegistry registry = new SessionRegistry(store, 60000L);
+
+		registry.register("session1", "principal1");
+		registry.register("session2", "principal2");
+		registry.flush();
+
+		// session moved to another principal
+		store.sessions.put("session1", "principal2");
+
+		registry.invalidate("principal1");
+
+		Assert.assertEquals("Invalidated session was not reloaded from the store", "principal2", registry.getPrincipalId("session1"));
+		Assert.assertEquals("Invalid number of entries", Long.valueOf(2), registry.getStatistics().get("size"));
+
+		registry.close();
+	}
+
+	@Test
+	public void testOwnWritesDoNotInvalidate() {
+
+		final MapSessionStore store    = new MapSessionStore();
+		final SessionRegistry registry = new SessionRegistry(store, 60000L);
+
+		// the graph store modifies the sessionIds of the principal, which notifies the registry
+		store.listener = registry;
+
+		registry.register("session1", "principal1");
+		registry.flush();
+
+		registry.register("session2", "principal1");
+		registry.flush();
+
+		Assert.assertEquals("Own writes must not invalidate sessions", Long.valueOf(0), registry.getStatistics().get("invalidations"));
+		Assert.assertEquals("Invalid number of entries", Long.valueOf(2), registry.getStatistics().get("size"));
+
+		registry.close();
+	}
+
+	@Test
+	public void testNoTimeout() throws InterruptedException {
+
+		final MapSessionStore store    = new MapSessionStore();
+		final SessionRegistry registry = new SessionRegistry(store, 0L);
+
+		registry.register("session1", "principal1");
+		registry.flush();
+
+		Thread.sleep(1500);
+
+		Assert.assertEquals("Sessions without a timeout must not be evicted", Long.valueOf(1), registry.getStatistics().get("size"));
+		Assert.assertEquals("Invalid number of evictions", Long.valueOf(0), registry.getStatistics().get("evictions"));
+
+		registry.close();
+	}
+
+	// ----- nested classes -----
+	private static class MapSessionStore implements SessionStore {
+
+		private final Map<String, String> sessions = new ConcurrentHashMap<>();
+		private CountDownLatch removalLatch        = null;
+		private SessionRegistry listener           = null;
+
+		public MapSessionStore() {
+			this(null);
+		}
+
+		public MapSessionStore(final CountDownLatch removalLatch) {
+			this.removalLatch = removalLatch;
+		}
+
+		@Override
+		public String getPrincipalId(final String sessionId) throws FrameworkException {
+			return sessions.get(sessionId);
+		}
+
+		@Override
+		public void store(final String sessionId, final String principalId) throws FrameworkException {
+			sessions.put(sessionId, principalId);
+
+			if (listener != null) {
+				listener.invalidate(principalId);
+			}
+		}
+
+		@Override
+		public void remove(final String sessionId) throws FrameworkException {
+
+			if (removalLatch != null) {
+
+				try { removalLatch.await(); } catch (InterruptedException ignore) {}
+			}
+
+			sessions.remove(sessionId);
+		}
+	}
+}
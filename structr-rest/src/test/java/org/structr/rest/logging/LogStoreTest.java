@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.structr.common.error.FrameworkException;
+
+/**
+ *
+ */
+public class LogStoreTest {
+
+	private static final long HOUR = 3600000L;
+
+	private Path directory = null;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("structr-eventlog");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory.toFile());
+	}
+
+	@Test
+	public void testQueries() throws IOException, FrameworkException {
+
+		final LogStore store = new LogStore(directory, HOUR, 10, 100L);
+
+		// three hours with 100 entries each
+		for (int i=0; i<300; i++) {
+			store.append(new LogEntry(i * HOUR / 100, "subject" + (i % 3), "object" + (i % 5), i % 2 == 0 ? "read" : "write", "message " + i));
+		}
+
+		Assert.assertEquals("Invalid number of entries", 300, store.query(null, null, null, 0L, Long.MAX_VALUE).size());
+		Assert.assertEquals("Invalid number of entries", 100, store.query("subject1", null, null, 0L, Long.MAX_VALUE).size());
+		Assert.assertEquals("Invalid number of entries",  20, store.query("subject1", "object2", null, 0L, Long.MAX_VALUE).size());
+		Assert.assertEquals("Invalid number of entries",  10, store.query("subject1", "object2", "write", 0L, Long.MAX_VALUE).size());
+		Assert.assertEquals("Invalid number of entries", 150, store.query(null, null, "read", 0L, Long.MAX_VALUE).size());
+		Assert.assertEquals("Invalid number of entries",   0, store.query("unknown", null, null, 0L, Long.MAX_VALUE).size());
+
+		// time range within the second segment
+		final List<LogEntry> range = store.query(null, null, "read", HOUR + HOUR / 2, 2 * HOUR - 1);
+
+		Assert.assertEquals("Invalid number of entries", 25, range.size());
+
+		for (final LogEntry entry : range) {
+
+			Assert.assertTrue("Entry outside of time range", entry.getTimestamp() >= HOUR + HOUR / 2 && entry.getTimestamp() < 2 * HOUR);
+			Assert.assertEquals("Invalid action", "read", entry.getAction());
+		}
+
+		final LogStore.Summary summary = store.getSummary();
+
+		Assert.assertEquals("Invalid number of entries", 300, summary.getCount());
+		Assert.assertEquals("Invalid number of entries", Integer.valueOf(150), summary.getActions().get("write"));
+		Assert.assertEquals("Invalid first timestamp", 0L, summary.getFirstTimestamp());
+		Assert.assertEquals("Invalid last timestamp", 299 * HOUR / 100, summary.getLastTimestamp());
+		Assert.assertEquals("Invalid number of segments", Long.valueOf(3), store.getStatistics().get("segments"));
+
+		store.close();
+	}
+
+	@Test
+	public void testReopen() throws IOException, FrameworkException {
+
+		final LogStore store = new LogStore(directory, HOUR, 100, 100L);
+
+		store.append(new LogEntry(1000L, "subject", "object", "read", "first message"));
+		store.append(new LogEntry(2000L, "subject", "object", null, null));
+		store.append(new LogEntry(HOUR + 1000L, "subject", "other", "read", "Nachricht mit Umlauten äöü"));
+		store.close();
+
+		// simulate an incomplete write at the end of the second segment
+		try (final FileChannel channel = FileChannel.open(directory.resolve(HOUR + ".log"), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 1, 0, 1, 2 }));
+		}
+
+		final LogStore reopened = new LogStore(directory, HOUR, 100, 100L);
+
+		Assert.assertEquals("Invalid number of entries", 3, reopened.getSummary().getCount());
+		Assert.assertEquals("Invalid number of entries", Integer.valueOf(1), reopened.getSummary().getActions().get("null"));
+
+		final List<LogEntry> entries = reopened.query("subject", "other", null, 0L, Long.MAX_VALUE);
+
+		Assert.assertEquals("Invalid number of entries", 1, entries.size());
+		Assert.assertEquals("Invalid message", "Nachricht mit Umlauten äöü", entries.get(0).getMessage());
+
+		final List<LogEntry> nullEntries = reopened.query(null, null, null, 2000L, 2000L);
+
+		Assert.assertEquals("Invalid number of entries", 1, nullEntries.size());
+		Assert.assertNull("Invalid action", nullEntries.get(0).getAction());
+		Assert.assertNull("Invalid message", nullEntries.get(0).getMessage());
+
+		// append after recovery
+		reopened.append(new LogEntry(HOUR + 2000L, "subject", "other", "write", "after recovery"));
+
+		Assert.assertEquals("Invalid number of entries", 2, reopened.query("subject", "other", null, 0L, Long.MAX_VALUE).size());
+
+		reopened.close();
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.resource;
+
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.filter.log.ResponseLoggingFilter;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.structr.rest.common.StructrRestTest;
+
+/**
+ *
+ */
+public class LogResourceTest extends StructrRestTest {
+
+	@Test
+	public void testLogResource() {
+
+		final String subject1 = "11111111111111111111111111111111";
+		final String subject2 = "22222222222222222222222222222222";
+		final String object   = "33333333333333333333333333333333";
+
+		log(subject1, object, "read",  "page=1");
+		log(subject1, object, "read",  "page=2");
+		log(subject2, object, "write", "page=1");
+
+		// overview
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+			.expect()
+				.statusCode(200)
+				.body("result[0].entryCount", Matchers.equalTo(3))
+				.body("result[0].actions.read",  Matchers.equalTo(2))
+				.body("result[0].actions.write", Matchers.equalTo(1))
+			.when()
+				.get("/log");
+
+		// entries of a subject
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+			.expect()
+				.statusCode(200)
+				.body("result_count",       Matchers.equalTo(2))
+				.body("result[0].subject",  Matchers.equalTo(subject1))
+				.body("result[0].object",   Matchers.equalTo(object))
+				.body("result[0].message",  Matchers.equalTo("page=1"))
+				.body("result[1].message",  Matchers.equalTo("page=2"))
+			.when()
+				.get("/log?subject=" + subject1);
+
+		// entries of an object, filtered by action
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+			.expect()
+				.statusCode(200)
+				.body("result_count",      Matchers.equalTo(1))
+				.body("result[0].subject", Matchers.equalTo(object))
+				.body("result[0].object",  Matchers.equalTo(subject2))
+			.when()
+				.get("/log?object=" + object + "&action=write");
+	}
+
+	// ----- private methods -----
+	private void log(final String subject, final String object, final String action, final String message) {
+
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.body("{ subject: '" + subject + "', object: '" + object + "', action: '" + action + "', message: '" + message + "' }")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(422))
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+			.expect()
+				.statusCode(201)
+				.body("result.type",   Matchers.equalTo("LogEvent"))
+				.body("result.action", Matchers.equalTo(action))
+			.when()
+				.post("/log");
+	}
+}
@@ -372,6 +372,63 @@ public class PagingAndSortingTest extends StructrRestTest {
 
 	}
 
+	@Test
+	public void test04PagingOfStreamedResults() {
+
+		// more than one batch of the streaming result
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<2500; i++) {
+				app.create(TestOne.class, new Name("TestOne-" + String.format("%04d", i)));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+		}
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(2500))
+				.body("result_count",		equalTo(2500))
+				.body("result[0].name",		equalTo("TestOne-0000"))
+				.body("result[2499].name",	equalTo("TestOne-2499"))
+			.when()
+				.get("/test_one?sort=name");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(1000))
+				.body("result_count",		equalTo(2500))
+				.body("page_count",		equalTo(3))
+				.body("page_size",		equalTo(1000))
+				.body("page",			equalTo(2))
+				.body("result[0].name",		equalTo("TestOne-1000"))
+				.body("result[999].name",	equalTo("TestOne-1999"))
+			.when()
+				.get("/test_one?sort=name&pageSize=1000&page=2");
+
+		RestAssured
+
+			.given()
+				.contentType("application/json; charset=UTF-8")
+			.expect()
+				.statusCode(200)
+				.body("result",			hasSize(500))
+				.body("result[0].name",		equalTo("TestOne-2000"))
+			.when()
+				.get("/test_one?sort=name&pageSize=1000&page=3");
+	}
+
 	@Test
 	public void testRelationshipResourcePagingOnCollectionResource() {
 
@@ -0,0 +1,453 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.api.util.Cachable;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
+import org.structr.core.entity.SchemaReloadingNode;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.ReadTracker;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * A bounded cache for values that are computed from the graph, e.g. rendered
+ * output, and that must be invalidated when the objects they were computed
+ * from change.
+ *
+ * Each entry records the nodes and relationships that were read and the
+ * types that were queried while its value was computed (see
+ * {@link ReadTracker}). An entry is removed when a transaction modifies or
+ * deletes one of the objects it was computed from, or creates, modifies or
+ * deletes an object of a type it queried (because the object could have
+ * started or stopped to match the query). Modifications of the objects for
+ * which {@link #invalidatesAll} returns true clear the whole cache. Values
+ * whose tracker was marked as uncacheable are not stored.
+ *
+ * When an entry is used while another value is computed, its dependencies
+ * and its expiry time are recorded in the trackers of the current thread,
+ * so that cached values can be nested.
+ *
+ * @param <V> the type of the cached values
+ */
+public class DependencyCache<V> implements StructrTransactionListener {
+
+	private static final int MAX_RECENT_INVALIDATIONS = 1000;
+
+	private final Map<Long, Set<String>> nodeDependents   = new ConcurrentHashMap<>();
+	private final Map<Long, Set<String>> relDependents    = new ConcurrentHashMap<>();
+	private final Map<Class, Set<String>> typeDependents  = new ConcurrentHashMap<>();
+	private final Deque<Invalidation> recentInvalidations = new ArrayDeque<>();
+	private final AtomicLong generation                   = new AtomicLong();
+	private final AtomicLong invalidations                = new AtomicLong();
+	private final AtomicLong evictions                    = new AtomicLong();
+	private final AtomicLong misses                       = new AtomicLong();
+	private final AtomicLong hits                         = new AtomicLong();
+	private ConcurrentFixedSizeCache<String, Entry> cache = null;
+
+	public DependencyCache(final int maxSize) {
+		this.cache = new ConcurrentFixedSizeCache<>(maxSize);
+	}
+
+	/**
+	 * Returns the current invalidation generation. Callers must obtain the
+	 * generation <b>before</b> they start the computation whose value they
+	 * want to store.
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	public V get(final String key) {
+
+		final Entry entry = cache.get(key);
+		if (entry != null) {
+
+			if (entry.isExpired()) {
+
+				remove(key);
+
+			} else {
+
+				ReadTracker.recordDependencies(entry.nodeIds, entry.relIds, entry.types);
+				ReadTracker.recordExpiry(entry.expires);
+
+				hits.incrementAndGet();
+				return entry.value;
+			}
+		}
+
+		misses.incrementAndGet();
+
+		return null;
+	}
+
+	/**
+	 * Stores the given value if none of the objects it was computed from
+	 * was modified since the given generation.
+	 *
+	 * @param key
+	 * @param value
+	 * @param tracker the tracker that recorded the reads of the computation
+	 * @param expectedGeneration
+	 * @param maxAge the maximum age of the entry in milliseconds, or 0
+	 */
+	public void put(final String key, final V value, final ReadTracker tracker, final long expectedGeneration, final long maxAge) {
+
+		if (tracker.isUncacheable()) {
+			return;
+		}
+
+		final long expires = maxAge > 0 ? System.currentTimeMillis() + maxAge : Long.MAX_VALUE;
+		final Entry entry  = new Entry(key, value, tracker, Math.min(expires, tracker.getExpires()));
+
+		if (isAffectedSince(entry, expectedGeneration)) {
+			return;
+		}
+
+		// register dependencies before the entry becomes visible
+		register(nodeDependents, entry.nodeIds, key);
+		register(relDependents,  entry.relIds,  key);
+		register(typeDependents, entry.types,   key);
+
+		cache.put(key, entry);
+
+		// an invalidation that happened in the meantime could have missed
+		// the new entry, so we need to check again.
+		if (isAffectedSince(entry, expectedGeneration)) {
+			remove(key);
+		}
+	}
+
+	/**
+	 * Removes all entries that depend on objects which were modified by
+	 * the given modification events.
+	 *
+	 * @param modificationEvents
+	 */
+	public void invalidate(final Collection<ModificationEvent> modificationEvents) {
+
+		final Invalidation invalidation = new Invalidation();
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			final GraphObject obj = event.getGraphObject();
+			if (obj != null) {
+
+				if (invalidatesAll(obj)) {
+					invalidation.all = true;
+				}
+
+				if (obj.isNode()) {
+
+					invalidation.nodeIds.add(obj.getId());
+
+				} else {
+
+					invalidation.relIds.add(obj.getId());
+				}
+
+				// created, modified and deleted objects can change the result of a query
+				invalidation.types.add(obj.getClass());
+			}
+		}
+
+		if (invalidation.all) {
+
+			clear();
+			return;
+		}
+
+		record(invalidation);
+
+		final Set<String> keys = new HashSet<>();
+
+		for (final Long id : invalidation.nodeIds) {
+			collect(nodeDependents.get(id), keys);
+		}
+
+		for (final Long id : invalidation.relIds) {
+			collect(relDependents.get(id), keys);
+		}
+
+		for (final Map.Entry<Class, Set<String>> entry : typeDependents.entrySet()) {
+
+			if (invalidation.affectsType(entry.getKey())) {
+				collect(entry.getValue(), keys);
+			}
+		}
+
+		for (final String key : keys) {
+
+			remove(key);
+			invalidations.incrementAndGet();
+		}
+	}
+
+	public void clear() {
+
+		final Invalidation invalidation = new Invalidation();
+
+		invalidation.all = true;
+
+		record(invalidation);
+
+		cache.clear();
+		nodeDependents.clear();
+		relDependents.clear();
+		typeDependents.clear();
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",          Long.valueOf(cache.size()));
+		statistics.put("hits",          hits.get());
+		statistics.put("misses",        misses.get());
+		statistics.put("evictions",     evictions.get());
+		statistics.put("invalidations", invalidations.get());
+
+		return statistics;
+	}
+
+	// ----- protected methods -----
+	/**
+	 * Indicates whether a modification of the given object invalidates all
+	 * entries. The default implementation returns true for pages, because
+	 * they can change the resolution of request paths, and for schema
+	 * nodes.
+	 *
+	 * @param obj the modified object
+	 * @return whether all entries must be removed
+	 */
+	protected boolean invalidatesAll(final GraphObject obj) {
+		return obj instanceof Page || obj instanceof SchemaReloadingNode;
+	}
+
+	// ----- interface StructrTransactionListener -----
+	@Override
+	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException {
+
+		// afterCommit is not called for transactions without notifications
+		if (!modificationEvents.isEmpty()) {
+			invalidate(modificationEvents);
+		}
+	}
+
+	@Override
+	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+		// invalidate again to remove values that were computed during the commit
+		if (!modificationEvents.isEmpty()) {
+			invalidate(modificationEvents);
+		}
+	}
+
+	// ----- private methods -----
+	private void record(final Invalidation invalidation) {
+
+		synchronized (recentInvalidations) {
+
+			invalidation.generation = generation.incrementAndGet();
+
+			recentInvalidations.addLast(invalidation);
+
+			if (recentInvalidations.size() > MAX_RECENT_INVALIDATIONS) {
+				recentInvalidations.removeFirst();
+			}
+		}
+	}
+
+	private boolean isAffectedSince(final Entry entry, final long expectedGeneration) {
+
+		synchronized (recentInvalidations) {
+
+			if (generation.get() == expectedGeneration) {
+				return false;
+			}
+
+			final Invalidation oldest = recentInvalidations.peekFirst();
+			if (oldest == null || oldest.generation > expectedGeneration + 1) {
+
+				// we don't know what happened in the meantime
+				return true;
+			}
+
+			for (final Invalidation invalidation : recentInvalidations) {
+
+				if (invalidation.generation > expectedGeneration && invalidation.affects(entry)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private void remove(final String key) {
+
+		final Entry entry = cache.get(key);
+		if (entry != null) {
+
+			cache.remove(key);
+			unregister(entry);
+		}
+	}
+
+	private void unregister(final Entry entry) {
+
+		unregister(nodeDependents, entry.nodeIds, entry.key);
+		unregister(relDependents,  entry.relIds,  entry.key);
+		unregister(typeDependents, entry.types,   entry.key);
+	}
+
+	private <K> void register(final Map<K, Set<String>> dependents, final Set<K> dependencies, final String key) {
+
+		for (final K dependency : dependencies) {
+
+			dependents.compute(dependency, (k, set) -> {
+
+				final Set<String> result = set != null ? set : ConcurrentHashMap.newKeySet();
+				result.add(key);
+
+				return result;
+			});
+		}
+	}
+
+	private <K> void unregister(final Map<K, Set<String>> dependents, final Set<K> dependencies, final String key) {
+
+		for (final K dependency : dependencies) {
+
+			dependents.computeIfPresent(dependency, (k, set) -> {
+
+				set.remove(key);
+
+				return set.isEmpty() ? null : set;
+			});
+		}
+	}
+
+	private void collect(final Set<String> source, final Set<String> keys) {
+
+		if (source != null) {
+			keys.addAll(source);
+		}
+	}
+
+	// ----- nested classes -----
+	private class Entry implements Cachable {
+
+		private final Set<Long> nodeIds = new HashSet<>();
+		private final Set<Long> relIds  = new HashSet<>();
+		private final Set<Class> types  = new HashSet<>();
+		private long expires            = 0L;
+		private String key              = null;
+		private V value                 = null;
+
+		private Entry(final String key, final V value, final ReadTracker tracker, final long expires) {
+
+			this.key     = key;
+			this.value   = value;
+			this.expires = expires;
+
+			this.nodeIds.addAll(tracker.getNodeIds());
+			this.relIds.addAll(tracker.getRelationshipIds());
+			this.types.addAll(tracker.getQueryTypes());
+		}
+
+		public boolean isExpired() {
+			return System.currentTimeMillis() > expires;
+		}
+
+		@Override
+		public void onRemoveFromCache() {
+
+			evictions.incrementAndGet();
+			unregister(this);
+		}
+	}
+
+	private class Invalidation {
+
+		private final Set<Long> nodeIds       = new HashSet<>();
+		private final Set<Long> relIds        = new HashSet<>();
+		private final Set<Class> types        = new HashSet<>();
+		private long generation               = 0L;
+		private boolean all                   = false;
+
+		public boolean affects(final Entry entry) {
+
+			if (all) {
+				return true;
+			}
+
+			for (final Long id : entry.nodeIds) {
+
+				if (nodeIds.contains(id)) {
+					return true;
+				}
+			}
+
+			for (final Long id : entry.relIds) {
+
+				if (relIds.contains(id)) {
+					return true;
+				}
+			}
+
+			for (final Class type : entry.types) {
+
+				if (affectsType(type)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		public boolean affectsType(final Class type) {
+
+			for (final Class modifiedType : types) {
+
+				if (type.isAssignableFrom(modifiedType)) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+	}
+}
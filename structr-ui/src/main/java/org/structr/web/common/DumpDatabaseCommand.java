@@ -51,6 +51,8 @@ public class DumpDatabaseCommand extends NodeServiceCommand implements Maintenan
 			final App app                        = StructrApp.getInstance();
 			final String fileName                = (String)attributes.get("name");
 
+			nodeFactory.disablePrefetching();
+
 			if (fileName == null || fileName.isEmpty()) {
 
 				throw new FrameworkException(400, "Please specify name.");
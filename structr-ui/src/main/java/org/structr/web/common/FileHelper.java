@@ -53,6 +53,8 @@ import org.structr.util.Base64;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
 import org.structr.web.entity.Folder;
+import org.structr.web.storage.FileStorage;
+import org.structr.web.storage.FileStorageProvider;
 
 /**
  * File utility class.
@@ -345,19 +347,19 @@ public class FileHelper {
 			properties.put(GraphObject.id, newUuid);
 		}
 
-		properties.put(FileBase.relativeFilePath, FileBase.getDirectoryPath(id) + "/" + id);
+		if (!properties.isEmpty()) {
 
-		fileNode.unlockSystemPropertiesOnce();
-		fileNode.setProperties(fileNode.getSecurityContext(), properties);
-
-		final String filesPath = Settings.FilesPath.getValue();
+			fileNode.unlockSystemPropertiesOnce();
+			fileNode.setProperties(fileNode.getSecurityContext(), properties);
+		}
 
-		final java.io.File fileOnDisk = new java.io.File(filesPath + "/" + fileNode.getRelativeFilePath());
+		final FileStorageProvider storage = FileStorage.getProvider();
+		final java.io.File target         = storage.getWriteTarget(fileNode, false);
 
-		fileOnDisk.getParentFile().mkdirs();
-		FileUtils.writeByteArrayToFile(fileOnDisk, data);
+		FileUtils.writeByteArrayToFile(target, data);
+		storage.commit(fileNode, target);
 
-		return fileOnDisk;
+		return fileNode.getFileOnDisk();
 
 	}
 
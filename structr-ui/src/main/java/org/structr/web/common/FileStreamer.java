@@ -0,0 +1,704 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jetty.server.HttpOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.api.util.ConcurrentFixedSizeCache;
+import org.structr.web.entity.FileBase;
+
+/**
+ * Delivers the content of a file that is stored on disk, with support for
+ * multiple byte ranges (RFC 7233), precompressed variants and strong
+ * entity tags.
+ *
+ * The content is written without copying it to the heap: small files are
+ * memory-mapped and the mappings of recently requested files are kept in
+ * a cache, larger files are read into direct buffers. If the response is
+ * not written by Jetty, FileChannel.transferTo is used.
+ *
+ * Precompressed variants are stored next to the file with the suffixes
+ * ".gz" and ".br". Gzip variants are created in the background when
+ * precompression is enabled, brotli variants are used if they exist.
+ *
+ *
+ */
+public class FileStreamer {
+
+	private static final Logger logger = LoggerFactory.getLogger(FileStreamer.class.getName());
+
+	private static final ConcurrentFixedSizeCache<String, MappedFile> mappedFiles = new ConcurrentFixedSizeCache<>(Settings.HtmlMappedFileCacheSize.getValue());
+	private static final ThreadLocal<ByteBuffer> directBuffers                   = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(64 * 1024));
+	private static final ExecutorService compressor                              = Executors.newSingleThreadExecutor();
+	private static final Set<String> pendingCompressions                         = ConcurrentHashMap.newKeySet();
+	private static final long MAX_MAPPED_FILE_SIZE                               = 16 * 1024 * 1024;
+	private static final int MAX_RANGES                                          = 32;
+
+	private final List<Range> ranges = new ArrayList<>();
+	private String contentEncoding   = null;
+	private String contentType       = null;
+	private String etag              = null;
+	private boolean unsatisfiable    = false;
+	private FileBase file            = null;
+	private File content             = null;
+	private File fileOnDisk          = null;
+
+	private FileStreamer(final FileBase file, final File fileOnDisk, final HttpServletRequest request) {
+
+		this.file       = file;
+		this.fileOnDisk = fileOnDisk;
+		this.content    = fileOnDisk;
+
+		final String _contentType = file.getContentType();
+		this.contentType          = _contentType != null ? _contentType : "application/octet-stream";
+
+		final String range = request.getHeader("Range");
+		if (StringUtils.isNotBlank(range) && isRangeApplicable(request, createETag())) {
+
+			final List<Range> parsed = parseRanges(range, fileOnDisk.length());
+			if (parsed != null) {
+
+				ranges.addAll(parsed);
+				unsatisfiable = parsed.isEmpty();
+			}
+		}
+
+		// ranges refer to the unencoded content
+		if (ranges.isEmpty() && !unsatisfiable) {
+			selectVariant(request.getHeader("Accept-Encoding"));
+		}
+
+		this.etag = createETag();
+	}
+
+	/**
+	 * Returns a streamer for the given file, or null if the content of
+	 * the file can not be delivered from disk, e.g. because it is a
+	 * template that must be evaluated.
+	 *
+	 * @param file
+	 * @param request
+	 * @return the streamer or null
+	 */
+	public static FileStreamer getInstance(final FileBase file, final HttpServletRequest request) {
+
+		if (file.getProperty(FileBase.isTemplate)) {
+			return null;
+		}
+
+		final File fileOnDisk = file.getFileOnDisk();
+		if (fileOnDisk == null || !fileOnDisk.isFile()) {
+			return null;
+		}
+
+		return new FileStreamer(file, fileOnDisk, request);
+	}
+
+	/**
+	 * Deletes the precompressed variants of the given file.
+	 *
+	 * @param fileOnDisk
+	 */
+	public static void deleteVariants(final File fileOnDisk) {
+
+		for (final Encoding encoding : Encoding.values()) {
+
+			final File variant = encoding.getVariant(fileOnDisk);
+			if (variant.exists()) {
+
+				variant.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns the strong entity tag of the delivered representation, or
+	 * null if the file has no checksum.
+	 *
+	 * @return the entity tag or null
+	 */
+	public String getETag() {
+		return etag;
+	}
+
+	public boolean hasIfNoneMatch(final HttpServletRequest request) {
+		return request.getHeader("If-None-Match") != null;
+	}
+
+	/**
+	 * Evaluates the If-None-Match header of the given request, which takes
+	 * precedence over If-Modified-Since (RFC 7232, section 6).
+	 *
+	 * @param request
+	 * @return whether the client has a current representation
+	 */
+	public boolean isNotModified(final HttpServletRequest request) {
+
+		final String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch == null || etag == null) {
+			return false;
+		}
+
+		if ("*".equals(ifNoneMatch.trim())) {
+			return true;
+		}
+
+		// weak comparison
+		final String opaqueTag = stripWeakPrefix(etag);
+
+		for (final String tag : ifNoneMatch.split(",")) {
+
+			if (opaqueTag.equals(stripWeakPrefix(tag.trim()))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Indicates whether this request continues a download, i.e. whether
+	 * it requests ranges that don't start at the beginning of the file.
+	 *
+	 * @return whether this is a continuation request
+	 */
+	public boolean isContinuation() {
+		return !ranges.isEmpty() && ranges.get(0).start > 0;
+	}
+
+	/**
+	 * Writes the headers and the selected content to the given response.
+	 *
+	 * @param response
+	 * @return the status code of the response
+	 * @throws IOException
+	 */
+	public int stream(final HttpServletResponse response) throws IOException {
+
+		final long length = content.length();
+
+		response.setHeader("Accept-Ranges", "bytes");
+
+		if (etag != null) {
+			response.setHeader("ETag", etag);
+		}
+
+		if (contentEncoding != null) {
+
+			response.setHeader("Content-Encoding", contentEncoding);
+			response.setHeader("Vary", "Accept-Encoding");
+
+		} else if (isCompressible(contentType)) {
+
+			response.setHeader("Vary", "Accept-Encoding");
+		}
+
+		if (unsatisfiable) {
+
+			response.setHeader("Content-Range", "bytes */" + length);
+			response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+
+			return HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+		}
+
+		try (final FileChannel channel = FileChannel.open(content.toPath(), StandardOpenOption.READ)) {
+
+			final ServletOutputStream out = response.getOutputStream();
+			final MappedByteBuffer mapped = getMappedBuffer(channel);
+
+			if (ranges.isEmpty()) {
+
+				response.setContentType(contentType);
+				response.setContentLengthLong(length);
+				response.setStatus(HttpServletResponse.SC_OK);
+
+				write(out, channel, mapped, 0L, length);
+
+				return HttpServletResponse.SC_OK;
+			}
+
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+			if (ranges.size() == 1) {
+
+				final Range range = ranges.get(0);
+
+				response.setContentType(contentType);
+				response.setContentLengthLong(range.length());
+				response.setHeader("Content-Range", range.getContentRange(length));
+
+				write(out, channel, mapped, range.start, range.length());
+
+			} else {
+
+				final String boundary          = UUID.randomUUID().toString().replace("-", "");
+				final byte[] end               = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+				final List<byte[]> partHeaders = new ArrayList<>();
+				long contentLength             = end.length;
+
+				for (final Range range : ranges) {
+
+					final byte[] partHeader = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType + "\r\nContent-Range: " + range.getContentRange(length) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+					partHeaders.add(partHeader);
+					contentLength += partHeader.length + range.length();
+				}
+
+				response.setContentType("multipart/byteranges; boundary=" + boundary);
+				response.setContentLengthLong(contentLength);
+
+				for (int i=0; i<ranges.size(); i++) {
+
+					final Range range = ranges.get(i);
+
+					out.write(partHeaders.get(i));
+					write(out, channel, mapped, range.start, range.length());
+				}
+
+				out.write(end);
+			}
+
+			return HttpServletResponse.SC_PARTIAL_CONTENT;
+		}
+	}
+
+	/**
+	 * Parses the value of a Range header.
+	 *
+	 * @param header the value of the header
+	 * @param length the length of the content
+	 * @return the satisfiable ranges, an empty list if no range is
+	 * satisfiable, or null if the header is invalid and must be ignored
+	 */
+	public static List<Range> parseRanges(final String header, final long length) {
+
+		final String value = header.trim();
+		if (!value.startsWith("bytes=")) {
+			return null;
+		}
+
+		final String[] specs = value.substring(6).split(",");
+		if (specs.length > MAX_RANGES) {
+			return null;
+		}
+
+		final List<Range> result = new ArrayList<>();
+
+		for (final String rawSpec : specs) {
+
+			final String spec = rawSpec.trim();
+			final int pos     = spec.indexOf('-');
+
+			if (pos < 0) {
+				return null;
+			}
+
+			final String first = spec.substring(0, pos).trim();
+			final String last  = spec.substring(pos + 1).trim();
+
+			try {
+
+				if (first.isEmpty()) {
+
+					// suffix range
+					if (last.isEmpty()) {
+						return null;
+					}
+
+					final long suffixLength = Long.parseLong(last);
+					if (suffixLength > 0 && length > 0) {
+
+						result.add(new Range(Math.max(0L, length - suffixLength), length - 1));
+					}
+
+				} else {
+
+					final long start = Long.parseLong(first);
+					final long end   = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+
+					if (end < start) {
+						return null;
+					}
+
+					if (start < length) {
+
+						result.add(new Range(start, Math.min(end, length - 1)));
+					}
+				}
+
+			} catch (NumberFormatException nfex) {
+				return null;
+			}
+		}
+
+		return result;
+	}
+
+	// ----- private methods -----
+	private boolean isRangeApplicable(final HttpServletRequest request, final String identityETag) {
+
+		final String ifRange = request.getHeader("If-Range");
+		if (ifRange == null) {
+			return true;
+		}
+
+		final String value = ifRange.trim();
+
+		if (value.startsWith("\"") || value.startsWith("W/")) {
+
+			// strong comparison, weak tags never match
+			return value.equals(identityETag);
+		}
+
+		final Date lastModified = file.getLastModifiedDate();
+		if (lastModified != null) {
+
+			final SimpleDateFormat httpDateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+			httpDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+			try {
+
+				final Date date = httpDateFormat.parse(value);
+
+				return date.getTime() / 1000L == lastModified.getTime() / 1000L;
+
+			} catch (ParseException pex) {
+				logger.debug("Unable to parse If-Range header {}", value);
+			}
+		}
+
+		return false;
+	}
+
+	private void selectVariant(final String acceptEncoding) {
+
+		if (acceptEncoding == null || !isCompressible(contentType)) {
+			return;
+		}
+
+		for (final Encoding encoding : Encoding.values()) {
+
+			if (isAcceptable(acceptEncoding, encoding.name())) {
+
+				final File variant = encoding.getVariant(fileOnDisk);
+
+				if (variant.isFile() && variant.lastModified() >= fileOnDisk.lastModified()) {
+
+					this.content         = variant;
+					this.contentEncoding = encoding.name();
+
+					return;
+				}
+
+				if (Encoding.gzip.equals(encoding) && Settings.HtmlFilePrecompression.getValue()) {
+					compressInBackground(fileOnDisk, variant);
+				}
+			}
+		}
+	}
+
+	private String createETag() {
+
+		final Long checksum = file.getChecksum();
+		if (checksum == null) {
+			return null;
+		}
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append("\"");
+		buf.append(Long.toHexString(checksum));
+		buf.append("-");
+		buf.append(Long.toHexString(fileOnDisk.length()));
+
+		if (contentEncoding != null) {
+
+			buf.append("-");
+			buf.append(contentEncoding);
+		}
+
+		buf.append("\"");
+
+		return buf.toString();
+	}
+
+	private MappedByteBuffer getMappedBuffer(final FileChannel channel) throws IOException {
+
+		final long length = channel.size();
+		if (length == 0 || length > MAX_MAPPED_FILE_SIZE) {
+			return null;
+		}
+
+		final String key        = content.getAbsolutePath();
+		final long lastModified = content.lastModified();
+		final MappedFile cached = mappedFiles.get(key);
+
+		if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+			return cached.buffer;
+		}
+
+		final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+		mappedFiles.put(key, new MappedFile(buffer, lastModified, length));
+
+		return buffer;
+	}
+
+	private void write(final ServletOutputStream out, final FileChannel channel, final MappedByteBuffer mapped, final long start, final long length) throws IOException {
+
+		if (out instanceof HttpOutput) {
+
+			final HttpOutput httpOutput = (HttpOutput)out;
+
+			if (mapped != null) {
+
+				// the mapped buffer is shared, so each write needs its own view
+				final ByteBuffer view = mapped.duplicate();
+
+				view.limit((int)(start + length));
+				view.position((int)start);
+
+				httpOutput.write(view);
+
+			} else {
+
+				final ByteBuffer buffer = directBuffers.get();
+				long position           = start;
+				long remaining          = length;
+
+				while (remaining > 0) {
+
+					buffer.clear();
+					buffer.limit((int)Math.min(buffer.capacity(), remaining));
+
+					final int count = channel.read(buffer, position);
+					if (count < 0) {
+						break;
+					}
+
+					buffer.flip();
+					httpOutput.write(buffer);
+
+					position  += count;
+					remaining -= count;
+				}
+			}
+
+		} else {
+
+			final WritableByteChannel target = Channels.newChannel(out);
+			long position                    = start;
+			long remaining                   = length;
+
+			while (remaining > 0) {
+
+				final long count = channel.transferTo(position, remaining, target);
+				if (count <= 0) {
+					break;
+				}
+
+				position  += count;
+				remaining -= count;
+			}
+		}
+	}
+
+	private static void compressInBackground(final File source, final File variant) {
+
+		final String key = variant.getAbsolutePath();
+
+		if (pendingCompressions.add(key)) {
+
+			compressor.submit(() -> {
+
+				try {
+
+					compress(source, variant);
+
+				} catch (IOException ioex) {
+
+					logger.warn("Unable to create compressed variant of {}: {}", source, ioex.getMessage());
+
+				} finally {
+
+					pendingCompressions.remove(key);
+				}
+			});
+		}
+	}
+
+	private static void compress(final File source, final File variant) throws IOException {
+
+		final long lastModified = source.lastModified();
+		final long length       = source.length();
+		final Path tmp          = variant.toPath().resolveSibling(variant.getName() + ".tmp");
+
+		try (final InputStream in = Files.newInputStream(source.toPath()); final OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+
+			final byte[] buffer = new byte[8192];
+			int count           = 0;
+
+			while ((count = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, count);
+			}
+		}
+
+		// discard the result if the file was modified in the meantime
+		if (source.lastModified() != lastModified || source.length() != length) {
+
+			Files.deleteIfExists(tmp);
+			return;
+		}
+
+		Files.move(tmp, variant.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static boolean isAcceptable(final String acceptEncoding, final String encoding) {
+
+		for (final String part : acceptEncoding.split(",")) {
+
+			final String[] params = part.trim().split(";");
+			final String name     = params[0].trim();
+
+			if (encoding.equalsIgnoreCase(name)) {
+
+				for (int i=1; i<params.length; i++) {
+
+					final String param = params[i].trim();
+					if (param.startsWith("q=")) {
+
+						try {
+
+							return Double.parseDouble(param.substring(2).trim()) > 0.0;
+
+						} catch (NumberFormatException nfex) {
+							return false;
+						}
+					}
+				}
+
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isCompressible(final String contentType) {
+
+		final String type = StringUtils.substringBefore(contentType, ";").trim().toLowerCase();
+
+		return type.startsWith("text/") || type.endsWith("+xml") || type.endsWith("+json") || type.endsWith("/javascript") || type.endsWith("/json") || type.endsWith("/xml");
+	}
+
+	private static String stripWeakPrefix(final String tag) {
+		return tag.startsWith("W/") ? tag.substring(2) : tag;
+	}
+
+	// ----- nested classes -----
+	public static class Range {
+
+		private long start = 0L;
+		private long end   = 0L;
+
+		public Range(final long start, final long end) {
+
+			this.start = start;
+			this.end   = end;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public long length() {
+			return end - start + 1;
+		}
+
+		public String getContentRange(final long totalLength) {
+			return "bytes " + start + "-" + end + "/" + totalLength;
+		}
+	}
+
+	private enum Encoding {
+
+		br(".br"), gzip(".gz");
+
+		private String suffix = null;
+
+		private Encoding(final String suffix) {
+			this.suffix = suffix;
+		}
+
+		public File getVariant(final File fileOnDisk) {
+			return new File(fileOnDisk.getPath() + suffix);
+		}
+	}
+
+	private static class MappedFile {
+
+		private MappedByteBuffer buffer = null;
+		private long lastModified       = 0L;
+		private long length             = 0L;
+
+		public MappedFile(final MappedByteBuffer buffer, final long lastModified, final long length) {
+
+			this.buffer       = buffer;
+			this.lastModified = lastModified;
+			this.length       = length;
+		}
+	}
+}
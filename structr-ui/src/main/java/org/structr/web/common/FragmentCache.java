@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.Map.Entry;
+import org.structr.api.config.Settings;
+import org.structr.core.GraphObject;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.SchemaReloadingNode;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.web.entity.dom.DOMNode;
+
+/**
+ * A cache for the rendered output of DOM nodes that have fragment caching
+ * enabled. Entries are invalidated when one of the objects they were
+ * rendered from changes, see {@link DependencyCache}.
+ */
+public class FragmentCache extends DependencyCache<String> {
+
+	private static FragmentCache instance = null;
+
+	private FragmentCache(final int maxSize) {
+		super(maxSize);
+	}
+
+	public static synchronized FragmentCache getInstance() {
+
+		if (instance == null) {
+
+			instance = new FragmentCache(Settings.HtmlFragmentCacheSize.getValue());
+
+			TransactionCommand.registerTransactionListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Creates a cache key for the given node. The key contains the render
+	 * depth, which determines the indentation, the current user and locale,
+	 * the data objects of the render context and the value of the key
+	 * expression of the node.
+	 *
+	 * @param node the rendered node
+	 * @param renderContext
+	 * @param depth
+	 * @param customKey the value of the key expression of the node, may be null
+	 *
+	 * @return the cache key
+	 */
+	public static String getKey(final DOMNode node, final RenderContext renderContext, final int depth, final String customKey) {
+
+		final Principal user    = node.getSecurityContext().getUser(false);
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(node.getUuid());
+		buf.append("\n");
+		buf.append(depth);
+		buf.append("\n");
+		buf.append(user != null ? user.getUuid() : "anonymous");
+		buf.append("\n");
+		buf.append(renderContext.getLocale());
+		buf.append("\n");
+		appendId(buf, renderContext.getDataObject());
+		buf.append("\n");
+		appendId(buf, renderContext.getDetailsDataObject());
+
+		for (final Entry<String, GraphObject> entry : renderContext.getDataObjects().entrySet()) {
+
+			buf.append("\n");
+			buf.append(entry.getKey());
+			buf.append("=");
+			appendId(buf, entry.getValue());
+		}
+
+		buf.append("\n");
+		buf.append(customKey != null ? customKey : "");
+
+		return buf.toString();
+	}
+
+	// ----- protected methods -----
+	@Override
+	protected boolean invalidatesAll(final GraphObject obj) {
+
+		// fragments don't depend on the resolution of request paths, so
+		// modifications of pages only affect the fragments that read them
+		return obj instanceof SchemaReloadingNode;
+	}
+
+	// ----- private methods -----
+	private static void appendId(final StringBuilder buf, final GraphObject obj) {
+
+		if (obj != null) {
+			buf.append(obj.getUuid());
+		}
+	}
+}
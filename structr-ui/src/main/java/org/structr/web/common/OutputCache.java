@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.structr.api.config.Settings;
+import org.structr.core.graph.ReadTracker;
+import org.structr.core.graph.TransactionCommand;
+
+/**
+ * A cache for the rendered output of pages, used by the HtmlServlet to
+ * serve pages without rendering them again. Entries are invalidated when
+ * one of the objects they were rendered from changes, see
+ * {@link DependencyCache}.
+ */
+public class OutputCache extends DependencyCache<OutputCache.CachedOutput> {
+
+	private static OutputCache instance = null;
+
+	private OutputCache(final int maxSize) {
+		super(maxSize);
+	}
+
+	public static synchronized OutputCache getInstance() {
+
+		if (instance == null) {
+
+			instance = new OutputCache(Settings.HtmlOutputCacheSize.getValue());
+
+			TransactionCommand.registerTransactionListener(instance);
+		}
+
+		return instance;
+	}
+
+	public static boolean isEnabled() {
+		return Settings.HtmlOutputCacheEnabled.getValue();
+	}
+
+	/**
+	 * Creates a cache key from the given components of a request.
+	 *
+	 * @param pageId the UUID of the page that is rendered
+	 * @param site the scheme, host name and port of the request
+	 * @param path the request path
+	 * @param queryString the query string of the request, may be null
+	 * @param locale the locale of the request
+	 * @param principalClass the type of the principal, or null for anonymous requests
+	 *
+	 * @return the cache key
+	 */
+	public static String getKey(final String pageId, final String site, final String path, final String queryString, final String locale, final String principalClass) {
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(pageId);
+		buf.append("\n");
+		buf.append(site);
+		buf.append("\n");
+		buf.append(path);
+		buf.append("\n");
+		buf.append(queryString != null ? queryString : "");
+		buf.append("\n");
+		buf.append(locale);
+		buf.append("\n");
+		buf.append(principalClass != null ? principalClass : "anonymous");
+
+		return buf.toString();
+	}
+
+	/**
+	 * Stores the given output if none of the objects it was rendered from
+	 * was modified since the given generation.
+	 *
+	 * @param key
+	 * @param content the rendered output
+	 * @param contentType
+	 * @param headers the response headers that were set while rendering
+	 * @param tracker the tracker that recorded the reads of the rendering
+	 * @param expectedGeneration
+	 */
+	public void put(final String key, final byte[] content, final String contentType, final Map<String, List<String>> headers, final ReadTracker tracker, final long expectedGeneration) {
+		put(key, new CachedOutput(content, contentType, headers), tracker, expectedGeneration, 0L);
+	}
+
+	// ----- nested classes -----
+	public static class CachedOutput {
+
+		private final Map<String, List<String>> headers = new LinkedHashMap<>();
+		private String contentType                      = null;
+		private byte[] content                          = null;
+
+		private CachedOutput(final byte[] content, final String contentType, final Map<String, List<String>> headers) {
+
+			this.content     = content;
+			this.contentType = contentType;
+
+			this.headers.putAll(headers);
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public Map<String, List<String>> getHeaders() {
+			return headers;
+		}
+	}
+}
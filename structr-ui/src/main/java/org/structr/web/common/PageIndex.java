@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.common.GraphObjectComparator;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.StructrTransactionListener;
+import org.structr.core.TransactionSource;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.ReadTracker;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.Tx;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * An in-memory index of the names, paths and positions of all pages, used
+ * to resolve request paths without loading and sorting all pages for each
+ * request.
+ *
+ * The index contains the UUIDs of the pages only, in the order of their
+ * position, so that visibility can still be checked in the security
+ * context of the request. It is dropped when a transaction modifies a page
+ * and rebuilt on the next lookup.
+ */
+public class PageIndex implements StructrTransactionListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(PageIndex.class.getName());
+	private static PageIndex instance  = null;
+
+	private final AtomicLong generation = new AtomicLong();
+	private final AtomicLong rebuilds   = new AtomicLong();
+	private Snapshot snapshot           = null;
+
+	private PageIndex() {}
+
+	public static synchronized PageIndex getInstance() {
+
+		if (instance == null) {
+
+			instance = new PageIndex();
+
+			TransactionCommand.registerTransactionListener(instance);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Returns the UUIDs of all pages with the given path, ordered by
+	 * position.
+	 *
+	 * @param path
+	 * @return the UUIDs of the matching pages
+	 */
+	public List<String> getPagesByPath(final String path) {
+		return get(getSnapshot().byPath, path);
+	}
+
+	/**
+	 * Returns the UUIDs of all pages with the given name, ordered by
+	 * position.
+	 *
+	 * @param name
+	 * @return the UUIDs of the matching pages
+	 */
+	public List<String> getPagesByName(final String name) {
+		return get(getSnapshot().byName, name);
+	}
+
+	/**
+	 * Returns the UUIDs of all pages that have a position, in the order
+	 * of their position.
+	 *
+	 * @return the UUIDs of all pages with a position
+	 */
+	public List<String> getPagesWithPosition() {
+		return getSnapshot().withPosition;
+	}
+
+	public boolean contains(final String uuid) {
+		return getSnapshot().uuids.contains(uuid);
+	}
+
+	/**
+	 * Returns the current invalidation generation, changes whenever a page
+	 * was modified.
+	 *
+	 * @return the current generation
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	public synchronized void invalidate() {
+
+		generation.incrementAndGet();
+		snapshot = null;
+	}
+
+	public Map<String, Long> getStatistics() {
+
+		final Map<String, Long> statistics = new LinkedHashMap<>();
+		final Snapshot current             = getCurrentSnapshot();
+
+		statistics.put("size",     current != null ? Long.valueOf(current.uuids.size()) : 0L);
+		statistics.put("rebuilds", rebuilds.get());
+
+		return statistics;
+	}
+
+	// ----- interface StructrTransactionListener -----
+	@Override
+	public void beforeCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) throws FrameworkException {
+
+		// afterCommit is not called for transactions without notifications
+		if (affectsPages(modificationEvents)) {
+			invalidate();
+		}
+	}
+
+	@Override
+	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents, final TransactionSource source) {
+
+		// invalidate again to drop an index that was built during the commit
+		if (affectsPages(modificationEvents)) {
+			invalidate();
+		}
+	}
+
+	// ----- private methods -----
+	private synchronized Snapshot getCurrentSnapshot() {
+		return snapshot;
+	}
+
+	private Snapshot getSnapshot() {
+
+		Snapshot current = getCurrentSnapshot();
+		if (current == null) {
+
+			final long expectedGeneration = generation.get();
+
+			current = build();
+			if (current == null) {
+
+				return new Snapshot();
+			}
+
+			synchronized (this) {
+
+				// a page could have been modified in the meantime
+				if (generation.get() == expectedGeneration) {
+					snapshot = current;
+				}
+			}
+		}
+
+		return current;
+	}
+
+	private Snapshot build() {
+
+		final App app           = StructrApp.getInstance();
+		final Snapshot result   = new Snapshot();
+
+		rebuilds.incrementAndGet();
+
+		// modifications of pages invalidate everything that depends on the index
+		final ReadTracker tracker = ReadTracker.suspend();
+
+		try (final Tx tx = app.tx()) {
+
+			final List<Page> pages = app.nodeQuery(Page.class).getAsList();
+
+			Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
+
+			for (final Page page : pages) {
+
+				final String uuid = page.getUuid();
+				final String name = page.getName();
+				final String path = page.getPath();
+
+				result.uuids.add(uuid);
+
+				if (path != null) {
+					result.byPath.computeIfAbsent(path, k -> new ArrayList<>()).add(uuid);
+				}
+
+				if (name != null) {
+					result.byName.computeIfAbsent(name, k -> new ArrayList<>()).add(uuid);
+				}
+
+				if (page.getProperty(Page.position) != null) {
+					result.withPosition.add(uuid);
+				}
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("Unable to build page index: {}", fex.getMessage());
+			return null;
+
+		} finally {
+
+			ReadTracker.resume(tracker);
+		}
+
+		return result;
+	}
+
+	private List<String> get(final Map<String, List<String>> map, final String key) {
+
+		final List<String> list = map.get(key);
+		if (list != null) {
+
+			return list;
+		}
+
+		return Collections.emptyList();
+	}
+
+	private boolean affectsPages(final Collection<ModificationEvent> modificationEvents) {
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			if (event.getGraphObject() instanceof Page) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	// ----- nested classes -----
+	private static class Snapshot {
+
+		private final Map<String, List<String>> byPath = new LinkedHashMap<>();
+		private final Map<String, List<String>> byName = new LinkedHashMap<>();
+		private final List<String> withPosition        = new ArrayList<>();
+		private final Set<String> uuids                = new LinkedHashSet<>();
+	}
+}
@@ -18,6 +18,7 @@
  */
 package org.structr.web.common;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Stack;
@@ -326,6 +327,10 @@ public class RenderContext extends ActionContext {
 
 	}
 
+	public Map<String, GraphObject> getDataObjects() {
+		return Collections.unmodifiableMap(dataObjects);
+	}
+
 	public void clearDataObject(String key) {
 		dataObjects.remove(key);
 		setDataObject(null);
@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffer for asynchronous streaming of rendered output. The rendered
+ * strings are collected into chunks of encoded bytes that are handed over
+ * to the writing thread through a lock-free queue.
+ *
+ * The buffer holds at most a given number of bytes, the rendering thread
+ * is suspended when this limit is exceeded until the writing thread has
+ * consumed half of the buffered output. If the output has not been
+ * consumed when the deadline of the rendering has passed, the buffer is
+ * cancelled, so that a client that stops reading can not block the
+ * rendering thread forever.
+ *
+ *
+ */
+public class StreamingRenderBuffer extends AsyncBuffer {
+
+	private static final Logger logger       = LoggerFactory.getLogger(StreamingRenderBuffer.class.getName());
+	private static final long DEFAULT_MAX_WAIT = TimeUnit.SECONDS.toMillis(60);
+	private static final int CHUNK_SIZE        = 8192;
+
+	private final Queue<byte[]> chunks      = new ConcurrentLinkedQueue<>();
+	private final StringBuilder current     = new StringBuilder(CHUNK_SIZE);
+	private final AtomicLong bufferedBytes  = new AtomicLong();
+	private volatile Runnable listener      = null;
+	private volatile Thread producer        = null;
+	private volatile boolean cancelled      = false;
+	private volatile boolean finished       = false;
+	private volatile long maxBufferedBytes  = 0L;
+	private long deadline                   = 0L;
+
+	public StreamingRenderBuffer(final long maxBufferedBytes) {
+		this(maxBufferedBytes, DEFAULT_MAX_WAIT);
+	}
+
+	/**
+	 * Creates a buffer that suspends the rendering thread for at most the
+	 * given time (in total, starting now).
+	 *
+	 * @param maxBufferedBytes
+	 * @param maxWaitMillis
+	 */
+	public StreamingRenderBuffer(final long maxBufferedBytes, final long maxWaitMillis) {
+
+		this.maxBufferedBytes = maxBufferedBytes;
+		this.deadline         = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+	}
+
+	/**
+	 * Sets the listener that is notified when new output is available
+	 * or when the rendering has finished.
+	 *
+	 * @param listener
+	 */
+	public void setListener(final Runnable listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public AsyncBuffer append(final String s) {
+
+		if (s != null && !cancelled) {
+
+			current.append(s);
+
+			if (current.length() >= CHUNK_SIZE) {
+				flush();
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Hands the remaining output over to the writing thread and marks the
+	 * end of the output. Must be called by the rendering thread.
+	 */
+	public void finish() {
+
+		flush();
+
+		finished = true;
+
+		notifyListener();
+	}
+
+	/**
+	 * Lets the buffer grow without suspending the rendering thread. Must
+	 * be used if the rendering thread must not wait for the client, e.g.
+	 * because it is a thread of the container.
+	 */
+	public void disableBackpressure() {
+		this.maxBufferedBytes = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Discards all buffered and future output, e.g. because the client
+	 * has gone away, and resumes a suspended rendering thread.
+	 */
+	public void cancel() {
+
+		cancelled = true;
+
+		chunks.clear();
+		bufferedBytes.set(0L);
+
+		resumeProducer();
+	}
+
+	/**
+	 * Returns the next chunk of output, or null if no output is available
+	 * at the moment.
+	 *
+	 * @return the next chunk or null
+	 */
+	public byte[] poll() {
+
+		final byte[] chunk = chunks.poll();
+		if (chunk != null) {
+
+			if (bufferedBytes.addAndGet(-chunk.length) <= maxBufferedBytes / 2) {
+				resumeProducer();
+			}
+		}
+
+		return chunk;
+	}
+
+	public boolean hasChunks() {
+		return !chunks.isEmpty();
+	}
+
+	/**
+	 * Indicates whether the rendering has finished and all output was
+	 * consumed.
+	 *
+	 * @return whether the output is complete
+	 */
+	public boolean isFinished() {
+		return finished && chunks.isEmpty();
+	}
+
+	// ----- private methods -----
+	private void flush() {
+
+		if (current.length() > 0 && !cancelled) {
+
+			final byte[] chunk = current.toString().getBytes(StandardCharsets.UTF_8);
+
+			current.setLength(0);
+
+			chunks.add(chunk);
+			bufferedBytes.addAndGet(chunk.length);
+
+			notifyListener();
+			awaitCapacity();
+		}
+	}
+
+	private void awaitCapacity() {
+
+		producer = Thread.currentThread();
+
+		// the writing thread resumes the producer, the timeout is only a safety net
+		while (!cancelled && bufferedBytes.get() > maxBufferedBytes) {
+
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0L) {
+
+				logger.warn("Output was not consumed before the rendering deadline, discarding it");
+
+				cancel();
+				break;
+			}
+
+			LockSupport.parkNanos(this, Math.min(remaining, TimeUnit.SECONDS.toNanos(1)));
+		}
+
+		producer = null;
+	}
+
+	private void resumeProducer() {
+
+		final Thread thread = producer;
+		if (thread != null) {
+
+			LockSupport.unpark(thread);
+		}
+	}
+
+	private void notifyListener() {
+
+		final Runnable _listener = listener;
+		if (_listener != null) {
+
+			_listener.run();
+		}
+	}
+}
@@ -38,6 +38,19 @@ import org.structr.web.resource.ResetPasswordResource;
  */
 public class UiResourceProvider implements ResourceProvider {
 
+	private static final Map<Pattern, Class<? extends Resource>> additionalResources = new LinkedHashMap<>();
+
+	/**
+	 * Registers an additional resource, e.g. from a module. Must be called
+	 * before the first request is handled.
+	 *
+	 * @param pattern the pattern for the URI part
+	 * @param resource the resource class
+	 */
+	public static synchronized void registerResource(final String pattern, final Class<? extends Resource> resource) {
+		additionalResources.put(Pattern.compile(pattern), resource);
+	}
+
 	@Override
 	public Map<Pattern, Class<? extends Resource>> getResources() {
 
@@ -75,6 +88,10 @@ public class UiResourceProvider implements ResourceProvider {
 		resourceMap.put(Pattern.compile("_schema"), SchemaResource.class);	               // special resource for schema information
 		resourceMap.put(Pattern.compile("_env"), EnvResource.class);	                       // special resource for environment information
 
+		synchronized (UiResourceProvider.class) {
+			resourceMap.putAll(additionalResources);                                               // resources registered by modules
+		}
+
 		resourceMap.put(Pattern.compile("[a-z_A-Z][a-z_A-Z0-9]*"), TypeResource.class);	       // any type match
 
 		return resourceMap;
@@ -21,10 +21,8 @@ package org.structr.web.datasource;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import org.apache.commons.collections.iterators.IteratorEnumeration;
@@ -48,6 +46,7 @@ import org.structr.rest.exception.NotFoundException;
 import org.structr.rest.resource.Resource;
 import org.structr.rest.servlet.JsonRestServlet;
 import org.structr.rest.servlet.ResourceHelper;
+import org.structr.rest.servlet.RouteTable;
 import org.structr.web.common.GraphDataSource;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.UiResourceProvider;
@@ -78,8 +77,7 @@ public class RestDataSource implements GraphDataSource<Iterable<GraphObject>> {
 	// FIXME: this method is needed by the websocket search command because there is no reference node for the above method
 	public List<GraphObject> getData(final RenderContext renderContext, final String restQuery) throws FrameworkException {
 
-		final Map<Pattern, Class<? extends Resource>> resourceMap = new LinkedHashMap<>();
-		final SecurityContext securityContext                     = renderContext.getSecurityContext();
+		final SecurityContext securityContext = renderContext.getSecurityContext();
 
 		ResourceProvider resourceProvider = renderContext.getResourceProvider();
 		if (resourceProvider == null) {
@@ -92,7 +90,7 @@ public class RestDataSource implements GraphDataSource<Iterable<GraphObject>> {
 		}
 
 		// inject resources
-		resourceMap.putAll(resourceProvider.getResources());
+		final RouteTable routeTable = RouteTable.forProvider(resourceProvider);
 
 		Value<String> propertyView = new ThreadLocalPropertyView();
 		propertyView.set(securityContext, PropertyView.Ui);
@@ -161,7 +159,7 @@ public class RestDataSource implements GraphDataSource<Iterable<GraphObject>> {
 		Resource resource = null;
 		try {
 
-			resource = ResourceHelper.applyViewTransformation(wrappedRequest, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, wrappedRequest, resourceMap, propertyView), propertyView);
+			resource = ResourceHelper.applyViewTransformation(wrappedRequest, securityContext, ResourceHelper.optimizeNestedResourceChain(securityContext, wrappedRequest, routeTable, propertyView), propertyView);
 
 		} catch (IllegalPathException | NotFoundException e) {
 
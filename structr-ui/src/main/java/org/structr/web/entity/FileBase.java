@@ -21,7 +21,6 @@ package org.structr.web.entity;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -96,6 +95,8 @@ import org.structr.web.importer.CSVFileImportJob;
 import org.structr.web.importer.DataImportManager;
 import org.structr.web.importer.XMLFileImportJob;
 import org.structr.web.property.FileDataProperty;
+import org.structr.web.storage.FileStorage;
+import org.structr.web.storage.FileStorageProvider;
 
 /**
  *
@@ -109,6 +110,7 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 	public static final Property<Long> size                                      = new LongProperty("size").indexed().systemInternal();
 	public static final Property<String> url                                     = new StringProperty("url");
 	public static final Property<Long> checksum                                  = new LongProperty("checksum").indexed().unvalidated().systemInternal();
+	public static final Property<String> contentHash                             = new StringProperty("contentHash").indexed().systemInternal();
 	public static final Property<Integer> cacheForSeconds                        = new IntProperty("cacheForSeconds").cmis();
 	public static final Property<Integer> version                                = new IntProperty("version").indexed().systemInternal();
 	public static final Property<String> base64Data                              = new FileDataProperty<>("base64Data");
@@ -199,25 +201,13 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 	@Override
 	public void onNodeDeletion() {
 
-		String filePath = null;
 		try {
-			final String path = getRelativeFilePath();
 
-			if (path != null) {
-
-				filePath = FileHelper.getFilePath(path);
-
-				java.io.File toDelete = new java.io.File(filePath);
-
-				if (toDelete.exists() && toDelete.isFile()) {
-
-					toDelete.delete();
-				}
-			}
+			FileStorage.getProvider().delete(this);
 
 		} catch (Throwable t) {
 
-			logger.debug("Exception while trying to delete file {}: {}", new Object[]{filePath, t});
+			logger.debug("Exception while trying to delete file {}: {}", new Object[]{getRelativeFilePath(), t});
 
 		}
 
@@ -403,15 +393,11 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 
 		if (relativeFilePath != null) {
 
-			final String filePath = FileHelper.getFilePath(relativeFilePath);
-
-			FileInputStream fis = null;
+			InputStream fis = null;
 			try {
 
-				java.io.File fileOnDisk = new java.io.File(filePath);
-
 				// Return file input stream
-				fis = new FileInputStream(fileOnDisk);
+				fis = FileStorage.getProvider().getInputStream(this);
 
 				if (getProperty(isTemplate)) {
 
@@ -476,15 +462,13 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 		final String path = getRelativeFilePath();
 		if (path != null) {
 
-			final String filePath = FileHelper.getFilePath(path);
-
 			try {
 
-				final java.io.File fileOnDisk = new java.io.File(filePath);
-				fileOnDisk.getParentFile().mkdirs();
+				final FileStorageProvider storage = FileStorage.getProvider();
+				final java.io.File target         = storage.getWriteTarget(this, append);
 
 				// Return file output stream and save checksum and size after closing
-				final FileOutputStream fos = new FileOutputStream(fileOnDisk, append) {
+				final FileOutputStream fos = new FileOutputStream(target, append) {
 
 					private boolean closed = false;
 
@@ -499,6 +483,8 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 
 							super.close();
 
+							storage.commit(FileBase.this, target);
+
 							final String _contentType = FileHelper.getContentMimeType(FileBase.this);
 
 							final PropertyMap changedProperties = new PropertyMap();
@@ -536,6 +522,10 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 			} catch (FileNotFoundException e) {
 
 				logger.error("File not found: {}", path);
+
+			} catch (FrameworkException | IOException ex) {
+
+				logger.error("Unable to open file {} for writing: {}", path, ex.getMessage());
 			}
 
 		}
@@ -555,6 +545,19 @@ public class FileBase extends AbstractFile implements Indexable, Linkable, JavaS
 		return null;
 	}
 
+	/**
+	 * Returns the file on disk for in-place modification. If the content
+	 * of this file is shared with other files, this file is given its own
+	 * copy first.
+	 *
+	 * @return the file on disk
+	 * @throws FrameworkException
+	 * @throws IOException
+	 */
+	public java.io.File getPrivateFileOnDisk() throws FrameworkException, IOException {
+		return FileStorage.getProvider().getPrivateFile(this);
+	}
+
 	public Path getPathOnDisk() {
 
 		final String path = getRelativeFilePath();
@@ -53,6 +53,7 @@ import org.structr.core.entity.Principal;
 import org.structr.core.entity.Security;
 import org.structr.core.graph.ModificationQueue;
 import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.ReadTracker;
 import org.structr.core.notion.PropertyNotion;
 import org.structr.core.property.BooleanProperty;
 import org.structr.core.property.CollectionIdProperty;
@@ -69,6 +70,7 @@ import org.structr.core.property.StartNode;
 import org.structr.core.property.StringProperty;
 import org.structr.core.script.Scripting;
 import org.structr.web.common.AsyncBuffer;
+import org.structr.web.common.FragmentCache;
 import org.structr.web.common.GraphDataSource;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
@@ -169,8 +171,13 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 	public static final Property<Integer> domSortPosition             = new IntProperty("domSortPosition");
 
+	public static final Property<Boolean> cacheFragment               = new BooleanProperty("cacheFragment");
+	public static final Property<String> fragmentCacheKey             = new StringProperty("fragmentCacheKey");
+	public static final Property<Integer> fragmentCacheForSeconds     = new IntProperty("fragmentCacheForSeconds");
+
 	public static final Property[] rawProps = new Property[] {
-		dataKey, restQuery, cypherQuery, xpathQuery, functionQuery, hideOnIndex, hideOnDetail, showForLocales, hideForLocales, showConditions, hideConditions
+		dataKey, restQuery, cypherQuery, xpathQuery, functionQuery, hideOnIndex, hideOnDetail, showForLocales, hideForLocales, showConditions, hideConditions,
+		cacheFragment, fragmentCacheKey, fragmentCacheForSeconds
 	};
 
 	// a simple cache for custom properties
@@ -317,6 +324,29 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 		final EditMode editMode = renderContext.getEditMode(securityContext.getUser(false));
 
+		if (EditMode.NONE.equals(editMode) && getProperty(cacheFragment)) {
+
+			renderCachedFragment(renderContext, depth, editMode);
+
+		} else {
+
+			renderFragment(renderContext, depth, editMode);
+		}
+	}
+
+	/**
+	 * Renders the node including data binding.
+	 *
+	 * @param renderContext
+	 * @param depth
+	 * @param editMode
+	 * @throws FrameworkException
+	 */
+	private void renderFragment(final RenderContext renderContext, final int depth, final EditMode editMode) throws FrameworkException {
+
+		final GraphObject details = renderContext.getDetailsDataObject();
+		final boolean detailMode = details != null;
+
 		if (EditMode.RAW.equals(editMode) || EditMode.WIDGET.equals(editMode) || EditMode.DEPLOYMENT.equals(editMode)) {
 
 			renderContent(renderContext, depth);
@@ -526,6 +556,62 @@ public abstract class DOMNode extends LinkedTreeNode<DOMChildren, DOMSiblings, D
 
 	}
 
+	/**
+	 * Renders the node from the fragment cache, or renders it into a
+	 * separate buffer and stores the result in the cache.
+	 *
+	 * @param renderContext
+	 * @param depth
+	 * @param editMode
+	 * @throws FrameworkException
+	 */
+	private void renderCachedFragment(final RenderContext renderContext, final int depth, final EditMode editMode) throws FrameworkException {
+
+		final String _fragmentCacheKey = getProperty(fragmentCacheKey);
+		final String customKey         = StringUtils.isNotBlank(_fragmentCacheKey) ? Scripting.replaceVariables(renderContext, this, _fragmentCacheKey) : null;
+		final String key               = FragmentCache.getKey(this, renderContext, depth, customKey);
+		final FragmentCache cache      = FragmentCache.getInstance();
+		final AsyncBuffer out          = renderContext.getBuffer();
+		final String cachedFragment    = cache.get(key);
+
+		if (cachedFragment != null) {
+
+			out.append(cachedFragment);
+			return;
+		}
+
+		final StringRenderBuffer buffer = new StringRenderBuffer();
+		final long generation           = cache.getGeneration();
+		final ReadTracker tracker       = ReadTracker.start();
+		final Integer maxAge            = getProperty(fragmentCacheForSeconds);
+		boolean success                 = false;
+
+		if (maxAge != null && maxAge > 0) {
+
+			// the expiry time is recorded in the enclosing trackers as well
+			ReadTracker.recordExpiry(System.currentTimeMillis() + maxAge * 1000L);
+		}
+
+		try {
+
+			renderContext.setBuffer(buffer);
+			renderFragment(renderContext, depth, editMode);
+
+			success = true;
+
+		} finally {
+
+			renderContext.setBuffer(out);
+			out.append(buffer.getBuffer().toString());
+
+			tracker.detach();
+		}
+
+		if (success) {
+			cache.put(key, buffer.getBuffer().toString(), tracker, generation, 0L);
+		}
+	}
+
 	// ----- protected methods -----
 	/**
 	 * This method will be called by the DOM logic when this node gets a new child. Override this method if you need to set properties on the child depending on its type etc.
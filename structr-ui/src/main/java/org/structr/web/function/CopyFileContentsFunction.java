@@ -28,6 +28,8 @@ import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
 import org.structr.web.common.FileHelper;
 import org.structr.web.entity.FileBase;
+import org.structr.web.storage.FileStorage;
+import org.structr.web.storage.FileStorageProvider;
 import static org.structr.web.entity.FileBase.checksum;
 import static org.structr.web.entity.FileBase.size;
 import static org.structr.web.entity.FileBase.version;
@@ -60,16 +62,20 @@ public class CopyFileContentsFunction extends Function<Object, Object> {
 
 					}
 
-					java.io.File fileToBeReplaced = nodeToBeReplaced.getFileOnDisk();
-
-					if (!fileToBeReplaced.exists()) {
+					if (!nodeToBeReplaced.getFileOnDisk().exists()) {
 
 						// Call afterCreation method to ensure that the file is properly initialized.
 						nodeToBeReplaced.afterCreation(nodeToBeReplaced.getSecurityContext());
 
 					}
 
-					Files.copy(fileToCopy, fileToBeReplaced);
+					final FileStorageProvider storage = FileStorage.getProvider();
+					final java.io.File target         = storage.getWriteTarget(nodeToBeReplaced, false);
+
+					Files.copy(fileToCopy, target);
+					storage.commit(nodeToBeReplaced, target);
+
+					final java.io.File fileToBeReplaced = nodeToBeReplaced.getFileOnDisk();
 
 					final PropertyMap changedProperties = new PropertyMap();
 					changedProperties.put(checksum, FileHelper.getChecksum(fileToBeReplaced));
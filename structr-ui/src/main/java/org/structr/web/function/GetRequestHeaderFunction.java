@@ -20,6 +20,7 @@ package org.structr.web.function;
 
 import javax.servlet.http.HttpServletRequest;
 import org.structr.common.SecurityContext;
+import org.structr.core.graph.ReadTracker;
 import org.structr.schema.action.ActionContext;
 
 /**
@@ -38,6 +39,9 @@ public class GetRequestHeaderFunction extends UiFunction {
 	@Override
 	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) {
 
+		// the output depends on the request headers
+		ReadTracker.recordUncacheable();
+
 		try {
 			
 			if (!arrayHasLengthAndAllElementsNotNull(sources, 1)) {
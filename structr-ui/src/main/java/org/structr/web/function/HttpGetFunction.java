@@ -24,6 +24,7 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
+import org.structr.core.graph.ReadTracker;
 import org.structr.schema.action.ActionContext;
 import org.structr.rest.common.HttpHelper;
 
@@ -43,6 +44,9 @@ public class HttpGetFunction extends UiFunction {
 	@Override
 	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) {
 
+		// the output depends on an external resource
+		ReadTracker.recordUncacheable();
+
 		if (sources != null && sources.length >= 1 && sources.length <= 4 && sources[0] != null) {
 
 			try {
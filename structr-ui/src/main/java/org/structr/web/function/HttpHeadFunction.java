@@ -18,6 +18,7 @@
  */
 package org.structr.web.function;
 
+import org.structr.core.graph.ReadTracker;
 import org.structr.schema.action.ActionContext;
 
 /**
@@ -36,6 +37,9 @@ public class HttpHeadFunction extends UiFunction {
 	@Override
 	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) {
 
+		// the output depends on an external resource
+		ReadTracker.recordUncacheable();
+
 		if (sources != null && sources.length >= 1 && sources.length <= 3) {
 
 			try {
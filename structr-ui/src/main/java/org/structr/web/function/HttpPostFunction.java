@@ -21,6 +21,7 @@ package org.structr.web.function;
 import java.util.Map;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObjectMap;
+import org.structr.core.graph.ReadTracker;
 import org.structr.core.property.IntProperty;
 import org.structr.core.property.StringProperty;
 import org.structr.schema.action.ActionContext;
@@ -43,6 +44,9 @@ public class HttpPostFunction extends Function<Object, Object> {
 	@Override
 	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) throws FrameworkException {
 
+		// the output depends on an external resource
+		ReadTracker.recordUncacheable();
+
 		if (arrayHasMinLengthAndAllElementsNotNull(sources, 2)) {
 
 			final String uri = sources[0].toString();
@@ -18,18 +18,19 @@
  */
 package org.structr.web.function;
 
-import java.util.Date;
 import java.util.Map;
 import org.structr.common.error.FrameworkException;
-import org.structr.core.app.StructrApp;
-import org.structr.core.graph.NodeAttribute;
-import org.structr.core.property.PropertyMap;
-import org.structr.rest.logging.entity.LogEvent;
+import org.structr.core.GraphObjectMap;
+import org.structr.rest.logging.LogEntry;
+import org.structr.rest.logging.LogStore;
 import org.structr.schema.action.ActionContext;
 import org.structr.web.entity.dom.DOMNode;
 
 /**
- *
+ * Appends an entry to the event log. The result has the properties and the
+ * type of the LogEvent nodes that were created by previous versions, but no
+ * id, because the entries are stored in the log store and not in the
+ * database. Logged entries can be queried with GET /structr/rest/log.
  */
 public class LogEventFunction extends UiFunction {
 
@@ -46,29 +47,12 @@ public class LogEventFunction extends UiFunction {
 
 		if (arrayHasMinLengthAndMaxLengthAndAllElementsNotNull(sources, 2, 4)) {
 
-			final String action = sources[0].toString();
+			final String action  = sources[0].toString();
 			final String message = sources[1].toString();
+			final String subject = sources.length > 2 ? sources[2].toString() : null;
+			final String object  = sources.length > 3 ? sources[3].toString() : null;
 
-			final LogEvent logEvent = StructrApp.getInstance().create(LogEvent.class,
-				new NodeAttribute(LogEvent.actionProperty, action),
-				new NodeAttribute(LogEvent.messageProperty, message),
-				new NodeAttribute(LogEvent.timestampProperty, new Date())
-			);
-
-			switch (sources.length) {
-
-				case 4:
-					final String object = sources[3].toString();
-					logEvent.setProperties(logEvent.getSecurityContext(), new PropertyMap(LogEvent.objectProperty, object));
-					// no break, next case should be included
-
-				case 3:
-					final String subject = sources[2].toString();
-					logEvent.setProperties(logEvent.getSecurityContext(), new PropertyMap(LogEvent.subjectProperty, subject));
-					break;
-			}
-
-			return logEvent;
+			return log(action, message, subject, object);
 
 		} else if (sources.length == 1 && sources[0] instanceof Map) {
 
@@ -79,13 +63,7 @@ public class LogEventFunction extends UiFunction {
 			final String subject = DOMNode.objectToString(map.get("subject"));
 			final String object = DOMNode.objectToString(map.get("object"));
 
-			return StructrApp.getInstance().create(LogEvent.class,
-				new NodeAttribute(LogEvent.actionProperty, action),
-				new NodeAttribute(LogEvent.messageProperty, message),
-				new NodeAttribute(LogEvent.timestampProperty, new Date()),
-				new NodeAttribute(LogEvent.subjectProperty, subject),
-				new NodeAttribute(LogEvent.objectProperty, object)
-			);
+			return log(action, message, subject, object);
 
 		} else {
 
@@ -105,4 +83,14 @@ public class LogEventFunction extends UiFunction {
 	public String shortDescription() {
 		return "Logs an event to the Structr log";
 	}
+
+	// ----- private methods -----
+	private GraphObjectMap log(final String action, final String message, final String subject, final String object) throws FrameworkException {
+
+		final LogEntry entry = new LogEntry(System.currentTimeMillis(), subject, object, action, message);
+
+		LogStore.getInstance().append(entry);
+
+		return entry.toGraphObjectMap();
+	}
 }
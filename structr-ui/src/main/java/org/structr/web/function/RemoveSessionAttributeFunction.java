@@ -19,6 +19,7 @@
 package org.structr.web.function;
 
 import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.ReadTracker;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
 import static org.structr.web.function.SetSessionAttributeFunction.SESSION_ATTRIBUTE_PREFIX;
@@ -39,6 +40,9 @@ public class RemoveSessionAttributeFunction extends Function<Object, Object> {
 	@Override
 	public Object apply(final ActionContext ctx, final Object caller, final Object[] sources) throws FrameworkException {
 
+		// the output depends on the session
+		ReadTracker.recordUncacheable();
+
 		try {
 			
 			if (!arrayHasLengthAndAllElementsNotNull(sources, 1)) {
@@ -25,11 +25,11 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.common.AccessMode;
 import org.structr.common.ResultTransformer;
 import org.structr.common.SecurityContext;
@@ -38,7 +38,6 @@ import org.structr.core.JsonInput;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Principal;
-import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyMap;
 import org.structr.module.StructrModule;
 import org.structr.module.api.APIBuilder;
@@ -89,6 +88,7 @@ public class CSVFileImportJob extends ImportJob {
 			final String delimiter                   = getOrDefault(configuration.get("delimiter"), ";");
 			final String quoteChar                   = getOrDefault(configuration.get("quoteChar"), "\"");
 			final Integer commitInterval             = parseInt(configuration.get("commitInterval"), 1000);
+			final Integer writerThreads              = parseInt(configuration.get("writerThreads"), Settings.ImportWriterThreads.getValue());
 
 			logger.info("Importing CSV from {} ({}) to {} using {}", filePath, fileUuid, targetType, configuration);
 
@@ -115,40 +115,24 @@ public class CSVFileImportJob extends ImportJob {
 				final char fieldSeparator          = delimiter.charAt(0);
 				final char quoteCharacter          = quoteChar.charAt(0);
 				final Iterable<JsonInput> iterable = CsvHelper.cleanAndParseCSV(threadContext, new InputStreamReader(is, "utf-8"), targetEntityType, fieldSeparator, quoteCharacter, reverse(importMappings));
-				final Iterator<JsonInput> iterator = iterable.iterator();
-				int chunks                         = 0;
 
-				while (iterator.hasNext()) {
+				// parse on this thread, convert and store on the writer threads
+				final ImportPipeline<JsonInput> pipeline = new ImportPipeline<>(this, commitInterval, writerThreads, Settings.ImportQueueSize.getValue());
 
-					int count = 0;
+				final boolean completed = pipeline.run(iterable.iterator(), (ctx, batch) -> {
 
-					try (final Tx tx = app.tx()) {
+					final App writerApp = StructrApp.getInstance(ctx);
 
-						while (iterator.hasNext() && count++ < commitInterval) {
+					for (final JsonInput input : batch) {
 
-							final JsonInput input = iterator.next();
+						mapper.transformInput(ctx, targetEntityType, input);
 
-							mapper.transformInput(threadContext, targetEntityType, input);
-
-							app.create(targetEntityType, PropertyMap.inputTypeToJavaType(threadContext, targetEntityType, input));
-						}
-
-						tx.success();
-
-						chunks++;
-
-						reportChunk(chunks);
-
-						logger.info("CSV: Finished importing chunk {}", chunks);
-
-					}
-
-					// do this outside of the transaction!
-					shouldPause();
-					if (shouldAbort()) {
-						return;
+						writerApp.create(targetEntityType, PropertyMap.inputTypeToJavaType(ctx, targetEntityType, input));
 					}
+				});
 
+				if (!completed) {
+					return;
 				}
 
 				final long endTime = System.currentTimeMillis();
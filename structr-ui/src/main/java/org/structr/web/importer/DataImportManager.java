@@ -26,6 +26,7 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicLong;
+import org.structr.api.config.Settings;
 import org.structr.common.error.FrameworkException;
 
 public class DataImportManager {
@@ -171,8 +172,8 @@ public class DataImportManager {
 
 	private boolean hasRunningJobs() {
 
-		// if any job is RUNNING or PAUSED, dont auto-start new tasks
-		return (!activeJobs.isEmpty());
+		// if the configured number of jobs is RUNNING or PAUSED, dont auto-start new tasks
+		return activeJobs.size() >= Math.max(1, Settings.ImportParallelJobs.getValue());
 
 //		// if any job is RUNNING, dont auto-start new tasks
 //		// this effectively means that if a user PAUSES a job, the queue is stopped BUT
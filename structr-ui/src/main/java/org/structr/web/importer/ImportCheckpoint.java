@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.TreeSet;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Persistent progress of an import job, stored in a file per imported file.
+ *
+ * The checkpoint records the number of the last batch up to which all
+ * batches have been committed, plus the numbers of the batches beyond that
+ * mark that were committed out of order by parallel writers. An import of
+ * the same file with the same configuration skips all those batches.
+ */
+class ImportCheckpoint {
+
+	private static final Logger logger = LoggerFactory.getLogger(ImportCheckpoint.class.getName());
+
+	private final TreeSet<Long> completed = new TreeSet<>();
+	private Path path                     = null;
+	private String fingerprint            = null;
+	private long watermark                = 0L;
+	private long resumed                  = 0L;
+
+	private ImportCheckpoint(final Path path, final String fingerprint) {
+
+		this.fingerprint = fingerprint;
+		this.path        = path;
+	}
+
+	/**
+	 * Loads the checkpoint for the given file, or creates an empty one
+	 * if none exists or if it was created with a different fingerprint.
+	 *
+	 * @param fileUuid
+	 * @param fingerprint identifies the file contents and the import configuration
+	 * @return the checkpoint
+	 */
+	public static ImportCheckpoint load(final String fileUuid, final String fingerprint) {
+
+		final Path path                   = Paths.get(Settings.getFullSettingPath(Settings.ImportCheckpointPath), fileUuid + ".properties");
+		final ImportCheckpoint checkpoint = new ImportCheckpoint(path, fingerprint);
+
+		if (Files.exists(path)) {
+
+			try (final InputStream is = Files.newInputStream(path)) {
+
+				final Properties properties = new Properties();
+				properties.load(is);
+
+				if (fingerprint.equals(properties.getProperty("fingerprint"))) {
+
+					checkpoint.watermark = Long.valueOf(properties.getProperty("watermark", "0"));
+
+					for (final String batch : StringUtils.split(properties.getProperty("completed", ""), ",")) {
+						checkpoint.completed.add(Long.valueOf(batch));
+					}
+
+					checkpoint.resumed = checkpoint.watermark + checkpoint.completed.size();
+
+				} else {
+
+					logger.info("Ignoring import checkpoint {}, file or configuration have changed.", path);
+				}
+
+			} catch (IOException | NumberFormatException ex) {
+
+				logger.warn("Unable to read import checkpoint {}: {}", path, ex.getMessage());
+			}
+		}
+
+		return checkpoint;
+	}
+
+	/**
+	 * @return the number of batches that were committed by a previous run
+	 */
+	public synchronized long getResumedBatches() {
+		return resumed;
+	}
+
+	public synchronized boolean isCompleted(final long batch) {
+		return batch <= watermark || completed.contains(batch);
+	}
+
+	public synchronized void complete(final long batch) {
+
+		completed.add(batch);
+
+		// advance the watermark over all consecutive batches
+		while (completed.remove(watermark + 1)) {
+			watermark++;
+		}
+
+		store();
+	}
+
+	public synchronized void delete() {
+
+		try {
+
+			Files.deleteIfExists(path);
+
+		} catch (IOException ex) {
+
+			logger.warn("Unable to delete import checkpoint {}: {}", path, ex.getMessage());
+		}
+	}
+
+	// ----- private methods -----
+	private void store() {
+
+		final Properties properties = new Properties();
+
+		properties.setProperty("fingerprint", fingerprint);
+		properties.setProperty("watermark",   Long.toString(watermark));
+		properties.setProperty("completed",   StringUtils.join(completed, ","));
+
+		try {
+
+			final Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+			Files.createDirectories(path.getParent());
+
+			try (final OutputStream os = Files.newOutputStream(tmp)) {
+				properties.store(os, null);
+			}
+
+			// replace the previous checkpoint in a single step
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException ex) {
+
+			logger.warn("Unable to store import checkpoint {}: {}", path, ex.getMessage());
+		}
+	}
+}
@@ -19,6 +19,7 @@
 package org.structr.web.importer;
 
 import java.io.InputStream;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.locks.Condition;
@@ -61,6 +62,7 @@ abstract class ImportJob {
 	protected String filePath;
 	protected String fileName;
 	protected Long fileSize;
+	protected Long fileChecksum;
 	protected JobStatus currentStatus;
 	protected Integer processedChunks = 0;
 
@@ -70,6 +72,7 @@ abstract class ImportJob {
 		this.filePath = file.getPath();
 		this.fileName = file.getName();
 		this.fileSize = file.getSize();
+		this.fileChecksum = file.getChecksum();
 		this.user = user;
 		this.username = user.getName();
 		this.configuration = configuration;
@@ -167,6 +170,14 @@ abstract class ImportJob {
 		return configuration;
 	}
 
+	/**
+	 * Identifies the file contents and the configuration of this job, so
+	 * that a checkpoint is only used for an identical import.
+	 */
+	public String getFingerprint () {
+		return fileSize + ":" + fileChecksum + ":" + configuration;
+	}
+
 	protected void jobFinished() {
 		DataImportManager.getInstance().jobFinished(this);
 	}
@@ -270,10 +281,15 @@ abstract class ImportJob {
 	}
 
 	protected void reportChunk(final int currentChunkNo) {
+		reportChunk(currentChunkNo, Collections.emptyMap());
+	}
+
+	protected void reportChunk(final int currentChunkNo, final Map<String, Object> statistics) {
 		processedChunks = currentChunkNo;
 
 		final Map<String, Object> endMsgData = getWebsocketStatusData(JobStatusMessageSubtype.CHUNK);
 		endMsgData.put("currentChunkNo", currentChunkNo);
+		endMsgData.putAll(statistics);
 		TransactionCommand.simpleBroadcastGenericMessage(endMsgData);
 	}
 
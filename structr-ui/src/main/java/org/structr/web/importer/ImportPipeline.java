@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.importer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.RetryException;
+import org.structr.common.AccessMode;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.Tx;
+
+/**
+ * A staged import pipeline. The calling thread reads the input and groups
+ * it into batches, which are passed to a number of writer threads through
+ * a bounded queue, so that reading blocks when the writers fall behind.
+ * Each writer converts and stores its batches in separate transactions.
+ *
+ * Committed batches are recorded in an {@link ImportCheckpoint}, which
+ * allows an interrupted import to skip them when it is run again.
+ *
+ * @param <T> the type of the parsed input records
+ */
+class ImportPipeline<T> {
+
+	private static final Logger logger   = LoggerFactory.getLogger(ImportPipeline.class.getName());
+	private static final int MAX_RETRIES = 3;
+
+	private final AtomicLong rows                = new AtomicLong();
+	private final AtomicInteger chunks           = new AtomicInteger();
+	private BlockingQueue<Batch<T>> queue        = null;
+	private ImportCheckpoint checkpoint          = null;
+	private ImportJob job                        = null;
+	private volatile FrameworkException failure  = null;
+	private long startTime                       = 0L;
+	private int writerThreads                    = 1;
+	private int batchSize                        = 1000;
+
+	/**
+	 * Converts and stores the records of a batch in the current transaction.
+	 *
+	 * @param <T>
+	 */
+	interface BatchWriter<T> {
+		void write(final SecurityContext securityContext, final List<T> batch) throws FrameworkException;
+	}
+
+	public ImportPipeline(final ImportJob job, final int batchSize, final int writerThreads, final int queueSize) {
+
+		this.queue         = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+		this.writerThreads = Math.max(1, writerThreads);
+		this.batchSize     = Math.max(1, batchSize);
+		this.checkpoint    = ImportCheckpoint.load(job.getFileUuid(), job.getFingerprint());
+		this.job           = job;
+	}
+
+	/**
+	 * Runs the import of all records of the given source.
+	 *
+	 * @param source
+	 * @param writer
+	 * @return true if the import was completed, false if it was aborted
+	 * @throws FrameworkException if a batch could not be stored
+	 */
+	public boolean run(final Iterator<T> source, final BatchWriter<T> writer) throws FrameworkException {
+
+		final ExecutorService executor = Executors.newFixedThreadPool(writerThreads, r -> new Thread(r, "ImportWriter-" + job.jobId()));
+		final long resumed             = checkpoint.getResumedBatches();
+		boolean aborted                = false;
+		long number                    = 0L;
+
+		if (resumed > 0) {
+			logger.info("{}: Resuming import of {}, skipping {} committed chunks.", job.getImportType(), job.getFilePath(), resumed);
+		}
+
+		startTime = System.currentTimeMillis();
+
+		chunks.set((int)resumed);
+
+		for (int i=0; i<writerThreads; i++) {
+			executor.submit(() -> writeBatches(writer));
+		}
+
+		try {
+
+			while (source.hasNext() && failure == null) {
+
+				final List<T> items = new ArrayList<>(batchSize);
+
+				while (source.hasNext() && items.size() < batchSize) {
+					items.add(source.next());
+				}
+
+				// skip batches that were committed by a previous run
+				if (checkpoint.isCompleted(++number)) {
+					continue;
+				}
+
+				// blocks if the writers are behind
+				queue.put(new Batch<>(number, items));
+
+				job.shouldPause();
+				if (job.shouldAbort()) {
+
+					aborted = true;
+					break;
+				}
+			}
+
+		} catch (InterruptedException iex) {
+
+			aborted = true;
+
+		} finally {
+
+			if (aborted || failure != null) {
+				queue.clear();
+			}
+
+			shutdown(executor);
+		}
+
+		if (failure != null) {
+
+			// keep checkpoint so that the import can be resumed
+			throw failure;
+		}
+
+		checkpoint.delete();
+
+		return !aborted;
+	}
+
+	// ----- private methods -----
+	private void writeBatches(final BatchWriter<T> writer) {
+
+		final SecurityContext securityContext = SecurityContext.getInstance(job.user, AccessMode.Backend);
+		final App app                         = StructrApp.getInstance(securityContext);
+
+		securityContext.setDoTransactionNotifications(false);
+
+		try {
+
+			while (true) {
+
+				final Batch<T> batch = queue.take();
+				if (batch.items == null) {
+
+					// end of input
+					return;
+				}
+
+				// discard remaining batches after a failure
+				if (failure != null) {
+					continue;
+				}
+
+				try {
+
+					write(app, securityContext, writer, batch);
+
+					checkpoint.complete(batch.number);
+
+					rows.addAndGet(batch.items.size());
+
+					reportChunk();
+
+				} catch (FrameworkException fex) {
+
+					failure = fex;
+
+				} catch (Throwable t) {
+
+					logger.warn("Unexpected exception in import writer", t);
+					failure = new FrameworkException(500, t.getMessage());
+				}
+			}
+
+		} catch (InterruptedException iex) {
+		}
+	}
+
+	private void write(final App app, final SecurityContext securityContext, final BatchWriter<T> writer, final Batch<T> batch) throws FrameworkException {
+
+		int retries = 0;
+
+		while (true) {
+
+			try (final Tx tx = app.tx()) {
+
+				writer.write(securityContext, batch.items);
+
+				tx.success();
+
+				return;
+
+			} catch (RetryException rex) {
+
+				if (++retries > MAX_RETRIES) {
+					throw new FrameworkException(503, "Unable to commit chunk " + batch.number + " after " + MAX_RETRIES + " retries");
+				}
+
+				logger.info("{}: Retrying chunk {} after deadlock", job.getImportType(), batch.number);
+			}
+		}
+	}
+
+	private synchronized void reportChunk() {
+
+		final long elapsed = Math.max(1L, System.currentTimeMillis() - startTime);
+		final long count   = rows.get();
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		statistics.put("processedRows", count);
+		statistics.put("rowsPerSecond", (count * 1000L) / elapsed);
+		statistics.put("queueDepth",    queue.size());
+		statistics.put("writerThreads", writerThreads);
+
+		final int chunk = chunks.incrementAndGet();
+
+		job.reportChunk(chunk, statistics);
+
+		logger.info("{}: Finished importing chunk {} ({} rows/s, {} chunks queued)", job.getImportType(), chunk, statistics.get("rowsPerSecond"), statistics.get("queueDepth"));
+	}
+
+	private void shutdown(final ExecutorService executor) {
+
+		try {
+
+			// signal end of input to all writers
+			for (int i=0; i<writerThreads; i++) {
+				queue.put(new Batch<>(-1L, null));
+			}
+
+			executor.shutdown();
+
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.info("{}: Waiting for import writers of {} to finish", job.getImportType(), job.getFilePath());
+			}
+
+		} catch (InterruptedException iex) {
+
+			executor.shutdownNow();
+		}
+	}
+
+	// ----- nested classes -----
+	private static class Batch<T> {
+
+		private List<T> items = null;
+		private long number   = 0L;
+
+		public Batch(final long number, final List<T> items) {
+
+			this.number = number;
+			this.items  = items;
+		}
+	}
+}
@@ -30,6 +30,7 @@ import java.util.Map;
 import javax.xml.stream.XMLStreamException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.common.AccessMode;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
@@ -37,7 +38,6 @@ import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
-import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyMap;
 import org.structr.module.StructrModule;
 import org.structr.module.xml.XMLModule;
@@ -87,8 +87,6 @@ public class XMLFileImportJob extends ImportJob {
 
 			final SecurityContext threadContext = SecurityContext.getInstance(user, AccessMode.Backend);
 			threadContext.setDoTransactionNotifications(false);
-			final App app                       = StructrApp.getInstance(threadContext);
-			int overallCount                    = 0;
 
 			try (final InputStream is = getFileInputStream(threadContext)) {
 
@@ -97,41 +95,28 @@ public class XMLFileImportJob extends ImportJob {
 					reportBegin();
 
 					final Iterator<Map<String, Object>> iterator = new XMLHandler(configuration, reader);
-					final int batchSize                          = 100;
-					int chunks                                   = 0;
+					final int batchSize                          = parseInt(configuration.get("commitInterval"), 100);
+					final int writerThreads                      = parseInt(configuration.get("writerThreads"), Settings.ImportWriterThreads.getValue());
 
 					final long startTime = System.currentTimeMillis();
 
-					while (iterator.hasNext()) {
+					// parse on this thread, convert and store on the writer threads
+					final ImportPipeline<Map<String, Object>> pipeline = new ImportPipeline<>(this, batchSize, writerThreads, Settings.ImportQueueSize.getValue());
 
-						int count = 0;
+					final boolean completed = pipeline.run(iterator, (ctx, batch) -> {
 
-						try (final Tx tx = app.tx()) {
+						final App writerApp = StructrApp.getInstance(ctx);
 
-							while (iterator.hasNext() && ++count <= batchSize) {
+						for (final Map<String, Object> input : batch) {
 
-								final PropertyMap map = PropertyMap.inputTypeToJavaType(threadContext, iterator.next());
+							final PropertyMap map = PropertyMap.inputTypeToJavaType(ctx, input);
 
-								app.create(AbstractNode.class, map);
-
-								overallCount++;
-							}
-
-							tx.success();
-
-							chunks++;
-
-							reportChunk(chunks);
-
-							logger.info("XML: Imported {} objects, commiting batch.", overallCount);
-						}
-
-						// do this outside of the transaction!
-						shouldPause();
-						if (shouldAbort()) {
-							return;
+							writerApp.create(AbstractNode.class, map);
 						}
+					});
 
+					if (!completed) {
+						return;
 					}
 
 					final long endTime = System.currentTimeMillis();
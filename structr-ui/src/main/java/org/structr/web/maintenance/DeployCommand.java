@@ -37,11 +37,14 @@ import java.text.DecimalFormatSymbols;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -103,6 +106,7 @@ import org.structr.web.entity.relation.UserFavoriteFavoritable;
 import org.structr.web.entity.relation.UserFavoriteFile;
 import org.structr.web.entity.relation.UserWorkDir;
 import org.structr.web.maintenance.deploy.ComponentImportVisitor;
+import org.structr.web.maintenance.deploy.DeploymentManifest;
 import org.structr.web.maintenance.deploy.FileImportVisitor;
 import org.structr.web.maintenance.deploy.PageImportVisitor;
 import org.structr.web.maintenance.deploy.SchemaImportVisitor;
@@ -217,6 +221,25 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 			throw new FrameworkException(422, "Source path " + path + " is not a directory.");
 		}
 
+		final boolean incremental           = Boolean.valueOf(String.valueOf(attributes.get("incremental")));
+		final int threads                   = getIntegerAttribute(attributes, "threads", Settings.DeploymentThreads.getValue());
+		final DeploymentManifest manifest   = createManifest(source);
+		DeploymentManifest previousManifest = null;
+
+		if (incremental && manifest != null) {
+
+			previousManifest = DeploymentManifest.load(getManifestPath());
+			if (previousManifest == null) {
+
+				info("No manifest of a previous deployment found, importing all data");
+			}
+		}
+
+		// final copy for use in the checks below
+		final DeploymentManifest previous = previousManifest;
+		final Set<String> failedPages     = new TreeSet<>();
+		boolean complete                  = true;
+
 		final Map<String, Object> broadcastData = new HashMap();
 		broadcastData.put("type", "DEPLOYMENT_STATUS");
 		broadcastData.put("subtype", "BEGIN");
@@ -260,7 +283,7 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 		publishDeploymentProgressMessage("Importing resource access grants");
 
 		final Path grantsConf = source.resolve("security/grants.json");
-		if (Files.exists(grantsConf)) {
+		if (Files.exists(grantsConf) && isModified(manifest, previous, "security/grants.json")) {
 
 			info("Reading {}", grantsConf);
 			importListData(ResourceAccess.class, readConfigList(grantsConf));
@@ -268,7 +291,7 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 		// read schema-methods.json
 		final Path schemaMethodsConf = source.resolve("schema-methods.json");
-		if (Files.exists(schemaMethodsConf)) {
+		if (Files.exists(schemaMethodsConf) && isModified(manifest, previous, "schema-methods.json")) {
 
 			info("Reading {}", schemaMethodsConf);
 			final String title = "Deprecation warning";
@@ -282,7 +305,7 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 		// read mail-templates.json
 		final Path mailTemplatesConf = source.resolve("mail-templates.json");
-		if (Files.exists(mailTemplatesConf)) {
+		if (Files.exists(mailTemplatesConf) && isModified(manifest, previous, "mail-templates.json")) {
 
 			info("Reading {}", mailTemplatesConf);
 			publishDeploymentProgressMessage("Importing mail templates");
@@ -292,7 +315,7 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 		// read widgets.json
 		final Path widgetsConf = source.resolve("widgets.json");
-		if (Files.exists(widgetsConf)) {
+		if (Files.exists(widgetsConf) && isModified(manifest, previous, "widgets.json")) {
 
 			info("Reading {}", widgetsConf);
 			publishDeploymentProgressMessage("Importing widgets");
@@ -302,7 +325,7 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 		// read localizations.json
 		final Path localizationsConf = source.resolve("localizations.json");
-		if (Files.exists(localizationsConf)) {
+		if (Files.exists(localizationsConf) && isModified(manifest, previous, "localizations.json")) {
 
 			final PropertyMap additionalData = new PropertyMap();
 
@@ -351,7 +374,11 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 		// import schema
 		final Path schema = source.resolve("schema");
-		if (Files.exists(schema)) {
+		if (Files.exists(schema) && !isModified(manifest, previous, "schema/")) {
+
+			info("Schema is unchanged, skipping schema import");
+
+		} else if (Files.exists(schema)) {
 
 			try {
 
@@ -362,6 +389,7 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 			} catch (IOException ioex) {
 				logger.warn("Exception while importing schema", ioex);
+				complete = false;
 			}
 		}
 
@@ -374,12 +402,13 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 				info("Importing files (unchanged files will be skipped)");
 				publishDeploymentProgressMessage("Importing files");
 
-				FileImportVisitor fiv = new FileImportVisitor(files, filesConf);
+				FileImportVisitor fiv = new FileImportVisitor(files, filesConf, getModifiedFiles(manifest, previous));
 				Files.walkFileTree(files, fiv);
 				fiv.handleDeferredFiles();
 
 			} catch (IOException ioex) {
 				logger.warn("Exception while importing files", ioex);
+				complete = false;
 			}
 		}
 
@@ -405,10 +434,23 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 		final Path components = source.resolve("components");
 		final Path pages      = source.resolve("pages");
 
-		// remove all DOMNodes from the database (clean webapp for import, but only
-		// if the actual import directories exist, don't delete web components if
-		// an empty directory was specified accidentially).
-		if (Files.exists(templates) && Files.exists(components) && Files.exists(pages)) {
+		// pages contain synchronized copies of shared components and templates, so
+		// only modified pages can be imported separately.
+		final boolean pagesOnly = previous != null
+			&& !isModified(manifest, previous, "templates/")
+			&& !isModified(manifest, previous, "components/")
+			&& !isModified(manifest, previous, "templates.json" + DeploymentManifest.CONFIG_SEPARATOR)
+			&& !isModified(manifest, previous, "components.json" + DeploymentManifest.CONFIG_SEPARATOR)
+			&& pagesExist(app, previous);
+
+		if (pagesOnly) {
+
+			info("Templates and shared components are unchanged, importing modified pages only");
+			publishDeploymentProgressMessage("Importing modified pages");
+
+			complete &= importModifiedPages(pages, pagesConf, manifest, previous, threads, failedPages);
+
+		} else if (Files.exists(templates) && Files.exists(components) && Files.exists(pages)) {
 
 			try (final Tx tx = app.tx()) {
 
@@ -427,7 +469,7 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 		}
 
 		// import templates, must be done before pages so the templates exist
-		if (Files.exists(templates)) {
+		if (!pagesOnly && Files.exists(templates)) {
 
 			try {
 
@@ -438,11 +480,12 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 			} catch (IOException ioex) {
 				logger.warn("Exception while importing templates", ioex);
+				complete = false;
 			}
 		}
 
 		// import components, must be done before pages so the shared components exist
-		if (Files.exists(components)) {
+		if (!pagesOnly && Files.exists(components)) {
 
 			try {
 
@@ -453,22 +496,32 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 			} catch (IOException ioex) {
 				logger.warn("Exception while importing shared components", ioex);
+				complete = false;
 			}
 		}
 
 		// import pages
-		if (Files.exists(pages)) {
+		if (!pagesOnly && Files.exists(pages)) {
+
+			final PageImportVisitor visitor = new PageImportVisitor(pages, pagesConf, null, threads);
 
 			try {
 
 				info("Importing pages");
 				publishDeploymentProgressMessage("Importing pages");
 
-				Files.walkFileTree(pages, new PageImportVisitor(pages, pagesConf));
+				Files.walkFileTree(pages, visitor);
 
 			} catch (IOException ioex) {
 				logger.warn("Exception while importing pages", ioex);
+				complete = false;
+
+			} finally {
+
+				visitor.waitForCompletion();
 			}
+
+			failedPages.addAll(visitor.getFailedPages());
 		}
 
 		// apply configuration
@@ -503,6 +556,9 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 		// restore saved value
 		Settings.ChangelogEnabled.setValue(changeLogEnabled);
 
+		// the database now reflects the imported data, except for failed pages
+		storeManifest(manifest, complete, failedPages);
+
 		final long endTime = System.currentTimeMillis();
 		DecimalFormat decimalFormat  = new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
 		final String duration = decimalFormat.format(((endTime - startTime) / 1000.0)) + "s";
@@ -598,6 +654,13 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 			// config import order is "users, grants, pages, components, templates"
 			// data import order is "schema, files, templates, components, pages"
 
+			// record content hashes of the exported data, the database now
+			// reflects the export as well
+			final DeploymentManifest manifest = DeploymentManifest.create(target);
+
+			manifest.store(target.resolve(DeploymentManifest.MANIFEST_FILE_NAME));
+			storeManifest(manifest);
+
 		} catch (IOException ex) {
 			logger.warn("", ex);
 		}
@@ -990,8 +1053,11 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 		if (node.isVisibleToPublicUsers())        { putIf(config, "visibleToPublicUsers", true); }
 		if (node.isVisibleToAuthenticatedUsers()) { putIf(config, "visibleToAuthenticatedUsers", true); }
+		if (node.getProperty(DOMNode.cacheFragment))  { putIf(config, "cacheFragment", true); }
 
 		putIf(config, "contentType",             node.getProperty(Content.contentType));
+		putIf(config, "fragmentCacheKey",        node.getProperty(DOMNode.fragmentCacheKey));
+		putIf(config, "fragmentCacheForSeconds", node.getProperty(DOMNode.fragmentCacheForSeconds));
 
 		if (node instanceof Template) {
 
@@ -1231,6 +1297,201 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 		return Collections.emptyList();
 	}
 
+	private DeploymentManifest createManifest(final Path source) {
+
+		try {
+
+			return DeploymentManifest.create(source);
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to create deployment manifest for {}: {}", source, ioex.getMessage());
+		}
+
+		return null;
+	}
+
+	private void storeManifest(final DeploymentManifest manifest) {
+		storeManifest(manifest, true, Collections.emptySet());
+	}
+
+	/**
+	 * Stores the manifest of a deployment. Pages that failed to import are
+	 * left out, so that the next incremental deployment imports them again.
+	 * If another part of the deployment failed, or a removed page could not
+	 * be deleted, the stored manifest is deleted instead and the next
+	 * incremental deployment imports all data.
+	 */
+	private void storeManifest(final DeploymentManifest manifest, final boolean complete, final Set<String> failedPages) {
+
+		if (manifest != null) {
+
+			boolean valid = complete;
+
+			for (final String name : failedPages) {
+
+				final Set<String> keys = new HashSet<>();
+
+				for (final String key : manifest.getKeys("pages/")) {
+
+					if (name.equals(getPageName(key))) {
+						keys.add(key);
+					}
+				}
+
+				// a removed page that could not be deleted can not be recorded
+				if (keys.isEmpty()) {
+					valid = false;
+				}
+
+				keys.add("pages.json" + DeploymentManifest.CONFIG_SEPARATOR + name);
+
+				for (final String key : keys) {
+					manifest.remove(key);
+				}
+
+				info("Page {} failed to import and will be imported again by the next deployment", name);
+			}
+
+			try {
+
+				if (valid) {
+
+					manifest.store(getManifestPath());
+
+				} else {
+
+					info("Deployment was not complete, the next incremental deployment will import all data");
+					Files.deleteIfExists(getManifestPath());
+				}
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to store deployment manifest: {}", ioex.getMessage());
+			}
+		}
+	}
+
+	private Path getManifestPath() {
+		return Paths.get(Settings.getFullSettingPath(Settings.DeploymentStatePath), DeploymentManifest.MANIFEST_FILE_NAME);
+	}
+
+	private boolean isModified(final DeploymentManifest manifest, final DeploymentManifest previous, final String prefix) {
+		return manifest == null || previous == null || manifest.isModified(previous, prefix);
+	}
+
+	private Set<String> getModifiedFiles(final DeploymentManifest manifest, final DeploymentManifest previous) {
+
+		if (manifest == null || previous == null) {
+			return null;
+		}
+
+		final Set<String> modified = new HashSet<>();
+		final String filesPrefix   = "files/";
+		final String configPrefix  = "files.json" + DeploymentManifest.CONFIG_SEPARATOR;
+
+		for (final String key : manifest.getModified(previous, filesPrefix)) {
+			modified.add(key.substring(filesPrefix.length()));
+		}
+
+		// files.json is keyed by absolute path
+		for (final String key : manifest.getModified(previous, configPrefix)) {
+			modified.add(StringUtils.removeStart(key.substring(configPrefix.length()), "/"));
+		}
+
+		info("Importing {} modified files", modified.size());
+
+		return modified;
+	}
+
+	private boolean pagesExist(final App app, final DeploymentManifest previous) throws FrameworkException {
+
+		final Set<String> names = new HashSet<>();
+
+		try (final Tx tx = app.tx()) {
+
+			for (final Page page : app.nodeQuery(Page.class).getAsList()) {
+				names.add(page.getName());
+			}
+
+			tx.success();
+		}
+
+		// the previous deployment is only a valid base if the pages still exist
+		for (final String key : previous.getKeys("pages/")) {
+
+			if (!names.contains(getPageName(key))) {
+
+				info("Page {} of the previous deployment does not exist", getPageName(key));
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean importModifiedPages(final Path pages, final Map<String, Object> pagesConf, final DeploymentManifest manifest, final DeploymentManifest previous, final int threads, final Set<String> failedPages) {
+
+		final Set<String> modified      = new TreeSet<>();
+		final String configPrefix       = "pages.json" + DeploymentManifest.CONFIG_SEPARATOR;
+		final PageImportVisitor visitor = new PageImportVisitor(pages, pagesConf, modified, threads);
+
+		for (final String key : manifest.getModified(previous, "pages/")) {
+			modified.add(getPageName(key) + ".html");
+		}
+
+		for (final String key : manifest.getModified(previous, configPrefix)) {
+			modified.add(key.substring(configPrefix.length()) + ".html");
+		}
+
+		for (final String key : manifest.getRemoved(previous, "pages/")) {
+			visitor.removePage(getPageName(key));
+		}
+
+		boolean complete = true;
+
+		try {
+
+			if (!modified.isEmpty() && Files.exists(pages)) {
+
+				info("Importing {} modified pages", modified.size());
+
+				Files.walkFileTree(pages, visitor);
+			}
+
+		} catch (IOException ioex) {
+			logger.warn("Exception while importing pages", ioex);
+			complete = false;
+
+		} finally {
+
+			visitor.waitForCompletion();
+		}
+
+		failedPages.addAll(visitor.getFailedPages());
+
+		return complete;
+	}
+
+	private String getPageName(final String key) {
+		return StringUtils.substringBeforeLast(StringUtils.substringAfterLast(key, "/"), ".html");
+	}
+
+	private int getIntegerAttribute(final Map<String, Object> attributes, final String key, final int defaultValue) {
+
+		final Object value = attributes.get(key);
+		if (value != null) {
+
+			try {
+
+				return Double.valueOf(value.toString()).intValue();
+
+			} catch (NumberFormatException nex) {
+				logger.warn("Invalid value for {}: {}", key, value);
+			}
+		}
+
+		return defaultValue;
+	}
+
 	private <T extends NodeInterface> void importListData(final Class<T> type, final List<Map<String, Object>> data, final PropertyMap... additionalData) throws FrameworkException {
 
 		final SecurityContext context = SecurityContext.getSuperUserInstance();
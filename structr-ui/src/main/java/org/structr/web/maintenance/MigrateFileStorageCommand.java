@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.maintenance;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.MaintenanceCommand;
+import org.structr.core.graph.NodeServiceCommand;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyMap;
+import org.structr.rest.resource.MaintenanceParameterResource;
+import org.structr.web.common.FileStreamer;
+import org.structr.web.entity.FileBase;
+import org.structr.web.storage.BlobStore;
+
+/**
+ * Moves the content of all files that are stored in their own file on
+ * disk into the content-addressed blob store, so that files with identical
+ * content share a single blob.
+ *
+ * The original files are linked (or copied, if the file system does not
+ * support hard links) into the store and deleted only after the file nodes
+ * referencing the blobs have been committed.
+ *
+ */
+public class MigrateFileStorageCommand extends NodeServiceCommand implements MaintenanceCommand {
+
+	private static final Logger logger  = LoggerFactory.getLogger(MigrateFileStorageCommand.class.getName());
+	private static final int BATCH_SIZE = 100;
+
+	static {
+
+		MaintenanceParameterResource.registerMaintenanceCommand("migrateFileStorage", MigrateFileStorageCommand.class);
+	}
+
+	@Override
+	public void execute(final Map<String, Object> attributes) throws FrameworkException {
+
+		final App app          = StructrApp.getInstance();
+		final List<String> ids = new LinkedList<>();
+		int migratedCount      = 0;
+
+		try (final Tx tx = app.tx()) {
+
+			for (final FileBase file : app.nodeQuery(FileBase.class).getAsList()) {
+
+				final String relativeFilePath = file.getRelativeFilePath();
+				if (relativeFilePath != null && !BlobStore.isBlobPath(relativeFilePath)) {
+
+					ids.add(file.getUuid());
+				}
+			}
+
+			tx.success();
+		}
+
+		info("Migrating {} files to deduplicated storage", ids.size());
+
+		while (!ids.isEmpty()) {
+
+			final List<File> originals = new LinkedList<>();
+
+			try (final Tx tx = app.tx()) {
+
+				for (int i = 0; i < BATCH_SIZE && !ids.isEmpty(); i++) {
+
+					final FileBase file = app.get(FileBase.class, ids.remove(0));
+					if (file != null) {
+
+						try {
+
+							final File original = migrate(file);
+							if (original != null) {
+
+								originals.add(original);
+							}
+
+						} catch (IOException ex) {
+
+							logger.warn("Unable to migrate file {}: {}", file.getUuid(), ex.getMessage());
+						}
+					}
+				}
+
+				tx.success();
+
+			} catch (FrameworkException fex) {
+
+				logger.warn("Unable to migrate files: {}", fex.getMessage());
+
+				// the files keep their original content
+				for (final File original : originals) {
+					original.setWritable(true);
+				}
+
+				originals.clear();
+			}
+
+			// the blobs are referenced now, remove the original files
+			for (final File original : originals) {
+
+				original.delete();
+				FileStreamer.deleteVariants(original);
+			}
+
+			migratedCount += originals.size();
+
+			info("{} files migrated, {} remaining", migratedCount, ids.size());
+		}
+
+		BlobStore.collectGarbage();
+
+		info("Done with migrating {} files", migratedCount);
+	}
+
+	@Override
+	public boolean requiresEnclosingTransaction() {
+		return false;
+	}
+
+	@Override
+	public boolean requiresFlushingOfCaches() {
+		return false;
+	}
+
+	// ----- private methods -----
+	private File migrate(final FileBase file) throws FrameworkException, IOException {
+
+		final File original = file.getFileOnDisk();
+		if (original == null || !original.isFile()) {
+
+			return null;
+		}
+
+		final File temp = BlobStore.createTempFile();
+
+		try {
+
+			Files.delete(temp.toPath());
+			Files.createLink(temp.toPath(), original.toPath());
+
+		} catch (IOException | UnsupportedOperationException ex) {
+
+			Files.copy(original.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		final String hash            = BlobStore.store(temp);
+		final PropertyMap properties = new PropertyMap();
+
+		properties.put(FileBase.relativeFilePath, BlobStore.getRelativePath(hash));
+		properties.put(FileBase.contentHash, hash);
+
+		file.unlockSystemPropertiesOnce();
+		file.setProperties(file.getSecurityContext(), properties);
+
+		return original;
+	}
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.maintenance.deploy;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A manifest of the content hashes of a deployment export, keyed by the
+ * path of each file relative to the export directory. The configuration
+ * files (pages.json etc.) are additionally hashed per entry, so that the
+ * modification of a single page configuration can be detected without
+ * treating all pages as modified.
+ */
+public class DeploymentManifest {
+
+	private static final Logger logger             = LoggerFactory.getLogger(DeploymentManifest.class.getName());
+	private static final Charset UTF8              = Charset.forName("utf-8");
+	public static final String MANIFEST_FILE_NAME  = "deployment-manifest.json";
+	public static final String CONFIG_SEPARATOR    = "#";
+	private static final Set<String> configFiles   = new TreeSet<>(Arrays.asList("files.json", "pages.json", "components.json", "templates.json"));
+
+	private final Map<String, String> hashes = new TreeMap<>();
+
+	private DeploymentManifest() {
+	}
+
+	/**
+	 * Computes the manifest of the given deployment directory. The files
+	 * are hashed in parallel.
+	 *
+	 * @param source
+	 * @return the manifest
+	 * @throws IOException
+	 */
+	public static DeploymentManifest create(final Path source) throws IOException {
+
+		final DeploymentManifest manifest = new DeploymentManifest();
+		final Gson gson                   = new GsonBuilder().create();
+
+		try (final Stream<Path> files = Files.walk(source)) {
+
+			final Map<String, String> hashes = files
+				.filter(Files::isRegularFile)
+				.filter(path -> !MANIFEST_FILE_NAME.equals(source.relativize(path).toString()))
+				.collect(Collectors.toList())
+				.parallelStream()
+				.collect(Collectors.toMap(path -> getKey(source, path), DeploymentManifest::hash));
+
+			manifest.hashes.putAll(hashes);
+		}
+
+		// hash configuration entries separately
+		for (final String configFile : configFiles) {
+
+			final Path path = source.resolve(configFile);
+			if (Files.exists(path)) {
+
+				try (final Reader reader = Files.newBufferedReader(path, UTF8)) {
+
+					final Map<String, Object> config = gson.fromJson(reader, Map.class);
+					if (config != null) {
+
+						for (final Map.Entry<String, Object> entry : config.entrySet()) {
+
+							manifest.hashes.put(configFile + CONFIG_SEPARATOR + entry.getKey(), DigestUtils.sha1Hex(gson.toJson(entry.getValue())));
+						}
+					}
+				}
+			}
+		}
+
+		return manifest;
+	}
+
+	/**
+	 * Loads a manifest that was stored with {@link #store(Path)}.
+	 *
+	 * @param path
+	 * @return the manifest, or null if the file does not exist or can not be read
+	 */
+	public static DeploymentManifest load(final Path path) {
+
+		if (Files.exists(path)) {
+
+			try (final Reader reader = Files.newBufferedReader(path, UTF8)) {
+
+				final Map<String, String> hashes = new Gson().fromJson(reader, Map.class);
+				if (hashes != null) {
+
+					final DeploymentManifest manifest = new DeploymentManifest();
+
+					manifest.hashes.putAll(hashes);
+
+					return manifest;
+				}
+
+			} catch (Throwable t) {
+				logger.warn("Unable to read deployment manifest {}: {}", path, t.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+	public void store(final Path path) throws IOException {
+
+		final Path parent = path.toAbsolutePath().getParent();
+		final Path tmp    = path.resolveSibling(path.getFileName() + ".tmp");
+
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+
+		try (final Writer writer = Files.newBufferedWriter(tmp, UTF8)) {
+
+			new GsonBuilder().setPrettyPrinting().create().toJson(hashes, writer);
+		}
+
+		// replace the previous manifest atomically
+		Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the keys of all entries that were added or modified since
+	 * the given manifest.
+	 *
+	 * @param previous
+	 * @param prefix
+	 * @return the keys of the modified entries that start with the given prefix
+	 */
+	public Set<String> getModified(final DeploymentManifest previous, final String prefix) {
+
+		final Set<String> modified = new TreeSet<>();
+
+		for (final Map.Entry<String, String> entry : hashes.entrySet()) {
+
+			final String key = entry.getKey();
+
+			if (key.startsWith(prefix) && (entry.getValue().isEmpty() || !entry.getValue().equals(previous.hashes.get(key)))) {
+				modified.add(key);
+			}
+		}
+
+		return modified;
+	}
+
+	/**
+	 * Returns the keys of all entries that were removed since the given
+	 * manifest.
+	 *
+	 * @param previous
+	 * @param prefix
+	 * @return the keys of the removed entries that start with the given prefix
+	 */
+	public Set<String> getRemoved(final DeploymentManifest previous, final String prefix) {
+
+		final Set<String> removed = new TreeSet<>();
+
+		for (final String key : previous.hashes.keySet()) {
+
+			if (key.startsWith(prefix) && !hashes.containsKey(key)) {
+				removed.add(key);
+			}
+		}
+
+		return removed;
+	}
+
+	public boolean isModified(final DeploymentManifest previous, final String prefix) {
+		return !getModified(previous, prefix).isEmpty() || !getRemoved(previous, prefix).isEmpty();
+	}
+
+	/**
+	 * Removes the entry with the given key, so that the corresponding file
+	 * is treated as modified when this manifest is used as the previous
+	 * manifest of a deployment.
+	 *
+	 * @param key
+	 */
+	public void remove(final String key) {
+		hashes.remove(key);
+	}
+
+	public Set<String> getKeys(final String prefix) {
+
+		final Set<String> keys = new TreeSet<>();
+
+		for (final String key : hashes.keySet()) {
+
+			if (key.startsWith(prefix)) {
+				keys.add(key);
+			}
+		}
+
+		return keys;
+	}
+
+	// ----- private methods -----
+	private static String getKey(final Path source, final Path path) {
+
+		// use the same separator on all platforms
+		return source.relativize(path).toString().replace('\\', '/');
+	}
+
+	private static String hash(final Path path) {
+
+		try (final InputStream is = Files.newInputStream(path)) {
+
+			return DigestUtils.sha1Hex(is);
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to hash {}: {}", path, ioex.getMessage());
+		}
+
+		// an unreadable file is always considered modified
+		return "";
+	}
+}
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,8 +66,20 @@ public class FileImportVisitor implements FileVisitor<Path> {
 	private Path basePath                   = null;
 	private App app                         = null;
 	private List<FileBase> deferredFiles    = null;
+	private Set<String> includes            = null;
 
 	public FileImportVisitor(final Path basePath, final Map<String, Object> config) {
+		this(basePath, config, null);
+	}
+
+	/**
+	 * Creates a visitor that only imports the given files.
+	 *
+	 * @param basePath
+	 * @param config
+	 * @param includes the paths of the files to import relative to the base path, or null for all files
+	 */
+	public FileImportVisitor(final Path basePath, final Map<String, Object> config, final Set<String> includes) {
 
 		this.securityContext = SecurityContext.getSuperUserInstance();
 		this.securityContext.setDoTransactionNotifications(false);
@@ -74,6 +87,7 @@ public class FileImportVisitor implements FileVisitor<Path> {
 		this.config          = config;
 		this.app             = StructrApp.getInstance(this.securityContext);
 		this.deferredFiles   = new ArrayList<>();
+		this.includes        = includes;
 	}
 
 	@Override
@@ -88,7 +102,7 @@ public class FileImportVisitor implements FileVisitor<Path> {
 
 			createFolder(file);
 
-		} else if (attrs.isRegularFile()) {
+		} else if (attrs.isRegularFile() && (includes == null || includes.contains(basePath.relativize(file).toString().replace('\\', '/')))) {
 
 			final String fileName = file.getFileName().toString();
 
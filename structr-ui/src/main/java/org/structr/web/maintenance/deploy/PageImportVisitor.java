@@ -26,9 +26,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.RetryException;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
@@ -52,18 +59,43 @@ public class PageImportVisitor implements FileVisitor<Path> {
 	private static final Logger logger        = LoggerFactory.getLogger(PageImportVisitor.class.getName());
 	private static final String DoctypeString = "<!DOCTYPE";
 
+	private static final int MAX_RETRIES      = 3;
+
+	private final Set<String> failedPages          = ConcurrentHashMap.newKeySet();
 	private Map<String, Object> pagesConfiguration = null;
 	private SecurityContext securityContext        = null;
+	private ExecutorService executor               = null;
+	private Set<String> includes                   = null;
 	private Path basePath                          = null;
 	private App app                                = null;
 
 	public PageImportVisitor(final Path basePath, final Map<String, Object> pagesConfiguration) {
+		this(basePath, pagesConfiguration, null, 1);
+	}
+
+	/**
+	 * Creates a visitor that imports the pages in the given number of
+	 * threads. Pages do not depend on each other, so they can be imported
+	 * in parallel once the templates and shared components exist. Callers
+	 * must call {@link #waitForCompletion()} after the file tree walk.
+	 *
+	 * @param basePath
+	 * @param pagesConfiguration
+	 * @param includes the names of the page files to import, or null for all pages
+	 * @param threads
+	 */
+	public PageImportVisitor(final Path basePath, final Map<String, Object> pagesConfiguration, final Set<String> includes, final int threads) {
 
 		this.pagesConfiguration = pagesConfiguration;
 		this.securityContext    = SecurityContext.getSuperUserInstance();
 		this.securityContext.setDoTransactionNotifications(false);
 		this.basePath           = basePath;
+		this.includes           = includes;
 		this.app                = StructrApp.getInstance(this.securityContext);
+
+		if (threads > 1) {
+			this.executor = Executors.newFixedThreadPool(threads);
+		}
 	}
 
 	@Override
@@ -83,14 +115,15 @@ public class PageImportVisitor implements FileVisitor<Path> {
 			} else if (attrs.isRegularFile()) {
 
 				final String fileName = file.getFileName().toString();
-				if (fileName.endsWith(".html")) {
+				if (fileName.endsWith(".html") && (includes == null || includes.contains(fileName))) {
+
+					if (executor != null) {
 
-					try {
+						executor.submit(() -> importPage(file, fileName));
 
-						createPage(file, fileName);
+					} else {
 
-					} catch (FrameworkException fex) {
-						logger.warn("Exception while importing page {}: {}", new Object[] { fileName, fex.toString() });
+						importPage(file, fileName);
 					}
 				}
 			}
@@ -98,6 +131,7 @@ public class PageImportVisitor implements FileVisitor<Path> {
 		} catch (Throwable t) {
 
 			logger.warn("", t);
+			addFailure(file);
 		}
 
 		return FileVisitResult.CONTINUE;
@@ -107,6 +141,8 @@ public class PageImportVisitor implements FileVisitor<Path> {
 	public FileVisitResult visitFileFailed(final Path file, final IOException exc) throws IOException {
 
 		logger.warn("Exception while importing file {}: {}", new Object[] { file.toString(), exc.getMessage() });
+		addFailure(file);
+
 		return FileVisitResult.CONTINUE;
 	}
 
@@ -115,9 +151,108 @@ public class PageImportVisitor implements FileVisitor<Path> {
 		return FileVisitResult.CONTINUE;
 	}
 
+	/**
+	 * Waits for the pages that are imported in parallel.
+	 */
+	public void waitForCompletion() {
+
+		if (executor != null) {
+
+			executor.shutdown();
+
+			try {
+
+				while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+					logger.debug("Waiting for page import to finish..");
+				}
+
+			} catch (InterruptedException iex) {
+				logger.warn("Interrupted while waiting for page import to finish.");
+			}
+		}
+	}
+
+	/**
+	 * Returns the names of the pages that could not be imported or removed.
+	 * The result is only complete after {@link #waitForCompletion()}.
+	 *
+	 * @return the names of the failed pages
+	 */
+	public Set<String> getFailedPages() {
+		return new TreeSet<>(failedPages);
+	}
+
+	/**
+	 * Removes the page with the given name and its elements.
+	 *
+	 * @param name
+	 */
+	public void removePage(final String name) {
+
+		try (final Tx tx = app.tx(true, false, false)) {
+
+			logger.info("Removing page {}..", name);
+
+			deletePage(app, name);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("Exception while removing page {}: {}", name, fex.toString());
+			failedPages.add(name);
+		}
+	}
+
 	// ----- private methods -----
+	private void importPage(final Path file, final String fileName) {
+
+		int retries = 0;
+
+		while (true) {
+
+			try {
+
+				createPage(file, fileName);
+
+				return;
+
+			} catch (RetryException rex) {
+
+				// concurrent imports can deadlock on shared components
+				if (++retries > MAX_RETRIES) {
+
+					logger.warn("Unable to import page {} after {} retries", fileName, MAX_RETRIES);
+					addFailure(file);
+					return;
+				}
+
+			} catch (FrameworkException fex) {
+
+				logger.warn("Exception while importing page {}: {}", new Object[] { fileName, fex.toString() });
+				addFailure(file);
+				return;
+
+			} catch (Throwable t) {
+
+				logger.warn("", t);
+				addFailure(file);
+				return;
+			}
+		}
+	}
+
+	private void addFailure(final Path file) {
+
+		final String fileName = file.getFileName().toString();
+		if (fileName.endsWith(".html")) {
+
+			failedPages.add(StringUtils.substringBeforeLast(fileName, ".html"));
+		}
+	}
+
 	private Page getExistingPage(final String name) throws FrameworkException {
-		return StructrApp.getInstance().nodeQuery(Page.class).andName(name).getFirst();
+		return app.nodeQuery(Page.class).andName(name).getFirst();
 	}
 
 	private void deletePage(final App app, final String name) throws FrameworkException {
@@ -30,27 +30,29 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
-import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -59,7 +61,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
 import org.structr.common.AccessMode;
-import org.structr.common.GraphObjectComparator;
 import org.structr.common.PathHelper;
 import org.structr.common.SecurityContext;
 import org.structr.common.ThreadLocalMatcher;
@@ -75,6 +76,7 @@ import org.structr.core.auth.exception.AuthenticationException;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
+import org.structr.core.graph.ReadTracker;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -86,8 +88,12 @@ import org.structr.schema.ConfigurationProvider;
 import org.structr.util.Base64;
 import org.structr.web.auth.UiAuthenticator;
 import org.structr.web.common.FileHelper;
+import org.structr.web.common.FileStreamer;
+import org.structr.web.common.OutputCache;
+import org.structr.web.common.PageIndex;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.StreamingRenderBuffer;
 import org.structr.web.common.StringRenderBuffer;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.FileBase;
@@ -122,8 +128,9 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 	public static final String OBJECT_RESOLUTION_PROPERTIES = "HtmlServlet.resolveProperties";
 
 	private static final List<String> customResponseHeaders        = new LinkedList<>();
+	private static final List<String> cookieHeaders                = Arrays.asList("Set-Cookie", "Set-Cookie2");
 	private static final ThreadLocalMatcher threadLocalUUIDMatcher = new ThreadLocalMatcher("[a-fA-F0-9]{32}");
-	private static final ExecutorService threadPool                = Executors.newCachedThreadPool();
+	private static ExecutorService renderExecutor                  = null;
 
 	private final Pattern FilenameCleanerPattern                      = Pattern.compile("[\n\r]", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
 	private final StructrHttpServiceConfig config                     = new StructrHttpServiceConfig();
@@ -153,6 +160,28 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 		this.isAsync = Settings.Async.getValue();
 	}
 
+	/**
+	 * Returns the executor for asynchronous rendering. Its number of
+	 * threads and its queue are bounded, a rendering that is rejected
+	 * must be run by the caller.
+	 *
+	 * @return the render executor
+	 */
+	private static synchronized ExecutorService getRenderExecutor() {
+
+		if (renderExecutor == null) {
+
+			final int threads                 = Settings.HtmlAsyncRenderThreads.getValue();
+			final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Settings.HtmlAsyncRenderQueueSize.getValue()));
+
+			executor.allowCoreThreadTimeOut(true);
+
+			renderExecutor = executor;
+		}
+
+		return renderExecutor;
+	}
+
 	@Override
 	public StructrHttpServiceConfig getConfig() {
 		return config;
@@ -171,7 +200,6 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 	protected void doGet(final HttpServletRequest request, final HttpServletResponse response) {
 
 		final Authenticator auth        = getConfig().getAuthenticator();
-		List<Page> pages                = null;
 		boolean requestUriContainsUuids = false;
 
 		SecurityContext securityContext;
@@ -209,6 +237,9 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 			app = StructrApp.getInstance(securityContext);
 
+			ReadTracker tracker  = null;
+			long cacheGeneration = 0L;
+
 			try (final Tx tx = app.tx()) {
 
 				// Ensure access mode is frontend
@@ -236,6 +267,11 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 					// Don't cache if a user is logged in
 					dontCache = true;
 
+				} else if (OutputCache.isEnabled() && "GET".equals(request.getMethod())) {
+
+					// record the objects the output depends on, starting with the page resolution
+					cacheGeneration = OutputCache.getInstance().getGeneration();
+					tracker         = ReadTracker.start();
 				}
 
 				final RenderContext renderContext = RenderContext.getInstance(securityContext, request, response);
@@ -251,7 +287,7 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 				if ((uriParts == null) || (uriParts.length == 0)) {
 
 					// find a visible page
-					rootElement = findIndexPage(securityContext, pages, edit);
+					rootElement = findIndexPage(securityContext, edit);
 
 					logger.debug("No path supplied, trying to find index page");
 
@@ -259,7 +295,7 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 					if (rootElement == null) {
 
-						rootElement = findPage(securityContext, pages, path, edit);
+						rootElement = findPage(securityContext, path, edit);
 
 					} else {
 
@@ -322,7 +358,7 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 						// clear possible entry points
 						request.removeAttribute(POSSIBLE_ENTRY_POINTS_KEY);
 
-						rootElement = findPage(securityContext, pages, StringUtils.substringBeforeLast(path, PathHelper.PATH_SEP), edit);
+						rootElement = findPage(securityContext, StringUtils.substringBeforeLast(path, PathHelper.PATH_SEP), edit);
 
 						renderContext.setDetailsDataObject(dataNode);
 
@@ -453,16 +489,40 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 						setCustomResponseHeaders(response);
 
 						final boolean createsRawData = rootElement.getProperty(Page.pageCreatesRawData);
+						final String cacheKey        = getOutputCacheKey(request, renderContext, rootElement, securityContext, tracker, edit, dontCache);
+
+						if (cacheKey != null) {
 
-						// async or not?
-						if (isAsync && !createsRawData) {
+							final OutputCache.CachedOutput cached = OutputCache.getInstance().get(cacheKey);
+							if (cached != null) {
 
-							final AsyncContext async = request.startAsync();
-							final ServletOutputStream out = async.getResponse().getOutputStream();
-							final AtomicBoolean finished = new AtomicBoolean(false);
-							final DOMNode rootNode = rootElement;
+								writeCachedOutput(response, cached);
 
-							threadPool.submit(new Runnable() {
+								tx.success();
+								return;
+							}
+						}
+
+						// async or not? (output that is to be cached is rendered synchronously)
+						if (isAsync && !createsRawData && cacheKey == null) {
+
+							final long timeout                  = TimeUnit.SECONDS.toMillis(Settings.HtmlAsyncTimeout.getValue());
+							final AsyncContext async            = request.startAsync();
+							final ServletOutputStream out       = async.getResponse().getOutputStream();
+							final StreamingRenderBuffer buffer  = new StreamingRenderBuffer(Settings.HtmlAsyncBufferSize.getValue(), timeout);
+							final RenderWriteListener listener  = new RenderWriteListener(buffer, async, out);
+							final DOMNode rootNode              = rootElement;
+
+							renderContext.setBuffer(buffer);
+
+							// cancel the rendering when the request times out or fails
+							async.setTimeout(timeout);
+							async.addListener(listener);
+
+							// start output write listener
+							out.setWriteListener(listener);
+
+							final Runnable render = new Runnable() {
 
 								@Override
 								public void run() {
@@ -471,7 +531,6 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 										// render
 										rootNode.render(renderContext, 0);
-										finished.set(true);
 
 										tx.success();
 
@@ -480,76 +539,56 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 										t.printStackTrace();
 										logger.warn("Error while rendering page {}: {}", rootNode.getName(), t.getMessage());
 
+										buffer.cancel();
+
 										try {
 
 											response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-											finished.set(true);
 
 										} catch (IOException ex) {
 											logger.warn("", ex);
 										}
-									}
-								}
-
-							});
 
-							// start output write listener
-							out.setWriteListener(new WriteListener() {
-
-								@Override
-								public void onWritePossible() throws IOException {
+									} finally {
 
-									try {
-
-										final Queue<String> queue = renderContext.getBuffer().getQueue();
-										while (out.isReady()) {
-
-											String buffer = null;
-
-											synchronized (queue) {
-												buffer = queue.poll();
-											}
-
-											if (buffer != null) {
-
-												out.print(buffer);
-
-											} else {
-
-												if (finished.get()) {
-
-													async.complete();
+										buffer.finish();
+									}
+								}
+							};
 
-													// prevent this block from being called again
-													break;
-												}
+							try {
 
-												Thread.sleep(1);
-											}
-										}
+								getRenderExecutor().execute(render);
 
-									} catch (Throwable t) {
-										logger.warn("", t);
-									}
-								}
+							} catch (RejectedExecutionException rex) {
 
-								@Override
-								public void onError(Throwable t) {
-									logger.warn("", t);
-								}
-							});
+								// all render threads are busy, so the current (container) thread
+								// renders the page, but it must not wait for the client
+								buffer.disableBackpressure();
+								render.run();
+							}
 
 						} else {
 
 							final StringRenderBuffer buffer = new StringRenderBuffer();
 							renderContext.setBuffer(buffer);
 
+							final Map<String, List<String>> headers = cacheKey != null ? getResponseHeaders(response) : null;
+							final HttpSession session               = cacheKey != null ? request.getSession(false) : null;
+
 							// render
 							rootElement.render(renderContext, 0);
 
+							final byte[] content = buffer.getBuffer().toString().getBytes("utf-8");
+
+							if (cacheKey != null && isCacheable(request, response, headers, session, tracker)) {
+
+								OutputCache.getInstance().put(cacheKey, content, response.getContentType(), getModifiedResponseHeaders(response, headers), tracker, cacheGeneration);
+							}
+
 							try {
 
-								response.getOutputStream().write(buffer.getBuffer().toString().getBytes("utf-8"));
+								response.getOutputStream().write(content);
 								response.getOutputStream().flush();
 								response.getOutputStream().close();
 
@@ -564,6 +603,12 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 			} catch (FrameworkException fex) {
 				logger.error("Exception while processing request", fex);
+
+			} finally {
+
+				if (tracker != null) {
+					tracker.detach();
+				}
 			}
 
 		} catch (IOException | FrameworkException t) {
@@ -584,7 +629,6 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 		final Authenticator auth = getConfig().getAuthenticator();
 		SecurityContext securityContext;
-		List<Page> pages                = null;
 		boolean requestUriContainsUuids = false;
 		final App app;
 
@@ -645,7 +689,7 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 				if ((uriParts == null) || (uriParts.length == 0)) {
 
 					// find a visible page
-					rootElement = findIndexPage(securityContext, pages, edit);
+					rootElement = findIndexPage(securityContext, edit);
 
 					logger.debug("No path supplied, trying to find index page");
 
@@ -653,7 +697,7 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 					if (rootElement == null) {
 
-						rootElement = findPage(securityContext, pages, path, edit);
+						rootElement = findPage(securityContext, path, edit);
 
 					} else {
 						dontCache = true;
@@ -706,7 +750,7 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 						// clear possible entry points
 						request.removeAttribute(POSSIBLE_ENTRY_POINTS_KEY);
 
-						rootElement = findPage(securityContext, pages, StringUtils.substringBeforeLast(path, PathHelper.PATH_SEP), edit);
+						rootElement = findPage(securityContext, StringUtils.substringBeforeLast(path, PathHelper.PATH_SEP), edit);
 
 						renderContext.setDetailsDataObject(dataNode);
 
@@ -1013,44 +1057,39 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 	 * To be compatible with older versions, fallback to name-only lookup.
 	 *
 	 * @param securityContext
-	 * @param pages
 	 * @param path
 	 * @param edit
 	 * @return page
 	 * @throws FrameworkException
 	 */
-	private Page findPage(final SecurityContext securityContext, List<Page> pages, final String path, final EditMode edit) throws FrameworkException {
+	private Page findPage(final SecurityContext securityContext, final String path, final EditMode edit) throws FrameworkException {
 
-		if (pages == null) {
+		final PageIndex index = PageIndex.getInstance();
 
-			pages = StructrApp.getInstance(securityContext).nodeQuery(Page.class).getAsList();
-			Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
-		}
+		for (final String uuid : index.getPagesByPath(path)) {
 
-		for (final Page page : pages) {
-
-			final String pagePath = page.getPath();
-			if (pagePath != null && pagePath.equals(path) && (EditMode.CONTENT.equals(edit) || isVisibleForSite(securityContext.getRequest(), page))) {
+			final Page page = getPage(securityContext, uuid);
+			if (page != null && (EditMode.CONTENT.equals(edit) || isVisibleForSite(securityContext.getRequest(), page))) {
 
 				return page;
 			}
 		}
 
-		final String name     = PathHelper.getName(path);
+		final String name = PathHelper.getName(path);
 
-		for (final Page page : pages) {
+		for (final String uuid : index.getPagesByName(name)) {
 
-			final String pageName = page.getName();
-			if (pageName != null && pageName.equals(name) && (EditMode.CONTENT.equals(edit) || isVisibleForSite(securityContext.getRequest(), page))) {
+			final Page page = getPage(securityContext, uuid);
+			if (page != null && (EditMode.CONTENT.equals(edit) || isVisibleForSite(securityContext.getRequest(), page))) {
 
 				return page;
 			}
 		}
 
-		for (final Page page : pages) {
+		if (index.contains(name)) {
 
-			final String pageUuid = page.getUuid();
-			if (pageUuid != null && pageUuid.equals(name) && (EditMode.CONTENT.equals(edit) || isVisibleForSite(securityContext.getRequest(), page))) {
+			final Page page = getPage(securityContext, name);
+			if (page != null && (EditMode.CONTENT.equals(edit) || isVisibleForSite(securityContext.getRequest(), page))) {
 
 				return page;
 			}
@@ -1064,25 +1103,39 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 	 * current security context and for the given site.
 	 *
 	 * @param securityContext
-	 * @param pages
 	 * @param edit
 	 * @return page
 	 * @throws FrameworkException
 	 */
-	private Page findIndexPage(final SecurityContext securityContext, List<Page> pages, final EditMode edit) throws FrameworkException {
+	private Page findIndexPage(final SecurityContext securityContext, final EditMode edit) throws FrameworkException {
+
+		for (final String uuid : PageIndex.getInstance().getPagesWithPosition()) {
 
-		if (pages == null) {
+			final Page page = getPage(securityContext, uuid);
+			if (page != null && ((EditMode.CONTENT.equals(edit) || isVisibleForSite(securityContext.getRequest(), page)) || (page.getProperty(Page.enableBasicAuth) && page.getProperty(Page.visibleToAuthenticatedUsers)))) {
 
-			pages = StructrApp.getInstance(securityContext).nodeQuery(Page.class).getAsList();
-			Collections.sort(pages, new GraphObjectComparator(Page.position, GraphObjectComparator.ASCENDING));
+				return page;
+			}
 		}
 
-		for (Page page : pages) {
+		return null;
+	}
 
-			if (securityContext.isVisible(page) && page.getProperty(Page.position) != null && ((EditMode.CONTENT.equals(edit) || isVisibleForSite(securityContext.getRequest(), page)) || (page.getProperty(Page.enableBasicAuth) && page.getProperty(Page.visibleToAuthenticatedUsers)))) {
+	/**
+	 * Loads the page with the given UUID from the page index, if it is
+	 * visible in the given security context.
+	 *
+	 * @param securityContext
+	 * @param uuid
+	 * @return page
+	 * @throws FrameworkException
+	 */
+	private Page getPage(final SecurityContext securityContext, final String uuid) throws FrameworkException {
 
-				return page;
-			}
+		final GraphObject obj = StructrApp.getInstance(securityContext).getNodeById(uuid);
+		if (obj instanceof Page && securityContext.isVisible((Page)obj)) {
+
+			return (Page)obj;
 		}
 
 		return null;
@@ -1398,6 +1451,136 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 		return notModified;
 	}
 
+	/**
+	 * Returns the key under which the output of the given root element can
+	 * be cached, or null if the output must not be cached. Only anonymous
+	 * GET requests in non-edit mode for which a read tracker was started
+	 * are cached.
+	 */
+	private String getOutputCacheKey(final HttpServletRequest request, final RenderContext renderContext, final DOMNode rootElement, final SecurityContext securityContext, final ReadTracker tracker, final EditMode edit, final boolean dontCache) {
+
+		if (tracker == null || dontCache || !EditMode.NONE.equals(edit)) {
+			return null;
+		}
+
+		// page might have been found with HTTP Basic Authentication
+		final Principal user = securityContext.getUser(false);
+		if (user != null) {
+			return null;
+		}
+
+		final String site = request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort();
+
+		return OutputCache.getKey(rootElement.getUuid(), site, request.getPathInfo(), request.getQueryString(), String.valueOf(renderContext.getLocale()), null);
+	}
+
+	/**
+	 * Indicates whether the output of a rendering can be stored in the
+	 * output cache. Output is not cached if the response is not OK, if a
+	 * cookie was set or the session was created or replaced during the
+	 * rendering, or if the rendering evaluated anything that can not be
+	 * tracked, e.g. request headers, session attributes or the current
+	 * time. Cookies that were set before the rendering (e.g. the session
+	 * cookie of the request) are never stored, see
+	 * {@link #getModifiedResponseHeaders}.
+	 */
+	private boolean isCacheable(final HttpServletRequest request, final HttpServletResponse response, final Map<String, List<String>> previousHeaders, final HttpSession previousSession, final ReadTracker tracker) {
+
+		if (response.getStatus() != HttpServletResponse.SC_OK || tracker.isUncacheable()) {
+			return false;
+		}
+
+		for (final String name : cookieHeaders) {
+
+			final List<String> values = new LinkedList<>(response.getHeaders(name));
+			if (!values.isEmpty() && !values.equals(previousHeaders.get(name))) {
+				return false;
+			}
+		}
+
+		return request.getSession(false) == previousSession;
+	}
+
+	private boolean isCookieHeader(final String name) {
+
+		for (final String cookieHeader : cookieHeaders) {
+
+			if (cookieHeader.equalsIgnoreCase(name)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void writeCachedOutput(final HttpServletResponse response, final OutputCache.CachedOutput cached) throws IOException {
+
+		final String contentType = cached.getContentType();
+		if (contentType != null) {
+
+			response.setContentType(contentType);
+		}
+
+		for (final Map.Entry<String, List<String>> header : cached.getHeaders().entrySet()) {
+
+			final String name = header.getKey();
+			boolean first     = true;
+
+			for (final String value : header.getValue()) {
+
+				if (first) {
+
+					response.setHeader(name, value);
+					first = false;
+
+				} else {
+
+					response.addHeader(name, value);
+				}
+			}
+		}
+
+		final ServletOutputStream out = response.getOutputStream();
+
+		out.write(cached.getContent());
+		out.flush();
+		out.close();
+	}
+
+	private Map<String, List<String>> getResponseHeaders(final HttpServletResponse response) {
+
+		final Map<String, List<String>> headers = new LinkedHashMap<>();
+
+		for (final String name : response.getHeaderNames()) {
+			headers.put(name, new LinkedList<>(response.getHeaders(name)));
+		}
+
+		return headers;
+	}
+
+	/**
+	 * Returns the response headers that were added or modified since the
+	 * given snapshot was taken, so that they can be restored together with
+	 * cached output.
+	 */
+	private Map<String, List<String>> getModifiedResponseHeaders(final HttpServletResponse response, final Map<String, List<String>> previous) {
+
+		final Map<String, List<String>> headers = getResponseHeaders(response);
+
+		for (final Iterator<Map.Entry<String, List<String>>> it = headers.entrySet().iterator(); it.hasNext();) {
+
+			final Map.Entry<String, List<String>> header = it.next();
+			final String name                            = header.getKey();
+
+			// the content type is restored separately, cookies must never be shared
+			if ("Content-Type".equalsIgnoreCase(name) || isCookieHeader(name) || header.getValue().equals(previous.get(name))) {
+				it.remove();
+			}
+		}
+
+		return headers;
+	}
+
 	private void streamFile(SecurityContext securityContext, final FileBase file, HttpServletRequest request, HttpServletResponse response, final EditMode edit) throws IOException {
 
 		if (!securityContext.isVisible(file)) {
@@ -1408,7 +1591,10 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 		final ServletOutputStream out         = response.getOutputStream();
 		final String downloadAsFilename       = request.getParameter(DOWNLOAD_AS_FILENAME_KEY);
+		final String downloadAsDataUrl        = request.getParameter(DOWNLOAD_AS_DATA_URL_KEY);
+		final FileStreamer streamer           = downloadAsDataUrl == null ? FileStreamer.getInstance(file, request) : null;
 		final Map<String, Object> callbackMap = new LinkedHashMap<>();
+		boolean continuation                  = false;
 
 		// make edit mode available in callback method
 		callbackMap.put("editMode", edit);
@@ -1428,7 +1614,25 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 			callbackMap.put("requestedFileName", downloadAsFilename);
 		}
 
-		if (!EditMode.WIDGET.equals(edit) && notModifiedSince(request, response, file, false)) {
+		boolean notModified = !EditMode.WIDGET.equals(edit) && notModifiedSince(request, response, file, false);
+
+		if (!EditMode.WIDGET.equals(edit) && streamer != null && streamer.hasIfNoneMatch(request)) {
+
+			// If-None-Match takes precedence over If-Modified-Since (RFC 7232)
+			notModified = streamer.isNotModified(request);
+
+			if (notModified) {
+
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				response.setHeader("ETag", streamer.getETag());
+
+			} else {
+
+				response.setStatus(HttpServletResponse.SC_OK);
+			}
+		}
+
+		if (notModified) {
 
 			out.flush();
 			out.close();
@@ -1437,7 +1641,6 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 		} else {
 
-			final String downloadAsDataUrl = request.getParameter(DOWNLOAD_AS_DATA_URL_KEY);
 			if (downloadAsDataUrl != null) {
 
 				IOUtils.write(FileHelper.getBase64String(file), out, "utf-8");
@@ -1449,9 +1652,32 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 
 				callbackMap.put("statusCode", HttpServletResponse.SC_OK);
 
+			} else if (streamer != null) {
+
+				// 2b: stream file from disk to response
+				try {
+
+					callbackMap.put("statusCode", streamer.stream(response));
+
+					continuation = streamer.isContinuation();
+
+				} catch (IOException ioex) {
+
+					logger.debug("Unable to stream file {}: {}", file.getUuid(), ioex.getMessage());
+
+				} finally {
+
+					try {
+						out.flush();
+						out.close();
+
+					} catch (Throwable t) {
+					}
+				}
+
 			} else {
 
-				// 2b: stream file to response
+				// 2c: stream file to response
 				final InputStream in = file.getInputStream();
 				final String contentType = file.getContentType();
 
@@ -1532,8 +1758,9 @@ public class HtmlServlet extends HttpServlet implements HttpServiceServlet {
 		}
 
 
-		// WIDGET mode means "opened in frontend", which we don't want to count as an external download
-		if (!EditMode.WIDGET.equals(edit)) {
+		// WIDGET mode means "opened in frontend", which we don't want to count as an external download,
+		// requests for ranges after the first one (e.g. video seeking) are not counted either
+		if (!EditMode.WIDGET.equals(edit) && !continuation) {
 
 			// call onDownload callback
 			try {
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.servlet;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.web.common.StreamingRenderBuffer;
+
+/**
+ * Writes the output of an asynchronous rendering to the client. The
+ * listener is notified by the container when the client can receive more
+ * data, and by the buffer when new output is available, so that neither
+ * thread needs to poll.
+ *
+ * The listener must also be registered with the async context, so that
+ * the buffer is cancelled (and a suspended rendering thread is resumed)
+ * when the request times out, fails or is completed.
+ *
+ *
+ */
+public class RenderWriteListener implements WriteListener, AsyncListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(RenderWriteListener.class.getName());
+
+	private final AtomicBoolean writing = new AtomicBoolean(false);
+	private final AtomicBoolean completed = new AtomicBoolean(false);
+	private final StreamingRenderBuffer buffer;
+	private final AsyncContext async;
+	private final ServletOutputStream out;
+
+	public RenderWriteListener(final StreamingRenderBuffer buffer, final AsyncContext async, final ServletOutputStream out) {
+
+		this.buffer = buffer;
+		this.async  = async;
+		this.out    = out;
+
+		buffer.setListener(this::write);
+	}
+
+	@Override
+	public void onWritePossible() throws IOException {
+		write();
+	}
+
+	@Override
+	public void onError(Throwable t) {
+
+		logger.warn("Unable to write rendered output: {}", t.getMessage());
+
+		buffer.cancel();
+		complete();
+	}
+
+	// ----- interface AsyncListener -----
+	@Override
+	public void onComplete(final AsyncEvent event) throws IOException {
+		buffer.cancel();
+	}
+
+	@Override
+	public void onTimeout(final AsyncEvent event) throws IOException {
+
+		logger.warn("Timeout while writing rendered output");
+
+		buffer.cancel();
+		complete();
+	}
+
+	@Override
+	public void onError(final AsyncEvent event) throws IOException {
+
+		buffer.cancel();
+		complete();
+	}
+
+	@Override
+	public void onStartAsync(final AsyncEvent event) throws IOException {
+	}
+
+	// ----- private methods -----
+	/**
+	 * Writes the available output while the client can receive it. Only
+	 * one thread writes at a time, a thread that finds the listener busy
+	 * leaves its output to the writing thread.
+	 */
+	private void write() {
+
+		boolean blocked = false;
+
+		do {
+
+			if (!writing.compareAndSet(false, true)) {
+				return;
+			}
+
+			try {
+
+				while (!completed.get()) {
+
+					// the container calls onWritePossible when the client can receive more data
+					if (!out.isReady()) {
+
+						blocked = true;
+						break;
+					}
+
+					final byte[] chunk = buffer.poll();
+					if (chunk != null) {
+
+						out.write(chunk);
+
+					} else {
+
+						if (buffer.isFinished()) {
+							complete();
+						}
+
+						break;
+					}
+				}
+
+			} catch (IOException ioex) {
+
+				logger.warn("Unable to write rendered output: {}", ioex.getMessage());
+
+				buffer.cancel();
+				complete();
+
+			} finally {
+
+				writing.set(false);
+			}
+
+			// output that arrived while this thread was about to stop writing
+			// would otherwise wait for the next notification
+
+		} while (!blocked && !completed.get() && (buffer.hasChunks() || buffer.isFinished()));
+	}
+
+	private void complete() {
+
+		if (completed.compareAndSet(false, true)) {
+			async.complete();
+		}
+	}
+}
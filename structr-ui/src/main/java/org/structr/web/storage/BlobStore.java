@@ -0,0 +1,379 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.Tx;
+import org.structr.web.common.FileHelper;
+import org.structr.web.common.FileStreamer;
+import org.structr.web.entity.FileBase;
+
+/**
+ * Content-addressed store for file contents.
+ *
+ * Each distinct content is stored exactly once, in a read-only blob below
+ * the files directory whose name is the SHA-256 hash of the content. File
+ * nodes reference a blob with their relativeFilePath and the indexed
+ * contentHash property, so the reference count of a blob is the number
+ * of file nodes with its hash.
+ *
+ * Blobs are never deleted together with a file node, because the deletion
+ * may be rolled back. Instead, the garbage collector periodically removes
+ * blobs that have not been referenced for at least the configured grace
+ * period. The modification time of a blob is updated whenever a new
+ * reference to it is created, so a blob can not be collected while the
+ * transaction that references it is still running. Storing and deleting
+ * a blob are serialized per hash, so the collector can not delete a blob
+ * that is being referenced again at the same time.
+ *
+ * The same applies to the private file of a file node that is moved into
+ * the store: it is released when the new content is stored and deleted by
+ * the collector after the grace period, unless the file node still (or
+ * again) references it. Released files are only tracked in memory, so a
+ * restart may leave an unreferenced private file on disk.
+ *
+ *
+ */
+public class BlobStore {
+
+	private static final Logger logger                = LoggerFactory.getLogger(BlobStore.class.getName());
+	private static final Pattern HASH_PATTERN         = Pattern.compile("[0-9a-f]{64}");
+	private static final String BLOB_DIRECTORY        = "blobs";
+	private static final String TMP_DIRECTORY         = "tmp";
+	private static final int BATCH_SIZE               = 1000;
+	private static final Object[] LOCKS               = new Object[256];
+	private static final Queue<Release> releases      = new ConcurrentLinkedQueue<>();
+	private static ScheduledExecutorService collector = null;
+
+	static {
+
+		for (int i = 0; i < LOCKS.length; i++) {
+			LOCKS[i] = new Object();
+		}
+	}
+
+	public static boolean isBlobPath(final String relativeFilePath) {
+		return relativeFilePath != null && relativeFilePath.startsWith(BLOB_DIRECTORY + "/");
+	}
+
+	public static String getRelativePath(final String hash) {
+		return BLOB_DIRECTORY + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+	}
+
+	public static String hash(final File file) throws IOException {
+
+		try (final InputStream is = new FileInputStream(file)) {
+
+			return DigestUtils.sha256Hex(is);
+		}
+	}
+
+	/**
+	 * Creates an empty temporary file on the same file system as the
+	 * blobs, so that it can be moved into the store atomically.
+	 *
+	 * @return the temporary file
+	 * @throws IOException
+	 */
+	public static File createTempFile() throws IOException {
+
+		final Path tmp = getRoot().resolve(TMP_DIRECTORY);
+
+		Files.createDirectories(tmp);
+
+		return Files.createTempFile(tmp, "blob", ".tmp").toFile();
+	}
+
+	/**
+	 * Moves the given file into the store and returns the hash of its
+	 * content. If a blob with the same content exists already, the file
+	 * is deleted instead.
+	 *
+	 * @param source the file to store
+	 * @return the hash of the content
+	 * @throws IOException
+	 */
+	public static String store(final File source) throws IOException {
+
+		final String hash = hash(source);
+		final File blob   = new File(FileHelper.getFilePath(getRelativePath(hash)));
+
+		synchronized (getLock(hash)) {
+
+			// protect an existing blob from the garbage collector until the new reference is committed
+			if (blob.exists() && blob.setLastModified(System.currentTimeMillis())) {
+
+				Files.delete(source.toPath());
+
+			} else {
+
+				Files.createDirectories(blob.getParentFile().toPath());
+
+				try {
+
+					Files.move(source.toPath(), blob.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+				} catch (AtomicMoveNotSupportedException ex) {
+
+					Files.move(source.toPath(), blob.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+
+				blob.setLastModified(System.currentTimeMillis());
+				blob.setReadOnly();
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Returns the number of file nodes that reference the blob with the
+	 * given hash. Must be called in a transaction.
+	 *
+	 * @param hash the content hash
+	 * @return the number of references
+	 * @throws FrameworkException
+	 */
+	public static int getReferenceCount(final String hash) throws FrameworkException {
+		return StructrApp.getInstance().nodeQuery(FileBase.class).and(FileBase.contentHash, hash).getAsList().size();
+	}
+
+	/**
+	 * Schedules the private file of the file node with the given UUID for
+	 * deletion. The file is deleted by the garbage collector after the
+	 * grace period if the file node does not reference it anymore.
+	 *
+	 * @param uuid the UUID of the file node
+	 * @param relativeFilePath the path of the private file
+	 */
+	public static void release(final String uuid, final String relativeFilePath) {
+		releases.add(new Release(uuid, relativeFilePath, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Deletes all blobs that are not referenced by a file node and whose
+	 * last reference is older than the grace period, as well as abandoned
+	 * temporary files and released private files.
+	 *
+	 * @return the number of deleted blobs
+	 */
+	public static int collectGarbage() {
+
+		final long threshold     = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(Settings.BlobGCGracePeriod.getValue());
+		final Path root          = getRoot();
+		final Path tmp           = root.resolve(TMP_DIRECTORY);
+		final List<File> expired = new ArrayList<>();
+		int count                = 0;
+
+		collectReleasedFiles(threshold);
+
+		if (!Files.isDirectory(root)) {
+			return 0;
+		}
+
+		try (final Stream<Path> files = Files.walk(root)) {
+
+			files.map(Path::toFile).filter(f -> f.isFile() && f.lastModified() < threshold).forEach(file -> {
+
+				if (file.toPath().startsWith(tmp)) {
+
+					file.delete();
+
+				} else if (HASH_PATTERN.matcher(file.getName()).matches()) {
+
+					expired.add(file);
+				}
+			});
+
+		} catch (IOException ex) {
+
+			logger.warn("Unable to scan blob directory {}: {}", root, ex.getMessage());
+			return 0;
+		}
+
+		final App app = StructrApp.getInstance();
+
+		for (int i = 0; i < expired.size(); i += BATCH_SIZE) {
+
+			try (final Tx tx = app.tx()) {
+
+				for (final File blob : expired.subList(i, Math.min(i + BATCH_SIZE, expired.size()))) {
+
+					if (getReferenceCount(blob.getName()) == 0) {
+
+						// re-check the modification time, a new reference may have been stored in the meantime
+						synchronized (getLock(blob.getName())) {
+
+							if (blob.lastModified() < threshold && blob.delete()) {
+
+								FileStreamer.deleteVariants(blob);
+								count++;
+							}
+						}
+					}
+				}
+
+				tx.success();
+
+			} catch (FrameworkException fex) {
+
+				logger.warn("Unable to determine blob references: {}", fex.getMessage());
+			}
+		}
+
+		if (count > 0) {
+			logger.info("Deleted {} unreferenced blobs", count);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Starts the periodic garbage collection if it is not running yet.
+	 */
+	public static synchronized void startCollector() {
+
+		if (collector == null) {
+
+			final long interval = Math.max(60, Settings.BlobGCInterval.getValue());
+
+			collector = Executors.newSingleThreadScheduledExecutor(r -> {
+
+				final Thread thread = new Thread(r, "BlobStore");
+				thread.setDaemon(true);
+
+				return thread;
+			});
+
+			collector.scheduleWithFixedDelay(() -> {
+
+				try {
+
+					collectGarbage();
+
+				} catch (Throwable t) {
+
+					logger.warn("Blob garbage collection failed", t);
+				}
+
+			}, interval, interval, TimeUnit.SECONDS);
+		}
+	}
+
+	// ----- package methods -----
+	static Object getLock(final String hexString) {
+		return LOCKS[Integer.parseInt(hexString.substring(0, 2), 16)];
+	}
+
+	// ----- private methods -----
+	private static Path getRoot() {
+		return new File(FileHelper.getFilePath(BLOB_DIRECTORY)).toPath();
+	}
+
+	private static void collectReleasedFiles(final long threshold) {
+
+		final List<Release> expired = new ArrayList<>();
+		int count                   = 0;
+
+		for (final Release release : releases) {
+
+			if (release.timestamp < threshold) {
+				expired.add(release);
+			}
+		}
+
+		final App app = StructrApp.getInstance();
+
+		for (int i = 0; i < expired.size(); i += BATCH_SIZE) {
+
+			try (final Tx tx = app.tx()) {
+
+				for (final Release release : expired.subList(i, Math.min(i + BATCH_SIZE, expired.size()))) {
+
+					final FileBase file = app.get(FileBase.class, release.uuid);
+
+					// keep the file if the commit was rolled back or the file node was detached again
+					if (file == null || !release.relativeFilePath.equals(file.getRelativeFilePath())) {
+
+						final File toDelete = new File(FileHelper.getFilePath(release.relativeFilePath));
+
+						synchronized (getLock(release.uuid)) {
+
+							if (toDelete.isFile() && toDelete.lastModified() < threshold && toDelete.delete()) {
+
+								FileStreamer.deleteVariants(toDelete);
+								count++;
+							}
+						}
+					}
+
+					releases.remove(release);
+				}
+
+				tx.success();
+
+			} catch (FrameworkException fex) {
+
+				logger.warn("Unable to determine private file references: {}", fex.getMessage());
+			}
+		}
+
+		if (count > 0) {
+			logger.info("Deleted {} released private files", count);
+		}
+	}
+
+	// ----- nested classes -----
+	private static class Release {
+
+		private String relativeFilePath = null;
+		private String uuid             = null;
+		private long timestamp          = 0L;
+
+		public Release(final String uuid, final String relativeFilePath, final long timestamp) {
+
+			this.relativeFilePath = relativeFilePath;
+			this.uuid             = uuid;
+			this.timestamp        = timestamp;
+		}
+	}
+}
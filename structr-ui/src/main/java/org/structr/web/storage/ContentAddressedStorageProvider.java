@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.property.PropertyMap;
+import org.structr.web.common.FileHelper;
+import org.structr.web.entity.FileBase;
+
+/**
+ * Stores the content of files in the {@link BlobStore}, so that files with
+ * identical content share a single file on disk.
+ *
+ * New content is written to a temporary file and moved into the store
+ * when it is committed. Files that are modified in place are detached
+ * from the store and are deduplicated again by the migrateFileStorage
+ * maintenance command. The private file of a detached file node is kept
+ * until the node references a blob again, so that a rollback of the
+ * commit does not leave the node without content.
+ *
+ *
+ */
+public class ContentAddressedStorageProvider extends LocalFileStorageProvider {
+
+	public ContentAddressedStorageProvider() {
+		BlobStore.startCollector();
+	}
+
+	@Override
+	public File getWriteTarget(final FileBase file, final boolean append) throws FrameworkException, IOException {
+
+		final File target = BlobStore.createTempFile();
+
+		if (append) {
+
+			final String relativeFilePath = file.getRelativeFilePath();
+			if (relativeFilePath != null) {
+
+				final File current = new File(FileHelper.getFilePath(relativeFilePath));
+				if (current.exists()) {
+
+					Files.copy(current.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					target.setWritable(true);
+				}
+			}
+		}
+
+		return target;
+	}
+
+	@Override
+	public void commit(final FileBase file, final File target) throws FrameworkException, IOException {
+
+		final String previousPath = file.getRelativeFilePath();
+		final String hash         = BlobStore.store(target);
+		final String blobPath     = BlobStore.getRelativePath(hash);
+
+		if (blobPath.equals(previousPath)) {
+			return;
+		}
+
+		// the previous private file is deleted by the garbage collector once the new reference is committed
+		if (previousPath != null && !BlobStore.isBlobPath(previousPath)) {
+
+			BlobStore.release(file.getUuid(), previousPath);
+		}
+
+		final PropertyMap properties = new PropertyMap();
+
+		properties.put(FileBase.relativeFilePath, blobPath);
+		properties.put(FileBase.contentHash, hash);
+
+		file.unlockSystemPropertiesOnce();
+		file.setProperties(file.getSecurityContext(), properties);
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.storage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Provides the {@link FileStorageProvider} that is selected by the setting
+ * files.storage.provider.
+ *
+ *
+ */
+public class FileStorage {
+
+	private static final Logger logger                              = LoggerFactory.getLogger(FileStorage.class.getName());
+	private static final Map<String, FileStorageProvider> providers = new ConcurrentHashMap<>();
+
+	public static FileStorageProvider getProvider() {
+		return providers.computeIfAbsent(Settings.FileStorage.getValue(), FileStorage::createProvider);
+	}
+
+	// ----- private methods -----
+	private static FileStorageProvider createProvider(final String name) {
+
+		switch (name) {
+
+			case "local":
+				return new LocalFileStorageProvider();
+
+			case "deduplicated":
+				return new ContentAddressedStorageProvider();
+		}
+
+		try {
+
+			return (FileStorageProvider)Class.forName(name).newInstance();
+
+		} catch (ReflectiveOperationException | ClassCastException ex) {
+
+			logger.error("Unable to instantiate file storage provider {}, using local storage instead: {}", name, ex.getMessage());
+		}
+
+		return new LocalFileStorageProvider();
+	}
+}
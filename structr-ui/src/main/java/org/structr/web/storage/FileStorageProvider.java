@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import org.structr.common.error.FrameworkException;
+import org.structr.web.entity.FileBase;
+
+/**
+ * Decides where the binary content of a file is stored on disk.
+ *
+ * New content is written to the file returned by {@link #getWriteTarget}
+ * and handed back to the provider with {@link #commit} once it is
+ * complete, so that a provider can move it to its final location and
+ * update the path of the file node.
+ *
+ *
+ */
+public interface FileStorageProvider {
+
+	/**
+	 * Returns the file on disk that new content of the given file is to
+	 * be written to. If append is true, the returned file contains the
+	 * current content of the file.
+	 *
+	 * @param file the file node
+	 * @param append whether the new content will be appended
+	 * @return the file to write to
+	 * @throws FrameworkException
+	 * @throws IOException
+	 */
+	File getWriteTarget(final FileBase file, final boolean append) throws FrameworkException, IOException;
+
+	/**
+	 * Stores the content that was written to the given write target as
+	 * the new content of the given file. Must be called in a transaction.
+	 *
+	 * @param file the file node
+	 * @param target the write target that was obtained for the file
+	 * @throws FrameworkException
+	 * @throws IOException
+	 */
+	void commit(final FileBase file, final File target) throws FrameworkException, IOException;
+
+	/**
+	 * Returns the file on disk that can be modified in place without
+	 * affecting the content of other files.
+	 *
+	 * @param file the file node
+	 * @return the file on disk
+	 * @throws FrameworkException
+	 * @throws IOException
+	 */
+	File getPrivateFile(final FileBase file) throws FrameworkException, IOException;
+
+	InputStream getInputStream(final FileBase file) throws IOException;
+
+	/**
+	 * Releases the content of the given file that is about to be deleted.
+	 *
+	 * @param file the file node
+	 */
+	void delete(final FileBase file);
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyMap;
+import org.structr.web.common.FileHelper;
+import org.structr.web.common.FileStreamer;
+import org.structr.web.entity.FileBase;
+
+/**
+ * Stores the content of each file in its own file on disk, at a path that
+ * is derived from the UUID of the file node.
+ *
+ * Files whose content is stored in the {@link BlobStore} are given their
+ * own copy as soon as they are modified.
+ *
+ *
+ */
+public class LocalFileStorageProvider implements FileStorageProvider {
+
+	@Override
+	public File getWriteTarget(final FileBase file, final boolean append) throws FrameworkException, IOException {
+		return detach(file, append);
+	}
+
+	@Override
+	public void commit(final FileBase file, final File target) throws FrameworkException, IOException {
+	}
+
+	@Override
+	public File getPrivateFile(final FileBase file) throws FrameworkException, IOException {
+		return detach(file, true);
+	}
+
+	@Override
+	public InputStream getInputStream(final FileBase file) throws IOException {
+
+		final String relativeFilePath = file.getRelativeFilePath();
+		if (relativeFilePath != null) {
+
+			return new FileInputStream(FileHelper.getFilePath(relativeFilePath));
+		}
+
+		return null;
+	}
+
+	@Override
+	public void delete(final FileBase file) {
+
+		final String relativeFilePath = file.getRelativeFilePath();
+
+		// blobs are deleted by the garbage collector
+		if (relativeFilePath != null && !BlobStore.isBlobPath(relativeFilePath)) {
+
+			final File toDelete = new File(FileHelper.getFilePath(relativeFilePath));
+
+			if (toDelete.exists() && toDelete.isFile()) {
+
+				toDelete.delete();
+			}
+
+			FileStreamer.deleteVariants(toDelete);
+		}
+	}
+
+	// ----- protected methods -----
+	/**
+	 * Returns the file on disk that is used by the given file node alone,
+	 * and moves the file node to its UUID path if its content is shared.
+	 *
+	 * @param file the file node
+	 * @param copyContent whether to copy the shared content
+	 * @return the file on disk
+	 * @throws FrameworkException
+	 * @throws IOException
+	 */
+	protected File detach(final FileBase file, final boolean copyContent) throws FrameworkException, IOException {
+
+		final String relativeFilePath = file.getRelativeFilePath();
+
+		if (relativeFilePath != null && !BlobStore.isBlobPath(relativeFilePath)) {
+
+			final File fileOnDisk = new File(FileHelper.getFilePath(relativeFilePath));
+
+			fileOnDisk.getParentFile().mkdirs();
+
+			return fileOnDisk;
+		}
+
+		final String uuid        = file.getUuid();
+		final String privatePath = FileBase.getDirectoryPath(uuid) + "/" + uuid;
+		final File privateFile   = new File(FileHelper.getFilePath(privatePath));
+
+		privateFile.getParentFile().mkdirs();
+
+		// a private file that was released earlier must not be collected while it is in use again
+		synchronized (BlobStore.getLock(uuid)) {
+
+			if (copyContent && relativeFilePath != null) {
+
+				final File shared = new File(FileHelper.getFilePath(relativeFilePath));
+				if (shared.exists()) {
+
+					Files.copy(shared.toPath(), privateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					privateFile.setWritable(true);
+				}
+			}
+
+			if (privateFile.exists()) {
+				privateFile.setLastModified(System.currentTimeMillis());
+			}
+		}
+
+		try (final Tx tx = StructrApp.getInstance().tx()) {
+
+			final PropertyMap properties = new PropertyMap();
+
+			properties.put(FileBase.relativeFilePath, privatePath);
+			properties.put(FileBase.contentHash, null);
+
+			file.unlockSystemPropertiesOnce();
+			file.setProperties(file.getSecurityContext(), properties);
+
+			tx.success();
+		}
+
+		return privateFile;
+	}
+}
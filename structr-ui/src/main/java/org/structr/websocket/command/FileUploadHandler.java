@@ -25,10 +25,12 @@ import java.nio.channels.FileChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyMap;
 import org.structr.dynamic.File;
-import org.structr.web.common.FileHelper;
 import org.structr.web.entity.FileBase;
+import org.structr.web.storage.FileStorage;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -44,6 +46,7 @@ public class FileUploadHandler {
 
 	private FileBase file                  = null;
 	private FileChannel privateFileChannel = null;
+	private java.io.File fileOnDisk        = null;
 	private Long size                      = 0L;
 
 	//~--- constructors ---------------------------------------------------
@@ -135,6 +138,8 @@ public class FileUploadHandler {
 
 				this.privateFileChannel = null;
 
+				storeContent();
+
 				//file.increaseVersion();
 				file.notifyUploadCompletion();
 
@@ -164,10 +169,14 @@ public class FileUploadHandler {
 					throw new IOException("Security violation: File path contains ..");
 				}
 
-				String filePath         = FileHelper.getFilePath(relativeFilePath);
-				java.io.File fileOnDisk = new java.io.File(filePath);
+				try {
+
+					this.fileOnDisk = file.getPrivateFileOnDisk();
+
+				} catch (FrameworkException fex) {
 
-				fileOnDisk.getParentFile().mkdirs();
+					throw new IOException(fex);
+				}
 
 				this.privateFileChannel = new FileOutputStream(fileOnDisk, append).getChannel();
 
@@ -179,4 +188,18 @@ public class FileUploadHandler {
 
 	}
 
+	private void storeContent() {
+
+		try (final Tx tx = StructrApp.getInstance().tx()) {
+
+			FileStorage.getProvider().commit(file, fileOnDisk);
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			logger.warn("Unable to store uploaded content of file {}: {}", file.getUuid(), ex.getMessage());
+		}
+	}
+
 }
@@ -26,7 +26,7 @@ import org.structr.core.auth.Authenticator;
 import org.structr.core.auth.exception.AuthenticationException;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
-import org.structr.rest.auth.SessionHelper;
+import org.structr.rest.auth.SessionRegistry;
 import org.structr.schema.action.Actions;
 import org.structr.websocket.StructrWebSocket;
 import org.structr.websocket.message.MessageBuilder;
@@ -83,10 +83,8 @@ public class LoginCommand extends AbstractCommand {
 						ex.log(logger);
 					}
 
-					// Clear possible existing sessions
-					SessionHelper.clearSession(sessionId);
-
-					user.addSessionId(sessionId);
+					// replaces possible existing assignments of this session
+					SessionRegistry.getInstance().register(sessionId, user);
 
 					// store token in response data
 					webSocketData.getNodeData().clear();
@@ -22,9 +22,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.regex.Pattern;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import org.apache.commons.collections.iterators.IteratorEnumeration;
@@ -40,6 +38,7 @@ import org.structr.rest.exception.IllegalPathException;
 import org.structr.rest.exception.NotFoundException;
 import org.structr.rest.resource.Resource;
 import org.structr.rest.servlet.ResourceHelper;
+import org.structr.rest.servlet.RouteTable;
 import org.structr.web.common.UiResourceProvider;
 import org.structr.websocket.StructrWebSocket;
 import org.structr.websocket.message.MessageBuilder;
@@ -85,8 +84,7 @@ public class WrappedRestCommand extends AbstractCommand {
 
 		}
 
-		final Map<Pattern, Class<? extends Resource>> resourceMap = new LinkedHashMap<>();
-		resourceMap.putAll(resourceProvider.getResources());
+		final RouteTable routeTable = RouteTable.forProvider(resourceProvider);
 
 		final StructrWebSocket socket        = this.getWebSocket();
 		final String url                     = (String) nodeData.get("url");
@@ -139,7 +137,7 @@ public class WrappedRestCommand extends AbstractCommand {
 		final StaticValue fakePropertyView = new StaticValue(PropertyView.Public);
 		try {
 
-			resource = ResourceHelper.applyViewTransformation(wrappedRequest, socket.getSecurityContext(), ResourceHelper.optimizeNestedResourceChain(socket.getSecurityContext(), wrappedRequest, resourceMap, fakePropertyView), fakePropertyView);
+			resource = ResourceHelper.applyViewTransformation(wrappedRequest, socket.getSecurityContext(), ResourceHelper.optimizeNestedResourceChain(socket.getSecurityContext(), wrappedRequest, routeTable, fakePropertyView), fakePropertyView);
 
 		} catch (IllegalPathException | NotFoundException e) {
 
@@ -1750,7 +1750,7 @@ var Structr = {
 		var fileImportTexts = {
 			QUEUED: 'Import of <b>' + data.filename + '</b> will begin after currently running import(s)',
 			BEGIN: 'Started importing data from <b>' + data.filename + '</b>',
-			CHUNK: 'Finished importing chunk ' + data.currentChunkNo + ' of <b>' + data.filename + '</b>',
+			CHUNK: 'Finished importing chunk ' + data.currentChunkNo + ' of <b>' + data.filename + '</b>' + (data.rowsPerSecond !== undefined ? ' (' + data.rowsPerSecond + ' rows/s, ' + data.queueDepth + ' chunks queued)' : ''),
 			END: 'Finished importing data from <b>' + data.filename + '</b> (Time: ' + data.duration + ')',
 			WAIT_ABORT: 'The import of <b>' + data.filename + '</b> will be aborted after finishing the current chunk',
 			ABORTED: 'The import of <b>' + data.filename + '</b> has been aborted',
@@ -1773,7 +1773,7 @@ var Structr = {
 
 					var texts = {
 						BEGIN: 'Started importing CSV data',
-						CHUNK: 'Finished importing chunk ' + data.currentChunkNo + ' / ' + data.totalChunkNo,
+						CHUNK: 'Finished importing chunk ' + data.currentChunkNo + (data.totalChunkNo !== undefined ? ' / ' + data.totalChunkNo : '') + (data.rowsPerSecond !== undefined ? ' (' + data.rowsPerSecond + ' rows/s)' : ''),
 						END:   'Finished importing CSV data (Time: ' + data.duration + ')'
 					};
 
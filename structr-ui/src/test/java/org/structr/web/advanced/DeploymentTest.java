@@ -1844,6 +1844,85 @@ public class DeploymentTest extends StructrUiTest {
 		compare(calculateHash(), true);
 	}
 
+	@Test
+	public void test39IncrementalImport() {
+
+		final DeployCommand cmd = app.command(DeployCommand.class);
+		final Path tmp          = Paths.get("/tmp/structr-deployment-test" + System.currentTimeMillis() + System.nanoTime());
+		String unmodifiedId     = null;
+
+		// setup
+		try (final Tx tx = app.tx()) {
+
+			Page.createSimplePage(securityContext, "test39a");
+			unmodifiedId = Page.createSimplePage(securityContext, "test39b").getUuid();
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try {
+
+			final Map<String, Object> exportParams = new HashMap<>();
+			exportParams.put("mode", "export");
+			exportParams.put("target", tmp.toString());
+
+			cmd.execute(exportParams);
+
+			Assert.assertTrue("Export should contain a deployment manifest", Files.exists(tmp.resolve("deployment-manifest.json")));
+
+			// modify one page
+			final Path modifiedPage = tmp.resolve("pages/test39a.html");
+			final String content    = new String(Files.readAllBytes(modifiedPage), "utf-8");
+
+			Files.write(modifiedPage, content.replace("Initial body text", "Modified body text").getBytes("utf-8"));
+
+			final Map<String, Object> importParams = new HashMap<>();
+			importParams.put("source", tmp.toString());
+			importParams.put("incremental", true);
+			importParams.put("threads", 2);
+
+			cmd.execute(importParams);
+
+			try (final Tx tx = app.tx()) {
+
+				Assert.assertNotNull("Modified page should be imported", app.nodeQuery(Content.class).and(Content.content, "Modified body text").getFirst());
+				Assert.assertNotNull("Unmodified page should not be imported", app.get(Page.class, unmodifiedId));
+
+				tx.success();
+			}
+
+			// remove the unmodified page
+			Files.delete(tmp.resolve("pages/test39b.html"));
+
+			cmd.execute(importParams);
+
+			try (final Tx tx = app.tx()) {
+
+				Assert.assertNull("Removed page should be deleted", app.nodeQuery(Page.class).andName("test39b").getFirst());
+				Assert.assertNotNull("Modified page should still exist", app.nodeQuery(Page.class).andName("test39a").getFirst());
+
+				tx.success();
+			}
+
+		} catch (IOException | FrameworkException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception.");
+
+		} finally {
+
+			try {
+				// clean directories
+				Files.walkFileTree(tmp, new DeletingFileVisitor());
+				Files.delete(tmp);
+
+			} catch (IOException ioex) {}
+		}
+	}
+
 	// ----- private methods -----
 	private void compare(final String sourceHash, final boolean deleteTestDirectory) {
 		compare(sourceHash, deleteTestDirectory, true);
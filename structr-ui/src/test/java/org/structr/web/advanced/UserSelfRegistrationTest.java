@@ -31,6 +31,7 @@ import org.structr.api.config.Settings;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
+import org.structr.rest.auth.SessionRegistry;
 import org.structr.web.StructrUiTest;
 import org.structr.web.auth.UiAuthenticator;
 import org.structr.web.entity.User;
@@ -202,6 +203,9 @@ public class UserSelfRegistrationTest extends StructrUiTest {
 			.when()
 			.get(HtmlServlet.CONFIRM_REGISTRATION_PAGE);
 
+		// sessions are written asynchronously
+		SessionRegistry.getInstance().flush();
+
 		// verify that the user has no confirmation key
 		try (final Tx tx = app.tx()) {
 
@@ -0,0 +1,278 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.basic;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import org.apache.commons.io.IOUtils;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Test;
+import org.structr.api.config.Settings;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.Tx;
+import org.structr.dynamic.File;
+import org.structr.web.StructrUiTest;
+import org.structr.web.common.FileHelper;
+import org.structr.web.entity.FileBase;
+import org.structr.web.maintenance.MigrateFileStorageCommand;
+import org.structr.web.storage.BlobStore;
+
+/**
+ * Tests for the deduplicated storage of file contents.
+ */
+public class FileStorageTest extends StructrUiTest {
+
+	private static final String CONTENT = "abcdefghijklmnopqrstuvwxyz";
+
+	@After
+	public void resetStorage() {
+
+		Settings.FileStorage.setValue("local");
+		Settings.BlobGCGracePeriod.setValue(3600);
+	}
+
+	@Test
+	public void testDeduplication() {
+
+		Settings.FileStorage.setValue("deduplicated");
+
+		final FileBase file1 = createFile("file1.txt", CONTENT);
+		final FileBase file2 = createFile("file2.txt", CONTENT);
+
+		try (final Tx tx = app.tx()) {
+
+			final String hash = file1.getProperty(FileBase.contentHash);
+
+			assertNotNull("File should reference a blob", hash);
+			assertTrue("File should reference a blob", BlobStore.isBlobPath(file1.getRelativeFilePath()));
+			assertEquals("Files with identical content should share a blob", file1.getRelativeFilePath(), file2.getRelativeFilePath());
+			assertEquals("Invalid reference count", 2, BlobStore.getReferenceCount(hash));
+			assertEquals("Invalid content", CONTENT, IOUtils.toString(file2.getInputStream(), "utf-8"));
+
+			// writing creates a new blob and leaves the other file unchanged
+			try (final OutputStream out = file1.getOutputStream()) {
+				out.write("modified".getBytes("utf-8"));
+			}
+
+			assertNotEquals("Modified file should reference a new blob", hash, file1.getProperty(FileBase.contentHash));
+			assertEquals("Invalid content", "modified", IOUtils.toString(file1.getInputStream(), "utf-8"));
+			assertEquals("Invalid content", CONTENT, IOUtils.toString(file2.getInputStream(), "utf-8"));
+			assertEquals("Invalid reference count", 1, BlobStore.getReferenceCount(hash));
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testPrivateCopy() {
+
+		Settings.FileStorage.setValue("deduplicated");
+
+		final FileBase file1 = createFile("file1.txt", CONTENT);
+		final FileBase file2 = createFile("file2.txt", CONTENT);
+
+		try (final Tx tx = app.tx()) {
+
+			final java.io.File privateFile = file1.getPrivateFileOnDisk();
+
+			assertFalse("Private file should not be a blob", BlobStore.isBlobPath(file1.getRelativeFilePath()));
+			assertNull("Private file should not reference a blob", file1.getProperty(FileBase.contentHash));
+			assertEquals("Private file should contain the shared content", CONTENT, IOUtils.toString(file1.getInputStream(), "utf-8"));
+
+			try (final OutputStream out = new java.io.FileOutputStream(privateFile, true)) {
+				out.write("!".getBytes("utf-8"));
+			}
+
+			assertEquals("Invalid content", CONTENT + "!", IOUtils.toString(file1.getInputStream(), "utf-8"));
+			assertEquals("Shared content should be unchanged", CONTENT, IOUtils.toString(file2.getInputStream(), "utf-8"));
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testPrivateFileRelease() {
+
+		Settings.FileStorage.setValue("deduplicated");
+
+		final FileBase file      = createFile("file1.txt", CONTENT);
+		java.io.File privateFile = null;
+		String privatePath       = null;
+
+		try (final Tx tx = app.tx()) {
+
+			privateFile = file.getPrivateFileOnDisk();
+			privatePath = file.getRelativeFilePath();
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		// a rolled back write must not remove the private file
+		try (final Tx tx = app.tx()) {
+
+			try (final OutputStream out = file.getOutputStream()) {
+				out.write("modified".getBytes("utf-8"));
+			}
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		Settings.BlobGCGracePeriod.setValue(-1);
+		BlobStore.collectGarbage();
+
+		try (final Tx tx = app.tx()) {
+
+			final FileBase reloaded = app.get(FileBase.class, file.getUuid());
+
+			assertEquals("File should still reference its private file", privatePath, reloaded.getRelativeFilePath());
+			assertTrue("Private file should survive a rollback", privateFile.exists());
+			assertEquals("Invalid content", CONTENT, IOUtils.toString(reloaded.getInputStream(), "utf-8"));
+
+			try (final OutputStream out = reloaded.getOutputStream()) {
+				out.write("modified".getBytes("utf-8"));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertTrue("Private file should not be deleted in the commit", privateFile.exists());
+
+		Settings.BlobGCGracePeriod.setValue(3600);
+		BlobStore.collectGarbage();
+
+		assertTrue("Private file should not be collected within the grace period", privateFile.exists());
+
+		Settings.BlobGCGracePeriod.setValue(-1);
+		BlobStore.collectGarbage();
+
+		assertFalse("Released private file should be collected", privateFile.exists());
+	}
+
+	@Test
+	public void testMigrationAndGarbageCollection() {
+
+		final FileBase file1 = createFile("file1.txt", CONTENT);
+		final FileBase file2 = createFile("file2.txt", CONTENT);
+		java.io.File original = null;
+		java.io.File blob     = null;
+
+		try (final Tx tx = app.tx()) {
+
+			assertFalse("Local file should not be a blob", BlobStore.isBlobPath(file1.getRelativeFilePath()));
+
+			original = file1.getFileOnDisk();
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try {
+
+			app.command(MigrateFileStorageCommand.class).execute(new HashMap<>());
+
+		} catch (FrameworkException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertTrue("Migrated file should reference a blob", BlobStore.isBlobPath(file1.getRelativeFilePath()));
+			assertEquals("Files with identical content should share a blob", file1.getRelativeFilePath(), file2.getRelativeFilePath());
+			assertFalse("Original file should be deleted", original.exists());
+			assertEquals("Invalid content", CONTENT, IOUtils.toString(file2.getInputStream(), "utf-8"));
+
+			blob = file1.getFileOnDisk();
+
+			app.delete(file1);
+			app.delete(file2);
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertTrue("Blob should survive the deletion of the referencing files", blob.exists());
+		assertEquals("Blob should not be collected within the grace period", 0, BlobStore.collectGarbage());
+
+		Settings.BlobGCGracePeriod.setValue(-1);
+
+		assertTrue("Unreferenced blob should be collected", BlobStore.collectGarbage() > 0);
+		assertFalse("Unreferenced blob should be collected", blob.exists());
+	}
+
+	// ----- private methods -----
+	private FileBase createFile(final String name, final String content) {
+
+		try (final Tx tx = app.tx()) {
+
+			final FileBase file = FileHelper.createFile(securityContext, content.getBytes("utf-8"), "text/plain", File.class, name);
+
+			tx.success();
+
+			return file;
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.basic;
+
+import com.jayway.restassured.RestAssured;
+import com.jayway.restassured.response.Response;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.Tx;
+import org.structr.dynamic.File;
+import org.structr.web.StructrUiTest;
+import org.structr.web.common.FileHelper;
+import org.structr.web.common.FileStreamer;
+import org.structr.web.common.FileStreamer.Range;
+import org.structr.web.entity.FileBase;
+
+/**
+ * Tests for the delivery of files by the HtmlServlet.
+ */
+public class FileStreamerTest extends StructrUiTest {
+
+	private static final String CONTENT = "abcdefghijklmnopqrstuvwxyz";
+
+	@Test
+	public void testParseRanges() {
+
+		final List<Range> ranges = FileStreamer.parseRanges("bytes=0-1, 5-, -3", 26);
+
+		assertEquals("Invalid number of ranges", 3, ranges.size());
+		assertEquals("Invalid range", "bytes 0-1/26",   ranges.get(0).getContentRange(26));
+		assertEquals("Invalid range", "bytes 5-25/26",  ranges.get(1).getContentRange(26));
+		assertEquals("Invalid range", "bytes 23-25/26", ranges.get(2).getContentRange(26));
+
+		assertEquals("End of range should be limited to the content length", "bytes 20-25/26", FileStreamer.parseRanges("bytes=20-100", 26).get(0).getContentRange(26));
+		assertTrue("Range after the end of the content should be unsatisfiable", FileStreamer.parseRanges("bytes=26-30", 26).isEmpty());
+		assertNull("Invalid range should be ignored", FileStreamer.parseRanges("bytes=5-1", 26));
+		assertNull("Invalid range should be ignored", FileStreamer.parseRanges("items=0-1", 26));
+		assertNull("Invalid range should be ignored", FileStreamer.parseRanges("bytes=a-b", 26));
+	}
+
+	@Test
+	public void testRangesAndETags() {
+
+		createFile("test.txt", "text/plain");
+
+		RestAssured.basePath = "";
+
+		final Response response = RestAssured
+			.expect()
+				.statusCode(200)
+				.header("Accept-Ranges", equalTo("bytes"))
+				.body(equalTo(CONTENT))
+			.when()
+				.get("/test.txt");
+
+		final String etag = response.getHeader("ETag");
+
+		assertNotNull("File should have an entity tag", etag);
+		assertTrue("Entity tag should be strong", etag.startsWith("\""));
+
+		RestAssured.given().header("If-None-Match", etag).expect().statusCode(304).when().get("/test.txt");
+		RestAssured.given().header("If-None-Match", "\"other\"").expect().statusCode(200).body(equalTo(CONTENT)).when().get("/test.txt");
+
+		// single range
+		RestAssured
+			.given()
+				.header("Range", "bytes=2-5")
+			.expect()
+				.statusCode(206)
+				.header("Content-Range", equalTo("bytes 2-5/26"))
+				.body(equalTo("cdef"))
+			.when()
+				.get("/test.txt");
+
+		// multiple ranges
+		RestAssured
+			.given()
+				.header("Range", "bytes=0-1,-2")
+			.expect()
+				.statusCode(206)
+				.contentType(startsWith("multipart/byteranges; boundary="))
+				.body(containsString("Content-Range: bytes 0-1/26\r\n\r\nab\r\n"))
+				.body(containsString("Content-Range: bytes 24-25/26\r\n\r\nyz\r\n"))
+			.when()
+				.get("/test.txt");
+
+		// If-Range with a different entity tag delivers the whole file
+		RestAssured.given().header("Range", "bytes=2-5").header("If-Range", "\"other\"").expect().statusCode(200).body(equalTo(CONTENT)).when().get("/test.txt");
+
+		// unsatisfiable range
+		RestAssured.given().header("Range", "bytes=100-").expect().statusCode(416).header("Content-Range", equalTo("bytes */26")).when().get("/test.txt");
+	}
+
+	@Test
+	public void testPrecompressedVariant() {
+
+		final FileBase file = createFile("test.css", "text/css");
+
+		try (final Tx tx = app.tx()) {
+
+			final java.io.File fileOnDisk = file.getFileOnDisk();
+
+			try (final OutputStream out = new GZIPOutputStream(Files.newOutputStream(new java.io.File(fileOnDisk.getPath() + ".gz").toPath()))) {
+				out.write(CONTENT.getBytes("utf-8"));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "";
+
+		final String etag = RestAssured
+			.given()
+				.header("Accept-Encoding", "gzip")
+			.expect()
+				.statusCode(200)
+				.header("Content-Encoding", equalTo("gzip"))
+				.header("Vary", equalTo("Accept-Encoding"))
+				.body(equalTo(CONTENT))
+			.when()
+				.get("/test.css").getHeader("ETag");
+
+		assertTrue("Entity tag of the variant should differ", etag.endsWith("-gzip\""));
+
+		// ranges refer to the unencoded content
+		RestAssured
+			.given()
+				.header("Accept-Encoding", "gzip")
+				.header("Range", "bytes=0-2")
+			.expect()
+				.statusCode(206)
+				.body(equalTo("abc"))
+			.when()
+				.get("/test.css");
+	}
+
+	// ----- private methods -----
+	private FileBase createFile(final String name, final String contentType) {
+
+		try (final Tx tx = app.tx()) {
+
+			final FileBase file = FileHelper.createFile(securityContext, CONTENT.getBytes("utf-8"), contentType, File.class, name);
+
+			file.setProperty(FileBase.visibleToPublicUsers, true);
+
+			tx.success();
+
+			return file;
+
+		} catch (FrameworkException | IOException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		return null;
+	}
+}
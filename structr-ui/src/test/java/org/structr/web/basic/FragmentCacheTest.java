@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.Tx;
+import org.structr.web.StructrUiTest;
+import org.structr.web.common.FragmentCache;
+import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.entity.TestOne;
+import org.structr.web.entity.dom.Content;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
+import org.structr.web.entity.html.Div;
+
+/**
+ * Tests for the fragment cache of DOM nodes.
+ */
+public class FragmentCacheTest extends StructrUiTest {
+
+	@Test
+	public void test01SubtreeInvalidation() {
+
+		try (final Tx tx = app.tx()) {
+
+			Page.createSimplePage(securityContext, "fragment");
+
+			app.nodeQuery(Div.class).getFirst().setProperty(DOMNode.cacheFragment, true);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertTrue("Invalid rendering result", render().contains("Initial body text"));
+
+			final long hits = getHits();
+
+			assertTrue("Invalid rendering result", render().contains("Initial body text"));
+			assertEquals("Unmodified fragment should be served from the cache", hits + 1, getHits());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		// modification of a node in the subtree
+		try (final Tx tx = app.tx()) {
+
+			app.nodeQuery(Content.class).and(Content.content, "Initial body text").getFirst().setProperty(Content.content, "Modified body text");
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final String result = render();
+
+			assertTrue("Modified content should be rendered", result.contains("Modified body text"));
+			assertFalse("Modified content should be rendered", result.contains("Initial body text"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		// new node in the subtree
+		try (final Tx tx = app.tx()) {
+
+			final Page page = app.nodeQuery(Page.class).andName("fragment").getFirst();
+			final Div div   = app.nodeQuery(Div.class).getFirst();
+
+			div.appendChild(page.createTextNode("Appended text"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertTrue("New child should be rendered", render().contains("Appended text"));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void test02MaxAge() {
+
+		try (final Tx tx = app.tx()) {
+
+			Page.createSimplePage(securityContext, "fragment");
+
+			final Div div = app.nodeQuery(Div.class).getFirst();
+
+			div.setProperty(DOMNode.cacheFragment, true);
+			div.setProperty(DOMNode.fragmentCacheForSeconds, 1);
+
+			app.nodeQuery(Content.class).and(Content.content, "Initial body text").getFirst().setProperty(Content.content, "${random(16)}");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final String first = render();
+
+			assertEquals("Fragment should be served from the cache", first, render());
+
+			Thread.sleep(1500);
+
+			assertNotEquals("Expired fragment should be rendered again", first, render());
+
+			tx.success();
+
+		} catch (FrameworkException | InterruptedException ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void test03KeyExpression() {
+
+		try (final Tx tx = app.tx()) {
+
+			Page.createSimplePage(securityContext, "fragment");
+
+			final Div div = app.nodeQuery(Div.class).getFirst();
+
+			div.setProperty(DOMNode.cacheFragment, true);
+			div.setProperty(DOMNode.fragmentCacheKey, "${size(find('TestOne'))}");
+
+			app.nodeQuery(Content.class).and(Content.content, "Initial body text").getFirst().setProperty(Content.content, "${random(16)}");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final String first = renderInTransaction();
+
+		assertEquals("Fragment should be served from the cache", first, renderInTransaction());
+
+		try (final Tx tx = app.tx()) {
+
+			createTestNode(TestOne.class);
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertNotEquals("Fragment with a different key should be rendered again", first, renderInTransaction());
+	}
+
+	// ----- private methods -----
+	private long getHits() {
+		return FragmentCache.getInstance().getStatistics().get("hits");
+	}
+
+	private String render() throws FrameworkException {
+		return app.nodeQuery(Page.class).andName("fragment").getFirst().getContent(EditMode.NONE);
+	}
+
+	private String renderInTransaction() {
+
+		try (final Tx tx = app.tx()) {
+
+			final String result = render();
+
+			tx.success();
+
+			return result;
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		return null;
+	}
+}
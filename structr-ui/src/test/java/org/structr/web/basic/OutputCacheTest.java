@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.basic;
+
+import com.jayway.restassured.RestAssured;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.web.StructrUiTest;
+import org.structr.web.common.OutputCache;
+import org.structr.web.entity.TestOne;
+import org.structr.web.entity.dom.Content;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
+
+/**
+ * Tests for the rendered output cache and the page index of the HtmlServlet.
+ */
+public class OutputCacheTest extends StructrUiTest {
+
+	@Test
+	public void test01ModifiedContent() {
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page = Page.createSimplePage(securityContext, "cached");
+
+			makePublicRecursively(page);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "";
+
+		RestAssured.expect().statusCode(200).body(containsString("Initial body text")).when().get("/cached");
+
+		final long hits = getHits();
+
+		RestAssured.expect().statusCode(200).body(containsString("Initial body text")).when().get("/cached");
+
+		assertEquals("Unmodified page should be served from the cache", hits + 1, getHits());
+
+		// unrelated objects must not invalidate the cached output
+		try (final Tx tx = app.tx()) {
+
+			createTestNode(TestOne.class);
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.expect().statusCode(200).body(containsString("Initial body text")).when().get("/cached");
+
+		assertEquals("Unrelated modification should not invalidate the cached output", hits + 2, getHits());
+
+		try (final Tx tx = app.tx()) {
+
+			final Content content = app.nodeQuery(Content.class).and(Content.content, "Initial body text").getFirst();
+
+			content.setProperty(Content.content, "Modified body text");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.expect().statusCode(200).body(containsString("Modified body text")).when().get("/cached");
+	}
+
+	@Test
+	public void test02CreatedObjects() {
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page       = Page.createSimplePage(securityContext, "list");
+			final Content content = app.nodeQuery(Content.class).and(Content.content, "Initial body text").getFirst();
+
+			content.setProperty(Content.content, "${size(find('TestOne'))} objects");
+
+			makePublicRecursively(page);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "";
+
+		RestAssured.expect().statusCode(200).body(containsString("0 objects")).when().get("/list");
+		RestAssured.expect().statusCode(200).body(containsString("0 objects")).when().get("/list");
+
+		try (final Tx tx = app.tx()) {
+
+			createTestNode(TestOne.class, new NodeAttribute<>(AbstractNode.visibleToPublicUsers, true));
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.expect().statusCode(200).body(containsString("1 objects")).when().get("/list");
+	}
+
+	@Test
+	public void test03RenamedPage() {
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page = Page.createSimplePage(securityContext, "before");
+
+			makePublicRecursively(page);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "";
+
+		RestAssured.expect().statusCode(200).body(containsString("Before")).when().get("/before");
+
+		try (final Tx tx = app.tx()) {
+
+			app.nodeQuery(Page.class).andName("before").getFirst().setProperty(AbstractNode.name, "after");
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.expect().statusCode(404).when().get("/before");
+		RestAssured.expect().statusCode(200).body(containsString("After")).when().get("/after");
+	}
+
+	@Test
+	public void test04ModifiedObjects() {
+
+		try (final Tx tx = app.tx()) {
+
+			final Page page       = Page.createSimplePage(securityContext, "matches");
+			final Content content = app.nodeQuery(Content.class).and(Content.content, "Initial body text").getFirst();
+
+			content.setProperty(Content.content, "${size(find('TestOne', 'name', 'match'))} matches");
+
+			createTestNode(TestOne.class, new NodeAttribute<>(AbstractNode.name, "other"), new NodeAttribute<>(AbstractNode.visibleToPublicUsers, true));
+
+			makePublicRecursively(page);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "";
+
+		RestAssured.expect().statusCode(200).body(containsString("0 matches")).when().get("/matches");
+		RestAssured.expect().statusCode(200).body(containsString("0 matches")).when().get("/matches");
+
+		// the modified object was not part of the result before
+		try (final Tx tx = app.tx()) {
+
+			app.nodeQuery(TestOne.class).andName("other").getFirst().setProperty(AbstractNode.name, "match");
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.expect().statusCode(200).body(containsString("1 matches")).when().get("/matches");
+	}
+
+	@Test
+	public void test05UncacheableOutput() {
+
+		try (final Tx tx = app.tx()) {
+
+			final Page timePage     = Page.createSimplePage(securityContext, "time");
+			final Content time      = app.nodeQuery(Content.class).and(Content.content, "Initial body text").getFirst();
+
+			time.setProperty(Content.content, "Time: ${now}");
+
+			final Page sessionPage  = Page.createSimplePage(securityContext, "session");
+			final Content session   = app.nodeQuery(Content.class).and(Content.content, "Initial body text").getFirst();
+
+			session.setProperty(Content.content, "Session: ${set_session_attribute('key', 'value')}");
+
+			makePublicRecursively(timePage);
+			makePublicRecursively(sessionPage);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		RestAssured.basePath = "";
+
+		final long hits = getHits();
+
+		RestAssured.expect().statusCode(200).body(containsString("Time: ")).when().get("/time");
+		RestAssured.expect().statusCode(200).body(containsString("Time: ")).when().get("/time");
+		RestAssured.expect().statusCode(200).body(containsString("Session: ")).when().get("/session");
+		RestAssured.expect().statusCode(200).body(containsString("Session: ")).when().get("/session");
+
+		assertEquals("Time- and session-dependent output must not be cached", hits, getHits());
+	}
+
+	// ----- private methods -----
+	private long getHits() {
+		return OutputCache.getInstance().getStatistics().get("hits");
+	}
+
+	private void makePublicRecursively(final DOMNode node) throws FrameworkException {
+
+		node.setProperty(DOMNode.visibleToAuthenticatedUsers, true);
+		node.setProperty(DOMNode.visibleToPublicUsers, true);
+
+		for (final DOMNode child : node.getProperty(DOMNode.children)) {
+
+			makePublicRecursively(child);
+		}
+	}
+}
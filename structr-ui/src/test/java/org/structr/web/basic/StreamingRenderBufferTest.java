@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.basic;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.structr.web.common.StreamingRenderBuffer;
+
+/**
+ * Tests for the chunk queue of the asynchronous rendering.
+ */
+public class StreamingRenderBufferTest {
+
+	@Test
+	public void testChunkedOutput() {
+
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(1024 * 1024);
+		final ByteArrayOutputStream out    = new ByteArrayOutputStream();
+		final StringBuilder expected       = new StringBuilder();
+
+		for (int i=0; i<10000; i++) {
+
+			final String s = "<p>" + i + " äöü</p>";
+
+			buffer.append(s);
+			expected.append(s);
+		}
+
+		assertFalse("Buffer must not be finished before finish() was called", buffer.isFinished());
+
+		buffer.finish();
+
+		byte[] chunk = null;
+		while ((chunk = buffer.poll()) != null) {
+
+			out.write(chunk, 0, chunk.length);
+		}
+
+		assertTrue("Buffer should be finished", buffer.isFinished());
+		assertEquals("Invalid output", expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testBackpressure() throws InterruptedException {
+
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(16 * 1024);
+		final AtomicBoolean rendered       = new AtomicBoolean(false);
+		final String data                  = new String(new char[1024]).replace('\0', 'x');
+
+		final Thread renderer = new Thread(() -> {
+
+			for (int i=0; i<1024; i++) {
+				buffer.append(data);
+			}
+
+			buffer.finish();
+			rendered.set(true);
+		});
+
+		renderer.start();
+
+		Thread.sleep(500);
+
+		assertFalse("Rendering should be suspended while the buffer is full", rendered.get());
+
+		long count = 0L;
+
+		while (!buffer.isFinished()) {
+
+			final byte[] chunk = buffer.poll();
+			if (chunk != null) {
+
+				count += chunk.length;
+
+			} else {
+
+				Thread.sleep(1);
+			}
+		}
+
+		renderer.join(TimeUnit.SECONDS.toMillis(10));
+
+		assertTrue("Rendering should be resumed", rendered.get());
+		assertEquals("Invalid number of bytes", 1024 * 1024, count);
+		assertNull("No output should be left", buffer.poll());
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(16 * 1024);
+		final AtomicBoolean rendered       = new AtomicBoolean(false);
+		final String data                  = new String(new char[1024]).replace('\0', 'x');
+
+		final Thread renderer = new Thread(() -> {
+
+			for (int i=0; i<1024; i++) {
+				buffer.append(data);
+			}
+
+			buffer.finish();
+			rendered.set(true);
+		});
+
+		renderer.start();
+
+		Thread.sleep(500);
+
+		// a client that goes away must not block the rendering thread
+		buffer.cancel();
+
+		renderer.join(TimeUnit.SECONDS.toMillis(10));
+
+		assertTrue("Rendering should be resumed", rendered.get());
+		assertNull("Output should be discarded", buffer.poll());
+	}
+
+	@Test
+	public void testDeadline() throws InterruptedException {
+
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(16 * 1024, 200);
+		final AtomicBoolean rendered       = new AtomicBoolean(false);
+		final String data                  = new String(new char[1024]).replace('\0', 'x');
+
+		final Thread renderer = new Thread(() -> {
+
+			for (int i=0; i<1024; i++) {
+				buffer.append(data);
+			}
+
+			buffer.finish();
+			rendered.set(true);
+		});
+
+		renderer.start();
+
+		// nobody consumes the output
+		renderer.join(TimeUnit.SECONDS.toMillis(10));
+
+		assertTrue("Rendering should be resumed after the deadline", rendered.get());
+		assertNull("Output should be discarded", buffer.poll());
+	}
+
+	@Test
+	public void testWithoutBackpressure() {
+
+		final StreamingRenderBuffer buffer = new StreamingRenderBuffer(16 * 1024);
+		final String data                  = new String(new char[1024]).replace('\0', 'x');
+
+		buffer.disableBackpressure();
+
+		// must not block although nobody consumes the output
+		for (int i=0; i<1024; i++) {
+			buffer.append(data);
+		}
+
+		buffer.finish();
+
+		long count = 0L;
+
+		byte[] chunk = null;
+		while ((chunk = buffer.poll()) != null) {
+
+			count += chunk.length;
+		}
+
+		assertTrue("Buffer should be finished", buffer.isFinished());
+		assertEquals("Invalid number of bytes", 1024 * 1024, count);
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2010-2017 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.importer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.structr.api.config.Settings;
+
+/**
+ *
+ */
+public class ImportCheckpointTest {
+
+	private String basePath = null;
+	private Path directory  = null;
+
+	@Before
+	public void setup() throws IOException {
+
+		basePath  = Settings.BasePath.getValue();
+		directory = Files.createTempDirectory("structr-import-checkpoints");
+
+		Settings.BasePath.setValue(directory.toString());
+	}
+
+	@After
+	public void teardown() {
+
+		Settings.BasePath.setValue(basePath);
+	}
+
+	@Test
+	public void testOutOfOrderCompletion() {
+
+		final ImportCheckpoint checkpoint = ImportCheckpoint.load("file1", "fingerprint");
+
+		Assert.assertEquals("New checkpoint should not contain batches", 0, checkpoint.getResumedBatches());
+
+		// batches 1, 2 and 4 are committed, batch 3 is still running when the import fails
+		checkpoint.complete(2);
+		checkpoint.complete(1);
+		checkpoint.complete(4);
+
+		final ImportCheckpoint resumed = ImportCheckpoint.load("file1", "fingerprint");
+
+		Assert.assertEquals("Invalid number of resumed batches", 3, resumed.getResumedBatches());
+		Assert.assertTrue("Committed batch should be skipped", resumed.isCompleted(1));
+		Assert.assertTrue("Committed batch should be skipped", resumed.isCompleted(2));
+		Assert.assertFalse("Uncommitted batch must not be skipped", resumed.isCompleted(3));
+		Assert.assertTrue("Committed batch should be skipped", resumed.isCompleted(4));
+		Assert.assertFalse("Uncommitted batch must not be skipped", resumed.isCompleted(5));
+	}
+
+	@Test
+	public void testChangedFingerprint() {
+
+		ImportCheckpoint.load("file2", "fingerprint").complete(1);
+
+		Assert.assertEquals("Checkpoint should be resumed", 1, ImportCheckpoint.load("file2", "fingerprint").getResumedBatches());
+		Assert.assertEquals("Checkpoint of a different import must not be resumed", 0, ImportCheckpoint.load("file2", "changed").getResumedBatches());
+
+		ImportCheckpoint.load("file2", "fingerprint").delete();
+
+		Assert.assertEquals("Deleted checkpoint must not be resumed", 0, ImportCheckpoint.load("file2", "fingerprint").getResumedBatches());
+	}
+}